@@ -72,6 +72,12 @@ kotlin {
             }
         }
 
+        val androidTest by getting {
+            dependencies {
+                implementation("junit:junit:4.13.2")
+            }
+        }
+
         val desktopMain by getting {
             dependsOn(commonMain)
             kotlin.srcDirs(
@@ -161,5 +167,8 @@ android {
             res.srcDirs("src/androidMain/res", "src/androidMain/resources", "src/commonMain/resources")
             java.srcDirs("src/androidMain/kotlin")
         }
+        named("test") {
+            java.srcDirs("src/androidTest/kotlin")
+        }
     }
 }
@@ -43,10 +43,21 @@
  */
 package org.eclipse.jgit.api;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.JGitInternalException;
@@ -56,15 +67,24 @@ import org.eclipse.jgit.dircache.DirCacheBuildIterator;
 import org.eclipse.jgit.dircache.DirCacheBuilder;
 import org.eclipse.jgit.dircache.DirCacheEntry;
 import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.dircache.UntrackedCache;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.internal.storage.file.PackInserter;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.CoreConfig.AutoCRLF;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.ThreadSafeProgressMonitor;
 import org.eclipse.jgit.treewalk.FileTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.WorkingTreeIterator;
 import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.util.IO;
 
 /**
  * A class used to execute a {@code Add} command. It has setters for all
@@ -76,9 +96,21 @@ import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
  *      >Git documentation about Add</a>
  */
 public class AddCommand extends GitCommand<DirCache> {
+	/**
+	 * Fewer new files than this are stored as loose objects, like the default
+	 * unpack limit of C git; more are written into one pack.
+	 */
+	private static final int MIN_PACK_FILES = 100;
+
+	/** Larger files are streamed rather than read into memory. */
+	private static final int MAX_BULK_FILE_SIZE = 8 << 20;
+
+	private static final int FILES_PER_TASK = 16;
 
 	private Collection<String> filepatterns;
 
+	private Executor executor;
+
 	private WorkingTreeIterator workingTreeIterator;
 
 	private boolean update = false;
@@ -138,6 +170,7 @@ public class AddCommand extends GitCommand<DirCache> {
 			addAll = true;
 
 		ObjectInserter inserter = repo.newObjectInserter();
+		ObjectReader reader = repo.newObjectReader();
 		try {
 			dc = repo.lockDirCache();
 			DirCacheIterator c;
@@ -145,14 +178,25 @@ public class AddCommand extends GitCommand<DirCache> {
 			DirCacheBuilder builder = dc.builder();
 			final TreeWalk tw = new TreeWalk(repo);
 			tw.addTree(new DirCacheBuildIterator(builder));
-			if (workingTreeIterator == null)
-				workingTreeIterator = new FileTreeIterator(repo);
+			if (workingTreeIterator == null) {
+				FileTreeIterator it = new FileTreeIterator(repo);
+				if (repo.getConfig().getBoolean(
+						ConfigConstants.CONFIG_CORE_SECTION, null,
+						ConfigConstants.CONFIG_KEY_UNTRACKED_CACHE, false)) {
+					// Updated listings are written with the new index.
+					if (dc.getUntrackedCache() == null)
+						dc.setUntrackedCache(new UntrackedCache());
+					it.setUntrackedCache(dc.getUntrackedCache());
+				}
+				workingTreeIterator = it;
+			}
 			tw.addTree(workingTreeIterator);
 			tw.setRecursive(true);
 			if (!addAll)
 				tw.setFilter(PathFilterGroup.createFromStrings(filepatterns));
 
 			String lastAddedFile = null;
+			List<Blob> blobs = new ArrayList<Blob>();
 
 			while (tw.next()) {
 				String path = tw.getPathString();
@@ -172,7 +216,11 @@ public class AddCommand extends GitCommand<DirCache> {
 						if (f != null) { // the file exists
 							long sz = f.getEntryLength();
 							DirCacheEntry entry = new DirCacheEntry(path);
-							if (c == null || c.getDirCacheEntry() == null
+							if (isUnchanged(c, f, reader)) {
+								// Keep the entry, and so the cached trees.
+								builder.add(c.getDirCacheEntry());
+								lastAddedFile = path;
+							} else if (c == null || c.getDirCacheEntry() == null
 									|| !c.getDirCacheEntry().isAssumeValid()) {
 								FileMode mode = f.getIndexFileMode(c);
 								entry.setFileMode(mode);
@@ -181,14 +229,21 @@ public class AddCommand extends GitCommand<DirCache> {
 									entry.setLength(sz);
 									entry.setLastModified(f
 											.getEntryLastModified());
-									long contentSize = f
-											.getEntryContentLength();
-									InputStream in = f.openEntryStream();
-									try {
-										entry.setObjectId(inserter.insert(
-												Constants.OBJ_BLOB, contentSize, in));
-									} finally {
-										in.close();
+									if (canReadDirectly(f, mode, sz))
+										blobs.add(new Blob(entry,
+												((FileTreeIterator) f)
+														.getEntryFile()));
+									else {
+										long contentSize = f
+												.getEntryContentLength();
+										InputStream in = f.openEntryStream();
+										try {
+											entry.setObjectId(inserter.insert(
+													Constants.OBJ_BLOB,
+													contentSize, in));
+										} finally {
+											in.close();
+										}
 									}
 								} else
 									entry.setObjectId(f.getEntryObjectId());
@@ -205,6 +260,7 @@ public class AddCommand extends GitCommand<DirCache> {
 					}
 				}
 			}
+			insertBlobs(blobs, inserter);
 			inserter.flush();
 			builder.commit();
 			setCallable(false);
@@ -213,6 +269,7 @@ public class AddCommand extends GitCommand<DirCache> {
 					JGitText.get().exceptionCaughtDuringExecutionOfAddCommand, e);
 		} finally {
 			inserter.release();
+			reader.release();
 			if (dc != null)
 				dc.unlock();
 		}
@@ -220,6 +277,199 @@ public class AddCommand extends GitCommand<DirCache> {
 		return dc;
 	}
 
+	/**
+	 * @return true if the index entry matches the file by its metadata, so
+	 *         the file need not be hashed again.
+	 */
+	private static boolean isUnchanged(DirCacheIterator c,
+			WorkingTreeIterator f, ObjectReader reader) throws IOException {
+		if (c == null)
+			return false;
+		DirCacheEntry e = c.getDirCacheEntry();
+		if (e == null || e.getStage() != DirCacheEntry.STAGE_0
+				|| e.isAssumeValid() || FileMode.GITLINK == e.getFileMode())
+			return false;
+		return f.getIndexFileMode(c) == e.getFileMode()
+				&& !f.isModified(e, false, reader);
+	}
+
+	/**
+	 * @return true if the current file is read as is, without filtering, and
+	 *         is small enough to be hashed in memory.
+	 */
+	private static boolean canReadDirectly(WorkingTreeIterator f,
+			FileMode mode, long sz) {
+		return f instanceof FileTreeIterator
+				&& (FileMode.REGULAR_FILE == mode
+						|| FileMode.EXECUTABLE_FILE == mode)
+				&& f.getOptions().getAutoCRLF() == AutoCRLF.FALSE
+				&& sz <= MAX_BULK_FILE_SIZE;
+	}
+
+	/**
+	 * Insert the content of files collected while walking the working tree
+	 * and set the object ids of their entries.
+	 * <p>
+	 * Many files are hashed and compressed in parallel if an executor is
+	 * available, and written into one new pack rather than as loose objects.
+	 *
+	 * @param blobs
+	 *            files to insert.
+	 * @param inserter
+	 *            inserter for loose objects.
+	 * @throws IOException
+	 */
+	private void insertBlobs(List<Blob> blobs, ObjectInserter inserter)
+			throws IOException {
+		if (blobs.size() < MIN_PACK_FILES
+				|| !(repo.getObjectDatabase() instanceof ObjectDirectory)) {
+			insertBlobs(blobs, inserter, new byte[0]);
+			return;
+		}
+
+		PackInserter packer = ((ObjectDirectory) repo.getObjectDatabase())
+				.newPackInserter();
+		try {
+			Executor pool = getParallelExecutor(blobs.size());
+			if (pool == null)
+				insertBlobs(blobs, packer, new byte[0]);
+			else {
+				try {
+					insertParallel(pool, blobs, packer);
+				} finally {
+					if (pool != executor)
+						((ExecutorService) pool).shutdown();
+				}
+			}
+			packer.flush();
+		} finally {
+			packer.release();
+		}
+	}
+
+	private void insertParallel(Executor pool, List<Blob> blobs,
+			final ObjectInserter packer) throws IOException {
+		final ThreadSafeProgressMonitor pm = new ThreadSafeProgressMonitor(
+				NullProgressMonitor.INSTANCE);
+		final List<Throwable> errors = Collections
+				.synchronizedList(new ArrayList<Throwable>());
+		int tasks = (blobs.size() + FILES_PER_TASK - 1) / FILES_PER_TASK;
+
+		pm.startWorkers(tasks);
+		for (int i = 0; i < blobs.size(); i += FILES_PER_TASK) {
+			final List<Blob> run = blobs.subList(i,
+					Math.min(i + FILES_PER_TASK, blobs.size()));
+			Runnable task = new Runnable() {
+				public void run() {
+					try {
+						if (!errors.isEmpty())
+							return;
+						insertBlobs(run, packer, new byte[0]);
+					} catch (Throwable failure) {
+						errors.add(failure);
+					} finally {
+						pm.endWorker();
+					}
+				}
+			};
+			try {
+				pool.execute(task);
+			} catch (RejectedExecutionException e) {
+				task.run();
+			}
+		}
+		try {
+			pm.waitForCompletion();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException();
+		}
+
+		if (!errors.isEmpty()) {
+			Throwable err = errors.get(0);
+			if (err instanceof Error)
+				throw (Error) err;
+			if (err instanceof RuntimeException)
+				throw (RuntimeException) err;
+			if (err instanceof IOException)
+				throw (IOException) err;
+			IOException fail = new IOException(err.getMessage());
+			fail.initCause(err);
+			throw fail;
+		}
+	}
+
+	/**
+	 * Read each file through its channel and insert it.
+	 *
+	 * @param blobs
+	 *            files to insert.
+	 * @param ins
+	 *            inserter to insert the content with.
+	 * @param buf
+	 *            buffer to read files into; grown as needed.
+	 * @throws IOException
+	 */
+	private static void insertBlobs(List<Blob> blobs, ObjectInserter ins,
+			byte[] buf) throws IOException {
+		for (Blob b : blobs) {
+			// The file may have changed size since the walk. Read to the
+			// end, asking for one byte more than expected to notice growth,
+			// and record the length actually inserted.
+			int len = 0;
+			int want = b.entry.getLength() + 1;
+			FileInputStream in = new FileInputStream(b.file);
+			try {
+				FileChannel ch = in.getChannel();
+				for (;;) {
+					if (buf.length < len + want) {
+						byte[] n = new byte[Math.max(len + want,
+								2 * buf.length)];
+						System.arraycopy(buf, 0, n, 0, len);
+						buf = n;
+					}
+					int n = IO.read(ch, buf, len, want);
+					if (n > 0)
+						len += n;
+					if (n < want)
+						break;
+					want = len;
+				}
+			} finally {
+				in.close();
+			}
+			if (len != b.entry.getLength())
+				b.entry.setLength(len);
+			b.entry.setObjectId(ins.insert(Constants.OBJ_BLOB, buf, 0, len));
+		}
+	}
+
+	/**
+	 * @param count
+	 *            number of files to insert.
+	 * @return executor to hash and compress the files on, or null to do so
+	 *         on the calling thread.
+	 */
+	private Executor getParallelExecutor(int count) {
+		if (executor != null)
+			return executor;
+		int cpus = Runtime.getRuntime().availableProcessors();
+		if (cpus < 2 || count < MIN_PACK_FILES)
+			return null;
+		return Executors.newFixedThreadPool(cpus);
+	}
+
+	/** A file whose content is inserted once the walk is complete. */
+	private static class Blob {
+		final DirCacheEntry entry;
+
+		final File file;
+
+		Blob(DirCacheEntry entry, File file) {
+			this.entry = entry;
+			this.file = file;
+		}
+	}
+
 	/**
 	 * @param update
 	 *            If set to true, the command only matches {@code filepattern}
@@ -239,6 +489,22 @@ public class AddCommand extends GitCommand<DirCache> {
 		return this;
 	}
 
+	/**
+	 * Set the executor hashing and compressing new files in parallel.
+	 * <p>
+	 * By default a pool with one thread per processor is created when enough
+	 * new files are added to be written into a pack.
+	 *
+	 * @param executor
+	 *            executor to use; null to use the default.
+	 * @return {@code this}
+	 * @since 3.8
+	 */
+	public AddCommand setExecutor(Executor executor) {
+		this.executor = executor;
+		return this;
+	}
+
 	/**
 	 * @return is the parameter update is set
 	 */
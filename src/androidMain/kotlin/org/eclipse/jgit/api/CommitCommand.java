@@ -258,6 +258,13 @@ public class CommitCommand extends GitCommand<RevCommit> {
 					ObjectId commitId = odi.insert(commit);
 					odi.flush();
 
+					// Keep the trees just written in the index, so the next
+					// commit only writes the trees of the paths changed since.
+					if (only.isEmpty() && index.getWrittenTreeCount() > 0) {
+						index.write();
+						index.commit();
+					}
+
 					RevCommit revCommit = rw.parseCommit(commitId);
 					RefUpdate ru = repo.updateRef(Constants.HEAD);
 					ru.setNewObjectId(commitId);
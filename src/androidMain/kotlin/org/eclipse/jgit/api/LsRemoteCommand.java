@@ -199,7 +199,12 @@ public class LsRemoteCommand extends
 				refSpecs.add(new RefSpec("refs/heads/*:refs/remotes/origin/*")); //$NON-NLS-1$
 			Collection<Ref> refs;
 			Map<String, Ref> refmap = new HashMap<String, Ref>();
-			fc = transport.openFetch();
+			Collection<String> prefixes = new ArrayList<String>(2);
+			if (tags)
+				prefixes.add(Constants.R_TAGS);
+			if (heads)
+				prefixes.add(Constants.R_HEADS);
+			fc = transport.openFetch(prefixes);
 			refs = fc.getRefs();
 			if (refSpecs.isEmpty())
 				for (Ref r : refs)
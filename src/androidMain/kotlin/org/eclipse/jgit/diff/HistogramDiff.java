@@ -45,6 +45,10 @@ package org.eclipse.jgit.diff;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.eclipse.jgit.diff.HistogramDiffIndex.Scratch;
 
 /**
  * An extended form of Bram Cohen's patience diff algorithm.
@@ -89,6 +93,12 @@ import java.util.List;
  * typically out-performs {@link MyersDiff}, even though its theoretical running
  * time is the same.
  * <p>
+ * Once a LCS has split a region, the sections before and after it are
+ * independent of each other. If a {@link ForkJoinPool} is configured by
+ * {@link #setForkJoinPool(ForkJoinPool)}, sections larger than
+ * {@link #setParallelThreshold(int)} are diffed concurrently and their edits
+ * concatenated in order, producing the same EditList as the serial algorithm.
+ * <p>
  * This implementation has an internal limitation that prevents it from handling
  * sequences with more than 268,435,456 (2^28) elements.
  */
@@ -105,6 +115,12 @@ public class HistogramDiff extends LowLevelDiffAlgorithm {
 	 */
 	private int maxChainLength = 64;
 
+	/** Pool to diff independent sections on; null to diff serially. */
+	private ForkJoinPool pool;
+
+	/** Minimum number of elements in a section to diff it as its own task. */
+	private int parallelThreshold = 16384;
+
 	/**
 	 * Set the algorithm used when there are too many element occurrences.
 	 *
@@ -130,38 +146,166 @@ public class HistogramDiff extends LowLevelDiffAlgorithm {
 		maxChainLength = maxLen;
 	}
 
+	/**
+	 * Set the pool used to diff independent sections concurrently.
+	 *
+	 * @param pool
+	 *            the pool to run section tasks on. If null (the default) all
+	 *            sections are diffed on the calling thread.
+	 * @since 3.8
+	 */
+	public void setForkJoinPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Set the smallest section that is diffed as its own parallel task.
+	 *
+	 * Sections with fewer elements (counting both sequences) are diffed
+	 * serially by the task that found them, as the cost of scheduling a task
+	 * would exceed the work saved. Only used if a pool has been configured.
+	 *
+	 * @param elements
+	 *            minimum value of {@code lengthA + lengthB} for a section to
+	 *            be forked.
+	 * @since 3.8
+	 */
+	public void setParallelThreshold(int elements) {
+		parallelThreshold = Math.max(2, elements);
+	}
+
 	public <S extends Sequence> void diffNonCommon(EditList edits,
 			HashedSequenceComparator<S> cmp, HashedSequence<S> a,
 			HashedSequence<S> b, Edit region) {
-		new State<S>(edits, cmp, a, b).diffRegion(region);
+		if (pool != null && isForkable(region)) {
+			ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+				@Override
+				protected Scratch initialValue() {
+					return new Scratch();
+				}
+			};
+			edits.addAll(pool.invoke(new RegionTask<S>(cmp, a, b, region,
+					scratch)));
+		} else {
+			new State<S>(edits, cmp, a, b, new Scratch())
+					.diffRegion(region);
+		}
+	}
+
+	private boolean isForkable(Edit r) {
+		return r.getType() == Edit.Type.REPLACE
+				&& parallelThreshold <= r.getLengthA() + r.getLengthB();
+	}
+
+	/**
+	 * Diffs one section, forking the sections on either side of its LCS.
+	 * <p>
+	 * Each task builds its own EditList. The section before the LCS is always
+	 * appended before the section after it, so the concatenated result is in
+	 * the same order the serial {@link State} would have produced.
+	 */
+	private class RegionTask<S extends Sequence> extends RecursiveTask<EditList> {
+		private static final long serialVersionUID = 1L;
+
+		private final HashedSequenceComparator<S> cmp;
+		private final HashedSequence<S> a;
+		private final HashedSequence<S> b;
+		private final Edit region;
+		private final ThreadLocal<Scratch> scratch;
+
+		RegionTask(HashedSequenceComparator<S> cmp, HashedSequence<S> a,
+				HashedSequence<S> b, Edit region,
+				ThreadLocal<Scratch> scratch) {
+			this.cmp = cmp;
+			this.a = a;
+			this.b = b;
+			this.region = region;
+			this.scratch = scratch;
+		}
+
+		@Override
+		protected EditList compute() {
+			EditList res = new EditList();
+			State<S> s = new State<S>(res, cmp, a, b, scratch.get());
+			if (!isForkable(region)) {
+				s.diffRegion(region);
+				return res;
+			}
+
+			Edit lcs = s.findLongestCommonSequence(region);
+			if (lcs == null || lcs.isEmpty()) {
+				s.split(region, lcs);
+				s.drain();
+				return res;
+			}
+
+			Edit before = region.before(lcs);
+			Edit after = region.after(lcs);
+			RegionTask<S> afterTask = null;
+			if (isForkable(after)) {
+				afterTask = new RegionTask<S>(cmp, a, b, after, scratch);
+				afterTask.fork();
+			}
+
+			if (isForkable(before))
+				res.addAll(new RegionTask<S>(cmp, a, b, before, scratch)
+						.compute());
+			else
+				s.diffSection(before);
+
+			if (afterTask != null)
+				res.addAll(afterTask.join());
+			else
+				s.diffSection(after);
+			return res;
+		}
 	}
 
 	private class State<S extends Sequence> {
 		private final HashedSequenceComparator<S> cmp;
 		private final HashedSequence<S> a;
 		private final HashedSequence<S> b;
+		private final Scratch scratch;
 		private final List<Edit> queue = new ArrayList<Edit>();
 
 		/** Result edits we have determined that must be made to convert a to b. */
 		final EditList edits;
 
 		State(EditList edits, HashedSequenceComparator<S> cmp,
-				HashedSequence<S> a, HashedSequence<S> b) {
+				HashedSequence<S> a, HashedSequence<S> b,
+				Scratch scratch) {
 			this.cmp = cmp;
 			this.a = a;
 			this.b = b;
 			this.edits = edits;
+			this.scratch = scratch;
 		}
 
 		void diffRegion(Edit r) {
 			diffReplace(r);
+			drain();
+		}
+
+		void diffSection(Edit r) {
+			diff(r);
+			drain();
+		}
+
+		void drain() {
 			while (!queue.isEmpty())
 				diff(queue.remove(queue.size() - 1));
 		}
 
+		Edit findLongestCommonSequence(Edit r) {
+			return new HistogramDiffIndex<S>(maxChainLength, cmp, a, b, r,
+					scratch).findLongestCommonSequence();
+		}
+
 		private void diffReplace(Edit r) {
-			Edit lcs = new HistogramDiffIndex<S>(maxChainLength, cmp, a, b, r)
-					.findLongestCommonSequence();
+			split(r, findLongestCommonSequence(r));
+		}
+
+		void split(Edit r, Edit lcs) {
 			if (lcs != null) {
 				// If we were given an edit, we can prove a result here.
 				//
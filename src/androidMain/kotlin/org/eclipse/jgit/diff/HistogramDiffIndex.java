@@ -43,6 +43,8 @@
 
 package org.eclipse.jgit.diff;
 
+import java.util.Arrays;
+
 import org.eclipse.jgit.internal.JGitText;
 
 /**
@@ -80,6 +82,9 @@ final class HistogramDiffIndex<S extends Sequence> {
 
 	private final Edit region;
 
+	/** Arrays to reuse across regions, or null to allocate them per index. */
+	private final Scratch scratch;
+
 	/** Keyed by {@link #hash(HashedSequence, int)} for {@link #recs} index. */
 	private final int[] table;
 
@@ -146,11 +151,17 @@ final class HistogramDiffIndex<S extends Sequence> {
 
 	HistogramDiffIndex(int maxChainLength, HashedSequenceComparator<S> cmp,
 			HashedSequence<S> a, HashedSequence<S> b, Edit r) {
+		this(maxChainLength, cmp, a, b, r, null);
+	}
+
+	HistogramDiffIndex(int maxChainLength, HashedSequenceComparator<S> cmp,
+			HashedSequence<S> a, HashedSequence<S> b, Edit r, Scratch scratch) {
 		this.maxChainLength = maxChainLength;
 		this.cmp = cmp;
 		this.a = a;
 		this.b = b;
 		this.region = r;
+		this.scratch = scratch;
 
 		if (region.endA >= MAX_PTR)
 			throw new IllegalArgumentException(
@@ -158,13 +169,21 @@ final class HistogramDiffIndex<S extends Sequence> {
 
 		final int sz = r.getLengthA();
 		final int tableBits = tableBits(sz);
-		table = new int[1 << tableBits];
 		keyShift = 32 - tableBits;
 		ptrShift = r.beginA;
 
-		recs = new long[Math.max(4, sz >>> 3)];
-		next = new int[sz];
-		recIdx = new int[sz];
+		if (scratch != null) {
+			scratch.reserve(1 << tableBits, sz);
+			table = scratch.table;
+			recs = scratch.recs;
+			next = scratch.next;
+			recIdx = scratch.recIdx;
+		} else {
+			table = new int[1 << tableBits];
+			recs = new long[Math.max(4, sz >>> 3)];
+			next = new int[sz];
+			recIdx = new int[sz];
+		}
 	}
 
 	Edit findLongestCommonSequence() {
@@ -221,6 +240,8 @@ final class HistogramDiffIndex<S extends Sequence> {
 				long[] n = new long[sz];
 				System.arraycopy(recs, 0, n, 0, recs.length);
 				recs = n;
+				if (scratch != null)
+					scratch.recs = n;
 			}
 
 			recs[rIdx] = recCreate(table[tIdx], ptr, 1);
@@ -336,4 +357,35 @@ final class HistogramDiffIndex<S extends Sequence> {
 			bits++;
 		return bits;
 	}
+
+	/**
+	 * Working arrays of an index, kept between regions.
+	 * <p>
+	 * An index allocates its tables in proportion to the region being scanned.
+	 * Reusing one set of arrays for every region diffed by the same thread
+	 * avoids allocating (and zeroing) them again at each level of recursion.
+	 * A scratch instance must only be used by one index at a time.
+	 */
+	static final class Scratch {
+		int[] table = new int[0];
+
+		long[] recs = new long[4];
+
+		int[] next = new int[0];
+
+		int[] recIdx = new int[0];
+
+		void reserve(int tableSize, int sz) {
+			if (table.length < tableSize)
+				table = new int[tableSize];
+			else
+				Arrays.fill(table, 0, tableSize, 0);
+
+			if (next.length < sz) {
+				next = new int[sz];
+				recIdx = new int[sz];
+			} else
+				Arrays.fill(next, 0, sz, 0);
+		}
+	}
 }
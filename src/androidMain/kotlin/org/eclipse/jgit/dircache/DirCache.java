@@ -45,13 +45,15 @@
 
 package org.eclipse.jgit.dircache;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.security.DigestOutputStream;
@@ -59,6 +61,7 @@ import java.security.MessageDigest;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.List;
 
@@ -70,6 +73,7 @@ import org.eclipse.jgit.events.IndexChangedListener;
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.internal.storage.file.FileSnapshot;
 import org.eclipse.jgit.internal.storage.file.LockFile;
+import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectInserter;
@@ -78,12 +82,16 @@ import org.eclipse.jgit.treewalk.FileTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
 import org.eclipse.jgit.util.FS;
-import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.FileUtils;
 import org.eclipse.jgit.util.MutableInteger;
 import org.eclipse.jgit.util.NB;
+import org.eclipse.jgit.util.SystemReader;
 import org.eclipse.jgit.util.TemporaryBuffer;
 import org.eclipse.jgit.util.io.SafeBufferedOutputStream;
 
+import com.googlecode.javaewah.EWAHCompressedBitmap;
+import com.googlecode.javaewah.IntIterator;
+
 /**
  * Support for the Git dircache (aka index file).
  * <p>
@@ -96,12 +104,34 @@ import org.eclipse.jgit.util.io.SafeBufferedOutputStream;
  * index file first, and the working directory is updated as a post-merge step.
  * Conflicts are stored in the index file to allow tool (and human) based
  * resolutions to be easily performed.
+ * <p>
+ * With {@code core.lazyIndex} set, entries are only decoded from the index
+ * file, mapped into memory, when they are first accessed, and its checksum is
+ * verified before the index is written again. With {@code core.splitIndex}
+ * set, most entries are kept in a shared index file, and writing the index
+ * only writes the entries that differ from it.
  */
 public class DirCache {
 	private static final byte[] SIG_DIRC = { 'D', 'I', 'R', 'C' };
 
 	private static final int EXT_TREE = 0x54524545 /* 'TREE' */;
 
+	private static final int EXT_UNTRACKED = 0x4a554e54 /* 'JUNT' */;
+
+	private static final int EXT_LINK = 0x6c696e6b /* 'link' */;
+
+	/** Prefix of the name of shared index files. */
+	private static final String SHARED_INDEX = "sharedindex."; //$NON-NLS-1$
+
+	/**
+	 * Percentage of the shared index entries which may change before a new
+	 * shared index is written.
+	 */
+	private static final int MAX_PERCENT_CHANGE = 20;
+
+	/** Age after which unused shared index files are deleted. */
+	private static final long SHARED_INDEX_EXPIRE = 14 * 24 * 60 * 60 * 1000L;
+
 	private static final DirCacheEntry[] NO_ENTRIES = {};
 
 	private static final byte[] NO_CHECKSUM = {};
@@ -163,8 +193,10 @@ public class DirCache {
 	 */
 	public static DirCache read(final Repository repository)
 			throws CorruptObjectException, IOException {
-		final DirCache c = read(repository.getIndexFile(), repository.getFS());
-		c.repository = repository;
+		final DirCache c = new DirCache(repository.getIndexFile(),
+				repository.getFS());
+		c.setRepository(repository);
+		c.read();
 		return c;
 	}
 
@@ -219,9 +251,13 @@ public class DirCache {
 	 */
 	public static DirCache lock(final File indexLocation, final FS fs)
 			throws CorruptObjectException, IOException {
-		final DirCache c = new DirCache(indexLocation, fs);
+		return lock(new DirCache(indexLocation, fs));
+	}
+
+	private static DirCache lock(final DirCache c)
+			throws CorruptObjectException, IOException {
 		if (!c.lock())
-			throw new LockFailedException(indexLocation);
+			throw new LockFailedException(c.liveFile);
 
 		try {
 			c.read();
@@ -264,9 +300,11 @@ public class DirCache {
 	public static DirCache lock(final Repository repository,
 			final IndexChangedListener indexChangedListener)
 			throws CorruptObjectException, IOException {
-		DirCache c = lock(repository.getIndexFile(), repository.getFS(),
-				indexChangedListener);
-		c.repository = repository;
+		DirCache c = new DirCache(repository.getIndexFile(),
+				repository.getFS());
+		c.setRepository(repository);
+		lock(c);
+		c.registerIndexChangedListener(indexChangedListener);
 		return c;
 	}
 
@@ -306,15 +344,56 @@ public class DirCache {
 	/** Location of the current version of the index file. */
 	private final File liveFile;
 
-	/** Individual file index entries, sorted by path name. */
+	/**
+	 * Individual file index entries, sorted by path name. Positions not yet
+	 * decoded from {@link #lazyFile} are null.
+	 */
 	private DirCacheEntry[] sortedEntries;
 
 	/** Number of positions within {@link #sortedEntries} that are valid. */
 	private int entryCnt;
 
+	/** File the null positions of {@link #sortedEntries} are decoded from. */
+	private DirCacheFile lazyFile;
+
+	/**
+	 * Entry number within {@link #lazyFile} of each position; null if they
+	 * are the same.
+	 */
+	private int[] lazyPositions;
+
+	/** Number of null positions within {@link #sortedEntries}. */
+	private int undecoded;
+
+	/** Modification time of the index file, to smudge decoded entries. */
+	private int lazySmudge_s;
+
+	private int lazySmudge_ns;
+
+	/** Index file read but whose checksum was not verified yet. */
+	private DirCacheFile unverified;
+
+	/** Shared index of the split index; null if the index is not split. */
+	private DirCacheFile sharedIndex;
+
+	/** Whether a new shared index was written for the pending commit. */
+	private boolean wroteSharedIndex;
+
+	/** Number of trees written by the last {@link #writeTree}. */
+	private int writtenTreeCnt;
+
+	/** Number of cached trees reused by the last {@link #writeTree}. */
+	private int reusedTreeCnt;
+
+	/** Whether to decode the entries of the index file on demand. */
+	private boolean lazyRead;
+
 	/** Cache tree for this index; null if the cache tree is not available. */
 	private DirCacheTree tree;
 
+	/** Working tree listings; null if not available. */
+	private UntrackedCache untrackedCache;
+
 	/** Our active lock (if we hold it); null if we don't have it locked. */
 	private LockFile myLock;
 
@@ -379,9 +458,110 @@ public class DirCache {
 	}
 
 	void replace(final DirCacheEntry[] e, final int cnt) {
+		if (tree != null)
+			invalidateChanged(e, cnt);
 		sortedEntries = e;
 		entryCnt = cnt;
-		tree = null;
+		lazyFile = null;
+		lazyPositions = null;
+		undecoded = 0;
+	}
+
+	/**
+	 * Invalidate the cache trees containing entries which differ between the
+	 * current entries and their replacement.
+	 * <p>
+	 * Builders and editors carry unchanged entries over by identity, so only
+	 * entries not carried over need their paths compared. All other trees
+	 * keep their object ids and are not written again by
+	 * {@link #writeTree(ObjectInserter)}.
+	 *
+	 * @param e
+	 *            the replacement entries, sorted.
+	 * @param cnt
+	 *            number of valid entries in <code>e</code>.
+	 */
+	private void invalidateChanged(final DirCacheEntry[] e, final int cnt) {
+		final DirCacheEntry[] old = sortedEntries;
+		final int oldCnt = entryCnt;
+		int i = 0;
+		int j = 0;
+		while (i < oldCnt || j < cnt) {
+			if (i < oldCnt && j < cnt && old[i] == e[j]) {
+				if (e[j].isTreeModified())
+					tree.invalidate(e[j].path, 0);
+				i++;
+				j++;
+				continue;
+			}
+
+			final byte[] oldPath = i < oldCnt ? oldPath(i) : null;
+			final int c;
+			if (oldPath == null)
+				c = 1;
+			else if (j == cnt)
+				c = -1;
+			else {
+				final int pc = cmp(oldPath, oldPath.length, e[j].path,
+						e[j].path.length);
+				c = pc != 0 ? pc : oldStage(i) - e[j].getStage();
+			}
+
+			if (c < 0)
+				tree.invalidate(oldPath, 0);
+			else if (c > 0)
+				tree.invalidate(e[j].path, 0);
+			else if (!sameContent(i, e[j]))
+				tree.invalidate(oldPath, 0);
+			if (c <= 0)
+				i++;
+			if (c >= 0)
+				j++;
+		}
+		for (j = 0; j < cnt; j++)
+			e[j].clearTreeModified();
+	}
+
+	private byte[] oldPath(final int i) {
+		final DirCacheEntry e = sortedEntries[i];
+		if (e != null)
+			return e.path;
+		return lazyFile.getPath(lazyPositions != null ? lazyPositions[i] : i);
+	}
+
+	private int oldStage(final int i) {
+		final DirCacheEntry e = sortedEntries[i];
+		if (e != null)
+			return e.getStage();
+		return lazyFile.getStage(lazyPositions != null ? lazyPositions[i] : i);
+	}
+
+	private boolean sameContent(final int i, final DirCacheEntry e) {
+		final DirCacheEntry o = sortedEntries[i];
+		if (o == null || o.isTreeModified())
+			return false;
+		return o.getRawMode() == e.getRawMode()
+				&& o.getObjectId().equals(e.getObjectId());
+	}
+
+	/** Invalidate the cache trees of entries modified in place. */
+	private void invalidateModified() {
+		if (tree == null)
+			return;
+		for (int i = 0; i < entryCnt; i++) {
+			final DirCacheEntry e = sortedEntries[i];
+			if (e != null && e.isTreeModified()) {
+				tree.invalidate(e.path, 0);
+				e.clearTreeModified();
+			}
+		}
+	}
+
+	private void setRepository(Repository repository) {
+		this.repository = repository;
+		lazyRead = repository.getConfig().getBoolean(
+				ConfigConstants.CONFIG_CORE_SECTION,
+				ConfigConstants.CONFIG_KEY_LAZY_INDEX, false);
 	}
 
 	/**
@@ -405,17 +585,8 @@ public class DirCache {
 			clear();
 		else if (snapshot == null || snapshot.isModified(liveFile)) {
 			try {
-				final FileInputStream inStream = new FileInputStream(liveFile);
-				try {
-					clear();
-					readFrom(inStream);
-				} finally {
-					try {
-						inStream.close();
-					} catch (IOException err2) {
-						// Ignore any close failures.
-					}
-				}
+				clear();
+				readFrom(liveFile);
 			} catch (FileNotFoundException fnfe) {
 				// Someone must have deleted it between our exists test
 				// and actually opening the path. That's fine, its empty.
@@ -442,84 +613,59 @@ public class DirCache {
 		sortedEntries = NO_ENTRIES;
 		entryCnt = 0;
 		tree = null;
+		untrackedCache = null;
 		readIndexChecksum = NO_CHECKSUM;
+		lazyFile = null;
+		lazyPositions = null;
+		undecoded = 0;
+		unverified = null;
+		sharedIndex = null;
 	}
 
-	private void readFrom(final InputStream inStream) throws IOException,
+	private void readFrom(final File file) throws IOException,
 			CorruptObjectException {
-		final BufferedInputStream in = new BufferedInputStream(inStream);
-		final MessageDigest md = Constants.newMessageDigest();
-
-		// Read the index header and verify we understand it.
-		//
-		final byte[] hdr = new byte[20];
-		IO.readFully(in, hdr, 0, 12);
-		md.update(hdr, 0, 12);
-		if (!is_DIRC(hdr))
-			throw new CorruptObjectException(JGitText.get().notADIRCFile);
-		final int ver = NB.decodeInt32(hdr, 4);
-		boolean extended = false;
-		if (ver == 3)
-			extended = true;
-		else if (ver != 2)
-			throw new CorruptObjectException(MessageFormat.format(
-					JGitText.get().unknownDIRCVersion, Integer.valueOf(ver)));
-		entryCnt = NB.decodeInt32(hdr, 8);
-		if (entryCnt < 0)
-			throw new CorruptObjectException(JGitText.get().DIRCHasTooManyEntries);
+		final DirCacheFile index = DirCacheFile.open(file, canMap());
 
 		snapshot = FileSnapshot.save(liveFile);
-		int smudge_s = (int) (snapshot.lastModified() / 1000);
-		int smudge_ns = ((int) (snapshot.lastModified() % 1000)) * 1000000;
-
-		// Load the individual file entries.
-		//
-		final int infoLength = DirCacheEntry.getMaximumInfoLength(extended);
-		final byte[] infos = new byte[infoLength * entryCnt];
-		sortedEntries = new DirCacheEntry[entryCnt];
-
-		final MutableInteger infoAt = new MutableInteger();
-		for (int i = 0; i < entryCnt; i++)
-			sortedEntries[i] = new DirCacheEntry(infos, infoAt, in, md, smudge_s, smudge_ns);
+		lazySmudge_s = (int) (snapshot.lastModified() / 1000);
+		lazySmudge_ns = ((int) (snapshot.lastModified() % 1000)) * 1000000;
 
 		// After the file entries are index extensions, and then a footer.
 		//
-		for (;;) {
-			in.mark(21);
-			IO.readFully(in, hdr, 0, 20);
-			if (in.read() < 0) {
-				// No extensions present; the file ended where we expected.
-				//
-				break;
+		byte[] link = null;
+		final int end = index.getExtensionsEnd();
+		int ptr = index.getExtensionsStart();
+		while (ptr < end) {
+			if (end - ptr < 8)
+				throw new EOFException(JGitText.get().shortReadOfBlock);
+			final byte[] hdr = index.getBytes(ptr, 8);
+			final long sz = NB.decodeUInt32(hdr, 4);
+			if (Integer.MAX_VALUE < sz) {
+				throw new CorruptObjectException(MessageFormat.format(
+						JGitText.get().DIRCExtensionIsTooLargeAt,
+						formatExtensionName(hdr), Long.valueOf(sz)));
+			}
+			ptr += 8;
+			if (end - ptr < sz) {
+				throw new EOFException(MessageFormat.format(
+						JGitText.get().shortReadOfOptionalDIRCExtensionExpectedAnotherBytes,
+						formatExtensionName(hdr), Long.valueOf(sz)));
 			}
 
-			in.reset();
-			md.update(hdr, 0, 8);
-			IO.skipFully(in, 8);
-
-			long sz = NB.decodeUInt32(hdr, 4);
 			switch (NB.decodeInt32(hdr, 0)) {
-			case EXT_TREE: {
-				if (Integer.MAX_VALUE < sz) {
-					throw new CorruptObjectException(MessageFormat.format(
-							JGitText.get().DIRCExtensionIsTooLargeAt,
-							formatExtensionName(hdr), Long.valueOf(sz)));
-				}
-				final byte[] raw = new byte[(int) sz];
-				IO.readFully(in, raw, 0, raw.length);
-				md.update(raw, 0, raw.length);
-				tree = new DirCacheTree(raw, new MutableInteger(), null);
+			case EXT_TREE:
+				tree = new DirCacheTree(index.getBytes(ptr, (int) sz),
+						new MutableInteger(), null);
+				break;
+			case EXT_UNTRACKED:
+				untrackedCache = new UntrackedCache(index.getBytes(ptr,
+						(int) sz));
+				break;
+			case EXT_LINK:
+				link = index.getBytes(ptr, (int) sz);
 				break;
-			}
 			default:
-				if (hdr[0] >= 'A' && hdr[0] <= 'Z') {
-					// The extension is optional and is here only as
-					// a performance optimization. Since we do not
-					// understand it, we can safely skip past it, after
-					// we include its data in our checksum.
-					//
-					skipOptionalExtension(in, md, hdr, sz);
-				} else {
+				if (hdr[0] < 'A' || hdr[0] > 'Z') {
 					// The extension is not an optimization and is
 					// _required_ to understand this index format.
 					// Since we did not trap it above we must abort.
@@ -527,32 +673,201 @@ public class DirCache {
 					throw new CorruptObjectException(MessageFormat.format(JGitText.get().DIRCExtensionNotSupportedByThisVersion
 							, formatExtensionName(hdr)));
 				}
+				// The extension is optional and is here only as a
+				// performance optimization. Since we do not understand
+				// it, we can safely skip past it.
 			}
+			ptr += (int) sz;
+		}
+		readIndexChecksum = index.getBytes(end, Constants.OBJECT_ID_LENGTH);
+
+		lazyFile = index;
+		if (link != null)
+			readSplitIndex(index, link);
+		else {
+			entryCnt = index.getEntryCount();
+			sortedEntries = new DirCacheEntry[entryCnt];
+			undecoded = entryCnt;
 		}
 
-		readIndexChecksum = md.digest();
-		if (!Arrays.equals(readIndexChecksum, hdr)) {
-			throw new CorruptObjectException(JGitText.get().DIRCChecksumMismatch);
+		unverified = index;
+		if (!lazyRead) {
+			decodeAll();
+			verifyRead();
+			lazyFile = null;
+			lazyPositions = null;
 		}
 	}
 
-	private void skipOptionalExtension(final InputStream in,
-			final MessageDigest md, final byte[] hdr, long sz)
+	/**
+	 * Merge the entries of a split index with those of its shared index.
+	 * <p>
+	 * The split index starts with the entries replacing those of the shared
+	 * index marked in the replace bitmap, in the same order and without a
+	 * name of their own. The remaining entries are added to the entries of
+	 * the shared index, less those marked in the delete bitmap.
+	 *
+	 * @param split
+	 *            the split index file.
+	 * @param link
+	 *            content of its link extension.
+	 * @throws IOException
+	 */
+	private void readSplitIndex(final DirCacheFile split, final byte[] link)
 			throws IOException {
-		final byte[] b = new byte[4096];
-		while (0 < sz) {
-			int n = in.read(b, 0, (int) Math.min(b.length, sz));
-			if (n < 0) {
-				throw new EOFException(
-						MessageFormat.format(
-								JGitText.get().shortReadOfOptionalDIRCExtensionExpectedAnotherBytes,
-								formatExtensionName(hdr), Long.valueOf(sz)));
+		if (link.length < Constants.OBJECT_ID_LENGTH)
+			throw new EOFException(JGitText.get().shortReadOfBlock);
+		final ObjectId baseId = ObjectId.fromRaw(link);
+		final BitSet deleted = new BitSet();
+		final BitSet replaced = new BitSet();
+		if (link.length > Constants.OBJECT_ID_LENGTH) {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+					link, Constants.OBJECT_ID_LENGTH, link.length
+							- Constants.OBJECT_ID_LENGTH));
+			readBitmap(in, deleted);
+			readBitmap(in, replaced);
+		}
+
+		final File baseFile = new File(liveFile.getParentFile(), SHARED_INDEX
+				+ baseId.name());
+		final DirCacheFile base;
+		try {
+			base = DirCacheFile.open(baseFile, canMap());
+		} catch (FileNotFoundException e) {
+			throw new CorruptObjectException(MessageFormat.format(
+					JGitText.get().DIRCSharedIndexNotFound, baseFile));
+		}
+		final int baseCnt = base.getEntryCount();
+		final int replacedCnt = replaced.cardinality();
+		if (!baseId.equals(base.getChecksum()) || deleted.length() > baseCnt
+				|| replaced.length() > baseCnt
+				|| replacedCnt > split.getEntryCount())
+			throw new CorruptObjectException(MessageFormat.format(
+					JGitText.get().DIRCSharedIndexNotFound, baseFile));
+
+		final DirCacheEntry[] added = new DirCacheEntry[split.getEntryCount()
+				- replacedCnt];
+		for (int i = 0; i < added.length; i++)
+			added[i] = split.decode(replacedCnt + i, null, lazySmudge_s,
+					lazySmudge_ns);
+
+		final int max = baseCnt - deleted.cardinality() + added.length;
+		final DirCacheEntry[] entries = new DirCacheEntry[max];
+		final int[] positions = new int[max];
+		int n = 0;
+		int a = 0;
+		int r = 0;
+		for (int j = 0; j < baseCnt; j++) {
+			DirCacheEntry e = null;
+			if (replaced.get(j)) {
+				e = split.decode(r++, base.getPath(j), lazySmudge_s,
+						lazySmudge_ns);
+				e.sharedIndexPosition = j + 1;
+			}
+			if (deleted.get(j))
+				continue;
+
+			int cmp = -1;
+			while (a < added.length && (cmp = compare(added[a], base, j)) < 0)
+				entries[n++] = added[a++];
+			if (a < added.length && cmp == 0) {
+				entries[n++] = added[a++];
+				continue;
+			}
+			if (e == null)
+				undecoded++;
+			entries[n] = e;
+			positions[n++] = j;
+		}
+		while (a < added.length)
+			entries[n++] = added[a++];
+
+		sortedEntries = entries;
+		entryCnt = n;
+		lazyFile = base;
+		lazyPositions = positions;
+		sharedIndex = base;
+	}
+
+	private static void readBitmap(DataInputStream in, BitSet bits)
+			throws IOException {
+		EWAHCompressedBitmap bitmap = new EWAHCompressedBitmap();
+		bitmap.deserialize(in);
+		for (IntIterator i = bitmap.intIterator(); i.hasNext();)
+			bits.set(i.next());
+	}
+
+	private static int compare(DirCacheEntry e, DirCacheFile file, int i) {
+		final int cmp = file.comparePath(e.path, e.path.length, i);
+		if (cmp != 0)
+			return cmp;
+		return e.getStage() - file.getStage(i);
+	}
+
+	/** @return whether index files may be mapped into memory. */
+	private static boolean canMap() {
+		// A mapped file can neither be replaced nor deleted on Windows.
+		return !SystemReader.getInstance().isWindows();
+	}
+
+	/**
+	 * Decode an entry not yet decoded from {@link #lazyFile}.
+	 *
+	 * @param i
+	 *            position of the entry.
+	 * @return the entry.
+	 * @throws IOException
+	 *             the entry is not valid.
+	 */
+	private synchronized DirCacheEntry decode(final int i) throws IOException {
+		DirCacheEntry e = sortedEntries[i];
+		if (e == null) {
+			if (lazyPositions == null)
+				e = lazyFile.decode(i, null, lazySmudge_s, lazySmudge_ns);
+			else {
+				e = lazyFile.decode(lazyPositions[i], null, lazySmudge_s,
+						lazySmudge_ns);
+				e.sharedIndexPosition = lazyPositions[i] + 1;
 			}
-			md.update(b, 0, n);
-			sz -= n;
+			sortedEntries[i] = e;
+			undecoded--;
+		}
+		return e;
+	}
+
+	private synchronized void decodeAll() throws IOException {
+		for (int i = 0; undecoded > 0 && i < entryCnt; i++)
+			decode(i);
+	}
+
+	/**
+	 * Decode all entries, reporting invalid entries as unchecked exceptions
+	 * as the callers cannot throw checked ones.
+	 */
+	private void requireDecoded() {
+		if (undecoded == 0)
+			return;
+		try {
+			decodeAll();
+		} catch (IOException e) {
+			throw new IllegalStateException(e.getMessage(), e);
 		}
 	}
 
+	/**
+	 * Verify the checksums of the index files read, once.
+	 *
+	 * @throws CorruptObjectException
+	 */
+	private void verifyRead() throws CorruptObjectException {
+		if (unverified != null) {
+			unverified.verify();
+			unverified = null;
+		}
+		if (sharedIndex != null)
+			sharedIndex.verify();
+	}
+
 	private static String formatExtensionName(final byte[] hdr)
 			throws UnsupportedEncodingException {
 		return "'" + new String(hdr, 0, 4, "ISO-8859-1") + "'"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
@@ -622,22 +937,13 @@ public class DirCache {
 	}
 
 	void writeTo(File dir, final OutputStream os) throws IOException {
+		verifyRead();
+		decodeAll();
+
 		final MessageDigest foot = Constants.newMessageDigest();
 		final DigestOutputStream dos = new DigestOutputStream(os, foot);
 
-		boolean extended = false;
-		for (int i = 0; i < entryCnt; i++)
-			extended |= sortedEntries[i].isExtended();
-
-		// Write the header.
-		//
-		final byte[] tmp = new byte[128];
-		System.arraycopy(SIG_DIRC, 0, tmp, 0, SIG_DIRC.length);
-		NB.encodeInt32(tmp, 4, extended ? 3 : 2);
-		NB.encodeInt32(tmp, 8, entryCnt);
-		dos.write(tmp, 0, 12);
-
-		// Write the individual file entries.
+		// Smudge the individual file entries.
 
 		final int smudge_s;
 		final int smudge_ns;
@@ -659,6 +965,7 @@ public class DirCache {
 		// Check if tree is non-null here since calling updateSmudgedEntries
 		// will automatically build it via creating a DirCacheIterator
 		final boolean writeTree = tree != null;
+		invalidateModified();
 
 		if (repository != null && entryCnt > 0)
 			updateSmudgedEntries();
@@ -667,9 +974,19 @@ public class DirCache {
 			final DirCacheEntry e = sortedEntries[i];
 			if (e.mightBeRacilyClean(smudge_s, smudge_ns))
 				e.smudgeRacilyClean();
-			e.write(dos);
 		}
 
+		// Write the header and the individual file entries; only those
+		// differing from the shared index if the index is split.
+		//
+		final byte[] tmp = new byte[128];
+		final SplitIndex split = isSplitIndex() ? splitIndex(dir) : null;
+		if (split != null)
+			writeEntries(dos, split.entries, split.entries.length,
+					split.replacedCnt);
+		else
+			writeEntries(dos, sortedEntries, entryCnt, 0);
+
 		if (writeTree) {
 			TemporaryBuffer bb = new TemporaryBuffer.LocalFile(dir, 5 << 20);
 			try {
@@ -684,11 +1001,206 @@ public class DirCache {
 				bb.destroy();
 			}
 		}
+
+		if (untrackedCache != null && untrackedCache.size() > 0) {
+			TemporaryBuffer bb = new TemporaryBuffer.LocalFile(dir, 5 << 20);
+			try {
+				untrackedCache.write(bb);
+				bb.close();
+
+				NB.encodeInt32(tmp, 0, EXT_UNTRACKED);
+				NB.encodeInt32(tmp, 4, (int) bb.length());
+				dos.write(tmp, 0, 8);
+				bb.writeTo(dos, null);
+			} finally {
+				bb.destroy();
+			}
+		}
+
+		if (split != null) {
+			final byte[] link = split.encodeLink();
+			NB.encodeInt32(tmp, 0, EXT_LINK);
+			NB.encodeInt32(tmp, 4, link.length);
+			dos.write(tmp, 0, 8);
+			dos.write(link);
+		}
 		writeIndexChecksum = foot.digest();
 		os.write(writeIndexChecksum);
 		os.close();
 	}
 
+	private static void writeEntries(final DigestOutputStream dos,
+			final DirCacheEntry[] entries, final int cnt, final int nameless)
+			throws IOException {
+		boolean extended = false;
+		for (int i = 0; i < cnt; i++)
+			extended |= entries[i].isExtended();
+
+		final byte[] hdr = new byte[12];
+		System.arraycopy(SIG_DIRC, 0, hdr, 0, SIG_DIRC.length);
+		NB.encodeInt32(hdr, 4, extended ? 3 : 2);
+		NB.encodeInt32(hdr, 8, cnt);
+		dos.write(hdr, 0, 12);
+
+		for (int i = 0; i < cnt; i++)
+			entries[i].write(dos, i >= nameless);
+	}
+
+	/** @return whether to write a split index. */
+	private boolean isSplitIndex() {
+		if (liveFile == null)
+			return false;
+		if (repository == null)
+			return sharedIndex != null;
+		return repository.getConfig().getBoolean(
+				ConfigConstants.CONFIG_CORE_SECTION,
+				ConfigConstants.CONFIG_KEY_SPLIT_INDEX, sharedIndex != null);
+	}
+
+	/**
+	 * Determine the entries to write into a split index.
+	 * <p>
+	 * If too many entries differ from the current shared index, or there is
+	 * none, all entries are written into a new shared index first.
+	 *
+	 * @param dir
+	 *            directory holding the index files.
+	 * @return the split index to write.
+	 * @throws IOException
+	 *             the shared index could not be written.
+	 */
+	private SplitIndex splitIndex(final File dir) throws IOException {
+		if (sharedIndex != null) {
+			final SplitIndex split = diffSharedIndex();
+			final long changed = split.entries.length
+					+ split.deleted.cardinality();
+			if (changed * 100 <= (long) sharedIndex.getEntryCount()
+					* MAX_PERCENT_CHANGE)
+				return split;
+		}
+		writeSharedIndex(dir);
+		return diffSharedIndex();
+	}
+
+	private SplitIndex diffSharedIndex() {
+		final DirCacheFile base = sharedIndex;
+		final int baseCnt = base.getEntryCount();
+		final BitSet shared = new BitSet(baseCnt);
+		final List<DirCacheEntry> replaced = new ArrayList<DirCacheEntry>();
+		final List<DirCacheEntry> added = new ArrayList<DirCacheEntry>();
+		final SplitIndex split = new SplitIndex(base.getChecksum());
+		for (int i = 0; i < entryCnt; i++) {
+			final DirCacheEntry e = sortedEntries[i];
+			final int j = e.sharedIndexPosition - 1;
+			if (0 <= j && j < baseCnt && !shared.get(j)
+					&& compare(e, base, j) == 0) {
+				shared.set(j);
+				if (!base.isSameRecord(j, e)) {
+					split.replaced.set(j);
+					replaced.add(e);
+				}
+			} else
+				added.add(e);
+		}
+		for (int j = shared.nextClearBit(0); j < baseCnt; j = shared
+				.nextClearBit(j + 1))
+			split.deleted.set(j);
+
+		// Replaced entries are in the order of the shared index, as both
+		// are sorted.
+		split.replacedCnt = replaced.size();
+		replaced.addAll(added);
+		split.entries = replaced.toArray(new DirCacheEntry[replaced.size()]);
+		return split;
+	}
+
+	/**
+	 * Write all entries into a new shared index, which becomes the base of
+	 * the split index.
+	 *
+	 * @param dir
+	 *            directory holding the index files.
+	 * @throws IOException
+	 */
+	private void writeSharedIndex(final File dir) throws IOException {
+		final File tmp = File.createTempFile("sharedindex_", null, dir); //$NON-NLS-1$
+		try {
+			final MessageDigest md = Constants.newMessageDigest();
+			final OutputStream os = new SafeBufferedOutputStream(
+					new FileOutputStream(tmp));
+			final ObjectId id;
+			try {
+				writeEntries(new DigestOutputStream(os, md), sortedEntries,
+						entryCnt, 0);
+				id = ObjectId.fromRaw(md.digest());
+				id.copyRawTo(os);
+			} finally {
+				os.close();
+			}
+
+			final File dst = new File(dir, SHARED_INDEX + id.name());
+			if (!dst.exists())
+				FileUtils.rename(tmp, dst);
+			final DirCacheFile base = DirCacheFile.open(dst, canMap());
+			if (!id.equals(base.getChecksum()))
+				throw new CorruptObjectException(MessageFormat.format(
+						JGitText.get().DIRCSharedIndexNotFound, dst));
+			for (int i = 0; i < entryCnt; i++)
+				sortedEntries[i].sharedIndexPosition = i + 1;
+			sharedIndex = base;
+			wroteSharedIndex = true;
+		} finally {
+			FileUtils.delete(tmp, FileUtils.SKIP_MISSING);
+		}
+	}
+
+	/**
+	 * Delete shared index files which were not used for a while, other than
+	 * the current one.
+	 */
+	private void expireSharedIndexes() {
+		final File[] files = liveFile.getParentFile().listFiles();
+		if (files == null)
+			return;
+		final String current = SHARED_INDEX
+				+ sharedIndex.getChecksum().name();
+		final long expire = System.currentTimeMillis() - SHARED_INDEX_EXPIRE;
+		for (File f : files) {
+			final String name = f.getName();
+			if (name.startsWith(SHARED_INDEX) && !name.equals(current)
+					&& f.lastModified() < expire)
+				f.delete();
+		}
+	}
+
+	/** Entries of a split index and their relation to its shared index. */
+	private static class SplitIndex {
+		final ObjectId base;
+
+		final EWAHCompressedBitmap deleted = new EWAHCompressedBitmap();
+
+		final EWAHCompressedBitmap replaced = new EWAHCompressedBitmap();
+
+		/** Replacing entries, followed by the added entries. */
+		DirCacheEntry[] entries;
+
+		int replacedCnt;
+
+		SplitIndex(ObjectId base) {
+			this.base = base;
+		}
+
+		byte[] encodeLink() throws IOException {
+			final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+			final DataOutputStream out = new DataOutputStream(buf);
+			base.copyRawTo(out);
+			deleted.serialize(out);
+			replaced.serialize(out);
+			out.flush();
+			return buf.toByteArray();
+		}
+	}
+
 	/**
 	 * Commit this change and release the lock.
 	 * <p>
@@ -707,6 +1219,10 @@ public class DirCache {
 		if (!tmp.commit())
 			return false;
 		snapshot = tmp.getCommitSnapshot();
+		if (wroteSharedIndex) {
+			wroteSharedIndex = false;
+			expireSharedIndexes();
+		}
 		if (indexChangedListener != null
 				&& !Arrays.equals(readIndexChecksum, writeIndexChecksum))
 			indexChangedListener.onIndexChanged(new IndexChangedEvent());
@@ -773,11 +1289,11 @@ public class DirCache {
 		int high = entryCnt;
 		while (low < high) {
 			int mid = (low + high) >>> 1;
-			final int cmp = cmp(p, pLen, sortedEntries[mid]);
+			final int cmp = cmp(p, pLen, mid);
 			if (cmp < 0)
 				high = mid;
 			else if (cmp == 0) {
-				while (mid > 0 && cmp(p, pLen, sortedEntries[mid - 1]) == 0)
+				while (mid > 0 && cmp(p, pLen, mid - 1) == 0)
 					mid--;
 				return mid;
 			} else
@@ -786,6 +1302,16 @@ public class DirCache {
 		return -(low + 1);
 	}
 
+	/** Compare a path with the entry at a position, without decoding it. */
+	private int cmp(final byte[] p, final int pLen, final int i) {
+		final DirCacheEntry e = sortedEntries[i];
+		if (e != null)
+			return cmp(p, pLen, e);
+		final int[] positions = lazyPositions;
+		return lazyFile.comparePath(p, pLen, positions != null ? positions[i]
+				: i);
+	}
+
 	/**
 	 * Determine the next index position past all entries with the same name.
 	 * <p>
@@ -798,10 +1324,10 @@ public class DirCache {
 	 * @return position of the next entry whose path is after the input.
 	 */
 	public int nextEntry(final int position) {
-		DirCacheEntry last = sortedEntries[position];
+		DirCacheEntry last = getEntry(position);
 		int nextIdx = position + 1;
 		while (nextIdx < entryCnt) {
-			final DirCacheEntry next = sortedEntries[nextIdx];
+			final DirCacheEntry next = getEntry(nextIdx);
 			if (cmp(last, next) != 0)
 				break;
 			last = next;
@@ -812,7 +1338,7 @@ public class DirCache {
 
 	int nextEntry(final byte[] p, final int pLen, int nextIdx) {
 		while (nextIdx < entryCnt) {
-			final DirCacheEntry next = sortedEntries[nextIdx];
+			final DirCacheEntry next = getEntry(nextIdx);
 			if (!DirCacheTree.peq(p, next.path, pLen))
 				break;
 			nextIdx++;
@@ -843,9 +1369,18 @@ public class DirCache {
 	 * @param i
 	 *            position of the entry to get.
 	 * @return the entry at position <code>i</code>.
+	 * @throws IllegalStateException
+	 *             the entry was not decoded yet and is not valid.
 	 */
 	public DirCacheEntry getEntry(final int i) {
-		return sortedEntries[i];
+		final DirCacheEntry e = sortedEntries[i];
+		if (e != null || i >= entryCnt || lazyFile == null)
+			return e;
+		try {
+			return decode(i);
+		} catch (IOException err) {
+			throw new IllegalStateException(err.getMessage(), err);
+		}
 	}
 
 	/**
@@ -857,7 +1392,7 @@ public class DirCache {
 	 */
 	public DirCacheEntry getEntry(final String path) {
 		final int i = findEntry(path);
-		return i < 0 ? null : sortedEntries[i];
+		return i < 0 ? null : getEntry(i);
 	}
 
 	/**
@@ -869,6 +1404,7 @@ public class DirCache {
 	 */
 	public DirCacheEntry[] getEntriesWithin(String path) {
 		if (path.length() == 0) {
+			requireDecoded();
 			final DirCacheEntry[] r = new DirCacheEntry[sortedEntries.length];
 			System.arraycopy(sortedEntries, 0, r, 0, sortedEntries.length);
 			return r;
@@ -883,13 +1419,36 @@ public class DirCache {
 			eIdx = -(eIdx + 1);
 		final int lastIdx = nextEntry(p, pLen, eIdx);
 		final DirCacheEntry[] r = new DirCacheEntry[lastIdx - eIdx];
-		System.arraycopy(sortedEntries, eIdx, r, 0, r.length);
+		for (int i = 0; i < r.length; i++)
+			r[i] = getEntry(eIdx + i);
 		return r;
 	}
 
 	void toArray(final int i, final DirCacheEntry[] dst, final int off,
 			final int cnt) {
-		System.arraycopy(sortedEntries, i, dst, off, cnt);
+		for (int k = 0; k < cnt; k++)
+			dst[off + k] = getEntry(i + k);
+	}
+
+	/**
+	 * Get the listings of working tree directories stored in this index.
+	 *
+	 * @return the untracked cache; null if the index has none.
+	 * @since 3.8
+	 */
+	public UntrackedCache getUntrackedCache() {
+		return untrackedCache;
+	}
+
+	/**
+	 * Set the listings of working tree directories to store in this index.
+	 *
+	 * @param cache
+	 *            the untracked cache; null to remove it.
+	 * @since 3.8
+	 */
+	public void setUntrackedCache(UntrackedCache cache) {
+		untrackedCache = cache;
 	}
 
 	/**
@@ -906,6 +1465,8 @@ public class DirCache {
 	 */
 	public DirCacheTree getCacheTree(final boolean build) {
 		if (build) {
+			requireDecoded();
+			invalidateModified();
 			if (tree == null)
 				tree = new DirCacheTree();
 			tree.validate(sortedEntries, entryCnt, 0, 0);
@@ -932,7 +1493,36 @@ public class DirCache {
 	 */
 	public ObjectId writeTree(final ObjectInserter ow)
 			throws UnmergedPathException, IOException {
-		return getCacheTree(true).writeTree(sortedEntries, 0, 0, ow);
+		final DirCacheTree root = getCacheTree(true);
+		writtenTreeCnt = root.countInvalid();
+		reusedTreeCnt = root.countReused();
+		return root.writeTree(sortedEntries, 0, 0, ow);
+	}
+
+	/**
+	 * Get the number of trees the last {@link #writeTree(ObjectInserter)}
+	 * had to format and insert.
+	 * <p>
+	 * Only the trees containing entries changed since the cache trees were
+	 * last written, or read from the index, are written again.
+	 *
+	 * @return number of trees written by the last call.
+	 * @since 3.8
+	 */
+	public int getWrittenTreeCount() {
+		return writtenTreeCnt;
+	}
+
+	/**
+	 * Get the number of cached trees the last
+	 * {@link #writeTree(ObjectInserter)} reused without reading or inserting
+	 * any of the objects within them.
+	 *
+	 * @return number of cached trees reused by the last call.
+	 * @since 3.8
+	 */
+	public int getReusedTreeCount() {
+		return reusedTreeCnt;
 	}
 
 	/**
@@ -944,7 +1534,15 @@ public class DirCache {
 	 */
 	public boolean hasUnmergedPaths() {
 		for (int i = 0; i < entryCnt; i++) {
-			if (sortedEntries[i].getStage() > 0) {
+			final DirCacheEntry e = sortedEntries[i];
+			final int stage;
+			if (e != null)
+				stage = e.getStage();
+			else if (lazyPositions != null)
+				stage = lazyFile.getStage(lazyPositions[i]);
+			else
+				stage = lazyFile.getStage(i);
+			if (stage > 0) {
 				return true;
 			}
 		}
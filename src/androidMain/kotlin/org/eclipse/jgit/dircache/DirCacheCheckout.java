@@ -45,12 +45,19 @@ package org.eclipse.jgit.dircache;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.eclipse.jgit.errors.CheckoutConflictException;
 import org.eclipse.jgit.errors.CorruptObjectException;
@@ -58,14 +65,19 @@ import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.IndexWriteException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.internal.storage.file.PackFile;
 import org.eclipse.jgit.lib.CoreConfig.AutoCRLF;
 import org.eclipse.jgit.lib.CoreConfig.SymLinks;
 import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectChecker;
+import org.eclipse.jgit.lib.ObjectDatabase;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.ThreadSafeProgressMonitor;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.EmptyTreeIterator;
@@ -85,6 +97,12 @@ import org.eclipse.jgit.util.io.AutoCRLFOutputStream;
  * This class handles checking out one or two trees merging with the index.
  */
 public class DirCacheCheckout {
+	/** Checkouts writing fewer files write them on the calling thread. */
+	private static final int MIN_PARALLEL_ENTRIES = 500;
+
+	/** Number of consecutive entries written by one task of the pool. */
+	private static final int ENTRIES_PER_TASK = 128;
+
 	private Repository repo;
 
 	private HashMap<String, ObjectId> updated = new HashMap<String, ObjectId>();
@@ -111,6 +129,8 @@ public class DirCacheCheckout {
 
 	private boolean emptyDirCache;
 
+	private Executor executor;
+
 	/**
 	 * @return a list of updated paths and objectIds
 	 */
@@ -445,11 +465,14 @@ public class DirCacheCheckout {
 			if (file != null)
 				removeEmptyParents(file);
 
+			List<DirCacheEntry> toWrite = new ArrayList<DirCacheEntry>(
+					updated.size());
 			for (String path : updated.keySet()) {
 				DirCacheEntry entry = dc.getEntry(path);
 				if (!FileMode.GITLINK.equals(entry.getRawMode()))
-					checkoutEntry(repo, entry, objectReader);
+					toWrite.add(entry);
 			}
+			writeEntries(toWrite, objectReader);
 
 			// commit the index builder - a new index is persisted
 			if (!builder.commit())
@@ -460,6 +483,198 @@ public class DirCacheCheckout {
 		return toBeDeleted.size() == 0;
 	}
 
+	/**
+	 * Write the content of the given entries into the working tree.
+	 * <p>
+	 * The entries are written in the order their objects are stored in the
+	 * packs, so that the objects are read sequentially. All parent
+	 * directories are created up front, then the files are written in runs
+	 * of consecutive entries, in parallel if an executor is available.
+	 *
+	 * @param entries
+	 *            entries to write; their length and modification time is
+	 *            updated.
+	 * @param objectReader
+	 *            reader to use on the calling thread.
+	 * @throws IOException
+	 */
+	private void writeEntries(List<DirCacheEntry> entries,
+			ObjectReader objectReader) throws IOException {
+		if (entries.isEmpty())
+			return;
+		sortByStorage(entries);
+		createParentDirectories(entries);
+
+		WorkingTreeOptions opt = repo.getConfig().get(WorkingTreeOptions.KEY);
+		Executor pool = getParallelExecutor(entries.size());
+		if (pool == null) {
+			for (DirCacheEntry entry : entries)
+				writeEntry(repo, entry, objectReader, opt);
+			return;
+		}
+		try {
+			writeParallel(pool, entries, opt);
+		} finally {
+			if (pool != executor)
+				((ExecutorService) pool).shutdown();
+		}
+	}
+
+	private void writeParallel(Executor pool, List<DirCacheEntry> entries,
+			final WorkingTreeOptions opt) throws IOException {
+		final ThreadSafeProgressMonitor pm = new ThreadSafeProgressMonitor(
+				NullProgressMonitor.INSTANCE);
+		final List<Throwable> errors = Collections
+				.synchronizedList(new ArrayList<Throwable>());
+		int tasks = (entries.size() + ENTRIES_PER_TASK - 1) / ENTRIES_PER_TASK;
+
+		pm.startWorkers(tasks);
+		for (int i = 0; i < entries.size(); i += ENTRIES_PER_TASK) {
+			final List<DirCacheEntry> run = entries.subList(i,
+					Math.min(i + ENTRIES_PER_TASK, entries.size()));
+			Runnable task = new Runnable() {
+				public void run() {
+					try {
+						if (!errors.isEmpty())
+							return;
+						ObjectReader or = repo.newObjectReader();
+						try {
+							for (DirCacheEntry entry : run)
+								writeEntry(repo, entry, or, opt);
+						} finally {
+							or.release();
+						}
+					} catch (Throwable failure) {
+						errors.add(failure);
+					} finally {
+						pm.endWorker();
+					}
+				}
+			};
+			try {
+				pool.execute(task);
+			} catch (RejectedExecutionException e) {
+				task.run();
+			}
+		}
+		try {
+			pm.waitForCompletion();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException();
+		}
+
+		if (!errors.isEmpty()) {
+			Throwable err = errors.get(0);
+			if (err instanceof Error)
+				throw (Error) err;
+			if (err instanceof RuntimeException)
+				throw (RuntimeException) err;
+			if (err instanceof IOException)
+				throw (IOException) err;
+			IOException fail = new IOException(err.getMessage());
+			fail.initCause(err);
+			throw fail;
+		}
+	}
+
+	/**
+	 * @param count
+	 *            number of files to write.
+	 * @return executor to write the files on, or null to write them on the
+	 *         calling thread.
+	 */
+	private Executor getParallelExecutor(int count) {
+		if (executor != null)
+			return executor;
+		int cpus = Runtime.getRuntime().availableProcessors();
+		if (cpus < 2 || count < MIN_PARALLEL_ENTRIES)
+			return null;
+		return Executors.newFixedThreadPool(cpus);
+	}
+
+	/**
+	 * Sort entries by the position of their object in the repository's
+	 * packs. Objects which are not packed follow in path order.
+	 *
+	 * @param entries
+	 *            entries to sort.
+	 * @throws IOException
+	 */
+	private void sortByStorage(List<DirCacheEntry> entries) throws IOException {
+		// The entries come from a HashMap; the stable sort below keeps
+		// unpacked objects in the path order established here.
+		Collections.sort(entries, DirCache.ENT_CMP);
+		ObjectDatabase db = repo.getObjectDatabase();
+		if (!(db instanceof ObjectDirectory))
+			return;
+		List<PackFile> packs = new ArrayList<PackFile>(
+				((ObjectDirectory) db).getPacks());
+		if (packs.isEmpty())
+			return;
+
+		final Map<DirCacheEntry, long[]> position = new HashMap<DirCacheEntry, long[]>(
+				entries.size() * 2);
+		for (int i = 0; i < entries.size(); i++) {
+			DirCacheEntry entry = entries.get(i);
+			long[] pos = { packs.size(), i };
+			for (int p = 0; p < packs.size(); p++) {
+				long offset = packs.get(p).getIndex()
+						.findOffset(entry.getObjectId());
+				if (offset != -1) {
+					pos[0] = p;
+					pos[1] = offset;
+					break;
+				}
+			}
+			position.put(entry, pos);
+		}
+		Collections.sort(entries, new Comparator<DirCacheEntry>() {
+			public int compare(DirCacheEntry a, DirCacheEntry b) {
+				long[] x = position.get(a);
+				long[] y = position.get(b);
+				if (x[0] != y[0])
+					return x[0] < y[0] ? -1 : 1;
+				return x[1] < y[1] ? -1 : (x[1] == y[1] ? 0 : 1);
+			}
+		});
+	}
+
+	/**
+	 * Create the parent directories of all entries, each only once.
+	 *
+	 * @param entries
+	 * @throws IOException
+	 */
+	private void createParentDirectories(List<DirCacheEntry> entries)
+			throws IOException {
+		List<String> dirs = new ArrayList<String>();
+		for (DirCacheEntry entry : entries) {
+			String path = entry.getPathString();
+			int slash = path.lastIndexOf('/');
+			if (slash > 0)
+				dirs.add(path.substring(0, slash));
+		}
+		Collections.sort(dirs);
+		File workTree = repo.getWorkTree();
+		String last = null;
+		for (int i = 0; i < dirs.size(); i++) {
+			String dir = dirs.get(i);
+			if (dir.equals(last))
+				continue;
+			// A directory which is the parent of the next one is created
+			// along with it.
+			if (i + 1 < dirs.size() && isParent(dir, dirs.get(i + 1)))
+				continue;
+			FileUtils.mkdirs(new File(workTree, dir), true);
+			last = dir;
+		}
+	}
+
+	private static boolean isParent(String dir, String path) {
+		return path.length() > dir.length() && path.startsWith(dir)
+				&& path.charAt(dir.length()) == '/';
+	}
+
 	private static boolean isSamePrefix(String a, String b) {
 		int as = a.lastIndexOf('/');
 		int bs = b.lastIndexOf('/');
@@ -1020,6 +1235,22 @@ public class DirCacheCheckout {
 		this.failOnConflict = failOnConflict;
 	}
 
+	/**
+	 * Set the executor writing the checked out files in parallel.
+	 * <p>
+	 * The files are written in runs of consecutive entries, each run by its
+	 * own object reader on this executor. By default a pool with one thread
+	 * per processor is created for checkouts writing enough files to
+	 * benefit.
+	 *
+	 * @param executor
+	 *            executor to use; null to use the default.
+	 * @since 3.8
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
 	/**
 	 * This method implements how to handle conflicts when
 	 * {@link #failOnConflict} is false
@@ -1219,12 +1450,28 @@ public class DirCacheCheckout {
 	 */
 	public static void checkoutEntry(Repository repo, DirCacheEntry entry,
 			ObjectReader or) throws IOException {
+		File parentDir = new File(repo.getWorkTree(), entry.getPathString())
+				.getParentFile();
+		FileUtils.mkdirs(parentDir, true);
+		writeEntry(repo, entry, or,
+				repo.getConfig().get(WorkingTreeOptions.KEY));
+	}
+
+	/**
+	 * Write an entry into its already existing parent directory.
+	 *
+	 * @param repo
+	 * @param entry
+	 * @param or
+	 * @param opt
+	 * @throws IOException
+	 */
+	private static void writeEntry(Repository repo, DirCacheEntry entry,
+			ObjectReader or, WorkingTreeOptions opt) throws IOException {
 		ObjectLoader ol = or.open(entry.getObjectId());
 		File f = new File(repo.getWorkTree(), entry.getPathString());
 		File parentDir = f.getParentFile();
-		FileUtils.mkdirs(parentDir, true);
 		FS fs = repo.getFS();
-		WorkingTreeOptions opt = repo.getConfig().get(WorkingTreeOptions.KEY);
 		if (entry.getFileMode() == FileMode.SYMLINK
 				&& opt.getSymLinks() == SymLinks.TRUE) {
 			byte[] bytes = ol.getBytes();
@@ -46,13 +46,9 @@
 
 package org.eclipse.jgit.dircache;
 
-import java.io.ByteArrayOutputStream;
-import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.security.MessageDigest;
 import java.text.MessageFormat;
 import java.util.Arrays;
 
@@ -62,8 +58,6 @@ import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.util.IO;
-import org.eclipse.jgit.util.MutableInteger;
 import org.eclipse.jgit.util.NB;
 
 /**
@@ -107,27 +101,33 @@ public class DirCacheEntry {
 
 	private static final int P_SIZE = 36;
 
-	private static final int P_OBJECTID = 40;
+	static final int P_OBJECTID = 40;
 
-	private static final int P_FLAGS = 60;
+	static final int P_FLAGS = 60;
 	private static final int P_FLAGS2 = 62;
 
 	/** Mask applied to data in {@link #P_FLAGS} to get the name length. */
-	private static final int NAME_MASK = 0xfff;
+	static final int NAME_MASK = 0xfff;
 
 	private static final int INTENT_TO_ADD = 0x20000000;
 	private static final int SKIP_WORKTREE = 0x40000000;
 	private static final int EXTENDED_FLAGS = (INTENT_TO_ADD | SKIP_WORKTREE);
 
-	private static final int INFO_LEN = 62;
-	private static final int INFO_LEN_EXTENDED = 64;
+	static final int INFO_LEN = 62;
+	static final int INFO_LEN_EXTENDED = 64;
 
-	private static final int EXTENDED = 0x40;
+	static final int EXTENDED = 0x40;
 	private static final int ASSUME_VALID = 0x80;
 
 	/** In-core flag signaling that the entry should be considered as modified. */
 	private static final int UPDATE_NEEDED = 0x1;
 
+	/**
+	 * In-core flag signaling that the mode or object id of the entry changed,
+	 * so the cache trees containing it are no longer valid.
+	 */
+	private static final int TREE_MODIFIED = 0x2;
+
 	/** (Possibly shared) header information storage. */
 	private final byte[] info;
 
@@ -140,55 +140,26 @@ public class DirCacheEntry {
 	/** Flags which are never stored to disk. */
 	private byte inCoreFlags;
 
-	DirCacheEntry(final byte[] sharedInfo, final MutableInteger infoAt,
-			final InputStream in, final MessageDigest md, final int smudge_s,
+	/**
+	 * Position plus one of the entry this one was read from in the shared
+	 * index of a split index; 0 if it was not read from one.
+	 */
+	int sharedIndexPosition;
+
+	DirCacheEntry(final byte[] info, final byte[] path, final int smudge_s,
 			final int smudge_ns) throws IOException {
-		info = sharedInfo;
-		infoOffset = infoAt.value;
-
-		IO.readFully(in, info, infoOffset, INFO_LEN);
-
-		final int len;
-		if (isExtended()) {
-			len = INFO_LEN_EXTENDED;
-			IO.readFully(in, info, infoOffset + INFO_LEN, INFO_LEN_EXTENDED - INFO_LEN);
-
-			if ((getExtendedFlags() & ~EXTENDED_FLAGS) != 0)
-				throw new IOException(MessageFormat.format(JGitText.get()
-						.DIRCUnrecognizedExtendedFlags, String.valueOf(getExtendedFlags())));
-		} else
-			len = INFO_LEN;
-
-		infoAt.value += len;
-		md.update(info, infoOffset, len);
-
-		int pathLen = NB.decodeUInt16(info, infoOffset + P_FLAGS) & NAME_MASK;
-		int skipped = 0;
-		if (pathLen < NAME_MASK) {
-			path = new byte[pathLen];
-			IO.readFully(in, path, 0, pathLen);
-			md.update(path, 0, pathLen);
-		} else {
-			final ByteArrayOutputStream tmp = new ByteArrayOutputStream();
-			{
-				final byte[] buf = new byte[NAME_MASK];
-				IO.readFully(in, buf, 0, NAME_MASK);
-				tmp.write(buf);
-			}
-			for (;;) {
-				final int c = in.read();
-				if (c < 0)
-					throw new EOFException(JGitText.get().shortReadOfBlock);
-				if (c == 0)
-					break;
-				tmp.write(c);
-			}
-			path = tmp.toByteArray();
-			pathLen = path.length;
-			skipped = 1; // we already skipped 1 '\0' above to break the loop.
-			md.update(path, 0, pathLen);
-			md.update((byte) 0);
-		}
+		this.info = info;
+		infoOffset = 0;
+		this.path = path;
+
+		if (isExtended() && (getExtendedFlags() & ~EXTENDED_FLAGS) != 0)
+			throw new IOException(MessageFormat.format(JGitText.get()
+					.DIRCUnrecognizedExtendedFlags, String.valueOf(getExtendedFlags())));
+
+		// Entries replacing one of a shared index are stored without a
+		// name; they take the name of the entry they replace.
+		final int flags = NB.decodeUInt16(info, P_FLAGS) & ~NAME_MASK;
+		NB.encodeInt16(info, P_FLAGS, flags | Math.min(path.length, NAME_MASK));
 
 		try {
 			DirCacheCheckout.checkValidPath(toString(path));
@@ -200,17 +171,6 @@ public class DirCacheEntry {
 			throw p;
 		}
 
-		// Index records are padded out to the next 8 byte alignment
-		// for historical reasons related to how C Git read the files.
-		//
-		final int actLen = len + pathLen;
-		final int expLen = (actLen + 8) & ~7;
-		final int padLen = expLen - actLen - skipped;
-		if (padLen > 0) {
-			IO.skipFully(in, padLen);
-			md.update(nullpad, 0, padLen);
-		}
-
 		if (mightBeRacilyClean(smudge_s, smudge_ns))
 			smudgeRacilyClean();
 	}
@@ -294,9 +254,32 @@ public class DirCacheEntry {
 	}
 
 	void write(final OutputStream os) throws IOException {
+		write(os, true);
+	}
+
+	/**
+	 * Write the entry record.
+	 *
+	 * @param os
+	 *            stream to write to.
+	 * @param withPath
+	 *            false to write the record without a name, as the replacement
+	 *            of an entry of a shared index.
+	 * @throws IOException
+	 */
+	void write(final OutputStream os, final boolean withPath)
+			throws IOException {
 		final int len = isExtended() ? INFO_LEN_EXTENDED : INFO_LEN;
-		final int pathLen = path.length;
-		os.write(info, infoOffset, len);
+		final int pathLen = withPath ? path.length : 0;
+		if (withPath)
+			os.write(info, infoOffset, len);
+		else {
+			final byte[] tmp = new byte[len];
+			System.arraycopy(info, infoOffset, tmp, 0, len);
+			final int flags = NB.decodeUInt16(tmp, P_FLAGS) & ~NAME_MASK;
+			NB.encodeInt16(tmp, P_FLAGS, flags);
+			os.write(tmp, 0, len);
+		}
 		os.write(path, 0, pathLen);
 
 		// Index records are padded out to the next 8 byte alignment
@@ -502,6 +485,7 @@ public class DirCacheEntry {
 					, mode, getPathString()));
 		}
 		NB.encodeInt32(info, infoOffset + P_MODE, mode.getBits());
+		inCoreFlags |= TREE_MODIFIED;
 	}
 
 	/**
@@ -611,6 +595,7 @@ public class DirCacheEntry {
 	 */
 	public void setObjectId(final AnyObjectId id) {
 		id.copyRawTo(idBuffer(), idOffset());
+		inCoreFlags |= TREE_MODIFIED;
 	}
 
 	/**
@@ -625,6 +610,7 @@ public class DirCacheEntry {
 	public void setObjectIdFromRaw(final byte[] bs, final int p) {
 		final int n = Constants.OBJECT_ID_LENGTH;
 		System.arraycopy(bs, p, idBuffer(), idOffset(), n);
+		inCoreFlags |= TREE_MODIFIED;
 	}
 
 	/**
@@ -701,6 +687,19 @@ public class DirCacheEntry {
 			pStageShifted = newflags & SHIFTED_STAGE_MASK;
 		NB.encodeInt16(info, infoOffset + P_FLAGS, pStageShifted | pLen
 				| (newflags & ~NAME_MASK & ~SHIFTED_STAGE_MASK));
+		inCoreFlags |= TREE_MODIFIED;
+	}
+
+	/**
+	 * @return true if the mode or object id changed since the last call to
+	 *         {@link #clearTreeModified()}.
+	 */
+	boolean isTreeModified() {
+		return (inCoreFlags & TREE_MODIFIED) != 0;
+	}
+
+	void clearTreeModified() {
+		inCoreFlags &= ~TREE_MODIFIED;
 	}
 
 	/**
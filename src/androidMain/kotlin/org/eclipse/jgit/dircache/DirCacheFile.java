@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.dircache;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.security.MessageDigest;
+import java.text.MessageFormat;
+
+import org.eclipse.jgit.errors.CorruptObjectException;
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.util.IO;
+
+/**
+ * The raw entry records of an index file, decoded on demand.
+ * <p>
+ * The file is either mapped into memory or read into a single array. Opening
+ * it only locates the start of each entry record; entries are decoded when
+ * they are needed, and the checksum is only verified when asked for.
+ */
+final class DirCacheFile {
+	private static final byte[] SIG_DIRC = { 'D', 'I', 'R', 'C' };
+
+	/** Size of the header preceding the first entry. */
+	private static final int HEADER_LEN = 12;
+
+	/**
+	 * Open an index file.
+	 *
+	 * @param file
+	 *            the index file.
+	 * @param map
+	 *            true to map the file into memory, false to read it.
+	 * @return the file's records.
+	 * @throws IOException
+	 *             the file cannot be read or is not an index file.
+	 */
+	static DirCacheFile open(File file, boolean map) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (Integer.MAX_VALUE < size)
+				throw new CorruptObjectException(
+						JGitText.get().DIRCHasTooManyEntries);
+			ByteBuffer buf;
+			if (map)
+				buf = channel.map(MapMode.READ_ONLY, 0, size);
+			else {
+				byte[] raw = new byte[(int) size];
+				IO.readFully(in, raw, 0, raw.length);
+				buf = ByteBuffer.wrap(raw);
+			}
+			return new DirCacheFile(buf);
+		} finally {
+			in.close();
+		}
+	}
+
+	private final ByteBuffer buf;
+
+	/** Position of the trailing checksum. */
+	private final int end;
+
+	/** Start of each entry record. */
+	private final int[] offsets;
+
+	/** Position of the first extension, following the last entry. */
+	private final int extensions;
+
+	private boolean verified;
+
+	private DirCacheFile(ByteBuffer buf) throws IOException {
+		this.buf = buf;
+		end = buf.limit() - Constants.OBJECT_ID_LENGTH;
+		if (end < HEADER_LEN)
+			throw new EOFException(JGitText.get().shortReadOfBlock);
+		for (int i = 0; i < SIG_DIRC.length; i++)
+			if (buf.get(i) != SIG_DIRC[i])
+				throw new CorruptObjectException(JGitText.get().notADIRCFile);
+		int ver = buf.getInt(4);
+		if (ver != 2 && ver != 3)
+			throw new CorruptObjectException(MessageFormat.format(
+					JGitText.get().unknownDIRCVersion, Integer.valueOf(ver)));
+		int cnt = buf.getInt(8);
+		if (cnt < 0 || (end - HEADER_LEN) / DirCacheEntry.INFO_LEN < cnt)
+			throw new CorruptObjectException(
+					JGitText.get().DIRCHasTooManyEntries);
+
+		offsets = new int[cnt];
+		int ptr = HEADER_LEN;
+		for (int i = 0; i < cnt; i++) {
+			if (end - ptr < DirCacheEntry.INFO_LEN)
+				throw new EOFException(JGitText.get().shortReadOfBlock);
+			offsets[i] = ptr;
+			int infoLen = infoLength(ptr);
+			int pathLen = pathLength(ptr, infoLen);
+			int recLen = (infoLen + pathLen + 8) & ~7;
+			if (pathLen < 0 || end - ptr < recLen)
+				throw new EOFException(JGitText.get().shortReadOfBlock);
+			ptr += recLen;
+		}
+		extensions = ptr;
+	}
+
+	/** @return number of entries in the file. */
+	int getEntryCount() {
+		return offsets.length;
+	}
+
+	/** @return position of the first extension header. */
+	int getExtensionsStart() {
+		return extensions;
+	}
+
+	/** @return position of the trailing checksum, following the extensions. */
+	int getExtensionsEnd() {
+		return end;
+	}
+
+	/** @return the checksum stored at the end of the file. */
+	ObjectId getChecksum() {
+		return ObjectId.fromRaw(getBytes(end, Constants.OBJECT_ID_LENGTH));
+	}
+
+	int getInt(int ptr) {
+		return buf.getInt(ptr);
+	}
+
+	byte[] getBytes(int ptr, int len) {
+		byte[] r = new byte[len];
+		ByteBuffer b = buf.duplicate();
+		b.position(ptr);
+		b.get(r);
+		return r;
+	}
+
+	/**
+	 * Verify the checksum of the file, once.
+	 *
+	 * @throws CorruptObjectException
+	 *             the content does not match its checksum.
+	 */
+	synchronized void verify() throws CorruptObjectException {
+		if (verified)
+			return;
+		MessageDigest md = Constants.newMessageDigest();
+		ByteBuffer b = buf.duplicate();
+		b.position(0);
+		b.limit(end);
+		md.update(b);
+		if (!getChecksum().equals(ObjectId.fromRaw(md.digest())))
+			throw new CorruptObjectException(
+					JGitText.get().DIRCChecksumMismatch);
+		verified = true;
+	}
+
+	/**
+	 * @param i
+	 *            entry number.
+	 * @return stage of the entry.
+	 */
+	int getStage(int i) {
+		return (buf.get(offsets[i] + DirCacheEntry.P_FLAGS) >>> 4) & 0x3;
+	}
+
+	/**
+	 * Compare a path with the path of an entry.
+	 *
+	 * @param p
+	 *            the path.
+	 * @param pLen
+	 *            number of bytes of {@code p} to compare.
+	 * @param i
+	 *            entry number.
+	 * @return &lt; 0 if the path sorts before the entry, 0 if they are equal,
+	 *         &gt; 0 if the path sorts after the entry.
+	 */
+	int comparePath(byte[] p, int pLen, int i) {
+		int ptr = offsets[i];
+		int infoLen = infoLength(ptr);
+		int len = pathLength(ptr, infoLen);
+		ptr += infoLen;
+		for (int cPos = 0; cPos < pLen && cPos < len; cPos++) {
+			int cmp = (p[cPos] & 0xff) - (buf.get(ptr + cPos) & 0xff);
+			if (cmp != 0)
+				return cmp;
+		}
+		return pLen - len;
+	}
+
+	/**
+	 * @param i
+	 *            entry number.
+	 * @return a copy of the path of the entry.
+	 */
+	byte[] getPath(int i) {
+		int ptr = offsets[i];
+		int infoLen = infoLength(ptr);
+		return getBytes(ptr + infoLen, pathLength(ptr, infoLen));
+	}
+
+	/**
+	 * Test if an entry has exactly the same content as stored in this file.
+	 *
+	 * @param i
+	 *            entry number, whose path must equal the entry's.
+	 * @param e
+	 *            the entry.
+	 * @return true if the entry's record equals the stored one.
+	 */
+	boolean isSameRecord(int i, DirCacheEntry e) {
+		int ptr = offsets[i];
+		byte[] info = e.idBuffer();
+		int off = e.idOffset() - DirCacheEntry.P_OBJECTID;
+		int len = infoLength(ptr);
+		if (len != (e.isExtended() ? DirCacheEntry.INFO_LEN_EXTENDED
+				: DirCacheEntry.INFO_LEN))
+			return false;
+		for (int k = 0; k < len; k++)
+			if (buf.get(ptr + k) != info[off + k])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Decode an entry.
+	 *
+	 * @param i
+	 *            entry number.
+	 * @param path
+	 *            path of the entry; null to use the stored one.
+	 * @param smudge_s
+	 *            seconds component of the index's last modified time.
+	 * @param smudge_ns
+	 *            nanoseconds component of the index's last modified time.
+	 * @return the entry.
+	 * @throws IOException
+	 *             the entry is not valid.
+	 */
+	DirCacheEntry decode(int i, byte[] path, int smudge_s, int smudge_ns)
+			throws IOException {
+		int ptr = offsets[i];
+		int infoLen = infoLength(ptr);
+		byte[] info = getBytes(ptr, infoLen);
+		if (path == null)
+			path = getBytes(ptr + infoLen, pathLength(ptr, infoLen));
+		return new DirCacheEntry(info, path, smudge_s, smudge_ns);
+	}
+
+	private int infoLength(int ptr) {
+		if ((buf.get(ptr + DirCacheEntry.P_FLAGS) & DirCacheEntry.EXTENDED) != 0)
+			return DirCacheEntry.INFO_LEN_EXTENDED;
+		return DirCacheEntry.INFO_LEN;
+	}
+
+	/** @return length of the path; -1 if it is not terminated. */
+	private int pathLength(int ptr, int infoLen) {
+		int len = buf.getShort(ptr + DirCacheEntry.P_FLAGS)
+				& DirCacheEntry.NAME_MASK;
+		if (len < DirCacheEntry.NAME_MASK)
+			return len;
+		// Longer paths are terminated by the first NUL.
+		int start = ptr + infoLen;
+		for (int p = start + len; p < end; p++)
+			if (buf.get(p) == 0)
+				return p - start;
+		return -1;
+	}
+}
@@ -491,6 +491,81 @@ public class DirCacheTree {
 			removeChild(childCnt - 1);
 	}
 
+	/**
+	 * Invalidate every tree that contains the given path.
+	 * <p>
+	 * Trees not on the path from this tree down to the path's parent keep
+	 * their object id and entry span, allowing {@link #writeTree} to reuse
+	 * them without hashing their entries again.
+	 *
+	 * @param path
+	 *            path of the entry that was added, removed or changed.
+	 * @param pathOff
+	 *            number of bytes of <code>path</code> that matches this
+	 *            tree's path.
+	 */
+	void invalidate(final byte[] path, final int pathOff) {
+		DirCacheTree ct = this;
+		int off = pathOff;
+		for (;;) {
+			ct.id = null;
+			ct.entrySpan = -1;
+			final int p = slash(path, off);
+			if (p < 0)
+				return;
+			final int stIdx = ct.findChild(path, off, p);
+			if (stIdx < 0)
+				return;
+			ct = ct.children[stIdx];
+			off = p + 1;
+		}
+	}
+
+	private int findChild(final byte[] path, final int off, final int end) {
+		int low = 0;
+		int high = childCnt;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			final int cmp = namecmp(path, off, end, children[mid].encodedName);
+			if (cmp < 0)
+				high = mid;
+			else if (cmp == 0)
+				return mid;
+			else
+				low = mid + 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * Count the trees which must be written by {@link #writeTree}.
+	 *
+	 * @return number of invalid trees, including this one.
+	 */
+	int countInvalid() {
+		if (isValid())
+			return 0;
+		int n = 1;
+		for (int i = 0; i < childCnt; i++)
+			n += children[i].countInvalid();
+		return n;
+	}
+
+	/**
+	 * Count the trees {@link #writeTree} reuses without writing.
+	 *
+	 * @return number of valid trees that are this tree or a direct child of
+	 *         an invalid tree.
+	 */
+	int countReused() {
+		if (isValid())
+			return 1;
+		int n = 0;
+		for (int i = 0; i < childCnt; i++)
+			n += children[i].countReused();
+		return n;
+	}
+
 	private void insertChild(final int stIdx, final DirCacheTree st) {
 		final DirCacheTree[] c = children;
 		if (childCnt + 1 <= c.length) {
@@ -545,6 +620,20 @@ public class DirCacheTree {
 		return aLen - bLen;
 	}
 
+	private static int namecmp(final byte[] a, int aPos, final int aEnd,
+			final byte[] b) {
+		final int bLen = b.length;
+		int bPos = 0;
+		for (; aPos < aEnd && bPos < bLen; aPos++, bPos++) {
+			final int cmp = (a[aPos] & 0xff) - (b[bPos] & 0xff);
+			if (cmp != 0)
+				return cmp;
+		}
+		if (aPos == aEnd)
+			return bPos == bLen ? 0 : '/' - (b[bPos] & 0xff);
+		return (a[aPos] & 0xff) - '/';
+	}
+
 	private static int slash(final byte[] a, int aPos) {
 		final int aLen = a.length;
 		for (; aPos < aLen; aPos++)
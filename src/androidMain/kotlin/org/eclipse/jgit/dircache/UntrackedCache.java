@@ -0,0 +1,411 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.dircache;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.errors.CorruptObjectException;
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.util.RawParseUtils;
+
+/**
+ * Listings of working tree directories, stored as an extension of the index.
+ * <p>
+ * A listing is kept together with the last modification time of its
+ * directory. As long as that time is unchanged no entry was added, removed or
+ * renamed, and the directory does not need to be read again. Listings are
+ * only recorded when the directory was not modified too shortly before it was
+ * read, following the rules of
+ * {@link org.eclipse.jgit.internal.storage.file.FileSnapshot}.
+ * <p>
+ * Each listing also remembers which of its entries are ignored, along with
+ * the modification time and length of the directory's {@code .gitignore}.
+ * When that file changes, or a file with global exclude rules changes, the
+ * ignore results of the directory and of all directories below it are
+ * forgotten.
+ * <p>
+ * The cache is safe for use by concurrent iterators.
+ *
+ * @since 3.8
+ */
+public class UntrackedCache {
+	/** Format version of the extension. */
+	private static final int VERSION = 1;
+
+	/** The ignore state of an entry is not known. */
+	public static final byte IGNORE_UNKNOWN = 0;
+
+	/** The entry is not ignored. */
+	public static final byte NOT_IGNORED = 1;
+
+	/** The entry is ignored. */
+	public static final byte IGNORED = 2;
+
+	/** Stamp of ignore rules that cannot be trusted, forcing a reset. */
+	public static final long[] UNKNOWN_STAMP = { -1, -1 };
+
+	/** Listing of a single directory. */
+	public static final class Directory {
+		final long lastModified;
+
+		final String[] names;
+
+		final int[] modes;
+
+		final byte[] ignored;
+
+		long ignoreModified = UNKNOWN_STAMP[0];
+
+		long ignoreLength = UNKNOWN_STAMP[1];
+
+		/**
+		 * Create a listing.
+		 *
+		 * @param lastModified
+		 *            last modification time of the directory, read before it
+		 *            was listed.
+		 * @param names
+		 *            names of the entries in the directory.
+		 * @param modes
+		 *            raw file modes of the entries.
+		 */
+		public Directory(long lastModified, String[] names, int[] modes) {
+			this.lastModified = lastModified;
+			this.names = names;
+			this.modes = modes;
+			this.ignored = new byte[names.length];
+		}
+
+		/** @return last modification time of the directory. */
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		/** @return number of entries. */
+		public int size() {
+			return names.length;
+		}
+
+		/**
+		 * @param i
+		 *            index of the entry.
+		 * @return name of the entry.
+		 */
+		public String getName(int i) {
+			return names[i];
+		}
+
+		/**
+		 * @param i
+		 *            index of the entry.
+		 * @return raw file mode of the entry.
+		 */
+		public int getRawMode(int i) {
+			return modes[i];
+		}
+
+		/**
+		 * @param i
+		 *            index of the entry.
+		 * @return one of {@link UntrackedCache#IGNORE_UNKNOWN},
+		 *         {@link UntrackedCache#NOT_IGNORED} or
+		 *         {@link UntrackedCache#IGNORED}.
+		 */
+		public byte getIgnored(int i) {
+			return ignored[i];
+		}
+
+		/**
+		 * @param stamp
+		 *            modification time and length of the directory's ignore
+		 *            file.
+		 * @return true if the ignore results were recorded with this stamp.
+		 */
+		public boolean hasIgnoreStamp(long[] stamp) {
+			return ignoreModified == stamp[0] && ignoreLength == stamp[1]
+					&& stamp != UNKNOWN_STAMP;
+		}
+
+		private boolean hasDirectory(String name) {
+			for (int i = 0; i < names.length; i++) {
+				if (names[i].equals(name) && isDirectory(modes[i]))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	private final TreeMap<String, Directory> directories = new TreeMap<String, Directory>();
+
+	private String excludesKey = ""; //$NON-NLS-1$
+
+	private boolean modified;
+
+	/** Create an empty cache. */
+	public UntrackedCache() {
+		// Directories are added as they are listed.
+	}
+
+	/**
+	 * Read the cache from the data of the index extension.
+	 *
+	 * @param raw
+	 *            content of the extension.
+	 * @throws IOException
+	 *             the extension is not in the expected format.
+	 */
+	UntrackedCache(byte[] raw) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				raw));
+		if (in.readInt() != VERSION)
+			throw new CorruptObjectException(
+					JGitText.get().DIRCCorruptUntrackedCache);
+		excludesKey = readString(in);
+		int cnt = in.readInt();
+		for (int d = 0; d < cnt; d++) {
+			String path = readString(in);
+			long lastModified = in.readLong();
+			long ignoreModified = in.readLong();
+			long ignoreLength = in.readLong();
+			int n = in.readInt();
+			if (n < 0)
+				throw new CorruptObjectException(
+						JGitText.get().DIRCCorruptUntrackedCache);
+			String[] names = new String[n];
+			int[] modes = new int[n];
+			byte[] ignored = new byte[n];
+			for (int i = 0; i < n; i++) {
+				modes[i] = in.readInt();
+				ignored[i] = in.readByte();
+				names[i] = readString(in);
+			}
+			Directory dir = new Directory(lastModified, names, modes);
+			System.arraycopy(ignored, 0, dir.ignored, 0, n);
+			dir.ignoreModified = ignoreModified;
+			dir.ignoreLength = ignoreLength;
+			directories.put(path, dir);
+		}
+	}
+
+	/**
+	 * Write the content of the index extension.
+	 *
+	 * @param os
+	 *            stream to write to.
+	 * @throws IOException
+	 *             the stream cannot be written to.
+	 */
+	synchronized void write(OutputStream os) throws IOException {
+		DataOutputStream out = new DataOutputStream(os);
+		out.writeInt(VERSION);
+		writeString(out, excludesKey);
+		out.writeInt(directories.size());
+		for (Map.Entry<String, Directory> e : directories.entrySet()) {
+			Directory dir = e.getValue();
+			writeString(out, e.getKey());
+			out.writeLong(dir.lastModified);
+			out.writeLong(dir.ignoreModified);
+			out.writeLong(dir.ignoreLength);
+			out.writeInt(dir.names.length);
+			for (int i = 0; i < dir.names.length; i++) {
+				out.writeInt(dir.modes[i]);
+				out.writeByte(dir.ignored[i]);
+				writeString(out, dir.names[i]);
+			}
+		}
+		out.flush();
+		modified = false;
+	}
+
+	/** @return number of directories in the cache. */
+	public synchronized int size() {
+		return directories.size();
+	}
+
+	/**
+	 * @return true if the cache changed since it was read or last written.
+	 */
+	public synchronized boolean isModified() {
+		return modified;
+	}
+
+	/**
+	 * @param path
+	 *            path of the directory relative to the working tree, the
+	 *            empty string for the working tree itself.
+	 * @return listing of the directory, null if not cached.
+	 */
+	public synchronized Directory get(String path) {
+		return directories.get(path);
+	}
+
+	/**
+	 * Store a listing, dropping the listings below subdirectories that no
+	 * longer exist.
+	 *
+	 * @param path
+	 *            path of the directory relative to the working tree.
+	 * @param dir
+	 *            the new listing.
+	 */
+	public synchronized void put(String path, Directory dir) {
+		Directory old = directories.put(path, dir);
+		if (old != null) {
+			dir.ignoreModified = old.ignoreModified;
+			dir.ignoreLength = old.ignoreLength;
+			for (int i = 0; i < old.names.length; i++) {
+				if (isDirectory(old.modes[i]) && !dir.hasDirectory(old.names[i]))
+					removeTree(child(path, old.names[i]));
+			}
+		}
+		modified = true;
+	}
+
+	/**
+	 * Record whether an entry is ignored.
+	 *
+	 * @param dir
+	 *            listing containing the entry.
+	 * @param i
+	 *            index of the entry.
+	 * @param isIgnored
+	 *            true if the entry is ignored.
+	 */
+	public synchronized void setIgnored(Directory dir, int i,
+			boolean isIgnored) {
+		byte state = isIgnored ? IGNORED : NOT_IGNORED;
+		if (dir.ignored[i] != state) {
+			dir.ignored[i] = state;
+			modified = true;
+		}
+	}
+
+	/**
+	 * Forget the ignore results of a directory and all directories below it,
+	 * as the directory's ignore rules changed.
+	 *
+	 * @param path
+	 *            path of the directory relative to the working tree.
+	 * @param stamp
+	 *            modification time and length of the directory's new ignore
+	 *            file, {@link #UNKNOWN_STAMP} if it cannot be trusted.
+	 */
+	public synchronized void resetIgnored(String path, long[] stamp) {
+		Directory dir = directories.get(path);
+		if (dir != null) {
+			dir.ignoreModified = stamp[0];
+			dir.ignoreLength = stamp[1];
+			Arrays.fill(dir.ignored, IGNORE_UNKNOWN);
+		}
+		Iterator<Directory> i = below(path).values().iterator();
+		while (i.hasNext())
+			Arrays.fill(i.next().ignored, IGNORE_UNKNOWN);
+		modified = true;
+	}
+
+	/**
+	 * Set the key describing the global exclude rules. When it differs from
+	 * the key the cache was recorded with, all ignore results are forgotten.
+	 *
+	 * @param key
+	 *            description of the files holding global exclude rules; null
+	 *            if they cannot be trusted.
+	 * @return true if the cached ignore results can be used.
+	 */
+	public synchronized boolean setExcludesKey(String key) {
+		if (key != null && key.equals(excludesKey))
+			return true;
+		for (Directory dir : directories.values())
+			Arrays.fill(dir.ignored, IGNORE_UNKNOWN);
+		excludesKey = key != null ? key : ""; //$NON-NLS-1$
+		modified = true;
+		return key != null;
+	}
+
+	private void removeTree(String path) {
+		directories.remove(path);
+		below(path).clear();
+	}
+
+	private Map<String, Directory> below(String path) {
+		if (path.length() == 0)
+			return directories.tailMap("", false); //$NON-NLS-1$
+		return directories.subMap(path + '/', path + '0');
+	}
+
+	private static String child(String path, String name) {
+		return path.length() == 0 ? name : path + '/' + name;
+	}
+
+	private static boolean isDirectory(int mode) {
+		return FileMode.TREE.equals(mode) || FileMode.GITLINK.equals(mode);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int len = in.readInt();
+		if (len < 0)
+			throw new CorruptObjectException(
+					JGitText.get().DIRCCorruptUntrackedCache);
+		byte[] b = new byte[len];
+		in.readFully(b);
+		return RawParseUtils.decode(Constants.CHARSET, b, 0, len);
+	}
+
+	private static void writeString(DataOutputStream out, String s)
+			throws IOException {
+		byte[] b = Constants.encode(s);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+}
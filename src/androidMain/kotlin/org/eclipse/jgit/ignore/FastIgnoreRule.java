@@ -143,6 +143,11 @@ public class FastIgnoreRule {
 		return match;
 	}
 
+	/** @return the matcher of this rule. */
+	IMatcher getMatcher() {
+		return matcher;
+	}
+
 	/**
 	 * @return True if the pattern is just a file name and not a path
 	 */
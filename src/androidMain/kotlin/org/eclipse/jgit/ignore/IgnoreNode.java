@@ -81,6 +81,9 @@ public class IgnoreNode {
 	/** The rules that have been parsed into this node. */
 	private final List<FastIgnoreRule> rules;
 
+	/** Index of {@link #rules}, rebuilt after rules were added. */
+	private IgnoreRuleIndex index;
+
 	/** Create an empty ignore node with no rules. */
 	public IgnoreNode() {
 		rules = new ArrayList<FastIgnoreRule>();
@@ -161,27 +164,43 @@ public class IgnoreNode {
 			else
 				return MatchResult.CHECK_PARENT;
 
-		// Parse rules in the reverse order that they were read
-		for (int i = rules.size() - 1; i > -1; i--) {
-			FastIgnoreRule rule = rules.get(i);
-			if (rule.isMatch(entryPath, isDirectory)) {
-				if (rule.getResult()) {
-					// rule matches: path could be ignored
-					if (negateFirstMatch)
-						// ignore current match, reset "negate" flag, continue
-						negateFirstMatch = false;
-					else
-						// valid match, just return
-						return MatchResult.IGNORED;
-				} else {
-					// found negated rule
-					if (negateFirstMatch)
-						// not possible to re-include excluded ignore rule
-						return MatchResult.NOT_IGNORED;
-					else
-						// set the flag and continue
-						negateFirstMatch = true;
-				}
+		IgnoreRuleIndex idx = index;
+		if (idx == null || idx.size() != rules.size()) {
+			idx = new IgnoreRuleIndex(rules);
+			index = idx;
+		}
+
+		// Parse rules in the reverse order that they were read, merging the
+		// rules found by the index with the ones it cannot look up.
+		int[] hits = idx.findMatches(entryPath, isDirectory);
+		int[] others = idx.others;
+		int h = hits != null ? hits.length - 1 : -1;
+		int o = others.length - 1;
+		while (h >= 0 || o >= 0) {
+			FastIgnoreRule rule;
+			if (o < 0 || (h >= 0 && hits[h] > others[o]))
+				rule = rules.get(hits[h--]);
+			else {
+				rule = rules.get(others[o--]);
+				if (!rule.isMatch(entryPath, isDirectory))
+					continue;
+			}
+			if (rule.getResult()) {
+				// rule matches: path could be ignored
+				if (negateFirstMatch)
+					// ignore current match, reset "negate" flag, continue
+					negateFirstMatch = false;
+				else
+					// valid match, just return
+					return MatchResult.IGNORED;
+			} else {
+				// found negated rule
+				if (negateFirstMatch)
+					// not possible to re-include excluded ignore rule
+					return MatchResult.NOT_IGNORED;
+				else
+					// set the flag and continue
+					negateFirstMatch = true;
 			}
 		}
 		if (negateFirstMatch)
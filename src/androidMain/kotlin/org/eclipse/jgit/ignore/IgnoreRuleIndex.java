@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.eclipse.jgit.ignore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.eclipse.jgit.ignore.internal.IMatcher;
+import org.eclipse.jgit.ignore.internal.LeadingAsteriskMatcher;
+import org.eclipse.jgit.ignore.internal.NameMatcher;
+import org.eclipse.jgit.ignore.internal.TrailingAsteriskMatcher;
+
+/**
+ * Rules of an {@link IgnoreNode}, indexed to find the rules matching a path
+ * without testing each of them.
+ * <p>
+ * Rules matching a literal name, like {@code target/} or {@code /bin}, and
+ * rules matching a literal suffix or prefix, like {@code *.o} or
+ * {@code tmp*}, are found by hash lookups of the segments of a path. Only the
+ * remaining rules need to be tested one by one.
+ * <p>
+ * This class is immutable and thread safe.
+ */
+final class IgnoreRuleIndex {
+	private final List<FastIgnoreRule> rules;
+
+	private final int size;
+
+	/** Names matching any segment. */
+	private final SegmentTable names;
+
+	/** Names matching the first segment only. */
+	private final SegmentTable firstNames;
+
+	/** Suffixes of any segment. */
+	private final SegmentTable suffixes;
+
+	/** Prefixes of any segment. */
+	private final SegmentTable prefixes;
+
+	/** Indexes of the rules which are not in a table, ascending. */
+	final int[] others;
+
+	IgnoreRuleIndex(List<FastIgnoreRule> rules) {
+		this.rules = rules;
+		this.size = rules.size();
+
+		Map<String, List<Integer>> nameMap = new LinkedHashMap<String, List<Integer>>();
+		Map<String, List<Integer>> firstNameMap = new LinkedHashMap<String, List<Integer>>();
+		Map<String, List<Integer>> suffixMap = new LinkedHashMap<String, List<Integer>>();
+		Map<String, List<Integer>> prefixMap = new LinkedHashMap<String, List<Integer>>();
+		int[] o = new int[size];
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			IMatcher m = rules.get(i).getMatcher();
+			if (m instanceof NameMatcher && !((NameMatcher) m).isBeginning()) {
+				if (m instanceof LeadingAsteriskMatcher) {
+					if (add(suffixMap,
+							((LeadingAsteriskMatcher) m).getSuffix(), i))
+						continue;
+				} else if (m instanceof TrailingAsteriskMatcher) {
+					if (add(prefixMap,
+							((TrailingAsteriskMatcher) m).getPrefix(), i))
+						continue;
+				} else if (add(nameMap, ((NameMatcher) m).getLiteralName(), i))
+					continue;
+			} else if (m instanceof NameMatcher) {
+				if (add(firstNameMap, ((NameMatcher) m).getLiteralName(), i))
+					continue;
+			}
+			o[n++] = i;
+		}
+		names = new SegmentTable(nameMap);
+		firstNames = new SegmentTable(firstNameMap);
+		suffixes = new SegmentTable(suffixMap);
+		prefixes = new SegmentTable(prefixMap);
+		others = Arrays.copyOf(o, n);
+	}
+
+	private static boolean add(Map<String, List<Integer>> map, String key,
+			int i) {
+		if (key == null || key.length() == 0)
+			return false;
+		List<Integer> l = map.get(key);
+		if (l == null) {
+			l = new ArrayList<Integer>(1);
+			map.put(key, l);
+		}
+		l.add(Integer.valueOf(i));
+		return true;
+	}
+
+	/** @return number of rules the index was built from. */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Find the indexed rules matching a path.
+	 *
+	 * @param path
+	 *            the path to test, as passed to
+	 *            {@link FastIgnoreRule#isMatch(String, boolean)}.
+	 * @param isDirectory
+	 *            true if the path is a directory.
+	 * @return ascending indexes of the matching indexed rules; null if none
+	 *         matches. Rules in {@link #others} are not included.
+	 */
+	int[] findMatches(String path, boolean isDirectory) {
+		if (path == null)
+			return null;
+		int len = path.length();
+		Matches m = null;
+		// A leading slash does not start a segment of its own.
+		int first = len > 0 && path.charAt(0) == '/' ? 1 : 0;
+		for (int start = first; start < len;) {
+			int end = path.indexOf('/', start);
+			if (end < 0)
+				end = len;
+			boolean dirSegment = isDirectory || end != len;
+
+			m = add(m, names.get(path, start, end), dirSegment);
+			if (start == first)
+				m = add(m, firstNames.get(path, start, end), dirSegment);
+			int[] lengths = suffixes.lengths;
+			for (int i = 0; i < lengths.length && lengths[i] <= end - start; i++)
+				m = add(m, suffixes.get(path, end - lengths[i], end),
+						dirSegment);
+			lengths = prefixes.lengths;
+			for (int i = 0; i < lengths.length && lengths[i] <= end - start; i++)
+				m = add(m, prefixes.get(path, start, start + lengths[i]),
+						dirSegment);
+			start = end + 1;
+		}
+		return m != null ? m.toArray() : null;
+	}
+
+	private Matches add(Matches m, int[] found, boolean dirSegment) {
+		if (found == null)
+			return m;
+		for (int i : found) {
+			if (dirSegment || !rules.get(i).dirOnly()) {
+				if (m == null)
+					m = new Matches();
+				m.add(i);
+			}
+		}
+		return m;
+	}
+
+	private static final class Matches {
+		private int[] rules = new int[4];
+
+		private int count;
+
+		void add(int i) {
+			if (count == rules.length)
+				rules = Arrays.copyOf(rules, count * 2);
+			rules[count++] = i;
+		}
+
+		int[] toArray() {
+			Arrays.sort(rules, 0, count);
+			int n = 1;
+			for (int i = 1; i < count; i++) {
+				if (rules[i] != rules[n - 1])
+					rules[n++] = rules[i];
+			}
+			return n == rules.length ? rules : Arrays.copyOf(rules, n);
+		}
+	}
+
+	/**
+	 * Open addressing hash table from strings to rule indexes, which is
+	 * searched by a region of a path to avoid creating a string per segment.
+	 */
+	private static final class SegmentTable {
+		private final String[] keys;
+
+		private final int[][] values;
+
+		private final int mask;
+
+		/** Distinct lengths of the keys, ascending. */
+		final int[] lengths;
+
+		SegmentTable(Map<String, List<Integer>> map) {
+			int capacity = 2;
+			while (capacity < map.size() * 2)
+				capacity <<= 1;
+			keys = new String[capacity];
+			values = new int[capacity][];
+			mask = capacity - 1;
+			TreeSet<Integer> lens = new TreeSet<Integer>();
+			for (Map.Entry<String, List<Integer>> e : map.entrySet()) {
+				String key = e.getKey();
+				int p = mix(key.hashCode()) & mask;
+				while (keys[p] != null)
+					p = (p + 1) & mask;
+				List<Integer> l = e.getValue();
+				int[] v = new int[l.size()];
+				for (int i = 0; i < v.length; i++)
+					v[i] = l.get(i).intValue();
+				keys[p] = key;
+				values[p] = v;
+				lens.add(Integer.valueOf(key.length()));
+			}
+			lengths = new int[lens.size()];
+			int k = 0;
+			for (Integer n : lens)
+				lengths[k++] = n.intValue();
+		}
+
+		int[] get(String path, int start, int end) {
+			int h = 0;
+			for (int i = start; i < end; i++)
+				h = 31 * h + path.charAt(i);
+			int len = end - start;
+			for (int p = mix(h) & mask;; p = (p + 1) & mask) {
+				String key = keys[p];
+				if (key == null)
+					return null;
+				if (key.length() == len && key.regionMatches(0, path, start, len))
+					return values[p];
+			}
+		}
+
+		private static int mix(int h) {
+			return h ^ (h >>> 16);
+		}
+	}
+}
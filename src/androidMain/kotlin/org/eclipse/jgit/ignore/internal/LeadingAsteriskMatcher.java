@@ -57,6 +57,15 @@ public class LeadingAsteriskMatcher extends NameMatcher {
 					"Pattern must have leading asterisk: " + pattern); //$NON-NLS-1$
 	}
 
+	/**
+	 * @return the text following the leading asterisk, which a path segment
+	 *         must end with to match.
+	 * @since 3.8
+	 */
+	public String getSuffix() {
+		return subPattern.substring(1);
+	}
+
 	public boolean matches(String segment, int startIncl, int endExcl,
 			boolean assumeDirectory) {
 		// faster local access, same as in string.indexOf()
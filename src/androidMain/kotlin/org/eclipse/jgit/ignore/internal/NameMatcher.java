@@ -99,6 +99,25 @@ public class NameMatcher extends AbstractMatcher {
 		return true;
 	}
 
+	/**
+	 * @return true if the pattern only matches the first segment of a path.
+	 * @since 3.8
+	 */
+	public boolean isBeginning() {
+		return beginning;
+	}
+
+	/**
+	 * @return the name matched by this pattern if it contains no wildcards,
+	 *         null otherwise.
+	 * @since 3.8
+	 */
+	public String getLiteralName() {
+		if (getClass() != NameMatcher.class)
+			return null;
+		return subPattern;
+	}
+
 	private int getFirstNotSlash(String s, int start) {
 		int slashIdx = s.indexOf(slash, start);
 		return slashIdx == start ? start + 1 : start;
@@ -57,6 +57,15 @@ public class TrailingAsteriskMatcher extends NameMatcher {
 					"Pattern must have trailing asterisk: " + pattern); //$NON-NLS-1$
 	}
 
+	/**
+	 * @return the text preceding the trailing asterisk, which a path segment
+	 *         must start with to match.
+	 * @since 3.8
+	 */
+	public String getPrefix() {
+		return subPattern.substring(0, subPattern.length() - 1);
+	}
+
 	public boolean matches(String segment, int startIncl, int endExcl,
 			boolean assumeDirectory) {
 		// faster local access, same as in string.indexOf()
@@ -223,9 +223,11 @@ public class JGitText extends TranslationBundle {
 	/***/ public String dirCacheFileIsNotLocked;
 	/***/ public String dirCacheIsNotLocked;
 	/***/ public String DIRCChecksumMismatch;
+	/***/ public String DIRCCorruptUntrackedCache;
 	/***/ public String DIRCExtensionIsTooLargeAt;
 	/***/ public String DIRCExtensionNotSupportedByThisVersion;
 	/***/ public String DIRCHasTooManyEntries;
+	/***/ public String DIRCSharedIndexNotFound;
 	/***/ public String DIRCUnrecognizedExtendedFlags;
 	/***/ public String dirtyFilesExist;
 	/***/ public String doesNotHandleMode;
@@ -625,6 +627,7 @@ public class JGitText extends TranslationBundle {
 	/***/ public String unsupportedOperationNotAddAtEnd;
 	/***/ public String unsupportedPackIndexVersion;
 	/***/ public String unsupportedPackVersion;
+	/***/ public String unsupportedProtocolV2Argument;
 	/***/ public String updatingReferences;
 	/***/ public String updatingRefFailed;
 	/***/ public String uriNotConfigured;
@@ -46,14 +46,24 @@
 package org.eclipse.jgit.internal.storage.dfs;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.CRC32;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
 import org.eclipse.jgit.internal.storage.pack.PackOutputStream;
 
-/** A cached slice of a {@link DfsPackFile}. */
+/**
+ * A cached slice of a {@link DfsPackFile}.
+ * <p>
+ * The slice is held in a {@link ByteBuffer}, either wrapping a heap array or
+ * a direct buffer borrowed from a {@link DfsBlockBufferPool}. Pooled blocks
+ * are reference counted: the cache holds one reference while the block is in
+ * the table, and each reader pinning the block holds another. The buffer is
+ * returned to the pool only once the last reference has been released.
+ */
 final class DfsBlock {
 	final DfsPackKey pack;
 
@@ -61,61 +71,172 @@ final class DfsBlock {
 
 	final long end;
 
-	private final byte[] block;
+	private final ByteBuffer block;
+
+	private final DfsBlockBufferPool pool;
+
+	private final AtomicInteger refs = new AtomicInteger(1);
+
+	/** True while a block loaded by read-ahead has not yet been read. */
+	volatile boolean readAhead;
 
 	DfsBlock(DfsPackKey p, long pos, byte[] buf) {
-		pack = p;
-		start = pos;
-		end = pos + buf.length;
-		block = buf;
+		this(p, pos, ByteBuffer.wrap(buf), null);
+	}
+
+	DfsBlock(DfsPackKey p, long pos, ByteBuffer buf, DfsBlockBufferPool pool) {
+		this.pack = p;
+		this.start = pos;
+		this.end = pos + buf.limit();
+		this.block = buf;
+		this.pool = pool;
 	}
 
 	int size() {
-		return block.length;
+		return block.limit();
+	}
+
+	boolean isDirect() {
+		return block.isDirect();
 	}
 
 	boolean contains(DfsPackKey want, long pos) {
 		return pack == want && start <= pos && pos < end;
 	}
 
+	/**
+	 * Add a reference to this block.
+	 *
+	 * @return true if the block is still valid; false if its buffer has
+	 *         already been returned to the pool and must not be read.
+	 */
+	boolean retain() {
+		if (pool == null)
+			return true;
+		for (;;) {
+			int n = refs.get();
+			if (n <= 0)
+				return false;
+			if (refs.compareAndSet(n, n + 1))
+				return true;
+		}
+	}
+
+	/** Drop a reference obtained by {@link #retain()} or at creation. */
+	void release() {
+		if (pool != null && refs.decrementAndGet() == 0)
+			pool.free(block);
+	}
+
+	/**
+	 * Obtain a view of part of the block.
+	 *
+	 * @param ptr
+	 *            offset within the block.
+	 * @param cnt
+	 *            number of bytes in the view.
+	 * @return a buffer sharing this block's storage, positioned at 0 and
+	 *         limited to {@code cnt} bytes.
+	 */
+	ByteBuffer slice(int ptr, int cnt) {
+		ByteBuffer s = block.duplicate();
+		s.position(ptr);
+		s.limit(ptr + cnt);
+		return s.slice();
+	}
+
 	int copy(long pos, byte[] dstbuf, int dstoff, int cnt) {
 		int ptr = (int) (pos - start);
 		return copy(ptr, dstbuf, dstoff, cnt);
 	}
 
 	int copy(int p, byte[] b, int o, int n) {
-		n = Math.min(block.length - p, n);
-		System.arraycopy(block, p, b, o, n);
+		n = Math.min(size() - p, n);
+		if (block.hasArray())
+			System.arraycopy(block.array(), block.arrayOffset() + p, b, o, n);
+		else
+			slice(p, n).get(b, o, n);
 		return n;
 	}
 
-	int setInput(long pos, Inflater inf) {
+	/**
+	 * Set the inflater's input to the block, starting at {@code pos}.
+	 *
+	 * @param pos
+	 *            position within the pack file.
+	 * @param inf
+	 *            inflater to receive the input.
+	 * @param tmp
+	 *            buffer to stage input from a direct block in. It must not be
+	 *            modified until the inflater needs more input.
+	 * @return number of bytes given to the inflater.
+	 */
+	int setInput(long pos, Inflater inf, byte[] tmp) {
 		int ptr = (int) (pos - start);
-		int cnt = block.length - ptr;
-		inf.setInput(block, ptr, cnt);
+		int cnt = size() - ptr;
+		if (block.hasArray()) {
+			inf.setInput(block.array(), block.arrayOffset() + ptr, cnt);
+			return cnt;
+		}
+		cnt = Math.min(cnt, tmp.length);
+		slice(ptr, cnt).get(tmp, 0, cnt);
+		inf.setInput(tmp, 0, cnt);
 		return cnt;
 	}
 
 	void crc32(CRC32 out, long pos, int cnt) {
 		int ptr = (int) (pos - start);
-		out.update(block, ptr, cnt);
+		if (block.hasArray())
+			out.update(block.array(), block.arrayOffset() + ptr, cnt);
+		else
+			out.update(slice(ptr, cnt));
 	}
 
 	void write(PackOutputStream out, long pos, int cnt, MessageDigest digest)
 			throws IOException {
 		int ptr = (int) (pos - start);
-		out.write(block, ptr, cnt);
-		if (digest != null)
-			digest.update(block, ptr, cnt);
+		if (block.hasArray()) {
+			byte[] buf = block.array();
+			int off = block.arrayOffset() + ptr;
+			out.write(buf, off, cnt);
+			if (digest != null)
+				digest.update(buf, off, cnt);
+			return;
+		}
+
+		ByteBuffer src = slice(ptr, cnt);
+		byte[] buf = out.getCopyBuffer();
+		while (src.hasRemaining()) {
+			int n = Math.min(src.remaining(), buf.length);
+			src.get(buf, 0, n);
+			out.write(buf, 0, n);
+			if (digest != null)
+				digest.update(buf, 0, n);
+		}
 	}
 
 	void check(Inflater inf, byte[] tmp, long pos, int cnt)
 			throws DataFormatException {
-		// Unlike inflate() above the exact byte count is known by the caller.
-		// Push all of it in a single invocation to avoid unnecessary loops.
-		//
-		inf.setInput(block, (int) (pos - start), cnt);
-		while (inf.inflate(tmp, 0, tmp.length) > 0)
-			continue;
+		int ptr = (int) (pos - start);
+		if (block.hasArray()) {
+			// Unlike inflate() above the exact byte count is known by the
+			// caller. Push all of it in a single invocation to avoid
+			// unnecessary loops.
+			//
+			inf.setInput(block.array(), block.arrayOffset() + ptr, cnt);
+			while (inf.inflate(tmp, 0, tmp.length) > 0)
+				continue;
+			return;
+		}
+
+		ByteBuffer src = slice(ptr, cnt);
+		byte[] in = new byte[Math.min(cnt, 8192)];
+		while (src.hasRemaining()) {
+			int n = Math.min(src.remaining(), in.length);
+			src.get(in, 0, n);
+			inf.setInput(in, 0, n);
+			while (inf.inflate(tmp, 0, tmp.length) > 0)
+				continue;
+		}
 	}
 }
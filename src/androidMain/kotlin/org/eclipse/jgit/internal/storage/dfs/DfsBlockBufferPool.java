@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.internal.storage.dfs;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct buffers backing off-heap {@link DfsBlock}s.
+ * <p>
+ * Buffers are all {@code bufferSize} bytes in capacity, allocated outside of
+ * the Java heap, and recycled when the block using them is released by the
+ * cache and all readers. At most {@code maxBuffers} are kept idle in the pool;
+ * the {@link DfsBlockCache} limit already bounds how many can be live.
+ */
+final class DfsBlockBufferPool {
+	private final int bufferSize;
+
+	private final int maxIdle;
+
+	private final ArrayDeque<ByteBuffer> idle;
+
+	/** Number of buffers allocated from the operating system. */
+	private final AtomicLong allocated = new AtomicLong();
+
+	/** Number of buffers handed out again after being recycled. */
+	private final AtomicLong reused = new AtomicLong();
+
+	DfsBlockBufferPool(int bufferSize, int maxIdle) {
+		this.bufferSize = bufferSize;
+		this.maxIdle = maxIdle;
+		this.idle = new ArrayDeque<ByteBuffer>(Math.min(maxIdle, 1024));
+	}
+
+	/**
+	 * Obtain a buffer to read a block into.
+	 *
+	 * @param size
+	 *            number of bytes the block needs.
+	 * @return a buffer positioned at 0 with its limit set to {@code size}, or
+	 *         null if {@code size} exceeds the pool's buffer size.
+	 */
+	ByteBuffer allocate(int size) {
+		if (bufferSize < size)
+			return null;
+
+		ByteBuffer buf;
+		synchronized (idle) {
+			buf = idle.pollFirst();
+		}
+		if (buf != null)
+			reused.incrementAndGet();
+		else {
+			buf = ByteBuffer.allocateDirect(bufferSize);
+			allocated.incrementAndGet();
+		}
+		buf.clear();
+		buf.limit(size);
+		return buf;
+	}
+
+	/**
+	 * Return a buffer obtained from {@link #allocate(int)}.
+	 *
+	 * @param buf
+	 *            the buffer. Must no longer be referenced by any block.
+	 */
+	void free(ByteBuffer buf) {
+		if (buf.capacity() != bufferSize)
+			return;
+		synchronized (idle) {
+			if (idle.size() < maxIdle)
+				idle.addFirst(buf);
+		}
+	}
+
+	long getAllocatedCount() {
+		return allocated.get();
+	}
+
+	long getReusedCount() {
+		return reused.get();
+	}
+}
@@ -45,6 +45,7 @@
 package org.eclipse.jgit.internal.storage.dfs;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
@@ -54,6 +55,7 @@ import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.pack.PackExt;
 
 /**
  * Caches slices of a {@link DfsPackFile} in memory for faster read access.
@@ -87,6 +89,11 @@ import org.eclipse.jgit.internal.JGitText;
  * The internal hash table does not expand at runtime, instead it is fixed in
  * size at cache creation time. The internal lock table used to gate load
  * invocations is also fixed in size.
+ * <p>
+ * If {@link DfsBlockCacheConfig#isOffHeap()} is set, pack blocks are read into
+ * direct buffers taken from a pool instead of heap arrays. Such blocks are
+ * reference counted, and their buffer is only recycled after the block has
+ * been evicted and every reader has released it.
  */
 public final class DfsBlockCache {
 	private static volatile DfsBlockCache cache;
@@ -154,14 +161,35 @@ public final class DfsBlockCache {
 	/** View of pack files in the pack cache. */
 	private final Collection<DfsPackFile> packFiles;
 
-	/** Number of times a block was found in the cache. */
-	private final AtomicLong statHit;
+	/** Pool of direct buffers for blocks; null if blocks are on the heap. */
+	private final DfsBlockBufferPool bufferPool;
+
+	/**
+	 * Number of times a block was found in the cache, indexed by
+	 * {@link PackExt#getPosition()}.
+	 */
+	private final AtomicLong[] statHit;
+
+	/**
+	 * Number of times a block was not found, and had to be loaded, indexed by
+	 * {@link PackExt#getPosition()}.
+	 */
+	private final AtomicLong[] statMiss;
+
+	/**
+	 * Number of blocks evicted due to cache being full, indexed by
+	 * {@link PackExt#getPosition()}.
+	 */
+	private final AtomicLong[] statEvict;
 
-	/** Number of times a block was not found, and had to be loaded. */
-	private final AtomicLong statMiss;
+	/** Number of blocks loaded by read-ahead. */
+	private final AtomicLong statReadAhead;
 
-	/** Number of blocks evicted due to cache being full. */
-	private volatile long statEvict;
+	/** Number of read-ahead blocks that were later used by a reader. */
+	private final AtomicLong statReadAheadHit;
+
+	/** Number of read-ahead blocks evicted before any reader used them. */
+	private final AtomicLong statReadAheadWasted;
 
 	/** Protects the clock and its related data. */
 	private final ReentrantLock clockLock;
@@ -195,15 +223,41 @@ public final class DfsBlockCache {
 		blockSizeShift = Integer.numberOfTrailingZeros(blockSize);
 
 		clockLock = new ReentrantLock(true /* fair */);
-		clockHand = new Ref<Object>(new DfsPackKey(), -1, 0, null);
+		clockHand = new Ref<Object>(new DfsPackKey(), PackExt.PACK, -1, 0,
+				null);
 		clockHand.next = clockHand;
 
 		packCache = new ConcurrentHashMap<DfsPackDescription, DfsPackFile>(
 				16, 0.75f, 1);
 		packFiles = Collections.unmodifiableCollection(packCache.values());
 
-		statHit = new AtomicLong();
-		statMiss = new AtomicLong();
+		if (cfg.isOffHeap())
+			bufferPool = new DfsBlockBufferPool(blockSize,
+					(int) Math.min(maxBytes / blockSize, Integer.MAX_VALUE));
+		else
+			bufferPool = null;
+
+		statHit = newCounters();
+		statMiss = newCounters();
+		statEvict = newCounters();
+		statReadAhead = new AtomicLong();
+		statReadAheadHit = new AtomicLong();
+		statReadAheadWasted = new AtomicLong();
+	}
+
+	private static AtomicLong[] newCounters() {
+		// PackExt allows at most 32 extensions to be registered.
+		AtomicLong[] c = new AtomicLong[32];
+		for (int i = 0; i < c.length; i++)
+			c[i] = new AtomicLong();
+		return c;
+	}
+
+	private static long sum(AtomicLong[] c) {
+		long n = 0;
+		for (AtomicLong v : c)
+			n += v.get();
+		return n;
 	}
 
 	/** @return total number of bytes in the cache. */
@@ -216,14 +270,39 @@ public final class DfsBlockCache {
 		return getCurrentSize() * 100 / maxBytes;
 	}
 
+	/** @return true if pack blocks are held in direct buffers. */
+	public boolean isOffHeap() {
+		return bufferPool != null;
+	}
+
 	/** @return number of requests for items in the cache. */
 	public long getHitCount() {
-		return statHit.get();
+		return sum(statHit);
+	}
+
+	/**
+	 * @param ext
+	 *            pack file extension the items belong to.
+	 * @return number of requests for items of {@code ext} in the cache.
+	 */
+	public long getHitCount(PackExt ext) {
+		return statHit[ext.getPosition()].get();
 	}
 
 	/** @return number of requests for items not in the cache. */
 	public long getMissCount() {
-		return statMiss.get();
+		return sum(statMiss);
+	}
+
+	/**
+	 * @param ext
+	 *            pack file extension the items belong to.
+	 * @return number of requests for items of {@code ext} not in the cache.
+	 *         For {@link PackExt#INDEX} and {@link PackExt#BITMAP_INDEX} this
+	 *         is the number of times the index had to be loaded.
+	 */
+	public long getMissCount(PackExt ext) {
+		return statMiss[ext.getPosition()].get();
 	}
 
 	/** @return total number of requests (hit + miss). */
@@ -233,8 +312,8 @@ public final class DfsBlockCache {
 
 	/** @return 0..100, defining number of cache hits. */
 	public long getHitRatio() {
-		long hits = statHit.get();
-		long miss = statMiss.get();
+		long hits = getHitCount();
+		long miss = getMissCount();
 		long total = hits + miss;
 		if (total == 0)
 			return 0;
@@ -243,7 +322,34 @@ public final class DfsBlockCache {
 
 	/** @return number of evictions performed due to cache being full. */
 	public long getEvictions() {
-		return statEvict;
+		return sum(statEvict);
+	}
+
+	/**
+	 * @param ext
+	 *            pack file extension the items belong to.
+	 * @return number of items of {@code ext} evicted due to cache being full.
+	 */
+	public long getEvictions(PackExt ext) {
+		return statEvict[ext.getPosition()].get();
+	}
+
+	/** @return number of blocks loaded into the cache by read-ahead. */
+	public long getReadAheadCount() {
+		return statReadAhead.get();
+	}
+
+	/** @return number of read-ahead blocks that were later read. */
+	public long getReadAheadHitCount() {
+		return statReadAheadHit.get();
+	}
+
+	/**
+	 * @return number of read-ahead blocks evicted before they were read; the
+	 *         loads wasted by reading too far ahead.
+	 */
+	public long getReadAheadWastedCount() {
+		return statReadAheadWasted.get();
 	}
 
 	/**
@@ -284,6 +390,21 @@ public final class DfsBlockCache {
 		return blockSize;
 	}
 
+	/**
+	 * Obtain a direct buffer to load a block of {@code size} bytes into.
+	 *
+	 * @param size
+	 *            number of bytes in the block.
+	 * @return the buffer, or null if blocks should be loaded into heap arrays.
+	 */
+	ByteBuffer allocateBlockBuffer(int size) {
+		return bufferPool != null ? bufferPool.allocate(size) : null;
+	}
+
+	DfsBlockBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
 	private static int tableSize(final DfsBlockCacheConfig cfg) {
 		final int wsz = cfg.getBlockSize();
 		final long limit = cfg.getBlockLimit();
@@ -303,12 +424,42 @@ public final class DfsBlockCache {
 	 *            offset within <code>pack</code> of the object.
 	 * @param ctx
 	 *            current thread's reader.
-	 * @return the object reference.
+	 * @return the object reference. The caller must {@link DfsBlock#release()}
+	 *         the block once it is no longer being read.
 	 * @throws IOException
 	 *             the reference was not in the cache and could not be loaded.
 	 */
 	DfsBlock getOrLoad(DfsPackFile pack, long position, DfsReader ctx)
 			throws IOException {
+		return getOrLoad(pack, position, ctx, false);
+	}
+
+	/**
+	 * Load a block in advance of a reader needing it.
+	 * <p>
+	 * Nothing is done if the block is already cached. Otherwise the block is
+	 * loaded and flagged, so its first use is counted as a read-ahead hit, or
+	 * its eviction before use as wasted.
+	 *
+	 * @param pack
+	 *            the pack that "contains" the block.
+	 * @param position
+	 *            offset within <code>pack</code> of the block.
+	 * @param ctx
+	 *            reader used only to open the pack file.
+	 * @throws IOException
+	 *             the block could not be loaded.
+	 */
+	void readAhead(DfsPackFile pack, long position, DfsReader ctx)
+			throws IOException {
+		position = pack.alignToBlock(position);
+		if (contains(pack.key, position))
+			return;
+		getOrLoad(pack, position, ctx, true).release();
+	}
+
+	private DfsBlock getOrLoad(DfsPackFile pack, long position, DfsReader ctx,
+			boolean readAhead) throws IOException {
 		final long requestedPosition = position;
 		position = pack.alignToBlock(position);
 
@@ -316,8 +467,8 @@ public final class DfsBlockCache {
 		int slot = slot(key, position);
 		HashEntry e1 = table.get(slot);
 		DfsBlock v = scan(e1, key, position);
-		if (v != null) {
-			statHit.incrementAndGet();
+		if (v != null && v.retain()) {
+			hit(v, readAhead);
 			return v;
 		}
 
@@ -328,14 +479,17 @@ public final class DfsBlockCache {
 			HashEntry e2 = table.get(slot);
 			if (e2 != e1) {
 				v = scan(e2, key, position);
-				if (v != null) {
-					statHit.incrementAndGet();
+				if (v != null && v.retain()) {
+					hit(v, readAhead);
 					creditSpace(blockSize);
 					return v;
 				}
 			}
 
-			statMiss.incrementAndGet();
+			if (readAhead)
+				statReadAhead.incrementAndGet();
+			else
+				statMiss[PackExt.PACK.getPosition()].incrementAndGet();
 			boolean credit = true;
 			try {
 				v = pack.readOneBlock(position, ctx);
@@ -352,8 +506,11 @@ public final class DfsBlockCache {
 			}
 
 			key.cachedSize.addAndGet(v.size());
-			Ref<DfsBlock> ref = new Ref<DfsBlock>(key, position, v.size(), v);
+			Ref<DfsBlock> ref = new Ref<DfsBlock>(key, PackExt.PACK, position,
+					v.size(), v);
 			ref.hot = true;
+			v.readAhead = readAhead;
+			v.retain();
 			for (;;) {
 				HashEntry n = new HashEntry(clean(e2), ref);
 				if (table.compareAndSet(slot, e2, n))
@@ -369,7 +526,18 @@ public final class DfsBlockCache {
 		// that was loaded is the wrong block for the requested position.
 		if (v.contains(pack.key, requestedPosition))
 			return v;
-		return getOrLoad(pack, requestedPosition, ctx);
+		v.release();
+		return getOrLoad(pack, requestedPosition, ctx, readAhead);
+	}
+
+	private void hit(DfsBlock v, boolean readAhead) {
+		if (readAhead)
+			return;
+		statHit[PackExt.PACK.getPosition()].incrementAndGet();
+		if (v.readAhead) {
+			v.readAhead = false;
+			statReadAheadHit.incrementAndGet();
+		}
 	}
 
 	@SuppressWarnings("unchecked")
@@ -397,10 +565,17 @@ public final class DfsBlockCache {
 					hand = hand.next;
 					prev.next = hand;
 					dead.next = null;
+					Object v = dead.value;
 					dead.value = null;
+					if (v instanceof DfsBlock) {
+						DfsBlock b = (DfsBlock) v;
+						if (b.readAhead)
+							statReadAheadWasted.incrementAndGet();
+						b.release();
+					}
 					live -= dead.size;
 					dead.pack.cachedSize.addAndGet(-dead.size);
-					statEvict++;
+					statEvict[dead.ext.getPosition()].incrementAndGet();
 				} while (maxBytes < live);
 				clockHand = prev;
 			}
@@ -431,10 +606,10 @@ public final class DfsBlockCache {
 	}
 
 	void put(DfsBlock v) {
-		put(v.pack, v.start, v.size(), v);
+		put(v.pack, PackExt.PACK, v.start, v.size(), v);
 	}
 
-	<T> Ref<T> put(DfsPackKey key, long pos, int size, T v) {
+	<T> Ref<T> put(DfsPackKey key, PackExt ext, long pos, int size, T v) {
 		int slot = slot(key, pos);
 		HashEntry e1 = table.get(slot);
 		Ref<T> ref = scanRef(e1, key, pos);
@@ -455,7 +630,7 @@ public final class DfsBlockCache {
 			}
 
 			key.cachedSize.addAndGet(size);
-			ref = new Ref<T>(key, pos, size, v);
+			ref = new Ref<T>(key, ext, pos, size, v);
 			ref.hot = true;
 			for (;;) {
 				HashEntry n = new HashEntry(clean(e2), ref);
@@ -478,12 +653,32 @@ public final class DfsBlockCache {
 	<T> T get(DfsPackKey key, long position) {
 		T val = (T) scan(table.get(slot(key, position)), key, position);
 		if (val == null)
-			statMiss.incrementAndGet();
+			statMiss[PackExt.PACK.getPosition()].incrementAndGet();
 		else
-			statHit.incrementAndGet();
+			statHit[PackExt.PACK.getPosition()].incrementAndGet();
 		return val;
 	}
 
+	/**
+	 * Record that an item of {@code ext} had to be loaded from storage.
+	 *
+	 * @param ext
+	 *            extension of the file that was read.
+	 */
+	void countMiss(PackExt ext) {
+		statMiss[ext.getPosition()].incrementAndGet();
+	}
+
+	/**
+	 * Record that an item of {@code ext} was found already loaded in memory.
+	 *
+	 * @param ext
+	 *            extension of the file the item belongs to.
+	 */
+	void countHit(PackExt ext) {
+		statHit[ext.getPosition()].incrementAndGet();
+	}
+
 	private <T> T scan(HashEntry n, DfsPackKey pack, long position) {
 		Ref<T> r = scanRef(n, pack, position);
 		return r != null ? r.get() : null;
@@ -537,14 +732,16 @@ public final class DfsBlockCache {
 
 	static final class Ref<T> {
 		final DfsPackKey pack;
+		final PackExt ext;
 		final long position;
 		final int size;
 		volatile T value;
 		Ref next;
 		volatile boolean hot;
 
-		Ref(DfsPackKey pack, long position, int size, T v) {
+		Ref(DfsPackKey pack, PackExt ext, long position, int size, T v) {
 			this.pack = pack;
+			this.ext = ext;
 			this.position = position;
 			this.size = size;
 			this.value = v;
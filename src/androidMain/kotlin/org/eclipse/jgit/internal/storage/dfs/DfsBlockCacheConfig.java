@@ -47,6 +47,7 @@ import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_CORE_SECTION;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_DFS_SECTION;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_BLOCK_LIMIT;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_BLOCK_SIZE;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_OFF_HEAP;
 
 import org.eclipse.jgit.lib.Config;
 
@@ -62,6 +63,8 @@ public class DfsBlockCacheConfig {
 
 	private int blockSize;
 
+	private boolean offHeap;
+
 	/** Create a default configuration. */
 	public DfsBlockCacheConfig() {
 		setBlockLimit(32 * MB);
@@ -105,6 +108,27 @@ public class DfsBlockCacheConfig {
 		return this;
 	}
 
+	/**
+	 * @return true if pack file blocks are stored in direct buffers outside of
+	 *         the Java heap. <b>Default is false.</b>
+	 */
+	public boolean isOffHeap() {
+		return offHeap;
+	}
+
+	/**
+	 * @param offHeap
+	 *            if true, pack file blocks are read into pooled direct buffers
+	 *            instead of heap arrays. This keeps the cached data out of the
+	 *            garbage collector's reach, at the cost of reserving
+	 *            {@link #getBlockLimit()} bytes of native memory.
+	 * @return {@code this}
+	 */
+	public DfsBlockCacheConfig setOffHeap(final boolean offHeap) {
+		this.offHeap = offHeap;
+		return this;
+	}
+
 	/**
 	 * Update properties by setting fields from the configuration.
 	 * <p>
@@ -127,6 +151,12 @@ public class DfsBlockCacheConfig {
 				CONFIG_DFS_SECTION,
 				CONFIG_KEY_BLOCK_SIZE,
 				getBlockSize()));
+
+		setOffHeap(rc.getBoolean(
+				CONFIG_CORE_SECTION,
+				CONFIG_DFS_SECTION,
+				CONFIG_KEY_OFF_HEAP,
+				isOffHeap()));
 		return this;
 	}
 }
@@ -475,7 +475,7 @@ public class DfsInserter extends ObjectInserter {
 
 		private int setInput(long pos, Inflater inf) throws IOException {
 			if (pos < currPos)
-				return getOrLoadBlock(pos).setInput(pos, inf);
+				return getOrLoadBlock(pos).setInput(pos, inf, null);
 			if (pos < currPos + currPtr) {
 				int s = (int) (pos - currPos);
 				int n = currPtr - s;
@@ -488,7 +488,10 @@ public class DfsInserter extends ObjectInserter {
 		private DfsBlock getOrLoadBlock(long pos) throws IOException {
 			long s = toBlockStart(pos);
 			DfsBlock b = cache.get(packKey, s);
-			if (b != null)
+			// Blocks written by this inserter are always heap blocks. A
+			// direct block loaded by another reader is not pinned here,
+			// so read the data back from the stream instead.
+			if (b != null && !b.isDirect())
 				return b;
 
 			byte[] d = new byte[blockSize];
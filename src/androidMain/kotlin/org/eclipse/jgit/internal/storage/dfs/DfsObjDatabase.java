@@ -143,6 +143,11 @@ public abstract class DfsObjDatabase extends ObjectDatabase {
 		return readerOptions;
 	}
 
+	/** @return the block cache the packs of this database are opened in. */
+	DfsBlockCache getBlockCache() {
+		return DfsBlockCache.getInstance();
+	}
+
 	@Override
 	public ObjectReader newReader() {
 		return new DfsReader(this);
@@ -355,7 +360,7 @@ public abstract class DfsObjDatabase extends ObjectDatabase {
 	}
 
 	private PackList scanPacksImpl(PackList old) throws IOException {
-		DfsBlockCache cache = DfsBlockCache.getInstance();
+		DfsBlockCache cache = getBlockCache();
 		Map<DfsPackDescription, DfsPackFile> forReuse = reuseMap(old);
 		List<DfsPackDescription> scanned = listPacks();
 		Collections.sort(scanned);
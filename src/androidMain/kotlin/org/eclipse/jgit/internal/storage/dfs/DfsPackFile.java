@@ -54,6 +54,7 @@ import java.io.BufferedInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.text.MessageFormat;
 import java.util.Set;
@@ -211,7 +212,7 @@ public final class DfsPackFile {
 		long objCnt = idx.getObjectCount();
 		int recSize = Constants.OBJECT_ID_LENGTH + 8;
 		int sz = (int) Math.min(objCnt * recSize, Integer.MAX_VALUE);
-		index = cache.put(key, POS_INDEX, sz, idx);
+		index = cache.put(key, INDEX, POS_INDEX, sz, idx);
 	}
 
 	PackIndex getPackIndex(DfsReader ctx) throws IOException {
@@ -222,8 +223,10 @@ public final class DfsPackFile {
 		DfsBlockCache.Ref<PackIndex> idxref = index;
 		if (idxref != null) {
 			PackIndex idx = idxref.get();
-			if (idx != null)
+			if (idx != null) {
+				cache.countHit(INDEX);
 				return idx;
+			}
 		}
 
 		if (invalid)
@@ -236,11 +239,14 @@ public final class DfsPackFile {
 			idxref = index;
 			if (idxref != null) {
 				PackIndex idx = idxref.get();
-				if (idx != null)
+				if (idx != null) {
+					cache.countHit(INDEX);
 					return idx;
+				}
 			}
 
 			PackIndex idx;
+			cache.countMiss(INDEX);
 			try {
 				ReadableChannel rc = ctx.db.openFile(packDesc, INDEX);
 				try {
@@ -287,8 +293,10 @@ public final class DfsPackFile {
 		DfsBlockCache.Ref<PackBitmapIndex> idxref = bitmapIndex;
 		if (idxref != null) {
 			PackBitmapIndex idx = idxref.get();
-			if (idx != null)
+			if (idx != null) {
+				cache.countHit(BITMAP_INDEX);
 				return idx;
+			}
 		}
 
 		if (!packDesc.hasFileExt(PackExt.BITMAP_INDEX))
@@ -298,12 +306,15 @@ public final class DfsPackFile {
 			idxref = bitmapIndex;
 			if (idxref != null) {
 				PackBitmapIndex idx = idxref.get();
-				if (idx != null)
+				if (idx != null) {
+					cache.countHit(BITMAP_INDEX);
 					return idx;
+				}
 			}
 
 			long size;
 			PackBitmapIndex idx;
+			cache.countMiss(BITMAP_INDEX);
 			try {
 				ReadableChannel rc = ctx.db.openFile(packDesc, BITMAP_INDEX);
 				try {
@@ -335,7 +346,7 @@ public final class DfsPackFile {
 				throw e2;
 			}
 
-			bitmapIndex = cache.put(key, POS_BITMAP_INDEX,
+			bitmapIndex = cache.put(key, BITMAP_INDEX, POS_BITMAP_INDEX,
 					(int) Math.min(size, Integer.MAX_VALUE), idx);
 			return idx;
 		}
@@ -361,7 +372,8 @@ public final class DfsPackFile {
 			PackReverseIndex revidx = new PackReverseIndex(idx);
 			int sz = (int) Math.min(
 					idx.getObjectCount() * 8, Integer.MAX_VALUE);
-			reverseIndex = cache.put(key, POS_REVERSE_INDEX, sz, revidx);
+			reverseIndex = cache.put(key, INDEX, POS_REVERSE_INDEX, sz,
+					revidx);
 			return revidx;
 		}
 	}
@@ -675,6 +687,11 @@ public final class DfsPackFile {
 		return cache.getOrLoad(this, pos, ctx);
 	}
 
+	void readAhead(long pos, DfsReader ctx) throws IOException {
+		if (!invalid)
+			cache.readAhead(this, pos, ctx);
+	}
+
 	DfsBlock readOneBlock(long pos, DfsReader ctx)
 			throws IOException {
 		if (invalid)
@@ -713,6 +730,10 @@ public final class DfsPackFile {
 						DfsText.get().shortReadOfBlock, Long.valueOf(pos),
 						getPackName(), Long.valueOf(0), Long.valueOf(0)));
 
+			ByteBuffer direct = cache.allocateBlockBuffer(size);
+			if (direct != null)
+				return readDirectBlock(rc, pos, size, len, direct);
+
 			byte[] buf = new byte[size];
 			rc.position(pos);
 			int cnt = IO.read(rc, buf, 0, size);
@@ -744,6 +765,40 @@ public final class DfsPackFile {
 		}
 	}
 
+	private DfsBlock readDirectBlock(ReadableChannel rc, long pos, int size,
+			long len, ByteBuffer buf) throws IOException {
+		DfsBlockBufferPool pool = cache.getBufferPool();
+		boolean free = true;
+		try {
+			rc.position(pos);
+			while (buf.hasRemaining()) {
+				if (rc.read(buf) < 0)
+					break;
+			}
+			int cnt = buf.position();
+			if (cnt != size) {
+				if (0 <= len) {
+					throw new EOFException(MessageFormat.format(
+						    DfsText.get().shortReadOfBlock,
+						    Long.valueOf(pos),
+						    getPackName(),
+						    Integer.valueOf(size),
+						    Integer.valueOf(cnt)));
+				}
+			} else if (len < 0) {
+				length = rc.size();
+			}
+
+			buf.flip();
+			DfsBlock v = new DfsBlock(key, pos, buf, pool);
+			free = false;
+			return v;
+		} finally {
+			if (free)
+				pool.free(buf);
+		}
+	}
+
 	ObjectLoader load(DfsReader ctx, long pos)
 			throws IOException {
 		try {
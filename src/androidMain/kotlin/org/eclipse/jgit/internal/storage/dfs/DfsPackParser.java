@@ -356,7 +356,7 @@ public class DfsPackParser extends PackParser {
 		if (readBlock == null || !readBlock.contains(packKey, readPos)) {
 			long start = toBlockStart(readPos);
 			readBlock = blockCache.get(packKey, start);
-			if (readBlock == null) {
+			if (readBlock == null || readBlock.isDirect()) {
 				int size = (int) Math.min(blockSize, packEnd - start);
 				byte[] buf = new byte[size];
 				if (read(start, buf, 0, size) != size)
@@ -59,6 +59,8 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
@@ -106,6 +108,21 @@ public final class DfsReader extends ObjectReader implements ObjectReuseAsIs {
 
 	private DfsBlock block;
 
+	/** Staging area for inflater input read from a direct block. */
+	private byte[] inflaterInput;
+
+	/** Pack most recently pinned, for detecting sequential access. */
+	private DfsPackFile seqPack;
+
+	/** End of the block most recently pinned from {@link #seqPack}. */
+	private long seqEnd;
+
+	/** Number of consecutive blocks pinned from {@link #seqPack}. */
+	private int seqRun;
+
+	/** End of the region already scheduled for read-ahead. */
+	private long readAheadEnd;
+
 	private DeltaBaseCache baseCache;
 
 	private DfsPackFile last;
@@ -161,6 +178,11 @@ public final class DfsReader extends ObjectReader implements ObjectReuseAsIs {
 		return Collections.emptyList();
 	}
 
+	public CachedPack getClonePack(Set<? extends ObjectId> tips) {
+		// DFS garbage collection does not record clone pack tips.
+		return null;
+	}
+
 	@Override
 	public Collection<ObjectId> resolve(AbbreviatedObjectId id)
 			throws IOException {
@@ -618,7 +640,7 @@ public final class DfsReader extends ObjectReader implements ObjectReuseAsIs {
 			boolean headerOnly) throws IOException, DataFormatException {
 		prepareInflater();
 		pin(pack, position);
-		position += block.setInput(position, inf);
+		position += block.setInput(position, inf, inflaterInput());
 		for (int dstoff = 0;;) {
 			int n = inf.inflate(dstbuf, dstoff, dstbuf.length - dstoff);
 			dstoff += n;
@@ -626,7 +648,7 @@ public final class DfsReader extends ObjectReader implements ObjectReuseAsIs {
 				return dstoff;
 			if (inf.needsInput()) {
 				pin(pack, position);
-				position += block.setInput(position, inf);
+				position += block.setInput(position, inf, inflaterInput());
 			} else if (n == 0)
 				throw new DataFormatException();
 		}
@@ -645,6 +667,12 @@ public final class DfsReader extends ObjectReader implements ObjectReuseAsIs {
 		return inf;
 	}
 
+	private byte[] inflaterInput() {
+		if (inflaterInput == null)
+			inflaterInput = new byte[16 << 10];
+		return inflaterInput;
+	}
+
 	private void prepareInflater() {
 		if (inf == null)
 			inf = InflaterCache.get();
@@ -660,7 +688,55 @@ public final class DfsReader extends ObjectReader implements ObjectReuseAsIs {
 			// So we always clear it, even though we are just going to set
 			// it again.
 			block = null;
+			if (b != null)
+				b.release();
 			block = pack.getOrLoadBlock(position, this);
+			if (0 < getOptions().getReadAheadBlocks())
+				readAhead(pack, block);
+		}
+	}
+
+	private void readAhead(final DfsPackFile pack, DfsBlock b) {
+		if (pack == seqPack && b.start == seqEnd)
+			seqRun++;
+		else {
+			seqPack = pack;
+			seqRun = 0;
+			readAheadEnd = 0;
+		}
+		seqEnd = b.end;
+
+		// A single block is not a scan. Wait for the second consecutive
+		// block before spending storage bandwidth on guesses.
+		if (seqRun < 1)
+			return;
+
+		int size = b.size();
+		long limit = b.end + (long) getOptions().getReadAheadBlocks() * size;
+		long length = pack.length;
+		if (0 <= length && length < limit)
+			limit = length;
+
+		Executor svc = getOptions().getReadAheadService();
+		for (long pos = Math.max(b.end, readAheadEnd); pos < limit; pos += size) {
+			final long blockPos = pos;
+			try {
+				svc.execute(new Runnable() {
+					public void run() {
+						DfsReader ctx = new DfsReader(db);
+						try {
+							pack.readAhead(blockPos, ctx);
+						} catch (IOException e) {
+							// Ignore, the reader will retry and report it.
+						} finally {
+							ctx.release();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				break;
+			}
+			readAheadEnd = pos + size;
 		}
 	}
 
@@ -668,7 +744,10 @@ public final class DfsReader extends ObjectReader implements ObjectReuseAsIs {
 	@Override
 	public void release() {
 		last = null;
-		block = null;
+		if (block != null) {
+			block.release();
+			block = null;
+		}
 		baseCache = null;
 		try {
 			InflaterCache.release(inf);
@@ -46,8 +46,16 @@ package org.eclipse.jgit.internal.storage.dfs;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_CORE_SECTION;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_DFS_SECTION;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_DELTA_BASE_CACHE_LIMIT;
+import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_READ_AHEAD_BLOCKS;
 import static org.eclipse.jgit.lib.ConfigConstants.CONFIG_KEY_STREAM_FILE_TRESHOLD;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.storage.pack.PackConfig;
 
@@ -63,6 +71,10 @@ public class DfsReaderOptions {
 
 	private int streamFileThreshold;
 
+	private int readAheadBlocks;
+
+	private Executor readAheadService;
+
 	/** Create a default reader configuration. */
 	public DfsReaderOptions() {
 		setDeltaBaseCacheLimit(10 * MiB);
@@ -104,6 +116,52 @@ public class DfsReaderOptions {
 		return this;
 	}
 
+	/**
+	 * @return number of blocks to load ahead of a reader that is scanning a
+	 *         pack sequentially. 0 if read-ahead is disabled, the default.
+	 */
+	public int getReadAheadBlocks() {
+		return readAheadBlocks;
+	}
+
+	/**
+	 * Enable streaming read-ahead.
+	 * <p>
+	 * Once a reader has accessed two consecutive blocks of a pack, the
+	 * following {@code blocks} blocks are loaded into the
+	 * {@link DfsBlockCache} in the background, so that copying a pack as-is
+	 * or compacting it does not wait on one storage round trip per block.
+	 *
+	 * @param blocks
+	 *            number of blocks to keep loading ahead of the reader. 0
+	 *            disables read-ahead.
+	 * @return {@code this}
+	 */
+	public DfsReaderOptions setReadAheadBlocks(int blocks) {
+		readAheadBlocks = Math.max(0, blocks);
+		return this;
+	}
+
+	/**
+	 * @return executor loading read-ahead blocks. If not configured, a shared
+	 *         pool of daemon threads is used.
+	 */
+	public Executor getReadAheadService() {
+		Executor svc = readAheadService;
+		return svc != null ? svc : DefaultReadAheadService.INSTANCE;
+	}
+
+	/**
+	 * @param svc
+	 *            executor to load read-ahead blocks on. Null selects the
+	 *            shared default pool.
+	 * @return {@code this}
+	 */
+	public DfsReaderOptions setReadAheadService(Executor svc) {
+		readAheadService = svc;
+		return this;
+	}
+
 	/**
 	 * Update properties by setting fields from the configuration.
 	 * <p>
@@ -130,6 +188,34 @@ public class DfsReaderOptions {
 		sft = Math.min(sft, maxMem / 4); // don't use more than 1/4 of the heap
 		sft = Math.min(sft, Integer.MAX_VALUE); // cannot exceed array length
 		setStreamFileThreshold((int) sft);
+
+		setReadAheadBlocks(rc.getInt(
+				CONFIG_CORE_SECTION,
+				CONFIG_DFS_SECTION,
+				CONFIG_KEY_READ_AHEAD_BLOCKS,
+				getReadAheadBlocks()));
 		return this;
 	}
+
+	private static class DefaultReadAheadService {
+		static final ThreadPoolExecutor INSTANCE;
+
+		static {
+			ThreadPoolExecutor e = new ThreadPoolExecutor(4, 4, 30,
+					TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+					new ThreadFactory() {
+						private final ThreadFactory baseFactory = Executors
+								.defaultThreadFactory();
+
+						public Thread newThread(Runnable taskBody) {
+							Thread thr = baseFactory.newThread(taskBody);
+							thr.setName("JGit-DfsReadAhead"); //$NON-NLS-1$
+							thr.setDaemon(true);
+							return thr;
+						}
+					});
+			e.allowCoreThreadTimeOut(true);
+			INSTANCE = e;
+		}
+	}
 }
@@ -109,10 +109,10 @@ public class InMemoryRepository extends DfsRepository {
 		protected ReadableChannel openFile(DfsPackDescription desc, PackExt ext)
 				throws FileNotFoundException, IOException {
 			MemPack memPack = (MemPack) desc;
-			byte[] file = memPack.fileMap.get(ext);
+			ByteBuffer file = memPack.fileMap.get(ext);
 			if (file == null)
 				throw new FileNotFoundException(desc.getFileName(ext));
-			return new ByteArrayReadableChannel(file);
+			return new ByteBufferReadableChannel(file);
 		}
 
 		@Override
@@ -122,15 +122,31 @@ public class InMemoryRepository extends DfsRepository {
 			return new Out() {
 				@Override
 				public void flush() {
-					memPack.fileMap.put(ext, getData());
+					memPack.fileMap.put(ext, store(getData()));
 				}
 			};
 		}
+
+		/**
+		 * Wrap a flushed file for storage in a {@link MemPack}.
+		 * <p>
+		 * If this database's block cache keeps its blocks off-heap, the file
+		 * contents are also moved into a direct buffer so whole packs do not
+		 * stay on the heap.
+		 */
+		private ByteBuffer store(byte[] data) {
+			if (!getBlockCache().isOffHeap())
+				return ByteBuffer.wrap(data);
+			ByteBuffer buf = ByteBuffer.allocateDirect(data.length);
+			buf.put(data);
+			buf.flip();
+			return buf;
+		}
 	}
 
 	private static class MemPack extends DfsPackDescription {
-		private final Map<PackExt, byte[]>
-				fileMap = new HashMap<PackExt, byte[]>();
+		private final Map<PackExt, ByteBuffer>
+				fileMap = new HashMap<PackExt, ByteBuffer>();
 
 		MemPack(String name, DfsRepositoryDescription repoDesc) {
 			super(repoDesc, name);
@@ -174,22 +190,24 @@ public class InMemoryRepository extends DfsRepository {
 
 	}
 
-	private static class ByteArrayReadableChannel implements ReadableChannel {
-		private final byte[] data;
+	private static class ByteBufferReadableChannel implements ReadableChannel {
+		private final ByteBuffer data;
 
 		private int position;
 
 		private boolean open = true;
 
-		ByteArrayReadableChannel(byte[] buf) {
-			data = buf;
+		ByteBufferReadableChannel(ByteBuffer buf) {
+			data = buf.duplicate();
 		}
 
 		public int read(ByteBuffer dst) {
-			int n = Math.min(dst.remaining(), data.length - position);
+			int n = Math.min(dst.remaining(), data.limit() - position);
 			if (n == 0)
 				return -1;
-			dst.put(data, position, n);
+			data.limit(position + n).position(position);
+			dst.put(data);
+			data.limit(data.capacity());
 			position += n;
 			return n;
 		}
@@ -211,7 +229,7 @@ public class InMemoryRepository extends DfsRepository {
 		}
 
 		public long size() {
-			return data.length;
+			return data.capacity();
 		}
 
 		public int blockSize() {
@@ -0,0 +1,796 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.internal.storage.dfs;
+
+import static org.eclipse.jgit.lib.Ref.Storage.NEW;
+import static org.eclipse.jgit.lib.Ref.Storage.PACKED;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.internal.storage.file.FileSnapshot;
+import org.eclipse.jgit.internal.storage.file.LockFile;
+import org.eclipse.jgit.internal.storage.pack.PackExt;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.SymbolicRef;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.FileUtils;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.RefList;
+
+/**
+ * Git repository stored through the DFS layer on the local filesystem.
+ * <p>
+ * The repository directory holds:
+ * <ul>
+ * <li>{@code objects/pack/}: pack, index and bitmap files. Each file is
+ * streamed to a temporary file by its {@link DfsOutputStream}, then synced
+ * and renamed into place when closed.</li>
+ * <li>{@code objects/packs}: names of the committed packs, one per line. A
+ * pack is only visible to readers once it is listed here.</li>
+ * <li>{@code objects/garbage}: packs replaced by a later commit, each with the
+ * time it was replaced. Readers still holding the previous list may reopen
+ * these, so their files are only removed by a commit made once they have been
+ * garbage for an hour.</li>
+ * <li>{@code refs}: every reference on its own line, sorted by name. Object
+ * references are written as {@code <id> <name>}, followed by a line
+ * {@code ^<id>} for annotated tags; symbolic references as
+ * {@code ref:<target> <name>}.</li>
+ * </ul>
+ * Files are read with positional {@link FileChannel} reads in units of
+ * {@link ReadableChannel#blockSize()}. Data is cached by the process wide
+ * {@link DfsBlockCache}, so any number of these repositories share a single
+ * memory budget.
+ */
+public class LocalDiskRepository extends DfsRepository {
+	private static final String OBJECTS = "objects"; //$NON-NLS-1$
+
+	private static final String PACK_LIST = "packs"; //$NON-NLS-1$
+
+	private static final String GARBAGE_LIST = "garbage"; //$NON-NLS-1$
+
+	/** Milliseconds a replaced pack is kept for readers still using it. */
+	private static final long GARBAGE_TTL = 60 * 60 * 1000L;
+
+	private static final String REF_LIST = "refs"; //$NON-NLS-1$
+
+	private static final String SYMREF = "ref:"; //$NON-NLS-1$
+
+	private static final AtomicInteger packId = new AtomicInteger();
+
+	private final File directory;
+
+	private final File packDirectory;
+
+	private final int blockSize;
+
+	private final DiskObjDatabase objdb;
+
+	private final DiskRefDatabase refdb;
+
+	/**
+	 * Initialize a repository stored in {@code directory}.
+	 *
+	 * @param repoDesc
+	 *            description of the repository. Its name must be unique among
+	 *            all repositories sharing the block cache.
+	 * @param directory
+	 *            directory holding the repository files. Created on first
+	 *            write if it does not exist.
+	 */
+	public LocalDiskRepository(DfsRepositoryDescription repoDesc,
+			File directory) {
+		this(repoDesc, directory, new DfsReaderOptions(), 0);
+	}
+
+	/**
+	 * Initialize a repository stored in {@code directory}.
+	 *
+	 * @param repoDesc
+	 *            description of the repository. Its name must be unique among
+	 *            all repositories sharing the block cache.
+	 * @param directory
+	 *            directory holding the repository files. Created on first
+	 *            write if it does not exist.
+	 * @param options
+	 *            how readers should access the object database.
+	 * @param blockSize
+	 *            alignment, in bytes, to read pack files in. If 0 the
+	 *            {@link DfsBlockCache} block size is used.
+	 */
+	public LocalDiskRepository(DfsRepositoryDescription repoDesc,
+			File directory, DfsReaderOptions options, int blockSize) {
+		this(new Builder().setRepositoryDescription(repoDesc)
+				.setReaderOptions(options).setDirectory(directory)
+				.setBlockSize(blockSize));
+	}
+
+	/**
+	 * Initialize a repository from a builder.
+	 *
+	 * @param builder
+	 *            options to create the repository with. The directory,
+	 *            description and reader options must be set.
+	 */
+	protected LocalDiskRepository(Builder builder) {
+		super(builder);
+		this.directory = builder.getDirectory();
+		this.packDirectory = new File(new File(directory, OBJECTS),
+				"pack"); //$NON-NLS-1$
+		this.blockSize = Math.max(0, builder.getBlockSize());
+		objdb = new DiskObjDatabase(this, builder.getReaderOptions());
+		refdb = new DiskRefDatabase();
+	}
+
+	/** @return directory holding the repository files. */
+	public File getDirectory() {
+		return directory;
+	}
+
+	@Override
+	public DfsObjDatabase getObjectDatabase() {
+		return objdb;
+	}
+
+	@Override
+	public DfsRefDatabase getRefDatabase() {
+		return refdb;
+	}
+
+	/** Builder for a {@link LocalDiskRepository}. */
+	public static class Builder extends
+			DfsRepositoryBuilder<Builder, LocalDiskRepository> {
+		private File directory;
+
+		private int blockSize;
+
+		/** @return directory holding the repository files. */
+		public File getDirectory() {
+			return directory;
+		}
+
+		/**
+		 * Set the directory holding the repository files.
+		 *
+		 * @param directory
+		 *            the directory. Created on first write if it does not
+		 *            exist.
+		 * @return {@code this}
+		 */
+		public Builder setDirectory(File directory) {
+			this.directory = directory;
+			return this;
+		}
+
+		/** @return alignment, in bytes, to read pack files in. */
+		public int getBlockSize() {
+			return blockSize;
+		}
+
+		/**
+		 * Set the alignment to read pack files in.
+		 *
+		 * @param blockSize
+		 *            size in bytes. If 0 the {@link DfsBlockCache} block size
+		 *            is used.
+		 * @return {@code this}
+		 */
+		public Builder setBlockSize(int blockSize) {
+			this.blockSize = blockSize;
+			return this;
+		}
+
+		@Override
+		public LocalDiskRepository build() throws IOException {
+			if (getDirectory() == null)
+				throw new IllegalArgumentException();
+			if (getReaderOptions() == null)
+				setReaderOptions(new DfsReaderOptions());
+			if (getRepositoryDescription() == null)
+				setRepositoryDescription(new DfsRepositoryDescription());
+			return new LocalDiskRepository(this);
+		}
+	}
+
+	private static void commit(LockFile lck, byte[] content, File file)
+			throws IOException {
+		lck.setFSync(true);
+		lck.setNeedSnapshot(true);
+		try {
+			lck.write(content);
+		} catch (IOException e) {
+			throw new IOException(MessageFormat.format(
+					JGitText.get().unableToWrite, file), e);
+		}
+		if (!lck.commit())
+			throw new IOException(MessageFormat.format(
+					JGitText.get().unableToWrite, file));
+	}
+
+	private static LockFile lock(File file) throws IOException {
+		FileUtils.mkdirs(file.getParentFile(), true);
+		LockFile lck = new LockFile(file, FS.DETECTED);
+		if (!lck.lock())
+			throw new IOException(MessageFormat.format(
+					JGitText.get().cannotLock, file));
+		return lck;
+	}
+
+	private static BufferedReader openReader(File file) throws IOException {
+		byte[] raw;
+		try {
+			raw = IO.readFully(file);
+		} catch (FileNotFoundException noFile) {
+			return null;
+		}
+		return new BufferedReader(new InputStreamReader(
+				new ByteArrayInputStream(raw), Constants.CHARSET));
+	}
+
+	private class DiskObjDatabase extends DfsObjDatabase {
+		private final File listFile = new File(new File(directory, OBJECTS),
+				PACK_LIST);
+
+		private final File garbageFile = new File(
+				new File(directory, OBJECTS), GARBAGE_LIST);
+
+		DiskObjDatabase(DfsRepository repo, DfsReaderOptions options) {
+			super(repo, options);
+		}
+
+		@Override
+		protected synchronized List<DfsPackDescription> listPacks()
+				throws IOException {
+			List<DfsPackDescription> packs = new ArrayList<DfsPackDescription>();
+			for (String name : readPackList())
+				packs.add(describe(name));
+			return packs;
+		}
+
+		private List<String> readPackList() throws IOException {
+			List<String> names = new ArrayList<String>();
+			BufferedReader br = openReader(listFile);
+			if (br == null)
+				return names;
+			try {
+				String line;
+				while ((line = br.readLine()) != null) {
+					if (line.length() > 0)
+						names.add(line);
+				}
+			} finally {
+				br.close();
+			}
+			return names;
+		}
+
+		private DfsPackDescription describe(String name) {
+			DfsPackDescription desc = new DfsPackDescription(
+					getDescription(), name + '.' + PackExt.PACK.getExtension());
+			int dash = name.lastIndexOf('-');
+			if (0 < dash) {
+				try {
+					desc.setPackSource(
+							PackSource.valueOf(name.substring(dash + 1)));
+				} catch (IllegalArgumentException unknownSource) {
+					// Leave the source unset; the pack sorts by age only.
+				}
+			}
+			for (PackExt ext : PackExt.values()) {
+				File f = new File(packDirectory, desc.getFileName(ext));
+				if (f.isFile()) {
+					desc.addFileExt(ext);
+					desc.setFileSize(ext, f.length());
+					if (ext == PackExt.PACK)
+						desc.setLastModified(f.lastModified());
+				}
+			}
+			return desc;
+		}
+
+		@Override
+		protected DfsPackDescription newPack(PackSource source) {
+			String name = "pack-" + System.currentTimeMillis() //$NON-NLS-1$
+					+ "-" + packId.incrementAndGet() //$NON-NLS-1$
+					+ "-" + source.name(); //$NON-NLS-1$
+			DfsPackDescription desc = new DfsPackDescription(getDescription(),
+					name + '.' + PackExt.PACK.getExtension());
+			return desc.setPackSource(source);
+		}
+
+		@Override
+		protected synchronized void commitPackImpl(
+				Collection<DfsPackDescription> desc,
+				Collection<DfsPackDescription> replace) throws IOException {
+			LockFile lck = lock(listFile);
+			try {
+				List<String> old = readPackList();
+				List<String> names = new ArrayList<String>(old.size()
+						+ desc.size());
+				for (DfsPackDescription d : desc)
+					names.add(packName(d));
+				for (String name : old) {
+					if (!contains(replace, name))
+						names.add(name);
+				}
+
+				StringBuilder b = new StringBuilder();
+				for (String name : names)
+					b.append(name).append('\n');
+				commit(lck, Constants.encode(b.toString()), listFile);
+
+				List<String> replaced = new ArrayList<String>();
+				if (replace != null) {
+					for (DfsPackDescription d : replace) {
+						if (old.contains(packName(d)))
+							replaced.add(packName(d));
+					}
+				}
+				collectGarbage(replaced, new HashSet<String>(names));
+			} finally {
+				lck.unlock();
+			}
+		}
+
+		/**
+		 * Record replaced packs, and remove those replaced long enough ago.
+		 * <p>
+		 * A reader holding the previous pack list reopens a pack file for
+		 * every block missing from the cache, so replaced packs stay on disk
+		 * for {@link #GARBAGE_TTL}. Called with the pack list locked.
+		 *
+		 * @param replaced
+		 *            names of the packs just removed from the list.
+		 * @param live
+		 *            names of the packs now listed.
+		 * @throws IOException
+		 *             the garbage list could not be updated.
+		 */
+		private void collectGarbage(List<String> replaced, Set<String> live)
+				throws IOException {
+			long now = System.currentTimeMillis();
+			List<String> keep = new ArrayList<String>();
+			boolean changed = !replaced.isEmpty();
+			BufferedReader br = openReader(garbageFile);
+			if (br != null) {
+				try {
+					String line;
+					while ((line = br.readLine()) != null) {
+						int sp = line.indexOf(' ');
+						String name = line.substring(sp + 1);
+						long time;
+						try {
+							time = Long.parseLong(line.substring(0, sp));
+						} catch (RuntimeException badLine) {
+							changed = true;
+							continue;
+						}
+						if (live.contains(name))
+							changed = true;
+						else if (now - time < GARBAGE_TTL || !delete(name))
+							keep.add(line);
+						else
+							changed = true;
+					}
+				} finally {
+					br.close();
+				}
+			}
+			if (!changed)
+				return;
+
+			StringBuilder b = new StringBuilder();
+			for (String line : keep)
+				b.append(line).append('\n');
+			for (String name : replaced)
+				b.append(now).append(' ').append(name).append('\n');
+			LockFile lck = lock(garbageFile);
+			try {
+				commit(lck, Constants.encode(b.toString()), garbageFile);
+			} finally {
+				lck.unlock();
+			}
+		}
+
+		@Override
+		protected void rollbackPack(Collection<DfsPackDescription> desc) {
+			// A file that cannot be removed is left behind. An unlisted
+			// pack is never read, and is overwritten if its name is
+			// generated again.
+			for (DfsPackDescription d : desc)
+				delete(packName(d));
+		}
+
+		private boolean delete(String name) {
+			boolean deleted = true;
+			for (PackExt ext : PackExt.values()) {
+				File f = new File(packDirectory, name + '.' + ext.getExtension());
+				if (!f.delete() && f.exists())
+					deleted = false;
+			}
+			return deleted;
+		}
+
+		private boolean contains(Collection<DfsPackDescription> packs,
+				String name) {
+			if (packs != null) {
+				for (DfsPackDescription d : packs) {
+					if (packName(d).equals(name))
+						return true;
+				}
+			}
+			return false;
+		}
+
+		private String packName(DfsPackDescription d) {
+			String n = d.getFileName(PackExt.PACK);
+			return n.substring(0, n.length() - 1
+					- PackExt.PACK.getExtension().length());
+		}
+
+		@Override
+		protected ReadableChannel openFile(DfsPackDescription desc, PackExt ext)
+				throws FileNotFoundException, IOException {
+			File f = new File(packDirectory, desc.getFileName(ext));
+			return new FileReadableChannel(
+					new RandomAccessFile(f, "r").getChannel(), blockSize); //$NON-NLS-1$
+		}
+
+		@Override
+		protected DfsOutputStream writeFile(DfsPackDescription desc,
+				PackExt ext) throws IOException {
+			FileUtils.mkdirs(packDirectory, true);
+			File dst = new File(packDirectory, desc.getFileName(ext));
+			File tmp = File.createTempFile("tmp_", "_" + dst.getName(), //$NON-NLS-1$ //$NON-NLS-2$
+					packDirectory);
+			return new FileOut(tmp, dst, blockSize);
+		}
+	}
+
+	/** Streams a file to a temporary name, renaming it into place on close. */
+	private static class FileOut extends DfsOutputStream {
+		private final File tmp;
+
+		private final File dst;
+
+		private final int blockSize;
+
+		private final RandomAccessFile raf;
+
+		private final FileChannel ch;
+
+		private boolean closed;
+
+		FileOut(File tmp, File dst, int blockSize) throws IOException {
+			this.tmp = tmp;
+			this.dst = dst;
+			this.blockSize = blockSize;
+			this.raf = new RandomAccessFile(tmp, "rw"); //$NON-NLS-1$
+			this.ch = raf.getChannel();
+		}
+
+		@Override
+		public int blockSize() {
+			return blockSize;
+		}
+
+		@Override
+		public void write(byte[] buf, int off, int len) throws IOException {
+			ByteBuffer src = ByteBuffer.wrap(buf, off, len);
+			while (src.hasRemaining())
+				ch.write(src);
+		}
+
+		@Override
+		public int read(long position, ByteBuffer buf) throws IOException {
+			return ch.read(buf, position);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (closed)
+				return;
+			closed = true;
+			boolean ok = false;
+			try {
+				ch.force(true);
+				raf.close();
+				FileUtils.rename(tmp, dst);
+				ok = true;
+			} finally {
+				if (!ok) {
+					raf.close();
+					FileUtils.delete(tmp, FileUtils.SKIP_MISSING);
+				}
+			}
+		}
+	}
+
+	/** Positional reads of a local file. */
+	private static class FileReadableChannel implements ReadableChannel {
+		private final FileChannel ch;
+
+		private final int blockSize;
+
+		private long position;
+
+		FileReadableChannel(FileChannel ch, int blockSize) {
+			this.ch = ch;
+			this.blockSize = blockSize;
+		}
+
+		public int read(ByteBuffer dst) throws IOException {
+			int n = ch.read(dst, position);
+			if (0 < n)
+				position += n;
+			return n;
+		}
+
+		public void close() throws IOException {
+			ch.close();
+		}
+
+		public boolean isOpen() {
+			return ch.isOpen();
+		}
+
+		public long position() {
+			return position;
+		}
+
+		public void position(long newPosition) {
+			position = newPosition;
+		}
+
+		public long size() throws IOException {
+			return ch.size();
+		}
+
+		public int blockSize() {
+			return blockSize;
+		}
+	}
+
+	private class DiskRefDatabase extends DfsRefDatabase {
+		private final File refFile = new File(directory, REF_LIST);
+
+		/** Last references read from or written to {@link #refFile}. */
+		private RefList<Ref> refs = RefList.emptyList();
+
+		private FileSnapshot snapshot = FileSnapshot.DIRTY;
+
+		DiskRefDatabase() {
+			super(LocalDiskRepository.this);
+		}
+
+		@Override
+		protected synchronized RefCache scanAllRefs() throws IOException {
+			RefList<Ref> all = current();
+			RefList.Builder<Ref> sym = new RefList.Builder<Ref>();
+			for (Ref ref : all) {
+				if (ref.isSymbolic())
+					sym.add(ref);
+			}
+			return new RefCache(all, sym.toRefList());
+		}
+
+		private RefList<Ref> current() throws IOException {
+			if (!snapshot.isModified(refFile))
+				return refs;
+
+			FileSnapshot s = FileSnapshot.save(refFile);
+			BufferedReader br = openReader(refFile);
+			if (br == null) {
+				refs = RefList.emptyList();
+				snapshot = FileSnapshot.MISSING_FILE;
+				return refs;
+			}
+			try {
+				refs = parse(br);
+			} finally {
+				br.close();
+			}
+			snapshot = s;
+			return refs;
+		}
+
+		private RefList<Ref> parse(BufferedReader br) throws IOException {
+			RefList.Builder<Ref> ids = new RefList.Builder<Ref>();
+			List<String> symbolic = new ArrayList<String>();
+			String line;
+			while ((line = br.readLine()) != null) {
+				if (line.length() == 0)
+					continue;
+				if (line.charAt(0) == '^') {
+					int last = ids.size() - 1;
+					if (last < 0)
+						throw new IOException(
+								JGitText.get().peeledLineBeforeRef);
+					Ref tag = ids.get(last);
+					ids.set(last, new ObjectIdRef.PeeledTag(PACKED,
+							tag.getName(), tag.getObjectId(),
+							ObjectId.fromString(line.substring(1))));
+					continue;
+				}
+
+				int sp = line.indexOf(' ');
+				String name = line.substring(sp + 1);
+				if (line.startsWith(SYMREF)) {
+					symbolic.add(line);
+					ids.add(new SymbolicRef(name, new ObjectIdRef.Unpeeled(
+							NEW, line.substring(SYMREF.length(), sp), null)));
+				} else {
+					ids.add(new ObjectIdRef.Unpeeled(PACKED, name,
+							ObjectId.fromString(line.substring(0, sp))));
+				}
+			}
+			ids.sort();
+			RefList<Ref> list = ids.toRefList();
+
+			// Link symbolic references to the current value of their target.
+			for (String s : symbolic) {
+				int sp = s.indexOf(' ');
+				String name = s.substring(sp + 1);
+				String target = s.substring(SYMREF.length(), sp);
+				Ref dst = list.get(target);
+				if (dst != null)
+					list = list.put(new SymbolicRef(name, dst));
+			}
+			return list;
+		}
+
+		@Override
+		protected synchronized boolean compareAndPut(Ref oldRef, Ref newRef)
+				throws IOException {
+			ObjectId id = newRef.getObjectId();
+			if (id != null) {
+				RevWalk rw = new RevWalk(getRepository());
+				try {
+					// Validate that the target exists in a new RevWalk, as the
+					// RevWalk from the RefUpdate might be reading back
+					// unflushed objects.
+					rw.parseAny(id);
+				} finally {
+					rw.release();
+				}
+			}
+
+			LockFile lck = lock(refFile);
+			try {
+				RefList<Ref> cur = current();
+				String name = newRef.getName();
+				int idx = cur.find(name);
+				if (oldRef == null || oldRef.getStorage() == NEW) {
+					if (0 <= idx)
+						return false;
+				} else if (idx < 0 || !eq(cur.get(idx), oldRef))
+					return false;
+				write(lck, cur.put(newRef));
+				return true;
+			} finally {
+				lck.unlock();
+			}
+		}
+
+		@Override
+		protected synchronized boolean compareAndRemove(Ref oldRef)
+				throws IOException {
+			LockFile lck = lock(refFile);
+			try {
+				RefList<Ref> cur = current();
+				int idx = cur.find(oldRef.getName());
+				if (idx < 0 || !eq(cur.get(idx), oldRef))
+					return false;
+				write(lck, cur.remove(idx));
+				return true;
+			} finally {
+				lck.unlock();
+			}
+		}
+
+		@Override
+		protected synchronized void cachePeeledState(Ref oldLeaf, Ref newLeaf) {
+			// Peeling is cheap to redo; avoid rewriting the whole file just
+			// to record it, and only remember it until the file changes.
+			int idx = refs.find(oldLeaf.getName());
+			if (0 <= idx && eq(refs.get(idx), oldLeaf))
+				refs = refs.set(idx, newLeaf);
+		}
+
+		private void write(LockFile lck, RefList<Ref> list)
+				throws IOException {
+			StringBuilder b = new StringBuilder();
+			for (Ref r : list) {
+				if (r.isSymbolic()) {
+					b.append(SYMREF).append(r.getTarget().getName());
+					b.append(' ').append(r.getName()).append('\n');
+					continue;
+				}
+				if (r.getObjectId() == null)
+					continue;
+				b.append(r.getObjectId().name());
+				b.append(' ').append(r.getName()).append('\n');
+				if (r.getPeeledObjectId() != null) {
+					b.append('^').append(r.getPeeledObjectId().name());
+					b.append('\n');
+				}
+			}
+			commit(lck, Constants.encode(b.toString()), refFile);
+			refs = list;
+			snapshot = lck.getCommitSnapshot();
+		}
+
+		private boolean eq(Ref a, Ref b) {
+			if (a.isSymbolic() || b.isSymbolic()) {
+				return a.isSymbolic() && b.isSymbolic()
+						&& a.getTarget().getName()
+								.equals(b.getTarget().getName());
+			}
+			if (a.getObjectId() == null && b.getObjectId() == null)
+				return true;
+			if (a.getObjectId() != null)
+				return a.getObjectId().equals(b.getObjectId());
+			return false;
+		}
+	}
+}
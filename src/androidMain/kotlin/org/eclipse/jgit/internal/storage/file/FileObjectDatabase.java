@@ -55,6 +55,7 @@ import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.ObjectDatabase;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.util.FS;
@@ -70,7 +71,9 @@ abstract class FileObjectDatabase extends ObjectDatabase {
 	}
 
 	@Override
-	public ObjectDirectoryInserter newInserter() {
+	public ObjectInserter newInserter() {
+		if (getConfig().get(WriteConfig.KEY).getPackInserts())
+			return new PackInserter(this, getConfig());
 		return new ObjectDirectoryInserter(this, getConfig());
 	}
 
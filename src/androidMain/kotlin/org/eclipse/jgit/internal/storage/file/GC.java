@@ -44,6 +44,7 @@
 package org.eclipse.jgit.internal.storage.file;
 
 import static org.eclipse.jgit.internal.storage.pack.PackExt.BITMAP_INDEX;
+import static org.eclipse.jgit.internal.storage.pack.PackExt.CLONE_TIPS;
 import static org.eclipse.jgit.internal.storage.pack.PackExt.INDEX;
 import static org.eclipse.jgit.lib.RefDatabase.ALL;
 
@@ -501,11 +502,14 @@ public class GC {
 
 	/**
 	 * Packs all objects which reachable from any of the heads into one pack
-	 * file. Additionally all objects which are not reachable from any head but
-	 * which are reachable from any of the other refs (e.g. tags), special refs
-	 * (e.g. FETCH_HEAD) or index are packed into a separate pack file. Objects
-	 * included in pack files which have a .keep file associated are never
-	 * repacked. All old pack files which existed before are deleted.
+	 * file. If a bitmap index can be built for it, this pack also records the
+	 * heads it was built from, making it a clone pack that servers can send
+	 * as-is to clients cloning exactly these heads. Additionally all objects
+	 * which are not reachable from any head but which are reachable from any
+	 * of the other refs (e.g. tags), special refs (e.g. FETCH_HEAD) or index
+	 * are packed into a separate pack file. Objects included in pack files
+	 * which have a .keep file associated are never repacked. All old pack
+	 * files which existed before are deleted.
 	 *
 	 * @return a collection of the newly created pack files
 	 * @throws IOException
@@ -548,14 +552,15 @@ public class GC {
 		PackFile heads = null;
 		if (!allHeads.isEmpty()) {
 			heads = writePack(allHeads, Collections.<ObjectId> emptySet(),
-					tagTargets, excluded);
+					tagTargets, excluded, true);
 			if (heads != null) {
 				ret.add(heads);
 				excluded.add(0, objectIdSet(heads.getIndex()));
 			}
 		}
 		if (!nonHeads.isEmpty()) {
-			PackFile rest = writePack(nonHeads, allHeads, tagTargets, excluded);
+			PackFile rest = writePack(nonHeads, allHeads, tagTargets, excluded,
+					false);
 			if (rest != null)
 				ret.add(rest);
 		}
@@ -671,7 +676,8 @@ public class GC {
 
 	private PackFile writePack(Set<? extends ObjectId> want,
 			Set<? extends ObjectId> have, Set<ObjectId> tagTargets,
-			List<ObjectIdSet> excludeObjects) throws IOException {
+			List<ObjectIdSet> excludeObjects, boolean clonePack)
+			throws IOException {
 		File tmpPack = null;
 		Map<PackExt, File> tmpExts = new TreeMap<PackExt, File>(
 				new Comparator<PackExt>() {
@@ -759,6 +765,15 @@ public class GC {
 					idxStream.close();
 					fos.close();
 				}
+
+				// A pack missing the objects of kept packs is not a
+				// complete clone; those are served the usual way.
+				if (clonePack && (excludeObjects == null
+						|| excludeObjects.isEmpty())) {
+					File tmpTips = new File(packdir, tmpBase + ".tips_tmp"); //$NON-NLS-1$
+					tmpExts.put(CLONE_TIPS, tmpTips);
+					writeCloneTips(tmpTips, want);
+				}
 			}
 
 			// rename the temporary files to real files
@@ -820,6 +835,23 @@ public class GC {
 		}
 	}
 
+	private static void writeCloneTips(File file, Set<? extends ObjectId> tips)
+			throws IOException {
+		List<ObjectId> sorted = new ArrayList<ObjectId>(tips);
+		Collections.sort(sorted);
+		StringBuilder b = new StringBuilder(sorted.size() * 41);
+		for (ObjectId id : sorted)
+			b.append(id.name()).append('\n');
+
+		FileOutputStream fos = new FileOutputStream(file);
+		try {
+			fos.write(Constants.encodeASCII(b.toString()));
+			fos.getChannel().force(true);
+		} finally {
+			fos.close();
+		}
+	}
+
 	private File nameFor(String name, String ext) {
 		File packdir = new File(repo.getObjectsDirectory(), "pack"); //$NON-NLS-1$
 		return new File(packdir, "pack-" + name + ext); //$NON-NLS-1$
@@ -78,6 +78,7 @@ import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectDatabase;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.RepositoryCache;
 import org.eclipse.jgit.lib.RepositoryCache.FileKey;
@@ -199,10 +200,22 @@ public class ObjectDirectory extends FileObjectDatabase {
 	}
 
 	@Override
-	public ObjectDirectoryInserter newInserter() {
+	public ObjectInserter newInserter() {
+		if (config.get(WriteConfig.KEY).getPackInserts())
+			return newPackInserter();
 		return new ObjectDirectoryInserter(this, config);
 	}
 
+	/**
+	 * Create an inserter writing all of its objects into one new pack.
+	 *
+	 * @return a new pack inserter.
+	 * @since 3.8
+	 */
+	public PackInserter newPackInserter() {
+		return new PackInserter(this, config);
+	}
+
 	@Override
 	public void close() {
 		unpackedObjectCache.clear();
@@ -438,7 +451,7 @@ public class ObjectDirectory extends FileObjectDatabase {
 			FileInputStream in = new FileInputStream(path);
 			try {
 				unpackedObjectCache.add(id);
-				return UnpackedObject.open(in, path, id, curs);
+				return UnpackedObject.open(in.getChannel(), path, id, curs);
 			} finally {
 				in.close();
 			}
@@ -61,6 +61,7 @@ import java.util.zip.DeflaterOutputStream;
 import org.eclipse.jgit.errors.ObjectWritingException;
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.DeflaterCache;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectReader;
@@ -145,7 +146,7 @@ class ObjectDirectoryInserter extends ObjectInserter {
 	public void release() {
 		if (deflate != null) {
 			try {
-				deflate.end();
+				DeflaterCache.release(deflate);
 			} finally {
 				deflate = null;
 			}
@@ -235,7 +236,7 @@ class ObjectDirectoryInserter extends ObjectInserter {
 
 	DeflaterOutputStream compress(final OutputStream out) {
 		if (deflate == null)
-			deflate = new Deflater(config.getCompression());
+			deflate = DeflaterCache.get(config.getCompression());
 		else
 			deflate.reset();
 		return new DeflaterOutputStream(out, deflate, 8192);
@@ -46,6 +46,7 @@
 package org.eclipse.jgit.internal.storage.file;
 
 import static org.eclipse.jgit.internal.storage.pack.PackExt.BITMAP_INDEX;
+import static org.eclipse.jgit.internal.storage.pack.PackExt.CLONE_TIPS;
 import static org.eclipse.jgit.internal.storage.pack.PackExt.INDEX;
 
 import java.io.EOFException;
@@ -58,6 +59,7 @@ import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.zip.CRC32;
@@ -80,6 +82,7 @@ import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.util.IO;
 import org.eclipse.jgit.util.LongList;
 import org.eclipse.jgit.util.NB;
 import org.eclipse.jgit.util.RawParseUtils;
@@ -132,6 +135,8 @@ public class PackFile implements Iterable<PackIndex.MutableEntry> {
 
 	private PackBitmapIndex bitmapIdx;
 
+	private Set<ObjectId> cloneTips;
+
 	/**
 	 * Objects we have tried to read, and discovered to be corrupt.
 	 * <p>
@@ -544,6 +549,17 @@ public class PackFile implements Iterable<PackIndex.MutableEntry> {
 		}
 	}
 
+	/**
+	 * @param id
+	 *            object to locate.
+	 * @return offset of the object in this pack; 0 or -1 if not present.
+	 * @throws IOException
+	 *             the index could not be loaded.
+	 */
+	long findOffset(AnyObjectId id) throws IOException {
+		return idx().findOffset(id);
+	}
+
 	boolean invalid() {
 		return invalid;
 	}
@@ -1065,6 +1081,28 @@ public class PackFile implements Iterable<PackIndex.MutableEntry> {
 		return bitmapIdx;
 	}
 
+	/**
+	 * @return tips this pack was built from if GC wrote it as a clone pack;
+	 *         null otherwise. A clone pack holds exactly the objects
+	 *         reachable from its tips.
+	 * @throws IOException
+	 *             the tips file could not be read.
+	 */
+	synchronized Set<ObjectId> getCloneTips() throws IOException {
+		if (invalid || !hasExt(CLONE_TIPS))
+			return null;
+		if (cloneTips == null) {
+			byte[] buf = IO.readFully(extFile(CLONE_TIPS));
+			Set<ObjectId> tips = new HashSet<ObjectId>();
+			for (int p = 0; p + Constants.OBJECT_ID_STRING_LENGTH <= buf.length;) {
+				tips.add(ObjectId.fromString(buf, p));
+				p = RawParseUtils.nextLF(buf, p);
+			}
+			cloneTips = Collections.unmodifiableSet(tips);
+		}
+		return cloneTips;
+	}
+
 	private synchronized PackReverseIndex getReverseIdx() throws IOException {
 		if (reverseIdx == null)
 			reverseIdx = new PackReverseIndex(idx());
@@ -0,0 +1,687 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.eclipse.jgit.internal.storage.file;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.LargeObjectException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.DeflaterCache;
+import org.eclipse.jgit.lib.InflaterCache;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdOwnerMap;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ObjectStream;
+import org.eclipse.jgit.transport.PackParser;
+import org.eclipse.jgit.transport.PackedObjectInfo;
+import org.eclipse.jgit.util.FileUtils;
+import org.eclipse.jgit.util.IO;
+import org.eclipse.jgit.util.NB;
+
+/**
+ * Creates a single new pack in a {@link ObjectDirectory}.
+ * <p>
+ * Objects are appended to a temporary pack as they are inserted, and become
+ * visible once {@link #flush()} writes its index and moves both into the
+ * pack directory. Adding many objects this way creates two files, where
+ * {@link ObjectDirectoryInserter} creates one loose file per object. A
+ * single object is still written as a loose object by {@link #flush()}.
+ * <p>
+ * Readers from {@link #newReader()} also see the objects not yet flushed.
+ * <p>
+ * Unlike other inserters {@link #insert(int, byte[], int, int)} may be called
+ * by several threads at once. The objects are hashed and compressed on the
+ * calling threads with deflaters from {@link DeflaterCache}, only appending
+ * them to the pack is serialized.
+ *
+ * @since 3.8
+ */
+public class PackInserter extends ObjectInserter {
+	private final FileObjectDatabase db;
+
+	private final WriteConfig config;
+
+	private File tmpPack;
+
+	private RandomAccessFile packOut;
+
+	private PackStream out;
+
+	private List<PackedObjectInfo> objectList;
+
+	private ObjectIdOwnerMap<PackedObjectInfo> objectMap;
+
+	PackInserter(final FileObjectDatabase dest, final Config cfg) {
+		db = dest;
+		config = cfg.get(WriteConfig.KEY);
+	}
+
+	/** @return number of objects appended to the pack not yet flushed. */
+	public synchronized int getObjectCount() {
+		return objectList != null ? objectList.size() : 0;
+	}
+
+	@Override
+	public ObjectId insert(int type, byte[] data, int off, int len)
+			throws IOException {
+		final MessageDigest md = Constants.newMessageDigest();
+		md.update(Constants.encodedTypeString(type));
+		md.update((byte) ' ');
+		md.update(Constants.encodeASCII(len));
+		md.update((byte) 0);
+		md.update(data, off, len);
+		final ObjectId id = ObjectId.fromRaw(md.digest());
+		if (isInserted(id) || db.has(id))
+			return id;
+
+		final byte[] hdr = new byte[16];
+		final int hdrLen = encodeTypeSize(type, len, hdr);
+		final Deflater def = DeflaterCache.get(config.getCompression());
+		final byte[] buf;
+		int n = 0;
+		try {
+			byte[] b = new byte[len + (len >>> 8) + 64];
+			def.setInput(data, off, len);
+			def.finish();
+			for (;;) {
+				n += def.deflate(b, n, b.length - n);
+				if (def.finished())
+					break;
+				if (n == b.length) {
+					byte[] nb = new byte[b.length * 2];
+					System.arraycopy(b, 0, nb, 0, n);
+					b = nb;
+				}
+			}
+			buf = b;
+		} finally {
+			DeflaterCache.release(def);
+		}
+
+		synchronized (this) {
+			if (objectMap != null && objectMap.contains(id))
+				return id;
+			beginObject();
+			final long offset = out.offset;
+			out.crc.reset();
+			out.write(hdr, 0, hdrLen);
+			out.write(buf, 0, n);
+			endObject(id, offset);
+		}
+		return id;
+	}
+
+	@Override
+	public synchronized ObjectId insert(int type, long len, InputStream in)
+			throws IOException {
+		if (len <= buffer().length) {
+			final byte[] buf = buffer();
+			int actLen = readFully(in, buf, (int) len);
+			return insert(type, buf, 0, actLen);
+		}
+
+		beginObject();
+		final long offset = out.offset;
+		final byte[] hdr = new byte[16];
+		out.crc.reset();
+		out.write(hdr, 0, encodeTypeSize(type, len, hdr));
+
+		final MessageDigest md = digest();
+		md.update(Constants.encodedTypeString(type));
+		md.update((byte) ' ');
+		md.update(Constants.encodeASCII(len));
+		md.update((byte) 0);
+
+		final Deflater def = DeflaterCache.get(config.getCompression());
+		try {
+			final byte[] buf = buffer();
+			final byte[] zbuf = new byte[buf.length];
+			while (len > 0) {
+				int n = in.read(buf, 0, (int) Math.min(len, buf.length));
+				if (n <= 0)
+					throw shortInput(len);
+				md.update(buf, 0, n);
+				def.setInput(buf, 0, n);
+				while (!def.needsInput())
+					out.write(zbuf, 0, def.deflate(zbuf));
+				len -= n;
+			}
+			def.finish();
+			while (!def.finished())
+				out.write(zbuf, 0, def.deflate(zbuf));
+		} finally {
+			DeflaterCache.release(def);
+		}
+
+		final ObjectId id = ObjectId.fromRaw(md.digest());
+		if (isInserted(id) || db.has(id)) {
+			out.truncate(offset);
+			return id;
+		}
+		endObject(id, offset);
+		return id;
+	}
+
+	private static int readFully(InputStream in, byte[] buf, int len)
+			throws IOException {
+		int n = 0;
+		while (n < len) {
+			int r = in.read(buf, n, len - n);
+			if (r <= 0)
+				throw shortInput(len - n);
+			n += r;
+		}
+		return n;
+	}
+
+	private synchronized boolean isInserted(ObjectId id) {
+		return objectMap != null && objectMap.contains(id);
+	}
+
+	private void beginObject() throws IOException {
+		if (packOut != null)
+			return;
+
+		final File packDir = new File(db.getDirectory(), "pack"); //$NON-NLS-1$
+		if (!packDir.exists() && !packDir.mkdir() && !packDir.exists())
+			throw new IOException(MessageFormat.format(
+					JGitText.get().cannotCreateDirectory,
+					packDir.getAbsolutePath()));
+		tmpPack = File.createTempFile("insert_", ".pack", packDir); //$NON-NLS-1$ //$NON-NLS-2$
+		packOut = new RandomAccessFile(tmpPack, "rw"); //$NON-NLS-1$
+		out = new PackStream();
+		objectList = new ArrayList<PackedObjectInfo>();
+		objectMap = new ObjectIdOwnerMap<PackedObjectInfo>();
+
+		// The object count is filled in by flush().
+		out.write(new byte[12], 0, 12);
+	}
+
+	private void endObject(ObjectId id, long offset) {
+		final PackedObjectInfo oe = new PackedObjectInfo(id);
+		oe.setOffset(offset);
+		oe.setCRC((int) out.crc.getValue());
+		objectList.add(oe);
+		objectMap.add(oe);
+	}
+
+	@Override
+	public PackParser newPackParser(InputStream in) throws IOException {
+		return new ObjectDirectoryPackParser(db, in);
+	}
+
+	@Override
+	public ObjectReader newReader() {
+		return new Reader();
+	}
+
+	private synchronized PackedObjectInfo findPending(AnyObjectId id) {
+		return objectMap != null ? objectMap.get(id) : null;
+	}
+
+	private synchronized void resolvePending(Set<ObjectId> matches,
+			AbbreviatedObjectId id) {
+		if (objectList == null)
+			return;
+		for (PackedObjectInfo oe : objectList)
+			if (id.prefixCompare(oe) == 0)
+				matches.add(oe.copy());
+	}
+
+	/**
+	 * Open an object from the pack not yet flushed.
+	 *
+	 * @param oe
+	 *            the object.
+	 * @return loader for the object.
+	 * @throws IOException
+	 */
+	private synchronized ObjectLoader openPending(PackedObjectInfo oe)
+			throws IOException {
+		out.flushBuffer();
+		final byte[] hdr = new byte[16];
+		final int c = packOut.getChannel().read(ByteBuffer.wrap(hdr),
+				oe.getOffset());
+		if (c <= 0)
+			throw new EOFException();
+		int p = 0;
+		int b = hdr[p++] & 0xff;
+		final int type = (b >> 4) & 7;
+		long size = b & 15;
+		int shift = 4;
+		while ((b & 0x80) != 0 && p < c) {
+			b = hdr[p++] & 0xff;
+			size += ((long) (b & 0x7f)) << shift;
+			shift += 7;
+		}
+		final long dataPos = oe.getOffset() + p;
+
+		if (size < WindowCache.getStreamFileThreshold()) {
+			final byte[] data = new byte[(int) size];
+			final Inflater inf = InflaterCache.get();
+			try {
+				InputStream in = new InflaterInputStream(new PackInput(
+						dataPos), inf, 8192);
+				IO.readFully(in, data, 0, data.length);
+			} finally {
+				InflaterCache.release(inf);
+			}
+			return new ObjectLoader.SmallObject(type, data);
+		}
+		return new LargeLoader(oe.copy(), type, size, dataPos);
+	}
+
+	/**
+	 * Complete the pack, write its index and make its objects visible.
+	 * <p>
+	 * The inserter may be used again afterwards, for another pack.
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		if (packOut == null)
+			return;
+
+		if (objectList.size() == 1) {
+			flushLoose(objectList.get(0));
+			return;
+		}
+
+		boolean delete = true;
+		File tmpIdx = null;
+		try {
+			out.flushBuffer();
+			final byte[] hdr = new byte[12];
+			System.arraycopy(Constants.PACK_SIGNATURE, 0, hdr, 0, 4);
+			NB.encodeInt32(hdr, 4, 2);
+			NB.encodeInt32(hdr, 8, objectList.size());
+			packOut.seek(0);
+			packOut.write(hdr);
+
+			// The header changed, so the trailer is computed by reading
+			// back the pack, which the operating system should still cache.
+			final MessageDigest md = digest();
+			final byte[] buf = buffer();
+			packOut.seek(0);
+			int n;
+			while ((n = packOut.read(buf)) > 0)
+				md.update(buf, 0, n);
+			final byte[] packHash = md.digest();
+			packOut.write(packHash);
+			if (config.getFSyncObjectFiles())
+				packOut.getChannel().force(true);
+			packOut.close();
+			packOut = null;
+
+			Collections.sort(objectList);
+			tmpIdx = new File(tmpPack.getPath().substring(0,
+					tmpPack.getPath().length() - 5) + ".idx"); //$NON-NLS-1$
+			final FileOutputStream os = new FileOutputStream(tmpIdx);
+			try {
+				PackIndexWriter.createOldestPossible(os, objectList).write(
+						objectList, packHash);
+				if (config.getFSyncObjectFiles())
+					os.getChannel().force(true);
+			} finally {
+				os.close();
+			}
+
+			renameAndOpenPack(tmpIdx);
+			delete = false;
+		} finally {
+			if (delete) {
+				cleanup();
+				if (tmpIdx != null)
+					FileUtils.delete(tmpIdx, FileUtils.SKIP_MISSING);
+			}
+			tmpPack = null;
+			out = null;
+			objectList = null;
+			objectMap = null;
+		}
+	}
+
+	/** Write the only object as a loose object, and drop the pack. */
+	private void flushLoose(PackedObjectInfo oe) throws IOException {
+		try {
+			final ObjectLoader ldr = openPending(oe);
+			final ObjectDirectoryInserter loose = new ObjectDirectoryInserter(
+					db, db.getConfig());
+			try {
+				final InputStream in = ldr.openStream();
+				try {
+					loose.insert(ldr.getType(), ldr.getSize(), in);
+				} finally {
+					in.close();
+				}
+			} finally {
+				loose.release();
+			}
+		} finally {
+			cleanup();
+			tmpPack = null;
+			out = null;
+			objectList = null;
+			objectMap = null;
+		}
+	}
+
+	private void renameAndOpenPack(File tmpIdx) throws IOException {
+		final MessageDigest d = digest();
+		final byte[] oeBytes = new byte[Constants.OBJECT_ID_LENGTH];
+		for (PackedObjectInfo oe : objectList) {
+			oe.copyRawTo(oeBytes, 0);
+			d.update(oeBytes);
+		}
+
+		final String name = ObjectId.fromRaw(d.digest()).name();
+		final File packDir = tmpPack.getParentFile();
+		final File finalPack = new File(packDir, "pack-" + name + ".pack"); //$NON-NLS-1$ //$NON-NLS-2$
+		final File finalIdx = new File(packDir, "pack-" + name + ".idx"); //$NON-NLS-1$ //$NON-NLS-2$
+		if (finalPack.exists()) {
+			// The same objects were packed before; never replace a pack.
+			FileUtils.delete(tmpPack);
+			FileUtils.delete(tmpIdx);
+			return;
+		}
+
+		tmpPack.setReadOnly();
+		tmpIdx.setReadOnly();
+		if (!tmpPack.renameTo(finalPack))
+			throw new IOException(MessageFormat.format(
+					JGitText.get().cannotMovePackTo, finalPack));
+		if (!tmpIdx.renameTo(finalIdx)) {
+			FileUtils.delete(finalPack);
+			throw new IOException(MessageFormat.format(
+					JGitText.get().cannotMoveIndexTo, finalIdx));
+		}
+		db.openPack(finalPack);
+	}
+
+	/** Discard any objects not yet flushed. */
+	@Override
+	public synchronized void release() {
+		cleanup();
+		tmpPack = null;
+		out = null;
+		objectList = null;
+		objectMap = null;
+	}
+
+	private void cleanup() {
+		if (packOut != null) {
+			try {
+				packOut.close();
+			} catch (IOException e) {
+				// Ignore the close error, the file is deleted anyway.
+			}
+			packOut = null;
+		}
+		if (tmpPack != null) {
+			try {
+				FileUtils.delete(tmpPack, FileUtils.SKIP_MISSING);
+			} catch (IOException e) {
+				tmpPack.deleteOnExit();
+			}
+		}
+	}
+
+	private static int encodeTypeSize(int type, long rawLength, byte[] hdr) {
+		long nextLength = rawLength >>> 4;
+		hdr[0] = (byte) ((nextLength > 0 ? 0x80 : 0x00) | (type << 4) | (rawLength & 0x0F));
+		rawLength = nextLength;
+		int n = 1;
+		while (rawLength > 0) {
+			nextLength >>>= 7;
+			hdr[n++] = (byte) ((nextLength > 0 ? 0x80 : 0x00) | (rawLength & 0x7F));
+			rawLength = nextLength;
+		}
+		return n;
+	}
+
+	private static EOFException shortInput(long missing) {
+		return new EOFException("Input did not match supplied length. " //$NON-NLS-1$
+				+ missing + " bytes are missing."); //$NON-NLS-1$
+	}
+
+	/** Reads the objects not yet flushed, then the object database. */
+	private class Reader extends ObjectReader {
+		private final WindowCursor ctx = new WindowCursor(db);
+
+		@Override
+		public ObjectReader newReader() {
+			return new Reader();
+		}
+
+		@Override
+		public Collection<ObjectId> resolve(AbbreviatedObjectId id)
+				throws IOException {
+			final Set<ObjectId> matches = new HashSet<ObjectId>(
+					ctx.resolve(id));
+			resolvePending(matches, id);
+			return matches;
+		}
+
+		@Override
+		public boolean has(AnyObjectId objectId) throws IOException {
+			return findPending(objectId) != null || ctx.has(objectId);
+		}
+
+		@Override
+		public ObjectLoader open(AnyObjectId objectId, int typeHint)
+				throws MissingObjectException, IncorrectObjectTypeException,
+				IOException {
+			final PackedObjectInfo oe = findPending(objectId);
+			if (oe == null)
+				return ctx.open(objectId, typeHint);
+			final ObjectLoader ldr = openPending(oe);
+			if (typeHint != OBJ_ANY && ldr.getType() != typeHint)
+				throw new IncorrectObjectTypeException(objectId.copy(),
+						typeHint);
+			return ldr;
+		}
+
+		@Override
+		public Set<ObjectId> getShallowCommits() throws IOException {
+			return ctx.getShallowCommits();
+		}
+
+		@Override
+		public void release() {
+			ctx.release();
+		}
+	}
+
+	/** Large object in the pack not yet flushed, inflated as it is read. */
+	private class LargeLoader extends ObjectLoader {
+		private final ObjectId id;
+
+		private final int type;
+
+		private final long size;
+
+		private final long dataPos;
+
+		LargeLoader(ObjectId id, int type, long size, long dataPos) {
+			this.id = id;
+			this.type = type;
+			this.size = size;
+			this.dataPos = dataPos;
+		}
+
+		@Override
+		public int getType() {
+			return type;
+		}
+
+		@Override
+		public long getSize() {
+			return size;
+		}
+
+		@Override
+		public boolean isLarge() {
+			return true;
+		}
+
+		@Override
+		public byte[] getCachedBytes() throws LargeObjectException {
+			throw new LargeObjectException(id);
+		}
+
+		@Override
+		public ObjectStream openStream() throws IOException {
+			final InputStream in = new InflaterInputStream(new PackInput(
+					dataPos), new Inflater(), 8192) {
+				@Override
+				public void close() throws IOException {
+					super.close();
+					inf.end();
+				}
+			};
+			return new ObjectStream.Filter(type, size,
+					new BufferedInputStream(in, 8192));
+		}
+	}
+
+	/** Reads the pack being written from a position, leaving it unchanged. */
+	private class PackInput extends InputStream {
+		private long pos;
+
+		PackInput(long pos) {
+			this.pos = pos;
+		}
+
+		@Override
+		public int read() throws IOException {
+			final byte[] b = new byte[1];
+			return read(b, 0, 1) == 1 ? b[0] & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			final int n;
+			synchronized (PackInserter.this) {
+				if (packOut == null)
+					throw new EOFException();
+				n = packOut.getChannel().read(ByteBuffer.wrap(b, off, len),
+						pos);
+			}
+			if (n > 0)
+				pos += n;
+			return n;
+		}
+	}
+
+	/** Buffered output to the end of the pack, tracking offset and CRC. */
+	private class PackStream extends OutputStream {
+		final CRC32 crc = new CRC32();
+
+		final byte[] buf = new byte[8192];
+
+		int cnt;
+
+		long offset;
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			crc.update(b, off, len);
+			offset += len;
+			if (len >= buf.length) {
+				flushBuffer();
+				packOut.write(b, off, len);
+				return;
+			}
+			if (cnt + len > buf.length)
+				flushBuffer();
+			System.arraycopy(b, off, buf, cnt, len);
+			cnt += len;
+		}
+
+		void flushBuffer() throws IOException {
+			if (cnt > 0) {
+				packOut.write(buf, 0, cnt);
+				cnt = 0;
+			}
+		}
+
+		void truncate(long pos) throws IOException {
+			flushBuffer();
+			packOut.setLength(pos);
+			packOut.seek(pos);
+			offset = pos;
+		}
+	}
+}
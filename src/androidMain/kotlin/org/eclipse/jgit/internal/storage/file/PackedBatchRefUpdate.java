@@ -0,0 +1,491 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.internal.storage.file;
+
+import static org.eclipse.jgit.lib.Ref.Storage.PACKED;
+import static org.eclipse.jgit.transport.ReceiveCommand.Result.LOCK_FAILURE;
+import static org.eclipse.jgit.transport.ReceiveCommand.Result.NOT_ATTEMPTED;
+import static org.eclipse.jgit.transport.ReceiveCommand.Result.OK;
+import static org.eclipse.jgit.transport.ReceiveCommand.Result.REJECTED_MISSING_OBJECT;
+import static org.eclipse.jgit.transport.ReceiveCommand.Result.REJECTED_NONFASTFORWARD;
+import static org.eclipse.jgit.transport.ReceiveCommand.Result.REJECTED_OTHER_REASON;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.errors.LockFailedException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.BatchRefUpdate;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.eclipse.jgit.util.RefList;
+
+/**
+ * Batch update writing all references into {@code packed-refs} at once.
+ * <p>
+ * The sequential batch takes a lock, writes a loose file and appends a reflog
+ * entry per reference. Here every command is checked first, and then all new
+ * values are committed to {@code packed-refs} under its single lock, with a
+ * single fsync. The loose file of every updated reference is locked before
+ * {@code packed-refs} is written, and an existing one is removed once it is
+ * committed, so a stale loose value can never hide the new packed one.
+ * <p>
+ * Small non-atomic batches are still written as loose files one by one.
+ * An atomic batch rejects every command if any one of them cannot be applied.
+ * Otherwise rejected commands fail on their own and the remaining ones are
+ * still written together. Non-atomic batches touching a symbolic reference
+ * fall back to the sequential implementation, as {@code packed-refs} cannot
+ * store those; atomic ones are rejected.
+ */
+class PackedBatchRefUpdate extends BatchRefUpdate {
+	/**
+	 * Non-atomic batches with fewer commands are written as loose files, as
+	 * rewriting all of {@code packed-refs} costs more than a few loose writes.
+	 */
+	private static final int MIN_PACKED_COMMANDS = 100;
+
+	private final RefDirectory refdb;
+
+	PackedBatchRefUpdate(RefDirectory refdb) {
+		super(refdb);
+		this.refdb = refdb;
+	}
+
+	@Override
+	public void execute(RevWalk walk, ProgressMonitor monitor)
+			throws IOException {
+		List<ReceiveCommand> pending = ReceiveCommand.filter(getCommands(),
+				NOT_ATTEMPTED);
+		if (pending.isEmpty())
+			return;
+		if (isAtomic() && pending.size() != getCommands().size()) {
+			abort(pending);
+			return;
+		}
+		if (!isAtomic() && pending.size() < MIN_PACKED_COMMANDS) {
+			super.execute(walk, monitor);
+			return;
+		}
+		RefList<Ref> packed = refdb.getPackedRefs();
+		for (ReceiveCommand cmd : pending) {
+			Ref ref = refdb.readRef(cmd.getRefName(), packed);
+			if (ref != null && ref.isSymbolic()) {
+				// The sequential update cannot keep an atomic promise.
+				if (isAtomic())
+					abort(pending);
+				else
+					super.execute(walk, monitor);
+				return;
+			}
+		}
+
+		monitor.beginTask(JGitText.get().updatingReferences, pending.size());
+		checkObjects(walk, pending);
+		if (!proceed(pending))
+			return;
+
+		RefDirectory.PackedRefList oldPacked = refdb.getPackedRefs();
+		Map<String, ObjectId> applied = new TreeMap<String, ObjectId>();
+		Map<String, LockFile> looseLocks = new TreeMap<String, LockFile>();
+		LockFile lck;
+		try {
+			lck = refdb.lockPackedRefs();
+		} catch (LockFailedException e) {
+			for (ReceiveCommand cmd : pending)
+				cmd.setResult(LOCK_FAILURE);
+			monitor.endTask();
+			return;
+		}
+		try {
+			RefList<Ref> cur = refdb.readPackedRefs();
+			checkOldValues(cur, pending, applied);
+			checkNameConflicts(pending);
+			if (!proceed(pending))
+				return;
+			lockLooseRefs(pending, applied, looseLocks);
+			if (!proceed(pending))
+				return;
+			refdb.commitPackedRefs(lck, apply(walk, cur, pending), oldPacked);
+			deleteLooseRefs(applied);
+		} finally {
+			for (LockFile rLck : looseLocks.values())
+				rLck.unlock();
+			lck.unlock();
+		}
+
+		for (ReceiveCommand cmd : pending) {
+			if (cmd.getResult() == NOT_ATTEMPTED)
+				cmd.setResult(OK);
+		}
+		writeRefLogs(pending);
+		refdb.removeLooseRefs(applied.keySet());
+		monitor.update(pending.size());
+		monitor.endTask();
+	}
+
+	private static void checkObjects(RevWalk walk,
+			List<ReceiveCommand> pending) {
+		for (ReceiveCommand cmd : pending) {
+			try {
+				cmd.updateType(walk);
+				if (cmd.getType() != ReceiveCommand.Type.DELETE)
+					walk.parseAny(cmd.getNewId());
+			} catch (MissingObjectException err) {
+				cmd.setResult(REJECTED_MISSING_OBJECT, err.getMessage());
+			} catch (IOException err) {
+				cmd.setResult(REJECTED_OTHER_REASON, MessageFormat.format(
+						JGitText.get().lockError, err.getMessage()));
+			}
+		}
+	}
+
+	/**
+	 * Compare each command's expected old value with the current one.
+	 *
+	 * @param packed
+	 *            packed references read under the lock.
+	 * @param pending
+	 *            commands to check.
+	 * @param applied
+	 *            receives the current value of each reference that has a
+	 *            loose file, so the file can be removed once packed.
+	 * @throws IOException
+	 *             a loose reference could not be read.
+	 */
+	private void checkOldValues(RefList<Ref> packed,
+			List<ReceiveCommand> pending, Map<String, ObjectId> applied)
+			throws IOException {
+		for (ReceiveCommand cmd : pending) {
+			if (cmd.getResult() != NOT_ATTEMPTED)
+				continue;
+			if (cmd.getType() == ReceiveCommand.Type.UPDATE_NONFASTFORWARD
+					&& !isAllowNonFastForwards()) {
+				cmd.setResult(REJECTED_NONFASTFORWARD);
+				continue;
+			}
+
+			String name = cmd.getRefName();
+			Ref ref = refdb.readRef(name, packed);
+			if (ref != null && ref.isSymbolic()) {
+				// Became symbolic after the batch started.
+				cmd.setResult(LOCK_FAILURE);
+				continue;
+			}
+			ObjectId curId = ref != null ? ref.getObjectId() : null;
+			ObjectId oldId = cmd.getOldId();
+			boolean match;
+			if (cmd.getType() == ReceiveCommand.Type.DELETE
+					&& ObjectId.zeroId().equals(oldId))
+				match = true; // Delete whatever the reference points to.
+			else if (ObjectId.zeroId().equals(oldId))
+				match = curId == null;
+			else
+				match = curId != null && AnyObjectId.equals(curId, oldId);
+			if (!match) {
+				cmd.setResult(LOCK_FAILURE);
+				continue;
+			}
+			if (ref != null && ref.getStorage().isLoose())
+				applied.put(name, curId);
+		}
+	}
+
+	private void checkNameConflicts(List<ReceiveCommand> pending)
+			throws IOException {
+		Set<String> names = new HashSet<String>(refdb.getRefs(
+				RefDatabase.ALL).keySet());
+		for (ReceiveCommand cmd : pending) {
+			if (cmd.getResult() == NOT_ATTEMPTED
+					&& cmd.getType() == ReceiveCommand.Type.DELETE)
+				names.remove(cmd.getRefName());
+		}
+
+		Set<String> prefixes = new HashSet<String>();
+		for (String name : names)
+			addPrefixes(prefixes, name);
+		for (ReceiveCommand cmd : pending) {
+			if (cmd.getResult() != NOT_ATTEMPTED
+					|| cmd.getType() != ReceiveCommand.Type.CREATE)
+				continue;
+			String name = cmd.getRefName();
+			if (prefixes.contains(name) || hasPrefixIn(names, name)) {
+				cmd.setResult(LOCK_FAILURE);
+				continue;
+			}
+			names.add(name);
+			addPrefixes(prefixes, name);
+		}
+	}
+
+	private static void addPrefixes(Set<String> prefixes, String name) {
+		for (int p = name.indexOf('/'); p > 0; p = name.indexOf('/', p + 1))
+			prefixes.add(name.substring(0, p));
+	}
+
+	private static boolean hasPrefixIn(Set<String> names, String name) {
+		for (int p = name.indexOf('/'); p > 0; p = name.indexOf('/', p + 1)) {
+			if (names.contains(name.substring(0, p)))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Decide if the batch may continue after a round of checks.
+	 *
+	 * @param pending
+	 *            commands of the batch.
+	 * @return true if at least one command can still be applied.
+	 */
+	private boolean proceed(List<ReceiveCommand> pending) {
+		boolean rejected = false;
+		boolean remaining = false;
+		for (ReceiveCommand cmd : pending) {
+			if (cmd.getResult() == NOT_ATTEMPTED)
+				remaining = true;
+			else
+				rejected = true;
+		}
+		if (rejected && isAtomic()) {
+			abort(pending);
+			return false;
+		}
+		return remaining;
+	}
+
+	private static void abort(List<ReceiveCommand> pending) {
+		for (ReceiveCommand cmd : pending) {
+			if (cmd.getResult() == NOT_ATTEMPTED)
+				cmd.setResult(REJECTED_OTHER_REASON,
+						JGitText.get().transactionAborted);
+		}
+	}
+
+	private static RefList<Ref> apply(RevWalk walk, RefList<Ref> packed,
+			List<ReceiveCommand> pending) throws IOException {
+		TreeMap<String, Ref> edits = new TreeMap<String, Ref>();
+		for (ReceiveCommand cmd : pending) {
+			if (cmd.getResult() != NOT_ATTEMPTED)
+				continue;
+			String name = cmd.getRefName();
+			if (cmd.getType() == ReceiveCommand.Type.DELETE) {
+				edits.put(name, null);
+				continue;
+			}
+			ObjectId id = cmd.getNewId();
+			RevObject obj = walk.parseAny(id);
+			if (obj instanceof RevTag)
+				edits.put(name, new ObjectIdRef.PeeledTag(PACKED, name, id,
+						walk.peel(obj).copy()));
+			else
+				edits.put(name, new ObjectIdRef.PeeledNonTag(PACKED, name, id));
+		}
+
+		// Both inputs are sorted by name; merge them in one pass.
+		RefList.Builder<Ref> b = new RefList.Builder<Ref>(packed.size()
+				+ edits.size());
+		Iterator<Map.Entry<String, Ref>> e = edits.entrySet().iterator();
+		Map.Entry<String, Ref> next = e.hasNext() ? e.next() : null;
+		for (Ref ref : packed) {
+			while (next != null && next.getKey().compareTo(ref.getName()) < 0) {
+				if (next.getValue() != null)
+					b.add(next.getValue());
+				next = e.hasNext() ? e.next() : null;
+			}
+			if (next != null && next.getKey().equals(ref.getName())) {
+				if (next.getValue() != null)
+					b.add(next.getValue());
+				next = e.hasNext() ? e.next() : null;
+			} else
+				b.add(ref);
+		}
+		for (; next != null; next = e.hasNext() ? e.next() : null) {
+			if (next.getValue() != null)
+				b.add(next.getValue());
+		}
+		return b.toRefList();
+	}
+
+	private void writeRefLogs(List<ReceiveCommand> pending)
+			throws IOException {
+		ReflogWriter log = refdb.getLogWriter();
+		if (isRefLogDisabled()) {
+			for (ReceiveCommand cmd : pending) {
+				if (cmd.getResult() == OK
+						&& cmd.getType() == ReceiveCommand.Type.DELETE)
+					deleteRefLog(log, cmd.getRefName());
+			}
+			return;
+		}
+
+		PersonIdent ident = getRefLogIdent();
+		if (ident == null)
+			ident = new PersonIdent(refdb.getRepository());
+		else
+			ident = new PersonIdent(ident);
+		for (ReceiveCommand cmd : pending) {
+			if (cmd.getResult() != OK)
+				continue;
+			String name = cmd.getRefName();
+			if (cmd.getType() == ReceiveCommand.Type.DELETE) {
+				deleteRefLog(log, name);
+				continue;
+			}
+			String msg = getRefLogMessage();
+			if (isRefLogIncludingResult()) {
+				String strResult = toResultString(cmd.getType());
+				if (msg.length() > 0)
+					msg = msg + ": " + strResult; //$NON-NLS-1$
+				else
+					msg = strResult;
+			}
+			log.log(name, cmd.getOldId(), cmd.getNewId(), ident, msg);
+		}
+	}
+
+	private static String toResultString(ReceiveCommand.Type type) {
+		switch (type) {
+		case CREATE:
+			return "created"; //$NON-NLS-1$
+		case UPDATE:
+			return "fast forward"; //$NON-NLS-1$
+		default:
+			return "forced-update"; //$NON-NLS-1$
+		}
+	}
+
+	private static void deleteRefLog(ReflogWriter log, String name)
+			throws IOException {
+		RefDirectory.delete(log.logFor(name), RefDirectory.levelsIn(name) - 2);
+	}
+
+	/**
+	 * Lock the loose file of every reference about to be stored packed.
+	 * <p>
+	 * Holding these locks keeps concurrent writers from creating or changing
+	 * a loose file that would shadow the packed value. Under the lock, a
+	 * loose file must still hold the value checked under the packed-refs
+	 * lock, and a reference that had none must still have none. A command
+	 * whose file cannot be locked, or was changed by a concurrent writer,
+	 * fails with {@code LOCK_FAILURE}.
+	 *
+	 * @param pending
+	 *            commands of the batch.
+	 * @param applied
+	 *            loose references and their values before the batch; commands
+	 *            that failed are removed.
+	 * @param locks
+	 *            receives the lock taken for each remaining reference.
+	 * @throws IOException
+	 *             a loose file could not be read.
+	 */
+	private void lockLooseRefs(List<ReceiveCommand> pending,
+			Map<String, ObjectId> applied, Map<String, LockFile> locks)
+			throws IOException {
+		Map<String, ReceiveCommand> active = new TreeMap<String, ReceiveCommand>();
+		for (ReceiveCommand cmd : pending) {
+			if (cmd.getResult() == NOT_ATTEMPTED)
+				active.put(cmd.getRefName(), cmd);
+		}
+		applied.keySet().retainAll(active.keySet());
+
+		for (ReceiveCommand cmd : active.values()) {
+			String name = cmd.getRefName();
+			ObjectId expected = applied.get(name);
+			LockFile rLck = new LockFile(refdb.fileFor(name),
+					refdb.getRepository().getFS());
+			if (!rLck.lock()) {
+				cmd.setResult(LOCK_FAILURE);
+				applied.remove(name);
+				continue;
+			}
+			locks.put(name, rLck);
+			Ref loose = refdb.scanLooseRef(name);
+			boolean same;
+			if (expected == null)
+				same = loose == null;
+			else
+				same = loose != null && !loose.isSymbolic()
+						&& AnyObjectId.equals(expected, loose.getObjectId());
+			if (!same) {
+				cmd.setResult(LOCK_FAILURE);
+				applied.remove(name);
+			}
+		}
+	}
+
+	/**
+	 * Remove loose files of references now stored packed.
+	 * <p>
+	 * Called with the locks from
+	 * {@link #lockLooseRefs(List, Map, Map)} still held.
+	 *
+	 * @param applied
+	 *            loose references to remove.
+	 * @throws IOException
+	 *             a loose file could not be removed.
+	 */
+	private void deleteLooseRefs(Map<String, ObjectId> applied)
+			throws IOException {
+		for (String name : applied.keySet())
+			RefDirectory.delete(refdb.fileFor(name),
+					RefDirectory.levelsIn(name) - 2);
+	}
+}
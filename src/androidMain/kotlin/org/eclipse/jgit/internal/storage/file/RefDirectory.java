@@ -79,6 +79,7 @@ import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.ObjectWritingException;
 import org.eclipse.jgit.events.RefsChangedEvent;
 import org.eclipse.jgit.internal.JGitText;
+import org.eclipse.jgit.lib.BatchRefUpdate;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectIdRef;
@@ -534,6 +535,22 @@ public class RefDirectory extends RefDatabase {
 		return new RefDirectoryRename(from, to);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Atomic and large batches write all updated references into packed-refs
+	 * at once.
+	 */
+	@Override
+	public BatchRefUpdate newBatchUpdate() {
+		return new PackedBatchRefUpdate(this);
+	}
+
+	@Override
+	public boolean performsAtomicTransactions() {
+		return true;
+	}
+
 	void stored(RefDirectoryUpdate update, FileSnapshot snapshot) {
 		final ObjectId target = update.getNewObjectId().copy();
 		final Ref leaf = update.getRef().getLeaf();
@@ -593,6 +610,56 @@ public class RefDirectory extends RefDatabase {
 		fireRefsChanged();
 	}
 
+	/**
+	 * Lock the packed-refs file for a rewrite.
+	 *
+	 * @return the held lock; the caller must unlock it.
+	 * @throws IOException
+	 *             the file is locked by someone else, or the lock could not
+	 *             be created.
+	 */
+	LockFile lockPackedRefs() throws IOException {
+		LockFile lck = new LockFile(packedRefsFile, parent.getFS());
+		if (!lck.lock())
+			throw new LockFailedException(packedRefsFile);
+		return lck;
+	}
+
+	/**
+	 * Read a loose reference file, bypassing the cached loose list.
+	 *
+	 * @param name
+	 *            name of the reference.
+	 * @return the loose reference; null if it has no loose file.
+	 * @throws IOException
+	 *             the file exists but could not be read.
+	 */
+	Ref scanLooseRef(String name) throws IOException {
+		return scanRef(null, name);
+	}
+
+	/**
+	 * Forget cached loose copies of references a batch moved into
+	 * packed-refs, and notify listeners of the change.
+	 *
+	 * @param names
+	 *            references whose loose files were deleted.
+	 */
+	void removeLooseRefs(Iterable<String> names) {
+		for (String name : names) {
+			RefList<LooseRef> curLoose, newLoose;
+			do {
+				curLoose = looseRefs.get();
+				int idx = curLoose.find(name);
+				if (idx < 0)
+					break;
+				newLoose = curLoose.remove(idx);
+			} while (!looseRefs.compareAndSet(curLoose, newLoose));
+		}
+		modCnt.incrementAndGet();
+		fireRefsChanged();
+	}
+
 	/**
 	 * Adds a set of refs to the set of packed-refs. Only non-symbolic refs are
 	 * added. If a ref with the given name already existed in packed-refs it is
@@ -736,7 +803,7 @@ public class RefDirectory extends RefDatabase {
 		return ref;
 	}
 
-	private PackedRefList getPackedRefs() throws IOException {
+	PackedRefList getPackedRefs() throws IOException {
 		final PackedRefList curList = packedRefs.get();
 		if (!curList.snapshot.isModified(packedRefsFile))
 			return curList;
@@ -748,7 +815,7 @@ public class RefDirectory extends RefDatabase {
 		return newList;
 	}
 
-	private PackedRefList readPackedRefs() throws IOException {
+	PackedRefList readPackedRefs() throws IOException {
 		final FileSnapshot snapshot = FileSnapshot.save(packedRefsFile);
 		final BufferedReader br;
 		final MessageDigest digest = Constants.newMessageDigest();
@@ -821,7 +888,7 @@ public class RefDirectory extends RefDatabase {
 		return new StringBuilder(end - off).append(src, off, end).toString();
 	}
 
-	private void commitPackedRefs(final LockFile lck, final RefList<Ref> refs,
+	void commitPackedRefs(final LockFile lck, final RefList<Ref> refs,
 			final PackedRefList oldPackedList) throws IOException {
 		new RefWriter(refs) {
 			@Override
@@ -850,7 +917,7 @@ public class RefDirectory extends RefDatabase {
 		}.writePackedRefs();
 	}
 
-	private Ref readRef(String name, RefList<Ref> packed) throws IOException {
+	Ref readRef(String name, RefList<Ref> packed) throws IOException {
 		final RefList<LooseRef> curList = looseRefs.get();
 		final int idx = curList.find(name);
 		if (0 <= idx) {
@@ -1021,7 +1088,7 @@ public class RefDirectory extends RefDatabase {
 		}
 	}
 
-	private static class PackedRefList extends RefList<Ref> {
+	static class PackedRefList extends RefList<Ref> {
 		static final PackedRefList NO_PACKED_REFS = new PackedRefList(
 				RefList.emptyList(), FileSnapshot.MISSING_FILE,
 				ObjectId.zeroId());
@@ -47,11 +47,15 @@ package org.eclipse.jgit.internal.storage.file;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
@@ -77,6 +81,12 @@ import org.eclipse.jgit.util.RawParseUtils;
 public class UnpackedObject {
 	private static final int BUFFER_SIZE = 8192;
 
+	/** Largest compressed file read whole into the cursor's buffer. */
+	private static final int MAX_READ_WHOLE = 1 << 20;
+
+	/** Space for the inflated header after the compressed content. */
+	private static final int HDR_SIZE = 64;
+
 	/**
 	 * Parse an object from the unpacked object format.
 	 *
@@ -99,6 +109,155 @@ public class UnpackedObject {
 		}
 	}
 
+	/**
+	 * Open a loose object from its file.
+	 * <p>
+	 * A small file is read whole through the channel into a buffer kept by
+	 * the cursor, then inflated straight into the object's content array.
+	 *
+	 * @param ch
+	 *            channel of the loose object file, positioned at its start.
+	 * @param path
+	 *            the loose object file.
+	 * @param id
+	 *            id of the object.
+	 * @param wc
+	 *            cursor providing the inflater and the buffer.
+	 * @return loader to read the inflated contents.
+	 * @throws IOException
+	 *             the object cannot be read or parsed.
+	 */
+	static ObjectLoader open(FileChannel ch, File path, AnyObjectId id,
+			WindowCursor wc) throws IOException {
+		final long len = ch.size();
+		if (len > MAX_READ_WHOLE)
+			return open(Channels.newInputStream(ch), path, id, wc);
+
+		final int n = (int) len;
+		final byte[] buf = wc.looseBuffer(n + HDR_SIZE);
+		if (n < 2 || IO.read(ch, buf, 0, n) != n)
+			throw new EOFException(JGitText.get().shortReadOfBlock);
+		try {
+			if (isStandardFormat(buf))
+				return inflateStandard(buf, n, path, id, wc);
+			return inflatePacked(buf, n, path, id, wc);
+		} catch (DataFormatException badStream) {
+			throw new CorruptObjectException(id,
+					JGitText.get().corruptObjectBadStream);
+		}
+	}
+
+	private static ObjectLoader inflateStandard(byte[] buf, int n,
+			File path, AnyObjectId id, WindowCursor wc) throws IOException,
+			DataFormatException {
+		// The header is inflated into the space after the compressed content.
+		final Inflater inf = wc.inflater();
+		inf.setInput(buf, 0, n);
+		int avail = 0;
+		while (avail < HDR_SIZE) {
+			int r = inf.inflate(buf, n + avail, HDR_SIZE - avail);
+			if (r == 0 && (inf.finished() || inf.needsInput()
+					|| inf.needsDictionary()))
+				break;
+			avail += r;
+		}
+		if (avail < 5)
+			throw new CorruptObjectException(id,
+					JGitText.get().corruptObjectNoHeader);
+		Arrays.fill(buf, n + avail, n + HDR_SIZE, (byte) 0);
+
+		final MutableInteger p = new MutableInteger();
+		p.value = n;
+		int type = Constants.decodeTypeString(id, buf, (byte) ' ', p);
+		long size = RawParseUtils.parseLongBase10(buf, p.value, p);
+		if (size < 0)
+			throw new CorruptObjectException(id,
+					JGitText.get().corruptObjectNegativeSize);
+		if (p.value >= n + avail || buf[p.value++] != 0)
+			throw new CorruptObjectException(id,
+					JGitText.get().corruptObjectGarbageAfterSize);
+		if (size >= wc.getStreamFileThreshold())
+			return new LargeObject(type, size, path, id, wc.db);
+
+		final byte[] data = new byte[(int) size];
+		final int k = n + avail - p.value;
+		if (k > data.length)
+			throw new CorruptObjectException(id,
+					JGitText.get().corruptObjectIncorrectLength);
+		System.arraycopy(buf, p.value, data, 0, k);
+		inflateFully(inf, data, k, id);
+		checkValidEnd(inf, id, buf, n);
+		return new ObjectLoader.SmallObject(type, data);
+	}
+
+	private static ObjectLoader inflatePacked(byte[] buf, int n, File path,
+			AnyObjectId id, WindowCursor wc) throws IOException,
+			DataFormatException {
+		int c = buf[0] & 0xff;
+		int type = (c >> 4) & 7;
+		long size = c & 15;
+		int shift = 4;
+		int p = 1;
+		while ((c & 0x80) != 0) {
+			if (p >= n)
+				throw new CorruptObjectException(id,
+						JGitText.get().corruptObjectNoHeader);
+			c = buf[p++] & 0xff;
+			size += ((long) (c & 0x7f)) << shift;
+			shift += 7;
+		}
+
+		switch (type) {
+		case Constants.OBJ_COMMIT:
+		case Constants.OBJ_TREE:
+		case Constants.OBJ_BLOB:
+		case Constants.OBJ_TAG:
+			// Acceptable types for a loose object.
+			break;
+		default:
+			throw new CorruptObjectException(id,
+					JGitText.get().corruptObjectInvalidType);
+		}
+		if (size >= wc.getStreamFileThreshold())
+			return new LargeObject(type, size, path, id, wc.db);
+
+		final Inflater inf = wc.inflater();
+		inf.setInput(buf, p, n - p);
+		final byte[] data = new byte[(int) size];
+		inflateFully(inf, data, 0, id);
+		checkValidEnd(inf, id, buf, n);
+		return new ObjectLoader.SmallObject(type, data);
+	}
+
+	private static void inflateFully(Inflater inf, byte[] data, int off,
+			AnyObjectId id) throws DataFormatException,
+			CorruptObjectException {
+		while (off < data.length) {
+			int r = inf.inflate(data, off, data.length - off);
+			if (r == 0) {
+				if (inf.finished())
+					throw new CorruptObjectException(id,
+							JGitText.get().corruptObjectIncorrectLength);
+				if (inf.needsInput() || inf.needsDictionary())
+					throw new CorruptObjectException(id,
+							JGitText.get().corruptObjectBadStream);
+			}
+			off += r;
+		}
+	}
+
+	/** Verify all of the input was inflated, using buf[off..] as scratch. */
+	private static void checkValidEnd(Inflater inf, AnyObjectId id,
+			byte[] buf, int off) throws DataFormatException,
+			CorruptObjectException {
+		if (inf.inflate(buf, off, HDR_SIZE) != 0)
+			throw new CorruptObjectException(id,
+					JGitText.get().corruptObjectIncorrectLength);
+		if (!inf.finished() || inf.getRemaining() != 0)
+			throw new CorruptObjectException(id,
+					JGitText.get().corruptObjectBadStream);
+	}
+
 	static ObjectLoader open(InputStream in, File path, AnyObjectId id,
 			WindowCursor wc) throws IOException {
 		try {
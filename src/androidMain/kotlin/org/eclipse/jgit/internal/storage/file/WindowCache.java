@@ -48,6 +48,12 @@ import java.io.IOException;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
 import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReferenceArray;
@@ -136,6 +142,8 @@ public class WindowCache {
 
 	private static volatile int streamFileThreshold;
 
+	private static volatile ThreadPoolExecutor prefetchService;
+
 	static {
 		reconfigure(new WindowCacheConfig());
 	}
@@ -163,12 +171,54 @@ public class WindowCache {
 		cache = nc;
 		streamFileThreshold = cfg.getStreamFileThreshold();
 		DeltaBaseCache.reconfigure(cfg);
+
+		final ThreadPoolExecutor op = prefetchService;
+		prefetchService = newPrefetchService(cfg.getPackedGitPrefetchThreads());
+		if (op != null)
+			op.shutdown();
+	}
+
+	private static ThreadPoolExecutor newPrefetchService(int threads) {
+		if (threads <= 0)
+			return null;
+		ThreadPoolExecutor e = new ThreadPoolExecutor(threads, threads, 30,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					private final ThreadFactory baseFactory = Executors
+							.defaultThreadFactory();
+
+					public Thread newThread(Runnable taskBody) {
+						Thread thr = baseFactory.newThread(taskBody);
+						thr.setName("JGit-WindowPrefetch"); //$NON-NLS-1$
+						thr.setDaemon(true);
+						return thr;
+					}
+				});
+		e.allowCoreThreadTimeOut(true);
+		return e;
 	}
 
 	static int getStreamFileThreshold() {
 		return streamFileThreshold;
 	}
 
+	/**
+	 * @return executor loading windows ahead of batched object lookups; null
+	 *         if prefetching is disabled.
+	 */
+	static Executor getPrefetchService() {
+		return prefetchService;
+	}
+
+	/**
+	 * @param offset
+	 *            position within a pack.
+	 * @return start of the window containing {@code offset}.
+	 */
+	static long windowStart(final long offset) {
+		return cache.toStart(offset);
+	}
+
 	static WindowCache getInstance() {
 		return cache;
 	}
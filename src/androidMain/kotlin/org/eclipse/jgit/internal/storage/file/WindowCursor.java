@@ -47,12 +47,16 @@ package org.eclipse.jgit.internal.storage.file;
 import java.io.IOException;
 import java.security.MessageDigest;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
@@ -67,6 +71,8 @@ import org.eclipse.jgit.internal.storage.pack.PackOutputStream;
 import org.eclipse.jgit.internal.storage.pack.PackWriter;
 import org.eclipse.jgit.lib.AbbreviatedObjectId;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.AsyncObjectLoaderQueue;
+import org.eclipse.jgit.lib.AsyncObjectSizeQueue;
 import org.eclipse.jgit.lib.BitmapIndex;
 import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
 import org.eclipse.jgit.lib.Constants;
@@ -78,11 +84,20 @@ import org.eclipse.jgit.lib.ProgressMonitor;
 
 /** Active handle to a ByteWindow. */
 final class WindowCursor extends ObjectReader implements ObjectReuseAsIs {
+	/** Number of distinct windows a batched lookup keeps loading ahead. */
+	private static final int PREFETCH_WINDOWS = 8;
+
 	/** Temporary buffer large enough for at least one raw object id. */
 	final byte[] tempId = new byte[Constants.OBJECT_ID_LENGTH];
 
+	/** Larger buffers for loose objects are not kept for reuse. */
+	private static final int MAX_LOOSE_BUFFER = 1 << 20;
+
 	private Inflater inf;
 
+	/** Buffer the last loose object was read into, if small enough. */
+	private byte[] looseBuffer;
+
 	private ByteWindow window;
 
 	private DeltaBaseCache baseCache;
@@ -116,6 +131,15 @@ final class WindowCursor extends ObjectReader implements ObjectReuseAsIs {
 
 	public Collection<CachedPack> getCachedPacksAndUpdate(
 			BitmapBuilder needBitmap) throws IOException {
+		// Prefer the clone pack GC wrote for the branch tips.
+		for (PackFile pack : db.getPacks()) {
+			if (pack.getCloneTips() == null)
+				continue;
+			PackBitmapIndex index = pack.getBitmapIndex();
+			if (needBitmap.removeAllOrNone(index))
+				return Collections.<CachedPack> singletonList(
+						new LocalCachedPack(Collections.singletonList(pack)));
+		}
 		for (PackFile pack : db.getPacks()) {
 			PackBitmapIndex index = pack.getBitmapIndex();
 			if (needBitmap.removeAllOrNone(index))
@@ -125,6 +149,17 @@ final class WindowCursor extends ObjectReader implements ObjectReuseAsIs {
 		return Collections.emptyList();
 	}
 
+	public CachedPack getClonePack(Set<? extends ObjectId> tips)
+			throws IOException {
+		for (PackFile pack : db.getPacks()) {
+			Set<ObjectId> packTips = pack.getCloneTips();
+			if (packTips != null && packTips.size() == tips.size()
+					&& packTips.containsAll(tips))
+				return new LocalCachedPack(Collections.singletonList(pack));
+		}
+		return null;
+	}
+
 	@Override
 	public Collection<ObjectId> resolve(AbbreviatedObjectId id)
 			throws IOException {
@@ -170,6 +205,282 @@ final class WindowCursor extends ObjectReader implements ObjectReuseAsIs {
 		return sz;
 	}
 
+	private static final Comparator<FoundObject<?>> FOUND_OBJECT_SORT = new Comparator<FoundObject<?>>() {
+		public int compare(FoundObject<?> a, FoundObject<?> b) {
+			int cmp = a.packIndex - b.packIndex;
+			if (cmp == 0)
+				cmp = Long.signum(a.offset - b.offset);
+			return cmp;
+		}
+	};
+
+	private static class FoundObject<T extends ObjectId> {
+		final T id;
+		final PackFile pack;
+		final long offset;
+		final int packIndex;
+
+		FoundObject(T objectId, int packIdx, PackFile pack, long offset) {
+			this.id = objectId;
+			this.pack = pack;
+			this.offset = offset;
+			this.packIndex = packIdx;
+		}
+
+		FoundObject(T objectId) {
+			this.id = objectId;
+			this.pack = null;
+			this.offset = 0;
+			this.packIndex = Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Locate objects in the local packs and order them by pack, then offset,
+	 * so a batch reads every pack front to back. Objects not found in a local
+	 * pack (loose, in an alternate, or in a pack that failed to open) are
+	 * sorted last and are looked up one at a time through {@link #db}.
+	 */
+	private <T extends ObjectId> List<FoundObject<T>> findAll(
+			Iterable<T> objectIds) {
+		ArrayList<FoundObject<T>> r = new ArrayList<FoundObject<T>>();
+		PackFile[] packList = db.getPacks().toArray(new PackFile[0]);
+		if (packList.length == 0) {
+			for (T t : objectIds)
+				r.add(new FoundObject<T>(t));
+			return r;
+		}
+
+		int lastIdx = 0;
+		PackFile lastPack = packList[lastIdx];
+
+		OBJECT_SCAN: for (T t : objectIds) {
+			try {
+				long p = lastPack.findOffset(t);
+				if (0 < p) {
+					r.add(new FoundObject<T>(t, lastIdx, lastPack, p));
+					continue;
+				}
+			} catch (IOException e) {
+				// Fall though and try to examine other packs.
+			}
+
+			for (int i = 0; i < packList.length; i++) {
+				if (i == lastIdx)
+					continue;
+				PackFile pack = packList[i];
+				try {
+					long p = pack.findOffset(t);
+					if (0 < p) {
+						r.add(new FoundObject<T>(t, i, pack, p));
+						lastIdx = i;
+						lastPack = pack;
+						continue OBJECT_SCAN;
+					}
+				} catch (IOException e) {
+					// Examine other packs.
+				}
+			}
+
+			r.add(new FoundObject<T>(t));
+		}
+
+		Collections.sort(r, FOUND_OBJECT_SORT);
+		return r;
+	}
+
+	/**
+	 * Loads the windows of a sorted batch on the prefetch service, keeping
+	 * {@link #PREFETCH_WINDOWS} distinct windows ahead of the consumer.
+	 */
+	private static class Prefetcher {
+		private final List<? extends FoundObject<?>> order;
+
+		private final Executor svc;
+
+		private int next;
+
+		private PackFile lastPack;
+
+		private long lastStart = -1;
+
+		private int scheduledWindows;
+
+		private PackFile readPack;
+
+		private long readStart = -1;
+
+		private int readWindows;
+
+		Prefetcher(List<? extends FoundObject<?>> order, Executor svc) {
+			this.order = order;
+			this.svc = svc;
+		}
+
+		void advance(int consumed) {
+			FoundObject<?> c = order.get(consumed);
+			if (c.pack == null)
+				return;
+			long start = WindowCache.windowStart(c.offset);
+			if (c.pack != readPack || start != readStart) {
+				readPack = c.pack;
+				readStart = start;
+				readWindows++;
+			}
+
+			for (; next < order.size(); next++) {
+				FoundObject<?> f = order.get(next);
+				if (f.pack == null) {
+					next = order.size();
+					break;
+				}
+				start = WindowCache.windowStart(f.offset);
+				if (f.pack == lastPack && start == lastStart)
+					continue;
+				if (readWindows + PREFETCH_WINDOWS <= scheduledWindows)
+					break;
+				lastPack = f.pack;
+				lastStart = start;
+				scheduledWindows++;
+				if (!schedule(f.pack, f.offset)) {
+					next = order.size();
+					break;
+				}
+			}
+		}
+
+		private boolean schedule(final PackFile pack, final long offset) {
+			try {
+				svc.execute(new Runnable() {
+					public void run() {
+						if (pack.invalid())
+							return;
+						try {
+							WindowCache.get(pack, offset);
+						} catch (IOException e) {
+							// Ignore, the reader will retry and report it.
+						}
+					}
+				});
+				return true;
+			} catch (RejectedExecutionException e) {
+				return false;
+			}
+		}
+	}
+
+	@Override
+	public <T extends ObjectId> AsyncObjectLoaderQueue<T> open(
+			Iterable<T> objectIds, final boolean reportMissing) {
+		final List<FoundObject<T>> order = findAll(objectIds);
+		Executor svc = WindowCache.getPrefetchService();
+		final Prefetcher prefetch = svc != null
+				? new Prefetcher(order, svc)
+				: null;
+		return new AsyncObjectLoaderQueue<T>() {
+			private int idx = -1;
+
+			private FoundObject<T> cur;
+
+			public boolean next() throws MissingObjectException, IOException {
+				if (++idx < order.size()) {
+					cur = order.get(idx);
+					if (prefetch != null)
+						prefetch.advance(idx);
+					return true;
+				}
+				return false;
+			}
+
+			public T getCurrent() {
+				return cur.id;
+			}
+
+			public ObjectId getObjectId() {
+				return cur.id;
+			}
+
+			public ObjectLoader open() throws IOException {
+				if (cur.pack != null && !cur.pack.invalid()) {
+					try {
+						return cur.pack.load(WindowCursor.this, cur.offset);
+					} catch (IOException e) {
+						// Fall through to the full search, which will
+						// handle the error for this pack.
+					}
+				}
+				return WindowCursor.this.open(cur.id, OBJ_ANY);
+			}
+
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				return true;
+			}
+
+			public void release() {
+				// Nothing to clean up.
+			}
+		};
+	}
+
+	@Override
+	public <T extends ObjectId> AsyncObjectSizeQueue<T> getObjectSize(
+			Iterable<T> objectIds, final boolean reportMissing) {
+		final List<FoundObject<T>> order = findAll(objectIds);
+		Executor svc = WindowCache.getPrefetchService();
+		final Prefetcher prefetch = svc != null
+				? new Prefetcher(order, svc)
+				: null;
+		return new AsyncObjectSizeQueue<T>() {
+			private int idx = -1;
+
+			private FoundObject<T> cur;
+
+			private long sz;
+
+			public boolean next() throws MissingObjectException, IOException {
+				if (++idx < order.size()) {
+					cur = order.get(idx);
+					if (prefetch != null)
+						prefetch.advance(idx);
+					sz = size(cur);
+					return true;
+				}
+				return false;
+			}
+
+			public T getCurrent() {
+				return cur.id;
+			}
+
+			public ObjectId getObjectId() {
+				return cur.id;
+			}
+
+			public long getSize() {
+				return sz;
+			}
+
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				return true;
+			}
+
+			public void release() {
+				// Nothing to clean up.
+			}
+		};
+	}
+
+	private long size(FoundObject<?> obj) throws IOException {
+		if (obj.pack != null && !obj.pack.invalid()) {
+			try {
+				return obj.pack.getObjectSize(this, obj.offset);
+			} catch (IOException e) {
+				// Fall through to the full search.
+			}
+		}
+		return getObjectSize(obj.id, OBJ_ANY);
+	}
+
 	public LocalObjectToPack newObjectToPack(AnyObjectId objectId, int type) {
 		return new LocalObjectToPack(objectId, type);
 	}
@@ -359,6 +670,24 @@ final class WindowCursor extends ObjectReader implements ObjectReuseAsIs {
 		}
 	}
 
+	/**
+	 * Get a buffer to read a loose object into.
+	 *
+	 * @param size
+	 *            minimum size of the buffer.
+	 * @return buffer of at least <code>size</code> bytes, reused by the next
+	 *         call if it is not too large.
+	 */
+	byte[] looseBuffer(int size) {
+		byte[] b = looseBuffer;
+		if (b == null || b.length < size) {
+			b = new byte[Math.max(size, 8192)];
+			if (b.length <= MAX_LOOSE_BUFFER)
+				looseBuffer = b;
+		}
+		return b;
+	}
+
 	int getStreamFileThreshold() {
 		return WindowCache.getStreamFileThreshold();
 	}
@@ -367,6 +696,7 @@ final class WindowCursor extends ObjectReader implements ObjectReuseAsIs {
 	public void release() {
 		window = null;
 		baseCache = null;
+		looseBuffer = null;
 		try {
 			InflaterCache.release(inf);
 		} finally {
@@ -45,6 +45,7 @@ package org.eclipse.jgit.internal.storage.file;
 
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.Config.SectionParser;
+import org.eclipse.jgit.lib.ConfigConstants;
 import org.eclipse.jgit.lib.CoreConfig;
 
 class WriteConfig {
@@ -61,10 +62,14 @@ class WriteConfig {
 
 	private final boolean fsyncRefFiles;
 
+	private final boolean packInserts;
+
 	private WriteConfig(final Config rc) {
 		compression = rc.get(CoreConfig.KEY).getCompression();
 		fsyncObjectFiles = rc.getBoolean("core", "fsyncobjectfiles", false); //$NON-NLS-1$ //$NON-NLS-2$
 		fsyncRefFiles = rc.getBoolean("core", "fsyncreffiles", false); //$NON-NLS-1$ //$NON-NLS-2$
+		packInserts = rc.getBoolean(ConfigConstants.CONFIG_CORE_SECTION,
+				ConfigConstants.CONFIG_KEY_PACK_INSERTS, false);
 	}
 
 	int getCompression() {
@@ -78,4 +83,9 @@ class WriteConfig {
 	boolean getFSyncRefFiles() {
 		return fsyncRefFiles;
 	}
+
+	/** @return whether inserted objects are written into packs. */
+	boolean getPackInserts() {
+		return packInserts;
+	}
 }
@@ -208,6 +208,11 @@ final class DeltaWindow {
 		for (DeltaWindowEntry src = res.prev; src != res; src = src.prev) {
 			if (src.empty())
 				break;
+			if (src.type() != res.type()) {
+				// The window is sorted by type, so everything older is
+				// unusable too. Keep any base already selected above.
+				break;
+			}
 			if (delta(src) /* == NEXT_SRC */)
 				continue;
 			bestBase = null;
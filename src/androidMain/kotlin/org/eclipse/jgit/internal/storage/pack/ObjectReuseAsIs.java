@@ -46,11 +46,13 @@ package org.eclipse.jgit.internal.storage.pack;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.StoredObjectRepresentationNotAvailableException;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.BitmapIndex.BitmapBuilder;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.ProgressMonitor;
 
@@ -237,4 +239,22 @@ public interface ObjectReuseAsIs {
 	 */
 	public Collection<CachedPack> getCachedPacksAndUpdate(
 			BitmapBuilder needBitmap) throws IOException;
+
+	/**
+	 * Find a clone pack built from exactly the given tips.
+	 * <p>
+	 * A clone pack holds every object reachable from its tips and nothing
+	 * else, so a client that has nothing and wants exactly these tips can be
+	 * sent the pack as-is, without enumerating any objects.
+	 *
+	 * @param tips
+	 *            the objects the client wants.
+	 * @return the clone pack, or null if none matches.
+	 * @throws IOException
+	 *             the packs cannot be listed from the repository. Callers may
+	 *             choose to ignore this and continue as-if there were no
+	 *             clone pack.
+	 */
+	public CachedPack getClonePack(Set<? extends ObjectId> tips)
+			throws IOException;
 }
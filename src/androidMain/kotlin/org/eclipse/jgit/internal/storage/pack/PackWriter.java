@@ -113,6 +113,7 @@ import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevTag;
 import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.storage.pack.PackConfig;
 import org.eclipse.jgit.util.BlockList;
 import org.eclipse.jgit.util.TemporaryBuffer;
@@ -155,6 +156,14 @@ import org.eclipse.jgit.util.TemporaryBuffer;
 public class PackWriter {
 	private static final int PACK_VERSION_GENERATED = 2;
 
+	/**
+	 * Largest number of objects a thin pack found through bitmaps may need
+	 * before the tree walk recovering their paths is skipped. Paths let new
+	 * objects be delta compressed against the receiver's copy of the same
+	 * file; beyond this size the walk costs more than it saves.
+	 */
+	private static final int MAX_THIN_BITMAP_PATH_WALK = 50000;
+
 	/** A collection of object ids. */
 	public interface ObjectIdSet {
 		/**
@@ -1585,6 +1594,8 @@ public class PackWriter {
 			if (zbuf != null) {
 				out.writeHeader(otp, otp.getCachedSize());
 				out.write(zbuf);
+				typeStats.cntDeltas++;
+				typeStats.deltaBytes += out.length() - otp.getOffset();
 				return;
 			}
 		}
@@ -1660,12 +1671,23 @@ public class PackWriter {
 				&& !shallowPack
 				&& have.isEmpty()
 				&& (excludeInPacks == null || excludeInPacks.length == 0);
+		if (canSendClonePack(have)) {
+			CachedPack clonePack = reuseSupport.getClonePack(want);
+			if (clonePack != null) {
+				cachedPacks.add(clonePack);
+				countingMonitor.update((int) clonePack.getObjectCount());
+				endPhase(countingMonitor);
+				stats.timeCounting = System.currentTimeMillis() - countingStart;
+				return;
+			}
+		}
 		if (!shallowPack && useBitmaps) {
 			BitmapIndex bitmapIndex = reader.getBitmapIndex();
 			if (bitmapIndex != null) {
 				PackWriterBitmapWalker bitmapWalker = new PackWriterBitmapWalker(
 						walker, bitmapIndex, countingMonitor);
-				findObjectsToPackUsingBitmaps(bitmapWalker, want, have);
+				findObjectsToPackUsingBitmaps(bitmapWalker, want, have,
+						countingMonitor);
 				endPhase(countingMonitor);
 				stats.timeCounting = System.currentTimeMillis() - countingStart;
 				return;
@@ -1842,9 +1864,15 @@ public class PackWriter {
 		stats.timeCounting = System.currentTimeMillis() - countingStart;
 	}
 
+	private boolean canSendClonePack(Set<? extends ObjectId> have) {
+		return useCachedPacks && reuseSupport != null && !shallowPack
+				&& have.isEmpty()
+				&& (excludeInPacks == null || excludeInPacks.length == 0);
+	}
+
 	private void findObjectsToPackUsingBitmaps(
 			PackWriterBitmapWalker bitmapWalker, Set<? extends ObjectId> want,
-			Set<? extends ObjectId> have)
+			Set<? extends ObjectId> have, ProgressMonitor countingMonitor)
 			throws MissingObjectException, IncorrectObjectTypeException,
 			IOException {
 		BitmapBuilder haveBitmap = bitmapWalker.findObjects(have, null, true);
@@ -1858,6 +1886,10 @@ public class PackWriter {
 			cachedPacks.addAll(
 					reuseSupport.getCachedPacksAndUpdate(needBitmap));
 
+		if (thin && !have.isEmpty()
+				&& needBitmap.cardinality() <= MAX_THIN_BITMAP_PATH_WALK)
+			addObjectsWithPaths(needBitmap, countingMonitor);
+
 		for (BitmapObject obj : needBitmap) {
 			ObjectId objectId = obj.getObjectId();
 			if (exclude(objectId)) {
@@ -1871,6 +1903,59 @@ public class PackWriter {
 			haveObjects = haveBitmap;
 	}
 
+	/**
+	 * Add the trees and blobs of a small bitmap result with their paths.
+	 * <p>
+	 * Only the commits in {@code need} are walked; their parents outside of
+	 * it are what the receiver has, and their trees supply the edge objects
+	 * new objects may be delta compressed against. Objects added here are
+	 * removed from {@code need}.
+	 */
+	private void addObjectsWithPaths(BitmapBuilder need,
+			ProgressMonitor countingMonitor) throws IOException {
+		// The bitmap walk left its flags behind; start from a clean walker.
+		ObjectWalk walker = new ObjectWalk(reader);
+		walker.setRevFilter(RevFilter.ALL);
+		walker.sort(RevSort.NONE);
+
+		final int maxBases = config.getDeltaSearchWindowSize();
+		Set<RevTree> baseTrees = new HashSet<RevTree>();
+		for (BitmapObject obj : need) {
+			if (obj.getType() != OBJ_COMMIT)
+				continue;
+			RevCommit c = walker.parseCommit(obj.getObjectId());
+			walker.markStart(c);
+			for (RevCommit p : c.getParents()) {
+				if (need.contains(p))
+					continue;
+				walker.parseHeaders(p);
+				walker.markUninteresting(p);
+				if (baseTrees.size() <= maxBases)
+					baseTrees.add(p.getTree());
+			}
+		}
+		while (walker.next() != null) {
+			// Commits are added from the bitmap; only their trees are needed.
+		}
+
+		BaseSearch bases = new BaseSearch(countingMonitor, baseTrees,
+				objectsMap, edgeObjects, reader);
+		RevObject o;
+		while ((o = walker.nextObject()) != null) {
+			if (o.has(RevFlag.UNINTERESTING) || !need.contains(o))
+				continue;
+			if (exclude(o))
+				continue;
+
+			int pathHash = walker.getPathHashCode();
+			bases.addBase(o.getType(), walker.getPathBuffer(),
+					walker.getPathLength(), pathHash);
+			addObject(o, pathHash);
+			need.remove(o);
+			countingMonitor.update(1);
+		}
+	}
+
 	private static void pruneEdgesFromObjectList(List<ObjectToPack> list) {
 		final int size = list.size();
 		int src = 0;
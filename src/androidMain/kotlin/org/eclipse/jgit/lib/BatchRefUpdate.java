@@ -85,6 +85,9 @@ public class BatchRefUpdate {
 	/** Should the result value be appended to {@link #refLogMessage}. */
 	private boolean refLogIncludeResult;
 
+	/** Should all commands fail if any one of them fails? */
+	private boolean atomic;
+
 	/**
 	 * Initialize a new batch update.
 	 *
@@ -195,6 +198,33 @@ public class BatchRefUpdate {
 		return refLogMessage == null;
 	}
 
+	/**
+	 * @return true if every command fails when any one of them cannot be
+	 *         applied.
+	 * @since 3.8
+	 */
+	public boolean isAtomic() {
+		return atomic;
+	}
+
+	/**
+	 * Request all-or-nothing execution of this batch.
+	 * <p>
+	 * Only honored by databases that
+	 * {@link RefDatabase#performsAtomicTransactions() perform atomic
+	 * transactions}. By default a rejected command does not prevent the
+	 * others from being applied.
+	 *
+	 * @param atomic
+	 *            true to fail every command if any one of them fails.
+	 * @return {@code this}.
+	 * @since 3.8
+	 */
+	public BatchRefUpdate setAtomic(boolean atomic) {
+		this.atomic = atomic;
+		return this;
+	}
+
 	/** @return commands this update will process. */
 	public List<ReceiveCommand> getCommands() {
 		return Collections.unmodifiableList(commands);
@@ -138,6 +138,12 @@ public class ConfigConstants {
 	/** The "blockSize" key */
 	public static final String CONFIG_KEY_BLOCK_SIZE = "blockSize";
 
+	/**
+	 * The "offHeap" key
+	 * @since 3.8
+	 */
+	public static final String CONFIG_KEY_OFF_HEAP = "offHeap";
+
 	/** The "deltaBaseCacheLimit" key */
 	public static final String CONFIG_KEY_DELTA_BASE_CACHE_LIMIT = "deltaBaseCacheLimit";
 
@@ -150,6 +156,12 @@ public class ConfigConstants {
 	/** The "streamFileThreshold" key */
 	public static final String CONFIG_KEY_STREAM_FILE_TRESHOLD = "streamFileThreshold";
 
+	/**
+	 * The "readAheadBlocks" key
+	 * @since 3.8
+	 */
+	public static final String CONFIG_KEY_READ_AHEAD_BLOCKS = "readAheadBlocks";
+
 	/** The "remote" key */
 	public static final String CONFIG_KEY_REMOTE = "remote";
 
@@ -231,6 +243,30 @@ public class ConfigConstants {
 	/** The "precomposeunicode" key */
 	public static final String CONFIG_KEY_PRECOMPOSEUNICODE = "precomposeunicode";
 
+	/**
+	 * The "untrackedCache" key
+	 * @since 3.8
+	 */
+	public static final String CONFIG_KEY_UNTRACKED_CACHE = "untrackedCache";
+
+	/**
+	 * The "splitIndex" key
+	 * @since 3.8
+	 */
+	public static final String CONFIG_KEY_SPLIT_INDEX = "splitIndex";
+
+	/**
+	 * The "lazyIndex" key
+	 * @since 3.8
+	 */
+	public static final String CONFIG_KEY_LAZY_INDEX = "lazyIndex";
+
+	/**
+	 * The "packInserts" key
+	 * @since 3.8
+	 */
+	public static final String CONFIG_KEY_PACK_INSERTS = "packInserts";
+
 	/** The "pruneexpire" key */
 	public static final String CONFIG_KEY_PRUNEEXPIRE = "pruneexpire";
 
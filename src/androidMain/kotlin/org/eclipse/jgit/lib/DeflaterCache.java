@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.eclipse.jgit.lib;
+
+import java.util.zip.Deflater;
+
+/**
+ * Creates zlib based deflaters as necessary for object compression.
+ * <p>
+ * Released deflaters are kept in a few stripes, each used by a subset of the
+ * threads, so that threads rarely contend for the same lock.
+ *
+ * @since 3.8
+ */
+public class DeflaterCache {
+	private static final int SZ = 4;
+
+	private static final Stripe[] stripes;
+
+	static {
+		int n = 1;
+		int cpus = Runtime.getRuntime().availableProcessors();
+		while (n < cpus && n < 32)
+			n <<= 1;
+		stripes = new Stripe[n];
+		for (int i = 0; i < n; i++)
+			stripes[i] = new Stripe();
+	}
+
+	/**
+	 * Obtain a Deflater for compression.
+	 * <p>
+	 * Deflaters obtained through this cache should be returned (if possible) by
+	 * {@link #release(Deflater)} to avoid garbage collection and reallocation.
+	 *
+	 * @param level
+	 *            compression level, as for {@link Deflater#setLevel(int)}.
+	 * @return an available deflater. Never null.
+	 */
+	public static Deflater get(final int level) {
+		final Deflater r = stripe().get();
+		if (r == null)
+			return new Deflater(level);
+		r.setLevel(level);
+		return r;
+	}
+
+	/**
+	 * Release a deflater previously obtained from this cache.
+	 *
+	 * @param d
+	 *            the deflater to return. May be null, in which case this method
+	 *            does nothing.
+	 */
+	public static void release(final Deflater d) {
+		if (d != null) {
+			d.reset();
+			if (!stripe().release(d))
+				d.end();
+		}
+	}
+
+	/**
+	 * @return number of deflaters {@link #get(int)} created, as none was
+	 *         available for reuse.
+	 */
+	public static long getCreatedCount() {
+		long n = 0;
+		for (Stripe s : stripes)
+			n += s.getCreatedCount();
+		return n;
+	}
+
+	/** @return number of deflaters {@link #get(int)} returned for reuse. */
+	public static long getReusedCount() {
+		long n = 0;
+		for (Stripe s : stripes)
+			n += s.getReusedCount();
+		return n;
+	}
+
+	private static Stripe stripe() {
+		final long id = Thread.currentThread().getId();
+		return stripes[(int) id & (stripes.length - 1)];
+	}
+
+	private static class Stripe {
+		private final Deflater[] cache = new Deflater[SZ];
+
+		private int count;
+
+		private long created;
+
+		private long reused;
+
+		synchronized Deflater get() {
+			if (count > 0) {
+				final Deflater r = cache[--count];
+				cache[count] = null;
+				reused++;
+				return r;
+			}
+			created++;
+			return null;
+		}
+
+		synchronized boolean release(final Deflater d) {
+			if (count < SZ) {
+				cache[count++] = d;
+				return true;
+			}
+			return false;
+		}
+
+		synchronized long getCreatedCount() {
+			return created;
+		}
+
+		synchronized long getReusedCount() {
+			return reused;
+		}
+	}
+
+	private DeflaterCache() {
+		throw new UnsupportedOperationException();
+	}
+}
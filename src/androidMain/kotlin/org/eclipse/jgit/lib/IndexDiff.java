@@ -48,17 +48,24 @@
 package org.eclipse.jgit.lib;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.eclipse.jgit.dircache.DirCache;
 import org.eclipse.jgit.dircache.DirCacheEntry;
 import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.dircache.UntrackedCache;
 import org.eclipse.jgit.errors.ConfigInvalidException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
@@ -74,6 +81,7 @@ import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.WorkingTreeIterator;
 import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
 import org.eclipse.jgit.treewalk.filter.IndexDiffFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
 import org.eclipse.jgit.treewalk.filter.SkipWorkTreeFilter;
 import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
@@ -237,6 +245,9 @@ public class IndexDiff {
 		}
 	}
 
+	/** Indexes with fewer entries are compared on the calling thread. */
+	private static final int MIN_PARALLEL_ENTRIES = 5000;
+
 	private final static int TREE = 0;
 
 	private final static int INDEX = 1;
@@ -271,7 +282,7 @@ public class IndexDiff {
 
 	private DirCache dirCache;
 
-	private IndexDiffFilter indexDiffFilter;
+	private Set<String> untrackedFolders;
 
 	private Map<String, IndexDiff> submoduleIndexDiffs = new HashMap<String, IndexDiff>();
 
@@ -279,6 +290,10 @@ public class IndexDiff {
 
 	private Map<FileMode, Set<String>> fileModes = new HashMap<FileMode, Set<String>>();
 
+	private Executor executor;
+
+	private UntrackedCache untrackedCache;
+
 	/**
 	 * Construct an IndexDiff
 	 *
@@ -315,6 +330,18 @@ public class IndexDiff {
 		this.initialWorkingTreeIterator = workingTreeIterator;
 	}
 
+	/** Copy the settings of another diff, to compute a part of it. */
+	private IndexDiff(IndexDiff parent) {
+		this.repository = parent.repository;
+		this.tree = parent.tree;
+		this.initialWorkingTreeIterator = null;
+		this.filter = parent.filter;
+		this.ignoreSubmoduleMode = parent.ignoreSubmoduleMode;
+		this.dirCache = parent.dirCache;
+		this.ignored = new HashSet<String>();
+		this.untrackedFolders = new HashSet<String>();
+	}
+
 	/**
 	 * @param mode
 	 *            defines how modifications in submodules are treated
@@ -362,6 +389,24 @@ public class IndexDiff {
 		this.filter = filter;
 	}
 
+	/**
+	 * Set the executor comparing the working directory in parallel.
+	 * <p>
+	 * The working directory is split by top-level directory, each compared
+	 * with the index and the tree by its own iterator on this executor, while
+	 * the files at the top level are compared on the calling thread. By
+	 * default a pool with one thread per additional processor is created for
+	 * indexes large enough to benefit. Only a working directory read by a
+	 * plain {@link FileTreeIterator} is compared in parallel.
+	 *
+	 * @param executor
+	 *            executor to use; null to use the default.
+	 * @since 3.8
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
 	/**
 	 * Run the diff operation. Until this is called, all lists will be empty.
 	 * Use {@link #diff(ProgressMonitor, int, int, String)} if a progress
@@ -400,6 +445,127 @@ public class IndexDiff {
 			throws IOException {
 		dirCache = repository.readDirCache();
 
+		int total = 0;
+		if (monitor != null) {
+			// Get the maximum size of the work tree and index
+			// and add some (quite arbitrary)
+			if (estIndexSize == 0)
+				estIndexSize = dirCache.getEntryCount();
+			total = Math.max(estIndexSize * 10 / 9,
+					estWorkTreeSize * 10 / 9);
+			monitor.beginTask(title, total);
+		}
+
+		fileModes.clear();
+		ignored = new HashSet<String>();
+		untrackedFolders = new HashSet<String>();
+		untrackedCache = null;
+		if (isDefaultWorkingTreeIterator()
+				&& repository.getConfig().getBoolean(
+						ConfigConstants.CONFIG_CORE_SECTION, null,
+						ConfigConstants.CONFIG_KEY_UNTRACKED_CACHE, false)) {
+			untrackedCache = dirCache.getUntrackedCache();
+			if (untrackedCache == null)
+				untrackedCache = new UntrackedCache();
+			((FileTreeIterator) initialWorkingTreeIterator)
+					.setUntrackedCache(untrackedCache);
+		}
+		Executor pool = getParallelExecutor();
+		if (pool == null)
+			diffTree(initialWorkingTreeIterator, null, monitor, total);
+		else {
+			try {
+				diffParallel(pool, monitor, total);
+			} finally {
+				if (pool != executor)
+					((ExecutorService) pool).shutdown();
+			}
+		}
+		if (untrackedCache != null && untrackedCache.isModified())
+			saveUntrackedCache();
+
+		if (ignoreSubmoduleMode != IgnoreSubmoduleMode.ALL) {
+			IgnoreSubmoduleMode localIgnoreSubmoduleMode = ignoreSubmoduleMode;
+			SubmoduleWalk smw = SubmoduleWalk.forIndex(repository);
+			while (smw.next()) {
+				try {
+					if (localIgnoreSubmoduleMode == null)
+						localIgnoreSubmoduleMode = smw.getModulesIgnore();
+					if (IgnoreSubmoduleMode.ALL
+							.equals(localIgnoreSubmoduleMode))
+						continue;
+				} catch (ConfigInvalidException e) {
+					IOException e1 = new IOException(
+							"Found invalid ignore param for submodule "
+									+ smw.getPath());
+					e1.initCause(e);
+					throw e1;
+				}
+				Repository subRepo = smw.getRepository();
+				if (subRepo != null) {
+					try {
+						ObjectId subHead = subRepo.resolve("HEAD"); //$NON-NLS-1$
+						if (subHead != null
+								&& !subHead.equals(smw.getObjectId()))
+							modified.add(smw.getPath());
+						else if (ignoreSubmoduleMode != IgnoreSubmoduleMode.DIRTY) {
+							IndexDiff smid = submoduleIndexDiffs.get(smw
+									.getPath());
+							if (smid == null) {
+								smid = new IndexDiff(subRepo,
+										smw.getObjectId(),
+										wTreeIt.getWorkingTreeIterator(subRepo));
+								submoduleIndexDiffs.put(smw.getPath(), smid);
+							}
+							if (smid.diff()) {
+								if (ignoreSubmoduleMode == IgnoreSubmoduleMode.UNTRACKED
+										&& smid.getAdded().isEmpty()
+										&& smid.getChanged().isEmpty()
+										&& smid.getConflicting().isEmpty()
+										&& smid.getMissing().isEmpty()
+										&& smid.getModified().isEmpty()
+										&& smid.getRemoved().isEmpty()) {
+									continue;
+								}
+								modified.add(smw.getPath());
+							}
+						}
+					} finally {
+						subRepo.close();
+					}
+				}
+			}
+
+		}
+
+		// consume the remaining work
+		if (monitor != null)
+			monitor.endTask();
+
+		if (added.isEmpty() && changed.isEmpty() && removed.isEmpty()
+				&& missing.isEmpty() && modified.isEmpty()
+				&& untracked.isEmpty())
+			return false;
+		else
+			return true;
+	}
+
+	/**
+	 * Walk the tree, the index and the working directory, recording the
+	 * differences found into this object.
+	 *
+	 * @param workTree
+	 *            iterator over the working directory.
+	 * @param paths
+	 *            additional filter limiting the walk; may be null.
+	 * @param monitor
+	 *            for reporting progress, may be null.
+	 * @param total
+	 *            estimated total work of {@code monitor}.
+	 * @throws IOException
+	 */
+	private void diffTree(WorkingTreeIterator workTree, TreeFilter paths,
+			ProgressMonitor monitor, int total) throws IOException {
 		TreeWalk treeWalk = new TreeWalk(repository);
 		treeWalk.setRecursive(true);
 		// add the trees (tree, dirchache, workdir)
@@ -408,27 +574,19 @@ public class IndexDiff {
 		else
 			treeWalk.addTree(new EmptyTreeIterator());
 		treeWalk.addTree(new DirCacheIterator(dirCache));
-		treeWalk.addTree(initialWorkingTreeIterator);
-		Collection<TreeFilter> filters = new ArrayList<TreeFilter>(4);
+		treeWalk.addTree(workTree);
+		Collection<TreeFilter> filters = new ArrayList<TreeFilter>(5);
 
-		if (monitor != null) {
-			// Get the maximum size of the work tree and index
-			// and add some (quite arbitrary)
-			if (estIndexSize == 0)
-				estIndexSize = dirCache.getEntryCount();
-			int total = Math.max(estIndexSize * 10 / 9,
-					estWorkTreeSize * 10 / 9);
-			monitor.beginTask(title, total);
+		if (paths != null)
+			filters.add(paths);
+		if (monitor != null)
 			filters.add(new ProgressReportingFilter(monitor, total));
-		}
-
 		if (filter != null)
-			filters.add(filter);
+			filters.add(paths != null ? filter.clone() : filter);
 		filters.add(new SkipWorkTreeFilter(INDEX));
-		indexDiffFilter = new IndexDiffFilter(INDEX, WORKDIR);
+		IndexDiffFilter indexDiffFilter = new IndexDiffFilter(INDEX, WORKDIR);
 		filters.add(indexDiffFilter);
 		treeWalk.setFilter(AndTreeFilter.create(filters));
-		fileModes.clear();
 		while (treeWalk.next()) {
 			AbstractTreeIterator treeIterator = treeWalk.getTree(TREE,
 					AbstractTreeIterator.class);
@@ -514,71 +672,186 @@ public class IndexDiff {
 			}
 		}
 
-		if (ignoreSubmoduleMode != IgnoreSubmoduleMode.ALL) {
-			IgnoreSubmoduleMode localIgnoreSubmoduleMode = ignoreSubmoduleMode;
-			SubmoduleWalk smw = SubmoduleWalk.forIndex(repository);
-			while (smw.next()) {
-				try {
-					if (localIgnoreSubmoduleMode == null)
-						localIgnoreSubmoduleMode = smw.getModulesIgnore();
-					if (IgnoreSubmoduleMode.ALL
-							.equals(localIgnoreSubmoduleMode))
-						continue;
-				} catch (ConfigInvalidException e) {
-					IOException e1 = new IOException(
-							"Found invalid ignore param for submodule "
-									+ smw.getPath());
-					e1.initCause(e);
-					throw e1;
-				}
-				Repository subRepo = smw.getRepository();
-				if (subRepo != null) {
+		ignored.addAll(indexDiffFilter.getIgnoredPaths());
+		untrackedFolders.addAll(indexDiffFilter.getUntrackedFolders());
+	}
+
+	/**
+	 * @return executor to compare top-level directories on, or null to
+	 *         compare everything on the calling thread.
+	 */
+	private Executor getParallelExecutor() {
+		// Workers need a fresh iterator each, which can only be created
+		// for the default one.
+		if (!isDefaultWorkingTreeIterator())
+			return null;
+		if (executor != null)
+			return executor;
+		int cpus = Runtime.getRuntime().availableProcessors();
+		if (cpus < 2 || dirCache.getEntryCount() < MIN_PARALLEL_ENTRIES)
+			return null;
+		return Executors.newFixedThreadPool(cpus - 1);
+	}
+
+	private boolean isDefaultWorkingTreeIterator() {
+		return initialWorkingTreeIterator != null
+				&& initialWorkingTreeIterator.getClass() == FileTreeIterator.class
+				&& ((FileTreeIterator) initialWorkingTreeIterator)
+						.getDirectory().equals(repository.getWorkTree());
+	}
+
+	/**
+	 * Store the updated untracked cache in the index. This is only an
+	 * optimization for the next comparison, so it is skipped if the index
+	 * cannot be written right now.
+	 */
+	private void saveUntrackedCache() {
+		try {
+			DirCache dc = DirCache.lock(repository.getIndexFile(),
+					repository.getFS());
+			try {
+				dc.setUntrackedCache(untrackedCache);
+				dc.write();
+				dc.commit();
+			} finally {
+				dc.unlock();
+			}
+		} catch (IOException e) {
+			// The index is locked by someone else or cannot be written;
+			// the next comparison reads the directories again.
+		}
+	}
+
+	private void diffParallel(Executor pool, ProgressMonitor monitor,
+			final int total) throws IOException {
+		List<String> dirs = topLevelDirectories();
+		final ThreadSafeProgressMonitor pm = new ThreadSafeProgressMonitor(
+				monitor != null ? monitor : NullProgressMonitor.INSTANCE);
+		final ProgressMonitor taskMonitor = monitor != null ? pm : null;
+		final List<Throwable> errors = Collections
+				.synchronizedList(new ArrayList<Throwable>());
+		final List<IndexDiff> parts = Collections
+				.synchronizedList(new ArrayList<IndexDiff>(dirs.size()));
+
+		// Prepare the index tree once; iterators then only read it.
+		dirCache.getCacheTree(true);
+		pm.startWorkers(dirs.size());
+		for (final String dir : dirs) {
+			Runnable task = new Runnable() {
+				public void run() {
 					try {
-						ObjectId subHead = subRepo.resolve("HEAD"); //$NON-NLS-1$
-						if (subHead != null
-								&& !subHead.equals(smw.getObjectId()))
-							modified.add(smw.getPath());
-						else if (ignoreSubmoduleMode != IgnoreSubmoduleMode.DIRTY) {
-							IndexDiff smid = submoduleIndexDiffs.get(smw
-									.getPath());
-							if (smid == null) {
-								smid = new IndexDiff(subRepo,
-										smw.getObjectId(),
-										wTreeIt.getWorkingTreeIterator(subRepo));
-								submoduleIndexDiffs.put(smw.getPath(), smid);
-							}
-							if (smid.diff()) {
-								if (ignoreSubmoduleMode == IgnoreSubmoduleMode.UNTRACKED
-										&& smid.getAdded().isEmpty()
-										&& smid.getChanged().isEmpty()
-										&& smid.getConflicting().isEmpty()
-										&& smid.getMissing().isEmpty()
-										&& smid.getModified().isEmpty()
-										&& smid.getRemoved().isEmpty()) {
-									continue;
-								}
-								modified.add(smw.getPath());
-							}
-						}
+						IndexDiff part = new IndexDiff(IndexDiff.this);
+						FileTreeIterator it = new FileTreeIterator(repository);
+						if (untrackedCache != null)
+							it.setUntrackedCache(untrackedCache);
+						part.diffTree(it, PathFilter.create(dir), taskMonitor,
+								total);
+						parts.add(part);
+					} catch (Throwable failure) {
+						errors.add(failure);
 					} finally {
-						subRepo.close();
+						pm.endWorker();
 					}
 				}
+			};
+			try {
+				pool.execute(task);
+			} catch (RejectedExecutionException e) {
+				task.run();
 			}
+		}
 
+		diffTree(initialWorkingTreeIterator, new TopLevelFilter(
+				new HashSet<String>(dirs)), taskMonitor, total);
+		try {
+			pm.waitForCompletion();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException();
 		}
 
-		// consume the remaining work
-		if (monitor != null)
-			monitor.endTask();
+		if (!errors.isEmpty()) {
+			Throwable err = errors.get(0);
+			if (err instanceof Error)
+				throw (Error) err;
+			if (err instanceof RuntimeException)
+				throw (RuntimeException) err;
+			if (err instanceof IOException)
+				throw (IOException) err;
+			IOException fail = new IOException(err.getMessage());
+			fail.initCause(err);
+			throw fail;
+		}
+		for (IndexDiff part : parts) {
+			added.addAll(part.added);
+			changed.addAll(part.changed);
+			removed.addAll(part.removed);
+			missing.addAll(part.missing);
+			modified.addAll(part.modified);
+			untracked.addAll(part.untracked);
+			conflicts.putAll(part.conflicts);
+			ignored.addAll(part.ignored);
+			untrackedFolders.addAll(part.untrackedFolders);
+			for (Map.Entry<FileMode, Set<String>> e : part.fileModes
+					.entrySet()) {
+				Set<String> values = fileModes.get(e.getKey());
+				if (values == null)
+					fileModes.put(e.getKey(), e.getValue());
+				else
+					values.addAll(e.getValue());
+			}
+		}
+	}
 
-		ignored = indexDiffFilter.getIgnoredPaths();
-		if (added.isEmpty() && changed.isEmpty() && removed.isEmpty()
-				&& missing.isEmpty() && modified.isEmpty()
-				&& untracked.isEmpty())
-			return false;
+	/**
+	 * @return names of the top-level directories of the tree, the index or
+	 *         the working directory.
+	 * @throws IOException
+	 */
+	private List<String> topLevelDirectories() throws IOException {
+		TreeWalk tw = new TreeWalk(repository);
+		if (tree != null)
+			tw.addTree(tree);
 		else
-			return true;
+			tw.addTree(new EmptyTreeIterator());
+		tw.addTree(new DirCacheIterator(dirCache));
+		tw.addTree(new FileTreeIterator(repository));
+		if (filter != null)
+			tw.setFilter(filter.clone());
+		List<String> dirs = new ArrayList<String>();
+		while (tw.next()) {
+			for (int i = 0; i < tw.getTreeCount(); i++) {
+				if (FileMode.TREE.equals(tw.getRawMode(i))) {
+					dirs.add(tw.getNameString());
+					break;
+				}
+			}
+		}
+		return dirs;
+	}
+
+	/** Skips the given names at the top level. */
+	private static final class TopLevelFilter extends TreeFilter {
+		private final Set<String> names;
+
+		TopLevelFilter(Set<String> names) {
+			this.names = names;
+		}
+
+		@Override
+		public boolean include(TreeWalk walker) {
+			return walker.getDepth() > 0
+					|| !names.contains(walker.getNameString());
+		}
+
+		@Override
+		public boolean shouldBeRecursive() {
+			return false;
+		}
+
+		@Override
+		public TreeFilter clone() {
+			return this;
+		}
 	}
 
 	private boolean isEntryGitLink(AbstractTreeIterator ti) {
@@ -688,8 +961,8 @@ public class IndexDiff {
 	 * @return list of folders containing only untracked files/folders
 	 */
 	public Set<String> getUntrackedFolders() {
-		return ((indexDiffFilter == null) ? Collections.<String> emptySet()
-				: new HashSet<String>(indexDiffFilter.getUntrackedFolders()));
+		return ((untrackedFolders == null) ? Collections.<String> emptySet()
+				: new HashSet<String>(untrackedFolders));
 	}
 
 	/**
@@ -46,16 +46,25 @@ package org.eclipse.jgit.lib;
 
 import java.util.zip.Inflater;
 
-/** Creates zlib based inflaters as necessary for object decompression. */
+/**
+ * Creates zlib based inflaters as necessary for object decompression.
+ * <p>
+ * Released inflaters are kept in a few stripes, each used by a subset of the
+ * threads, so that threads rarely contend for the same lock.
+ */
 public class InflaterCache {
 	private static final int SZ = 4;
 
-	private static final Inflater[] inflaterCache;
-
-	private static int openInflaterCount;
+	private static final Stripe[] stripes;
 
 	static {
-		inflaterCache = new Inflater[SZ];
+		int n = 1;
+		int cpus = Runtime.getRuntime().availableProcessors();
+		while (n < cpus && n < 32)
+			n <<= 1;
+		stripes = new Stripe[n];
+		for (int i = 0; i < n; i++)
+			stripes[i] = new Stripe();
 	}
 
 	/**
@@ -67,19 +76,10 @@ public class InflaterCache {
 	 * @return an available inflater. Never null.
 	 */
 	public static Inflater get() {
-		final Inflater r = getImpl();
+		final Inflater r = stripe().get();
 		return r != null ? r : new Inflater(false);
 	}
 
-	private synchronized static Inflater getImpl() {
-		if (openInflaterCount > 0) {
-			final Inflater r = inflaterCache[--openInflaterCount];
-			inflaterCache[openInflaterCount] = null;
-			return r;
-		}
-		return null;
-	}
-
 	/**
 	 * Release an inflater previously obtained from this cache.
 	 *
@@ -90,17 +90,74 @@ public class InflaterCache {
 	public static void release(final Inflater i) {
 		if (i != null) {
 			i.reset();
-			if (releaseImpl(i))
+			if (!stripe().release(i))
 				i.end();
 		}
 	}
 
-	private static synchronized boolean releaseImpl(final Inflater i) {
-		if (openInflaterCount < SZ) {
-			inflaterCache[openInflaterCount++] = i;
+	/**
+	 * @return number of inflaters {@link #get()} created, as none was
+	 *         available for reuse.
+	 * @since 3.8
+	 */
+	public static long getCreatedCount() {
+		long n = 0;
+		for (Stripe s : stripes)
+			n += s.getCreatedCount();
+		return n;
+	}
+
+	/**
+	 * @return number of inflaters {@link #get()} returned for reuse.
+	 * @since 3.8
+	 */
+	public static long getReusedCount() {
+		long n = 0;
+		for (Stripe s : stripes)
+			n += s.getReusedCount();
+		return n;
+	}
+
+	private static Stripe stripe() {
+		final long id = Thread.currentThread().getId();
+		return stripes[(int) id & (stripes.length - 1)];
+	}
+
+	private static class Stripe {
+		private final Inflater[] cache = new Inflater[SZ];
+
+		private int count;
+
+		private long created;
+
+		private long reused;
+
+		synchronized Inflater get() {
+			if (count > 0) {
+				final Inflater r = cache[--count];
+				cache[count] = null;
+				reused++;
+				return r;
+			}
+			created++;
+			return null;
+		}
+
+		synchronized boolean release(final Inflater i) {
+			if (count < SZ) {
+				cache[count++] = i;
+				return true;
+			}
 			return false;
 		}
-		return true;
+
+		synchronized long getCreatedCount() {
+			return created;
+		}
+
+		synchronized long getReusedCount() {
+			return reused;
+		}
 	}
 
 	private InflaterCache() {
@@ -67,6 +67,8 @@ public class WindowCacheConfig {
 
 	private int streamFileThreshold;
 
+	private int packedGitPrefetchThreads;
+
 	/** Create a default configuration. */
 	public WindowCacheConfig() {
 		packedGitOpenFiles = 128;
@@ -180,6 +182,27 @@ public class WindowCacheConfig {
 		streamFileThreshold = newLimit;
 	}
 
+	/**
+	 * @return number of threads loading pack windows ahead of a batched
+	 *         object lookup. 0 (the default) disables prefetching.
+	 * @since 3.8
+	 */
+	public int getPackedGitPrefetchThreads() {
+		return packedGitPrefetchThreads;
+	}
+
+	/**
+	 * @param threads
+	 *            number of threads loading pack windows ahead of a batched
+	 *            object lookup such as
+	 *            {@link org.eclipse.jgit.lib.ObjectReader#open(Iterable, boolean)}
+	 *            . 0 disables prefetching.
+	 * @since 3.8
+	 */
+	public void setPackedGitPrefetchThreads(final int threads) {
+		packedGitPrefetchThreads = Math.max(0, threads);
+	}
+
 	/**
 	 * Update properties by setting fields from the configuration.
 	 * <p>
@@ -202,6 +225,8 @@ public class WindowCacheConfig {
 				"core", null, "packedgitmmap", isPackedGitMMAP())); //$NON-NLS-1$ //$NON-NLS-2$
 		setDeltaBaseCacheLimit(rc.getInt(
 				"core", null, "deltabasecachelimit", getDeltaBaseCacheLimit())); //$NON-NLS-1$ //$NON-NLS-2$
+		setPackedGitPrefetchThreads(rc.getInt(
+				"core", null, "packedgitprefetchthreads", getPackedGitPrefetchThreads())); //$NON-NLS-1$ //$NON-NLS-2$
 
 		long maxMem = Runtime.getRuntime().maxMemory();
 		long sft = rc.getLong(
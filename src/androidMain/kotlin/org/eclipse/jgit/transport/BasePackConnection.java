@@ -46,13 +46,23 @@
 
 package org.eclipse.jgit.transport;
 
+import static org.eclipse.jgit.transport.GitProtocolConstants.COMMAND_LS_REFS;
+import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_PEEL;
+import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_REF_PREFIX;
+import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_SYMREFS;
+import static org.eclipse.jgit.transport.GitProtocolConstants.VERSION_2;
+
 import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.text.MessageFormat;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.jgit.errors.NoRemoteRepositoryException;
@@ -64,6 +74,7 @@ import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectIdRef;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.SymbolicRef;
 import org.eclipse.jgit.util.io.InterruptTimer;
 import org.eclipse.jgit.util.io.TimeoutInputStream;
 import org.eclipse.jgit.util.io.TimeoutOutputStream;
@@ -120,10 +131,29 @@ abstract class BasePackConnection extends BaseConnection {
 	/** Extra objects the remote has, but which aren't offered as refs. */
 	protected final Set<ObjectId> additionalHaves = new HashSet<ObjectId>();
 
+	/** Ref name prefixes to list over protocol v2; null for all refs. */
+	private final Collection<String> refPrefixes;
+
+	/** True if the remote answered with a protocol v2 advertisement. */
+	private boolean protocolV2;
+
+	/** Bytes written to the remote, across all streams given to init. */
+	private long bytesSent;
+
+	/** Bytes read from the remote, across all streams given to init. */
+	private long bytesReceived;
+
 	BasePackConnection(final PackTransport packTransport) {
+		this(packTransport, null);
+	}
+
+	BasePackConnection(final PackTransport packTransport,
+			Collection<String> refPrefixes) {
 		transport = (Transport) packTransport;
 		local = transport.local;
 		uri = transport.uri;
+		this.refPrefixes = refPrefixes == null || refPrefixes.isEmpty() ? null
+				: refPrefixes;
 	}
 
 	/**
@@ -150,8 +180,8 @@ abstract class BasePackConnection extends BaseConnection {
 			myOut = timeoutOut;
 		}
 
-		in = myIn;
-		out = myOut;
+		in = new CountingIn(myIn);
+		out = new CountingOut(myOut);
 
 		pckIn = new PacketLineIn(in);
 		pckOut = new PacketLineOut(out);
@@ -207,6 +237,13 @@ abstract class BasePackConnection extends BaseConnection {
 				throw new RemoteRepositoryException(uri, line.substring(4));
 			}
 
+			if (avail.isEmpty() && line.equals(VERSION_2)) {
+				protocolV2 = true;
+				readCapabilitiesV2();
+				lsRefs(avail);
+				break;
+			}
+
 			if (avail.isEmpty()) {
 				final int nul = line.indexOf('\0');
 				if (nul >= 0) {
@@ -250,6 +287,128 @@ abstract class BasePackConnection extends BaseConnection {
 		available(avail);
 	}
 
+	private void readCapabilitiesV2() throws IOException {
+		String line;
+		while ((line = pckIn.readString()) != PacketLineIn.END)
+			remoteCapablities.add(line);
+	}
+
+	private void lsRefs(LinkedHashMap<String, Ref> avail) throws IOException {
+		pckOut.writeString("command=" + COMMAND_LS_REFS + '\n'); //$NON-NLS-1$
+		pckOut.writeDelim();
+		pckOut.writeString(OPTION_SYMREFS + '\n');
+		pckOut.writeString(OPTION_PEEL + '\n');
+		if (refPrefixes != null) {
+			for (String prefix : refPrefixes)
+				pckOut.writeString(OPTION_REF_PREFIX + ' ' + prefix + '\n');
+		}
+		pckOut.end();
+
+		LinkedHashMap<String, String> symrefs = new LinkedHashMap<String, String>();
+		String line;
+		while ((line = pckIn.readString()) != PacketLineIn.END) {
+			if (line.startsWith("ERR ")) //$NON-NLS-1$
+				throw new RemoteRepositoryException(uri, line.substring(4));
+
+			String[] fields = line.split(" "); //$NON-NLS-1$
+			if (fields.length < 2)
+				throw new PackProtocolException(uri, MessageFormat.format(
+						JGitText.get().expectedGot, "<oid> <name>", line)); //$NON-NLS-1$
+			ObjectId id = ObjectId.fromString(fields[0]);
+			String name = fields[1];
+			ObjectId peeled = null;
+			for (int i = 2; i < fields.length; i++) {
+				if (fields[i].startsWith("symref-target:")) //$NON-NLS-1$
+					symrefs.put(name, fields[i].substring(14));
+				else if (fields[i].startsWith("peeled:")) //$NON-NLS-1$
+					peeled = ObjectId.fromString(fields[i].substring(7));
+			}
+
+			Ref ref;
+			if (peeled != null)
+				ref = new ObjectIdRef.PeeledTag(Ref.Storage.NETWORK, name, id,
+						peeled);
+			else
+				ref = new ObjectIdRef.PeeledNonTag(Ref.Storage.NETWORK, name,
+						id);
+			if (avail.put(name, ref) != null)
+				throw duplicateAdvertisement(name);
+		}
+
+		for (Map.Entry<String, String> e : symrefs.entrySet()) {
+			Ref src = avail.get(e.getKey());
+			Ref dst = avail.get(e.getValue());
+			if (dst == null)
+				dst = new ObjectIdRef.PeeledNonTag(Ref.Storage.NETWORK,
+						e.getValue(), src.getObjectId());
+			avail.put(e.getKey(), new SymbolicRef(e.getKey(), dst));
+		}
+	}
+
+	/**
+	 * @return true if the remote speaks protocol v2 on this connection.
+	 */
+	boolean isProtocolV2() {
+		return protocolV2;
+	}
+
+	/** @return bytes written to the remote so far. */
+	long getBytesSent() {
+		return bytesSent;
+	}
+
+	/** @return bytes read from the remote so far. */
+	long getBytesReceived() {
+		return bytesReceived;
+	}
+
+	private class CountingIn extends FilterInputStream {
+		CountingIn(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0)
+				bytesReceived++;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0)
+				bytesReceived += n;
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long s = super.skip(n);
+			bytesReceived += s;
+			return s;
+		}
+	}
+
+	private class CountingOut extends FilterOutputStream {
+		CountingOut(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			bytesSent++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			bytesSent += len;
+		}
+	}
+
 	/**
 	 * Create an exception to indicate problems finding a remote repository. The
 	 * caller is expected to throw the returned exception.
@@ -46,6 +46,7 @@
 package org.eclipse.jgit.transport;
 
 import static org.eclipse.jgit.lib.RefDatabase.ALL;
+import static org.eclipse.jgit.transport.GitProtocolConstants.COMMAND_FETCH;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -58,6 +59,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.jgit.errors.PackProtocolException;
+import org.eclipse.jgit.errors.RemoteRepositoryException;
 import org.eclipse.jgit.errors.TransportException;
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.internal.storage.file.PackLock;
@@ -79,9 +81,9 @@ import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
-import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.transport.PacketLineIn.AckNackResult;
 import org.eclipse.jgit.util.TemporaryBuffer;
+import org.eclipse.jgit.util.io.ReadAheadInputStream;
 
 /**
  * Fetch implementation using the native Git pack transfer service.
@@ -116,6 +118,16 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 	 */
 	private static final int MAX_HAVES = 256;
 
+	/**
+	 * Default number of bytes of the pack read from the network ahead of
+	 * the parser, unless {@code fetch.readAhead} says otherwise.
+	 * <p>
+	 * Off by default: over TCP the kernel's socket buffer already receives
+	 * while the parser works. Streams with small in-process buffers, such
+	 * as an SSH channel, benefit from a few MiB.
+	 */
+	private static final int DEFAULT_READ_AHEAD = 0;
+
 	/**
 	 * Amount of data the client sends before starting to read.
 	 * <p>
@@ -233,6 +245,15 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 
 	private PacketLineOut pckState;
 
+	/** Chooses have lines; created when negotiation begins. */
+	private NegotiationStrategy strategy;
+
+	/** Requests sent which waited for a response from the remote. */
+	private int roundTrips;
+
+	/** Bytes of the pack stream read ahead of the parser; 0 disables. */
+	private final int readAheadSize;
+
 	/**
 	 * Create a new connection to fetch using the native git transport.
 	 *
@@ -240,13 +261,30 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 	 *            the transport.
 	 */
 	public BasePackFetchConnection(final PackTransport packTransport) {
-		super(packTransport);
+		this(packTransport, null);
+	}
+
+	/**
+	 * Create a new connection to fetch some refs using the native git
+	 * transport.
+	 *
+	 * @param packTransport
+	 *            the transport.
+	 * @param refPrefixes
+	 *            ref name prefixes to list over protocol v2; null or empty to
+	 *            list all refs.
+	 */
+	BasePackFetchConnection(final PackTransport packTransport,
+			Collection<String> refPrefixes) {
+		super(packTransport, refPrefixes);
 
 		if (local != null) {
 			final FetchConfig cfg = local.getConfig().get(FetchConfig.KEY);
 			allowOfsDelta = cfg.allowOfsDelta;
+			readAheadSize = cfg.readAheadSize;
 		} else {
 			allowOfsDelta = true;
+			readAheadSize = DEFAULT_READ_AHEAD;
 		}
 		includeTags = transport.getTagOpt() != TagOpt.NO_TAGS;
 		thinPack = transport.isFetchThin();
@@ -280,8 +318,11 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 
 		final boolean allowOfsDelta;
 
+		final int readAheadSize;
+
 		FetchConfig(final Config c) {
 			allowOfsDelta = c.getBoolean("repack", "usedeltabaseoffset", true); //$NON-NLS-1$ //$NON-NLS-2$
+			readAheadSize = c.getInt("fetch", "readahead", DEFAULT_READ_AHEAD); //$NON-NLS-1$ //$NON-NLS-2$
 		}
 	}
 
@@ -347,13 +388,22 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 			markRefsAdvertised();
 			markReachable(have, maxTimeWanted(want));
 
-			if (statelessRPC) {
+			if (statelessRPC || isProtocolV2()) {
 				state = new TemporaryBuffer.Heap(Integer.MAX_VALUE);
 				pckState = new PacketLineOut(state);
 			}
+			if (isProtocolV2())
+				writeFetchCommandV2();
 
 			if (sendWants(want)) {
-				negotiate(monitor);
+				try {
+					if (isProtocolV2())
+						negotiateV2(monitor);
+					else
+						negotiate(monitor);
+				} finally {
+					negotiateEnd();
+				}
 
 				walk.dispose();
 				reachableCommits = null;
@@ -454,7 +504,7 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 	}
 
 	private boolean sendWants(final Collection<Ref> want) throws IOException {
-		final PacketLineOut p = statelessRPC ? pckState : pckOut;
+		final PacketLineOut p = pckState != null ? pckState : pckOut;
 		boolean first = true;
 		for (final Ref r : want) {
 			try {
@@ -472,20 +522,37 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 			final StringBuilder line = new StringBuilder(46);
 			line.append("want "); //$NON-NLS-1$
 			line.append(r.getObjectId().name());
-			if (first) {
+			if (first && !isProtocolV2())
 				line.append(enableCapabilities());
-				first = false;
-			}
+			first = false;
 			line.append('\n');
 			p.writeString(line.toString());
 		}
 		if (first)
 			return false;
-		p.end();
-		outNeedsEnd = false;
+		if (!isProtocolV2()) {
+			p.end();
+			outNeedsEnd = false;
+		}
 		return true;
 	}
 
+	private void writeFetchCommandV2() throws IOException {
+		// Version 2 servers always support these fetch arguments, and
+		// always send the pack over side-band-64k.
+		pckState.writeString("command=" + COMMAND_FETCH + '\n'); //$NON-NLS-1$
+		pckState.writeDelim();
+		if (thinPack)
+			pckState.writeString(OPTION_THIN_PACK + '\n');
+		if (allowOfsDelta)
+			pckState.writeString(OPTION_OFS_DELTA + '\n');
+		if (noProgress)
+			pckState.writeString(OPTION_NO_PROGRESS + '\n');
+		if (includeTags)
+			pckState.writeString(OPTION_INCLUDE_TAG + '\n');
+		sideband = true;
+	}
+
 	private String enableCapabilities() throws TransportException {
 		final StringBuilder line = new StringBuilder();
 		if (noProgress)
@@ -539,7 +606,7 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 
 		negotiateBegin();
 		SEND_HAVES: for (;;) {
-			final RevCommit c = walk.next();
+			final RevCommit c = strategy.next();
 			if (c == null)
 				break SEND_HAVES;
 
@@ -560,6 +627,7 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 
 			pckOut.end();
 			resultsPending++; // Each end will cause a result to come back.
+			roundTrips++;
 
 			if (havesSent == 32 && !statelessRPC) {
 				// On the first block we race ahead and try to send
@@ -640,6 +708,7 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 			//
 			pckOut.writeString("done\n"); //$NON-NLS-1$
 			pckOut.flush();
+			roundTrips++;
 		}
 
 		if (!receivedAck) {
@@ -681,35 +750,80 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 		}
 	}
 
-	private void negotiateBegin() throws IOException {
-		walk.resetRetain(REACHABLE, ADVERTISED);
-		walk.markStart(reachableCommits);
-		walk.sort(RevSort.COMMIT_TIME_DESC);
-		walk.setRevFilter(new RevFilter() {
-			@Override
-			public RevFilter clone() {
-				return this;
-			}
+	private void negotiateV2(final ProgressMonitor monitor)
+			throws IOException, CancelledException {
+		int havesSinceLastAck = 0;
+		boolean receivedAck = false;
 
-			@Override
-			public boolean include(final RevWalk walker, final RevCommit c) {
-				final boolean remoteKnowsIsCommon = c.has(COMMON);
-				if (c.has(ADVERTISED)) {
-					// Remote advertised this, and we have it, hence common.
-					// Whether or not the remote knows that fact is tested
-					// before we added the flag. If the remote doesn't know
-					// we have to still send them this object.
-					//
-					c.add(COMMON);
+		negotiateBegin();
+		for (;;) {
+			// Each request restates the wants and every common commit
+			// found so far, then offers the next block of haves.
+			state.writeTo(out, null);
+			boolean done = false;
+			for (int n = 0; n < 32; n++) {
+				final RevCommit c = strategy.next();
+				if (c == null) {
+					done = true;
+					break;
 				}
-				return !remoteKnowsIsCommon;
+				pckOut.writeString("have " + c.getId().name() + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				havesSinceLastAck++;
 			}
+			if (receivedAck && havesSinceLastAck > MAX_HAVES)
+				done = true;
+			if (done)
+				pckOut.writeString("done\n"); //$NON-NLS-1$
+			pckOut.end();
+			roundTrips++;
+
+			if (monitor.isCancelled())
+				throw new CancelledException();
 
-			@Override
-			public boolean requiresCommitBody() {
-				return false;
+			String line = pckIn.readString();
+			if (line.equals("acknowledgments")) { //$NON-NLS-1$
+				while ((line = pckIn.readString()) != PacketLineIn.END
+						&& line != PacketLineIn.DELIM) {
+					if (line.startsWith("ACK ") && line.length() == 44) { //$NON-NLS-1$
+						ObjectId id = ObjectId.fromString(line.substring(4));
+						markCommon(walk.parseAny(id), AckNackResult.ACK_COMMON);
+						receivedAck = true;
+						havesSinceLastAck = 0;
+					} else if (!line.equals("NAK") && !line.equals("ready")) { //$NON-NLS-1$ //$NON-NLS-2$
+						throw new PackProtocolException(uri, MessageFormat
+								.format(JGitText.get().expectedACKNAKGot, line));
+					}
+				}
+				if (line == PacketLineIn.END) {
+					if (done)
+						throw new PackProtocolException(uri, MessageFormat
+								.format(JGitText.get().expectedGot,
+										"packfile", line)); //$NON-NLS-1$
+					continue;
+				}
+				line = pckIn.readString();
 			}
-		});
+
+			if (line.startsWith("ERR ")) //$NON-NLS-1$
+				throw new RemoteRepositoryException(uri, line.substring(4));
+			if (!line.equals("packfile")) //$NON-NLS-1$
+				throw new PackProtocolException(uri, MessageFormat.format(
+						JGitText.get().expectedGot, "packfile", line)); //$NON-NLS-1$
+			return;
+		}
+	}
+
+	private void negotiateBegin() throws IOException {
+		walk.resetRetain(REACHABLE, ADVERTISED);
+		strategy = transport.getNegotiationStrategy().newStrategy();
+		strategy.begin(walk, reachableCommits, COMMON, ADVERTISED);
+	}
+
+	private void negotiateEnd() {
+		if (strategy != null) {
+			strategy.end();
+			strategy = null;
+		}
 	}
 
 	private void markRefsAdvertised() {
@@ -730,7 +844,8 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 
 	private void markCommon(final RevObject obj, final AckNackResult anr)
 			throws IOException {
-		if (statelessRPC && anr == AckNackResult.ACK_COMMON && !obj.has(STATE)) {
+		if (pckState != null && anr == AckNackResult.ACK_COMMON
+				&& !obj.has(STATE)) {
 			StringBuilder s;
 
 			s = new StringBuilder(6 + Constants.OBJECT_ID_STRING_LENGTH);
@@ -741,14 +856,30 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 			obj.add(STATE);
 		}
 		obj.add(COMMON);
-		if (obj instanceof RevCommit)
+		if (obj instanceof RevCommit) {
 			((RevCommit) obj).carry(COMMON);
+			strategy.ack((RevCommit) obj);
+		}
+	}
+
+	/**
+	 * @return number of negotiation requests which waited for a response,
+	 *         including the final one asking for the pack.
+	 */
+	int getRoundTrips() {
+		return roundTrips;
 	}
 
 	private void receivePack(final ProgressMonitor monitor,
 			OutputStream outputStream) throws IOException {
 		onReceivePack();
 		InputStream input = in;
+
+		// Keep receiving from the network while the parser inflates,
+		// hashes and stores what already arrived.
+		ReadAheadInputStream readAhead = null;
+		if (readAheadSize > 0)
+			input = readAhead = new ReadAheadInputStream(input, readAheadSize);
 		if (sideband)
 			input = new SideBandInputStream(input, monitor, getMessageWriter(),
 					outputStream);
@@ -763,6 +894,8 @@ public abstract class BasePackFetchConnection extends BasePackConnection
 			ins.flush();
 		} finally {
 			ins.release();
+			if (readAhead != null)
+				readAhead.close();
 		}
 	}
 
@@ -125,6 +125,9 @@ public abstract class BasePackPushConnection extends BasePackConnection implemen
 	/** Time in milliseconds spent transferring the pack data. */
 	private long packTransferTime;
 
+	/** Statistics of the pack sent, null if no pack was sent. */
+	private PackWriter.Statistics packStatistics;
+
 	/**
 	 * Create a new connection to push using the native git transport.
 	 *
@@ -306,7 +309,13 @@ public abstract class BasePackPushConnection extends BasePackConnection implemen
 		} finally {
 			writer.release();
 		}
-		packTransferTime = writer.getStatistics().getTimeWriting();
+		packStatistics = writer.getStatistics();
+		packTransferTime = packStatistics.getTimeWriting();
+	}
+
+	/** @return statistics of the pack sent, null if no pack was sent. */
+	PackWriter.Statistics getPackStatistics() {
+		return packStatistics;
 	}
 
 	private void readStatusReport(final Map<String, RemoteRefUpdate> refUpdates)
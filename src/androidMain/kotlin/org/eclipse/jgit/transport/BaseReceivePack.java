@@ -63,6 +63,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.jgit.errors.MissingObjectException;
@@ -246,6 +247,12 @@ public abstract class BaseReceivePack {
 	/** The size of the received pack, including index size */
 	private Long packSize;
 
+	/** Executor checking received trees, null to use a private pool. */
+	private Executor connectivityExecutor;
+
+	/** Statistics of the last pack received, null if none. */
+	private ReceivedPackStatistics receivedPackStatistics;
+
 	/**
 	 * Create a new pack receive for an open repository.
 	 *
@@ -463,6 +470,31 @@ public abstract class BaseReceivePack {
 		this.checkReferencedIsReachable = b;
 	}
 
+	/**
+	 * Set the executor checking the trees of received packs.
+	 * <p>
+	 * When {@link #setCheckReferencedObjectsAreReachable(boolean)} is enabled,
+	 * the trees of a received pack are parsed in parallel on this executor.
+	 * By default a pool with one thread per processor is created for packs
+	 * large enough to benefit.
+	 *
+	 * @param executor
+	 *            executor to use; null to use the default.
+	 * @since 3.8
+	 */
+	public void setConnectivityCheckExecutor(Executor executor) {
+		connectivityExecutor = executor;
+	}
+
+	/**
+	 * @return statistics about the pack received and its connectivity check;
+	 *         null if no pack has been checked.
+	 * @since 3.8
+	 */
+	public ReceivedPackStatistics getReceivedPackStatistics() {
+		return receivedPackStatistics;
+	}
+
 	/**
 	 * @return true if this class expects a bi-directional pipe opened between
 	 *         the client and itself. The default is true.
@@ -1091,6 +1123,44 @@ public abstract class BaseReceivePack {
 		}
 		parser = null;
 
+		receivedPackStatistics = new ReceivedPackStatistics();
+		long startTime = System.currentTimeMillis();
+		long startCpu = PackConnectivityCheck.threadCpuTime();
+		long workerCpu = 0;
+		try {
+			// With nothing advertised the full walk stops at the pack's own
+			// objects, so checking the pack first only adds work.
+			if (providedObjects != null && !advertisedHaves.isEmpty()) {
+				PackConnectivityCheck fast = new PackConnectivityCheck(db,
+						providedObjects, baseObjects, advertisedHaves);
+				boolean verified;
+				try {
+					verified = fast.check(commands, connectivityExecutor);
+				} catch (IOException err) {
+					// The full walk below reports a precise error.
+					verified = false;
+				}
+				receivedPackStatistics.treesChecked = fast.getTreesChecked();
+				receivedPackStatistics.connectivityThreads = fast.getThreads();
+				workerCpu = fast.getCpuTime();
+				if (verified)
+					return;
+			}
+			receivedPackStatistics.fullWalk = true;
+			checkConnectivityFullWalk(baseObjects, providedObjects, checking);
+		} finally {
+			ReceivedPackStatistics s = receivedPackStatistics;
+			s.connectivityTime = System.currentTimeMillis() - startTime;
+			long endCpu = PackConnectivityCheck.threadCpuTime();
+			if (0 <= startCpu && 0 <= endCpu && 0 <= workerCpu)
+				s.connectivityCpuTime = (endCpu - startCpu + workerCpu) / 1000000;
+		}
+	}
+
+	private void checkConnectivityFullWalk(
+			ObjectIdSubclassMap<ObjectId> baseObjects,
+			ObjectIdSubclassMap<ObjectId> providedObjects,
+			ProgressMonitor checking) throws IOException {
 		final ObjectWalk ow = new ObjectWalk(db);
 		ow.setRetainBody(false);
 		if (baseObjects != null) {
@@ -1332,6 +1402,7 @@ public abstract class BaseReceivePack {
 		batch.setAllowNonFastForwards(isAllowNonFastForwards());
 		batch.setRefLogIdent(getRefLogIdent());
 		batch.setRefLogMessage("push", true); //$NON-NLS-1$
+		batch.setAtomic(isCapabilityEnabled(CAPABILITY_ATOMIC));
 		batch.addCommand(toApply);
 		try {
 			batch.execute(walk, updating);
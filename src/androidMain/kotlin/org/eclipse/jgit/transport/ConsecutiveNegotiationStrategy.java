@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.transport;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * Offers every local commit, newest first.
+ * <p>
+ * This is the classic negotiation: the remote learns exactly where the
+ * histories diverge, at the cost of one have line per commit the remote
+ * does not know.
+ *
+ * @since 3.8
+ */
+public class ConsecutiveNegotiationStrategy implements NegotiationStrategy {
+	/** Factory creating this strategy. */
+	public static final Factory FACTORY = new Factory() {
+		public NegotiationStrategy newStrategy() {
+			return new ConsecutiveNegotiationStrategy();
+		}
+	};
+
+	private RevWalk walk;
+
+	public void begin(RevWalk w, Collection<RevCommit> tips,
+			final RevFlag common, final RevFlag advertised)
+			throws IOException {
+		walk = w;
+		walk.markStart(tips);
+		walk.sort(RevSort.COMMIT_TIME_DESC);
+		walk.setRevFilter(new RevFilter() {
+			@Override
+			public RevFilter clone() {
+				return this;
+			}
+
+			@Override
+			public boolean include(final RevWalk walker, final RevCommit c) {
+				final boolean remoteKnowsIsCommon = c.has(common);
+				if (c.has(advertised)) {
+					// Remote advertised this, and we have it, hence common.
+					// Whether or not the remote knows that fact is tested
+					// before we added the flag. If the remote doesn't know
+					// we have to still send them this object.
+					//
+					c.add(common);
+				}
+				return !remoteKnowsIsCommon;
+			}
+
+			@Override
+			public boolean requiresCommitBody() {
+				return false;
+			}
+		});
+	}
+
+	public RevCommit next() throws IOException {
+		return walk.next();
+	}
+
+	public void ack(RevCommit commit) {
+		// The walk skips ancestors through the carried common flag.
+	}
+
+	public void end() {
+		// No flags were allocated; the connection disposes the walk.
+	}
+}
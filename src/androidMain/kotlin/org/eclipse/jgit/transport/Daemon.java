@@ -52,6 +52,16 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jgit.errors.RepositoryNotFoundException;
 import org.eclipse.jgit.internal.JGitText;
@@ -91,6 +101,14 @@ public class Daemon {
 
 	private volatile ReceivePackFactory<DaemonClient> receivePackFactory;
 
+	private volatile Executor executor;
+
+	private final AtomicInteger active = new AtomicInteger();
+
+	private final AtomicInteger queued = new AtomicInteger();
+
+	private final AtomicLong rejected = new AtomicLong();
+
 	/** Configure a daemon to listen on any available network port. */
 	public Daemon() {
 		this(null);
@@ -152,6 +170,7 @@ public class Daemon {
 							ServiceNotEnabledException,
 							ServiceNotAuthorizedException {
 						UploadPack up = uploadPackFactory.create(dc, db);
+						up.setExtraParameters(dc.getExtraParameters());
 						InputStream in = dc.getInputStream();
 						OutputStream out = dc.getOutputStream();
 						up.upload(in, out, null);
@@ -269,6 +288,103 @@ public class Daemon {
 			receivePackFactory = (ReceivePackFactory<DaemonClient>) ReceivePackFactory.DISABLED;
 	}
 
+	/**
+	 * @return executor running client connections; null if each connection
+	 *         gets its own new thread.
+	 * @since 3.8
+	 */
+	public Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Set the executor client connections are processed on.
+	 * <p>
+	 * By default every accepted connection starts a new thread, without any
+	 * limit. A bounded executor (see {@link #newBoundedExecutor(int, int)})
+	 * caps the number of connections served at once; connections it rejects
+	 * are closed immediately and counted by {@link #getRejectedCount()}.
+	 * <p>
+	 * The daemon does not shut the executor down when it is stopped.
+	 *
+	 * @param executor
+	 *            the executor; null to start a new thread per connection.
+	 * @since 3.8
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Create a bounded executor suitable for {@link #setExecutor(Executor)}.
+	 *
+	 * @param threads
+	 *            maximum number of connections served at once.
+	 * @param queueSize
+	 *            maximum number of accepted connections waiting for a thread.
+	 *            Connections beyond this are rejected.
+	 * @return the executor. The caller is responsible for shutting it down.
+	 * @since 3.8
+	 */
+	public ExecutorService newBoundedExecutor(int threads, int queueSize) {
+		ThreadPoolExecutor e = new ThreadPoolExecutor(threads, threads, 60,
+				TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
+						Math.max(1, queueSize)), new ThreadFactory() {
+					private final AtomicInteger cnt = new AtomicInteger();
+
+					public Thread newThread(Runnable r) {
+						return new Thread(processors, r,
+								"Git-Daemon-Client-" + cnt.incrementAndGet()); //$NON-NLS-1$
+					}
+				}, new ThreadPoolExecutor.AbortPolicy());
+		e.allowCoreThreadTimeOut(true);
+		return e;
+	}
+
+	/**
+	 * Create an executor running each connection on its own virtual thread.
+	 * <p>
+	 * Virtual threads are cheap enough that connection bursts do not exhaust
+	 * memory, but the number of concurrent connections is not capped.
+	 *
+	 * @return the executor, or null if the running JVM does not support
+	 *         virtual threads (Java 21 or later is required). The caller is
+	 *         responsible for shutting it down.
+	 * @since 3.8
+	 */
+	public static ExecutorService newVirtualThreadExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod(
+					"newVirtualThreadPerTaskExecutor").invoke(null); //$NON-NLS-1$
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return number of client connections currently being served.
+	 * @since 3.8
+	 */
+	public int getActiveCount() {
+		return active.get();
+	}
+
+	/**
+	 * @return number of accepted connections waiting for the executor.
+	 * @since 3.8
+	 */
+	public int getQueuedCount() {
+		return queued.get();
+	}
+
+	/**
+	 * @return number of connections closed because the executor was full.
+	 * @since 3.8
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
 	/**
 	 * Start this daemon on a background thread.
 	 *
@@ -333,8 +449,10 @@ public class Daemon {
 		if (peer instanceof InetSocketAddress)
 			dc.setRemoteAddress(((InetSocketAddress) peer).getAddress());
 
-		new Thread(processors, "Git-Daemon-Client " + peer.toString()) { //$NON-NLS-1$
+		Runnable task = new Runnable() {
 			public void run() {
+				queued.decrementAndGet();
+				active.incrementAndGet();
 				try {
 					dc.execute(s);
 				} catch (ServiceNotEnabledException e) {
@@ -344,19 +462,39 @@ public class Daemon {
 				} catch (IOException e) {
 					// Ignore unexpected IO exceptions from clients
 				} finally {
-					try {
-						s.getInputStream().close();
-					} catch (IOException e) {
-						// Ignore close exceptions
-					}
-					try {
-						s.getOutputStream().close();
-					} catch (IOException e) {
-						// Ignore close exceptions
-					}
+					active.decrementAndGet();
+					close(s);
 				}
 			}
-		}.start();
+		};
+
+		queued.incrementAndGet();
+		Executor e = executor;
+		if (e == null) {
+			new Thread(processors, task,
+					"Git-Daemon-Client " + peer.toString()).start(); //$NON-NLS-1$
+			return;
+		}
+		try {
+			e.execute(task);
+		} catch (RejectedExecutionException err) {
+			queued.decrementAndGet();
+			rejected.incrementAndGet();
+			close(s);
+		}
+	}
+
+	private static void close(Socket s) {
+		try {
+			s.getInputStream().close();
+		} catch (IOException e) {
+			// Ignore close exceptions
+		}
+		try {
+			s.getOutputStream().close();
+		} catch (IOException e) {
+			// Ignore close exceptions
+		}
 	}
 
 	synchronized DaemonService matchService(final String cmd) {
@@ -49,6 +49,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import org.eclipse.jgit.transport.resolver.ServiceNotAuthorizedException;
 import org.eclipse.jgit.transport.resolver.ServiceNotEnabledException;
@@ -64,6 +68,8 @@ public class DaemonClient {
 
 	private OutputStream rawOut;
 
+	private Collection<String> extraParameters = Collections.emptyList();
+
 	DaemonClient(final Daemon d) {
 		daemon = d;
 	}
@@ -92,6 +98,15 @@ public class DaemonClient {
 		return rawOut;
 	}
 
+	/**
+	 * @return extra parameters such as {@code version=2} the client sent
+	 *         after the host in its request; never null.
+	 * @since 3.8
+	 */
+	public Collection<String> getExtraParameters() {
+		return extraParameters;
+	}
+
 	void execute(final Socket sock) throws IOException,
 			ServiceNotEnabledException, ServiceNotAuthorizedException {
 		rawIn = new BufferedInputStream(sock.getInputStream());
@@ -104,8 +119,13 @@ public class DaemonClient {
 		if (nul >= 0) {
 			// Newer clients hide a "host" header behind this byte.
 			// Currently we don't use it for anything, so we ignore
-			// this portion of the command.
+			// this portion of the command. Extra parameters may
+			// follow the host, after a second NUL.
 			//
+			int extra = cmd.indexOf("\0\0", nul); //$NON-NLS-1$
+			if (extra >= 0)
+				extraParameters = parseExtraParameters(cmd
+						.substring(extra + 2));
 			cmd = cmd.substring(0, nul);
 		}
 
@@ -115,4 +135,13 @@ public class DaemonClient {
 		sock.setSoTimeout(0);
 		srv.execute(this, cmd);
 	}
+
+	private static Collection<String> parseExtraParameters(String s) {
+		List<String> params = new ArrayList<String>(2);
+		for (String p : s.split("\0")) { //$NON-NLS-1$
+			if (p.length() > 0)
+				params.add(p);
+		}
+		return params;
+	}
 }
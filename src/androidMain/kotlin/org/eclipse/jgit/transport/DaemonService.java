@@ -45,6 +45,7 @@
 package org.eclipse.jgit.transport;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jgit.lib.Config;
 import org.eclipse.jgit.lib.Repository;
@@ -62,6 +63,12 @@ public abstract class DaemonService {
 
 	private boolean overridable;
 
+	private final AtomicLong requests = new AtomicLong();
+
+	private final AtomicLong totalNanos = new AtomicLong();
+
+	private final AtomicLong maxNanos = new AtomicLong();
+
 	DaemonService(final String cmdName, final String cfgName) {
 		command = cmdName.startsWith("git-") ? cmdName : "git-" + cmdName; //$NON-NLS-1$ //$NON-NLS-2$
 		configKey = new SectionParser<ServiceConfig>() {
@@ -113,6 +120,44 @@ public abstract class DaemonService {
 		return command;
 	}
 
+	/**
+	 * @return number of requests this service has completed, successfully or
+	 *         not, since the daemon was created.
+	 * @since 3.8
+	 */
+	public long getRequestCount() {
+		return requests.get();
+	}
+
+	/**
+	 * @return total time in nanoseconds spent executing requests of this
+	 *         service. Divide by {@link #getRequestCount()} for the mean
+	 *         latency.
+	 * @since 3.8
+	 */
+	public long getTotalNanos() {
+		return totalNanos.get();
+	}
+
+	/**
+	 * @return longest time in nanoseconds spent executing a single request of
+	 *         this service.
+	 * @since 3.8
+	 */
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	private void record(long nanos) {
+		requests.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		for (;;) {
+			long max = maxNanos.get();
+			if (nanos <= max || maxNanos.compareAndSet(max, nanos))
+				break;
+		}
+	}
+
 	/**
 	 * Determine if this service can handle the requested command.
 	 *
@@ -143,8 +188,14 @@ public abstract class DaemonService {
 		if (db == null)
 			return;
 		try {
-			if (isEnabledFor(db))
-				execute(client, db);
+			if (isEnabledFor(db)) {
+				long start = System.nanoTime();
+				try {
+					execute(client, db);
+				} finally {
+					record(System.nanoTime() - start);
+				}
+			}
 		} finally {
 			db.close();
 		}
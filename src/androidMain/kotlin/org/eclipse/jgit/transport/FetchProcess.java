@@ -133,7 +133,7 @@ class FetchProcess {
 	private void executeImp(final ProgressMonitor monitor,
 			final FetchResult result) throws NotSupportedException,
 			TransportException {
-		conn = transport.openFetch();
+		conn = transport.openFetch(refPrefixes());
 		try {
 			result.setAdvertisedRefs(transport.getURI(), conn.getRefsMap());
 			final Set<Ref> matched = new HashSet<Ref>();
@@ -258,6 +258,11 @@ class FetchProcess {
 		if (conn != null) {
 			conn.close();
 			result.addMessages(conn.getMessages());
+			if (conn instanceof BasePackFetchConnection) {
+				BasePackFetchConnection c = (BasePackFetchConnection) conn;
+				result.addTransferStatistics(c.getRoundTrips(),
+						c.getBytesSent(), c.getBytesReceived());
+			}
 			conn = null;
 		}
 	}
@@ -267,7 +272,7 @@ class FetchProcess {
 		if (conn != null)
 			return;
 
-		conn = transport.openFetch();
+		conn = transport.openFetch(refPrefixes());
 
 		// Since we opened a new connection we cannot be certain
 		// that the system we connected to has the same exact set
@@ -364,6 +369,20 @@ class FetchProcess {
 		}
 	}
 
+	private Collection<String> refPrefixes() {
+		Set<String> prefixes = new HashSet<String>();
+		for (RefSpec spec : toFetch) {
+			String src = spec.getSource();
+			if (src == null)
+				continue;
+			int star = src.indexOf('*');
+			prefixes.add(star < 0 ? src : src.substring(0, star));
+		}
+		if (transport.getTagOpt() != TagOpt.NO_TAGS)
+			prefixes.add(Constants.R_TAGS);
+		return prefixes;
+	}
+
 	private void expandSingle(final RefSpec spec, final Set<Ref> matched)
 			throws TransportException {
 		final Ref src = conn.getRef(spec.getSource());
@@ -58,6 +58,12 @@ import java.util.List;
 public class FetchResult extends OperationResult {
 	private final List<FetchHeadRecord> forMerge;
 
+	private int roundTrips;
+
+	private long bytesSent;
+
+	private long bytesReceived;
+
 	FetchResult() {
 		forMerge = new ArrayList<FetchHeadRecord>();
 	}
@@ -66,4 +72,37 @@ public class FetchResult extends OperationResult {
 		if (!r.notForMerge)
 			forMerge.add(r);
 	}
+
+	void addTransferStatistics(int rounds, long sent, long received) {
+		roundTrips += rounds;
+		bytesSent += sent;
+		bytesReceived += received;
+	}
+
+	/**
+	 * @return number of negotiation requests which waited for a response
+	 *         from the remote, including the one asking for the pack. Zero
+	 *         for transports which do not negotiate.
+	 * @since 3.8
+	 */
+	public int getRoundTrips() {
+		return roundTrips;
+	}
+
+	/**
+	 * @return bytes sent to the remote by native protocol connections.
+	 * @since 3.8
+	 */
+	public long getBytesSent() {
+		return bytesSent;
+	}
+
+	/**
+	 * @return bytes received from the remote by native protocol
+	 *         connections, including the pack.
+	 * @since 3.8
+	 */
+	public long getBytesReceived() {
+		return bytesReceived;
+	}
 }
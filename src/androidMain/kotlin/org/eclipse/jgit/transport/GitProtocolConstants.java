@@ -172,6 +172,63 @@ public class GitProtocolConstants {
 	 */
 	public static final String CAPABILITY_SIDE_BAND_64K = "side-band-64k"; //$NON-NLS-1$
 
+	/**
+	 * First line of a protocol v2 capability advertisement.
+	 *
+	 * @since 3.8
+	 */
+	public static final String VERSION_2 = "version 2"; //$NON-NLS-1$
+
+	/**
+	 * Extra parameter a client sends to request protocol v2.
+	 *
+	 * @since 3.8
+	 */
+	public static final String VERSION_2_REQUEST = "version=2"; //$NON-NLS-1$
+
+	/**
+	 * HTTP header carrying extra parameters such as
+	 * {@link #VERSION_2_REQUEST}.
+	 *
+	 * @since 3.8
+	 */
+	public static final String HDR_GIT_PROTOCOL = "Git-Protocol"; //$NON-NLS-1$
+
+	/**
+	 * Protocol v2 command listing references.
+	 *
+	 * @since 3.8
+	 */
+	public static final String COMMAND_LS_REFS = "ls-refs"; //$NON-NLS-1$
+
+	/**
+	 * Protocol v2 command fetching a pack.
+	 *
+	 * @since 3.8
+	 */
+	public static final String COMMAND_FETCH = "fetch"; //$NON-NLS-1$
+
+	/**
+	 * Protocol v2 ls-refs argument limiting output to names with a prefix.
+	 *
+	 * @since 3.8
+	 */
+	public static final String OPTION_REF_PREFIX = "ref-prefix"; //$NON-NLS-1$
+
+	/**
+	 * Protocol v2 ls-refs argument asking for peeled tag values.
+	 *
+	 * @since 3.8
+	 */
+	public static final String OPTION_PEEL = "peel"; //$NON-NLS-1$
+
+	/**
+	 * Protocol v2 ls-refs argument asking for symbolic reference targets.
+	 *
+	 * @since 3.8
+	 */
+	public static final String OPTION_SYMREFS = "symrefs"; //$NON-NLS-1$
+
 	static enum MultiAck {
 		OFF, CONTINUE, DETAILED;
 	}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.transport;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Chooses which local commits a fetch offers to the remote as "have" lines.
+ * <p>
+ * A strategy is used for a single fetch. The fetch connection calls
+ * {@link #begin(RevWalk, Collection, RevFlag, RevFlag)} once, then
+ * alternates between {@link #next()} to obtain commits to send and
+ * {@link #ack(RevCommit)} as the remote acknowledges commits it also has,
+ * and finally calls {@link #end()}.
+ *
+ * @since 3.8
+ */
+public interface NegotiationStrategy {
+	/** Creates a fresh strategy for each fetch. */
+	public interface Factory {
+		/** @return a new strategy instance. */
+		NegotiationStrategy newStrategy();
+	}
+
+	/**
+	 * Start a negotiation.
+	 *
+	 * @param walk
+	 *            walk over the local repository. Its flags have been reset,
+	 *            except for {@code advertised} and connection internal flags.
+	 * @param tips
+	 *            commits reachable from local refs, where negotiation starts.
+	 * @param common
+	 *            flag marking commits known to both sides. The connection
+	 *            adds it, and carries it to parents, when the remote
+	 *            acknowledges a commit. Commits carrying it should not be
+	 *            offered.
+	 * @param advertised
+	 *            flag marking commits the remote advertised a ref for.
+	 * @throws IOException
+	 *             the local repository could not be read.
+	 */
+	void begin(RevWalk walk, Collection<RevCommit> tips, RevFlag common,
+			RevFlag advertised) throws IOException;
+
+	/**
+	 * @return next commit to offer as a have; null if there are no more.
+	 * @throws IOException
+	 *             the local repository could not be read.
+	 */
+	RevCommit next() throws IOException;
+
+	/**
+	 * Notification that the remote has a commit previously offered.
+	 *
+	 * @param commit
+	 *            the acknowledged commit, already marked as common.
+	 * @throws IOException
+	 *             the local repository could not be read.
+	 */
+	void ack(RevCommit commit) throws IOException;
+
+	/**
+	 * Finish the negotiation.
+	 * <p>
+	 * Called once no more commits will be requested, also if the negotiation
+	 * failed. Releases anything allocated on the walk by
+	 * {@link #begin(RevWalk, Collection, RevFlag, RevFlag)}, such as flags.
+	 */
+	void end();
+}
@@ -0,0 +1,608 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.transport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.MutableObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdSubclassMap;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+
+/**
+ * Checks the connectivity of a received pack by looking at its own objects.
+ * <p>
+ * Commits of the pack are walked from the new reference values down to the
+ * first parents outside of the pack, which must be reachable from an
+ * advertised object. Each tree of the pack is then parsed once, in parallel.
+ * An entry not contained in the pack must be found at the same path in the
+ * tree of one of those outside parents, proving the client could already
+ * reach it. The outside trees are only read along the paths where this is
+ * needed, or where the delta bases of a thin pack are looked for; history
+ * behind the advertised objects is never walked.
+ * <p>
+ * Anything this cannot prove, such as a file copied from another path, makes
+ * {@link #check(Collection, Executor)} return false. The caller then falls
+ * back to the walk over all reachable objects, which reports the precise
+ * error, if any.
+ */
+final class PackConnectivityCheck {
+	/** Packs with fewer new objects are checked on the calling thread. */
+	private static final int MIN_PARALLEL_OBJECTS = 2000;
+
+	/** Trees this close to a root are checked as tasks of their own. */
+	private static final int TASK_DEPTH = 1;
+
+	/**
+	 * The JVM's ThreadMXBean, looked up by reflection as Android has no
+	 * {@code java.lang.management}; null if CPU time cannot be measured.
+	 */
+	private static final Object threadBean;
+
+	private static final Method getCurrentThreadCpuTime;
+
+	static {
+		Object bean = null;
+		Method cpuTime = null;
+		try {
+			bean = Class.forName("java.lang.management.ManagementFactory") //$NON-NLS-1$
+					.getMethod("getThreadMXBean").invoke(null); //$NON-NLS-1$
+			Class<?> type = Class
+					.forName("java.lang.management.ThreadMXBean"); //$NON-NLS-1$
+			if (Boolean.TRUE.equals(type.getMethod(
+					"isCurrentThreadCpuTimeSupported").invoke(bean))) //$NON-NLS-1$
+				cpuTime = type.getMethod("getCurrentThreadCpuTime"); //$NON-NLS-1$
+		} catch (Exception notAvailable) {
+			// Report wall time only.
+		} catch (LinkageError notAvailable) {
+			// Report wall time only.
+		}
+		threadBean = cpuTime != null ? bean : null;
+		getCurrentThreadCpuTime = cpuTime;
+	}
+
+	private final Repository db;
+
+	private final ObjectIdSubclassMap<ObjectId> provided;
+
+	private final ObjectIdSubclassMap<ObjectId> bases;
+
+	private final Set<ObjectId> haves;
+
+	/** Trees of the pack already claimed by a task. */
+	private final Set<ObjectId> seen = newConcurrentSet();
+
+	/** Delta bases found in the outside trees, so reachable by the client. */
+	private final Set<ObjectId> reachableBases = newConcurrentSet();
+
+	/** Delta bases neither advertised nor found in a parent tree yet. */
+	private final AtomicInteger basesLeft = new AtomicInteger();
+
+	/** Threads that ran at least one task. */
+	private final Set<Thread> workers = Collections
+			.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+
+	/** Trees waiting to be checked; guards {@link #pending}. */
+	private final LinkedList<Task> queue = new LinkedList<Task>();
+
+	/** Number of tasks queued or running. */
+	private int pending;
+
+	private final AtomicLong cpuTime = new AtomicLong();
+
+	private final AtomicLong treesChecked = new AtomicLong();
+
+	private volatile boolean cpuTimeUnknown;
+
+	private volatile boolean unresolved;
+
+	private volatile Throwable error;
+
+	/**
+	 * @param db
+	 *            repository the pack was received into.
+	 * @param provided
+	 *            objects contained in the pack.
+	 * @param bases
+	 *            delta bases the pack used from the repository.
+	 * @param haves
+	 *            objects advertised to the client.
+	 */
+	PackConnectivityCheck(Repository db,
+			ObjectIdSubclassMap<ObjectId> provided,
+			ObjectIdSubclassMap<ObjectId> bases, Set<ObjectId> haves) {
+		this.db = db;
+		this.provided = provided;
+		this.bases = bases;
+		this.haves = haves;
+		if (bases != null) {
+			for (ObjectId id : bases) {
+				if (!haves.contains(id))
+					basesLeft.incrementAndGet();
+			}
+		}
+	}
+
+	/** @return number of trees of the pack parsed. */
+	long getTreesChecked() {
+		return treesChecked.get();
+	}
+
+	/** @return number of threads that parsed trees. */
+	int getThreads() {
+		return workers.size();
+	}
+
+	/**
+	 * @return CPU time in nanoseconds used by the tree tasks, -1 if it could
+	 *         not be measured.
+	 */
+	long getCpuTime() {
+		return cpuTimeUnknown ? -1 : cpuTime.get();
+	}
+
+	/**
+	 * Verify the commands only reference objects of the pack or objects
+	 * reachable from the advertised ones.
+	 *
+	 * @param commands
+	 *            commands of the push; only pending, non-delete commands are
+	 *            considered.
+	 * @param userExecutor
+	 *            executor to parse trees on; null to create a pool when the
+	 *            pack is large enough.
+	 * @return true if connectivity was verified; false if the full walk has
+	 *         to decide.
+	 * @throws IOException
+	 *             an object could not be read.
+	 */
+	boolean check(Collection<ReceiveCommand> commands, Executor userExecutor)
+			throws IOException {
+		List<ObjectId> roots = new ArrayList<ObjectId>();
+		List<ObjectId> outsideTrees = new ArrayList<ObjectId>();
+		if (!walkCommits(commands, roots, outsideTrees))
+			return false;
+
+		Dir top = new Dir(outsideTrees
+				.toArray(new ObjectId[outsideTrees.size()]));
+		for (ObjectId r : roots)
+			push(new Task(r, top, 0), false);
+
+		ExecutorService pool = null;
+		Executor executor = userExecutor;
+		int cpus = Runtime.getRuntime().availableProcessors();
+		if (executor == null && 1 < cpus
+				&& MIN_PARALLEL_OBJECTS <= provided.size()) {
+			pool = Executors.newFixedThreadPool(cpus - 1);
+			executor = pool;
+		}
+		try {
+			int helpers = executor != null ? cpus - 1 : 0;
+			final CountDownLatch finished = new CountDownLatch(helpers);
+			for (int i = 0; i < helpers; i++) {
+				try {
+					executor.execute(new Runnable() {
+						public void run() {
+							try {
+								work();
+							} finally {
+								finished.countDown();
+							}
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					finished.countDown();
+				}
+			}
+			work();
+			try {
+				finished.await();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+		} finally {
+			if (pool != null)
+				pool.shutdown();
+		}
+
+		if (error instanceof IOException)
+			throw (IOException) error;
+		else if (error instanceof RuntimeException)
+			throw (RuntimeException) error;
+		else if (error instanceof Error)
+			throw (Error) error;
+		if (unresolved)
+			return false;
+
+		if (bases != null) {
+			for (ObjectId id : bases) {
+				if (!haves.contains(id) && !reachableBases.contains(id))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Walk the commits of the pack, collecting their trees.
+	 *
+	 * @param commands
+	 *            commands of the push.
+	 * @param roots
+	 *            receives the root trees of the pack.
+	 * @param outsideTrees
+	 *            receives the trees of the parents outside of the pack.
+	 * @return false if an object outside of the pack is not known to be
+	 *         reachable.
+	 * @throws IOException
+	 *             an object could not be read.
+	 */
+	private boolean walkCommits(Collection<ReceiveCommand> commands,
+			List<ObjectId> roots, List<ObjectId> outsideTrees)
+			throws IOException {
+		RevWalk rw = new RevWalk(db);
+		rw.setRetainBody(false);
+		RevFlag visited = rw.newFlag("visited"); //$NON-NLS-1$
+		LinkedList<RevCommit> pending = new LinkedList<RevCommit>();
+		List<RevCommit> outside = new ArrayList<RevCommit>();
+
+		for (ReceiveCommand cmd : commands) {
+			if (cmd.getResult() != ReceiveCommand.Result.NOT_ATTEMPTED
+					|| cmd.getType() == ReceiveCommand.Type.DELETE)
+				continue;
+			RevObject o = rw.parseAny(cmd.getNewId());
+			for (;;) {
+				if (o.has(visited))
+					break;
+				o.add(visited);
+				if (!provided.contains(o)) {
+					if (haves.contains(o))
+						break;
+					o = rw.peel(o);
+					if (!(o instanceof RevCommit))
+						return false;
+					outside.add((RevCommit) o);
+					break;
+				}
+				if (o.getType() == Constants.OBJ_TAG) {
+					o = ((RevTag) o).getObject();
+					continue;
+				}
+				if (o.getType() == Constants.OBJ_COMMIT)
+					pending.add((RevCommit) o);
+				else if (o.getType() == Constants.OBJ_TREE)
+					roots.add(o.copy());
+				break;
+			}
+		}
+
+		RevCommit c;
+		while ((c = pending.poll()) != null) {
+			rw.parseHeaders(c);
+			RevCommit[] parents = c.getParents();
+			RevTree tree = c.getTree();
+			boolean parentTree = false;
+			for (RevCommit p : parents) {
+				rw.parseHeaders(p);
+				parentTree |= p.getTree().equals(tree);
+				if (p.has(visited))
+					continue;
+				p.add(visited);
+				if (provided.contains(p)) {
+					pending.add(p);
+				} else {
+					if (!haves.contains(p))
+						outside.add(p);
+					outsideTrees.add(p.getTree().copy());
+					foundBase(p.getTree());
+				}
+			}
+			if (provided.contains(tree))
+				roots.add(tree.copy());
+			else if (!parentTree && !haves.contains(tree))
+				return false;
+		}
+		return outside.isEmpty() || isReachable(outside);
+	}
+
+	private void foundBase(AnyObjectId id) {
+		if (bases != null && bases.contains(id) && !haves.contains(id)
+				&& reachableBases.add(id.copy()))
+			basesLeft.decrementAndGet();
+	}
+
+	private boolean isReachable(List<RevCommit> outside) throws IOException {
+		RevWalk rw = new RevWalk(db);
+		rw.setRetainBody(false);
+		for (RevCommit c : outside)
+			rw.markStart(rw.parseCommit(c));
+		for (ObjectId id : haves) {
+			RevObject o = rw.peel(rw.parseAny(id));
+			if (o instanceof RevCommit)
+				rw.markUninteresting((RevCommit) o);
+		}
+		return rw.next() == null;
+	}
+
+	/**
+	 * Queue a tree. Roots are taken in the order of the commit walk, newest
+	 * first, and subtrees before the next root; this follows the order of the
+	 * delta chains in the pack, keeping delta bases in the cache.
+	 */
+	private void push(Task task, boolean subtree) {
+		synchronized (queue) {
+			if (subtree)
+				queue.addFirst(task);
+			else
+				queue.addLast(task);
+			pending++;
+			queue.notify();
+		}
+	}
+
+	private Task take() throws InterruptedException {
+		synchronized (queue) {
+			for (;;) {
+				if (unresolved || error != null)
+					return null;
+				if (!queue.isEmpty())
+					return queue.removeFirst();
+				if (pending == 0)
+					return null;
+				queue.wait();
+			}
+		}
+	}
+
+	private void done() {
+		synchronized (queue) {
+			if (--pending == 0 || unresolved || error != null)
+				queue.notifyAll();
+		}
+	}
+
+	/** Check queued trees until none are left; run by each thread. */
+	private void work() {
+		workers.add(Thread.currentThread());
+		long start = threadCpuTime();
+		ObjectReader or = db.newObjectReader();
+		try {
+			Task task;
+			while ((task = take()) != null) {
+				try {
+					checkTree(or, task.tree, task.dir, task.depth);
+				} catch (Throwable e) {
+					error = e;
+				} finally {
+					done();
+				}
+			}
+		} catch (InterruptedException e) {
+			error = new InterruptedIOException();
+		} finally {
+			or.release();
+			long end = threadCpuTime();
+			if (start < 0 || end < 0)
+				cpuTimeUnknown = true;
+			else
+				cpuTime.addAndGet(end - start);
+		}
+	}
+
+	private void checkTree(ObjectReader or, ObjectId tree, Dir dir, int depth)
+			throws IOException {
+		if (unresolved || !seen.add(tree))
+			return;
+		treesChecked.incrementAndGet();
+
+		CanonicalTreeParser t = new CanonicalTreeParser(null, or, tree);
+		MutableObjectId id = new MutableObjectId();
+		for (; !t.eof(); t.next(1)) {
+			int mode = t.getEntryRawMode();
+			if (FileMode.GITLINK.equals(mode))
+				continue;
+			t.getEntryObjectId(id);
+			if (provided.contains(id)) {
+				if (0 < basesLeft.get())
+					dir.load(or);
+				if (FileMode.TREE.equals(mode)) {
+					Dir sub = dir.child(t.getEntryPathString());
+					if (depth < TASK_DEPTH)
+						push(new Task(id.copy(), sub, depth + 1), true);
+					else
+						checkTree(or, id.copy(), sub, depth + 1);
+				}
+			} else if (!haves.contains(id) && !dir.contains(or, id)) {
+				unresolved = true;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Entries of the trees outside of the pack at one path, read on first use
+	 * as most paths never need them.
+	 */
+	private class Dir {
+		private final Dir up;
+
+		private final String name;
+
+		private ObjectId[] trees;
+
+		private ObjectIdSubclassMap<ObjectId> entries;
+
+		private Map<String, List<ObjectId>> subtrees;
+
+		private Map<String, Dir> children;
+
+		Dir(ObjectId[] trees) {
+			this.up = null;
+			this.name = null;
+			this.trees = trees;
+		}
+
+		private Dir(Dir up, String name) {
+			this.up = up;
+			this.name = name;
+		}
+
+		synchronized Dir child(String childName) {
+			if (children == null)
+				children = new HashMap<String, Dir>();
+			Dir d = children.get(childName);
+			if (d == null) {
+				d = new Dir(this, childName);
+				children.put(childName, d);
+			}
+			return d;
+		}
+
+		synchronized boolean contains(ObjectReader or, AnyObjectId id)
+				throws IOException {
+			load(or);
+			return entries.contains(id);
+		}
+
+		synchronized void load(ObjectReader or) throws IOException {
+			if (entries != null)
+				return;
+			if (trees == null)
+				trees = up.subtrees(or, name);
+			ObjectIdSubclassMap<ObjectId> e = new ObjectIdSubclassMap<ObjectId>();
+			Map<String, List<ObjectId>> s = new HashMap<String, List<ObjectId>>();
+			for (ObjectId u : trees) {
+				CanonicalTreeParser q = new CanonicalTreeParser(null, or, u);
+				for (; !q.eof(); q.next(1)) {
+					ObjectId id = q.getEntryObjectId();
+					e.addIfAbsent(id);
+					foundBase(id);
+					if (FileMode.TREE.equals(q.getEntryRawMode())) {
+						String n = q.getEntryPathString();
+						List<ObjectId> l = s.get(n);
+						if (l == null) {
+							l = new ArrayList<ObjectId>(trees.length);
+							s.put(n, l);
+						}
+						l.add(id);
+					}
+				}
+			}
+			entries = e;
+			subtrees = s;
+		}
+
+		private synchronized ObjectId[] subtrees(ObjectReader or,
+				String childName) throws IOException {
+			load(or);
+			List<ObjectId> l = subtrees.get(childName);
+			if (l == null)
+				return new ObjectId[0];
+			return l.toArray(new ObjectId[l.size()]);
+		}
+	}
+
+	private static class Task {
+		final ObjectId tree;
+
+		final Dir dir;
+
+		final int depth;
+
+		Task(ObjectId tree, Dir dir, int depth) {
+			this.tree = tree;
+			this.dir = dir;
+			this.depth = depth;
+		}
+	}
+
+	private static Set<ObjectId> newConcurrentSet() {
+		return Collections
+				.newSetFromMap(new ConcurrentHashMap<ObjectId, Boolean>());
+	}
+
+	/**
+	 * @return CPU time of the current thread in nanoseconds, -1 if the JVM
+	 *         cannot measure it.
+	 */
+	static long threadCpuTime() {
+		if (getCurrentThreadCpuTime == null)
+			return -1;
+		try {
+			return ((Long) getCurrentThreadCpuTime.invoke(threadBean))
+					.longValue();
+		} catch (Exception failed) {
+			return -1;
+		}
+	}
+}
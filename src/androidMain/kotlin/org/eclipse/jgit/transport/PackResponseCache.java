@@ -0,0 +1,458 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.transport;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jgit.events.ListenerHandle;
+import org.eclipse.jgit.events.RefsChangedEvent;
+import org.eclipse.jgit.events.RefsChangedListener;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.FileUtils;
+
+/**
+ * Caches pack streams sent by {@link UploadPack}, so identical fetches of the
+ * same repository are answered by copying a file instead of counting and
+ * compressing objects again.
+ * <p>
+ * Entries are keyed by a hash of the wanted objects, the common objects, the
+ * requested depth and the capabilities that change the pack's content. They
+ * are stored as files in a private directory, evicted least recently used
+ * first once the total size exceeds the configured budget, and all dropped
+ * when the repository reports a change to its references.
+ * <p>
+ * A cache instance belongs to a single repository and may be shared by any
+ * number of concurrent {@link UploadPack} instances serving it.
+ *
+ * @since 3.8
+ */
+public class PackResponseCache {
+	private static final String SUFFIX = ".pack"; //$NON-NLS-1$
+
+	private final File directory;
+
+	private final long maxBytes;
+
+	private final ListenerHandle refsChanged;
+
+	/** Committed entries, in least recently used order. */
+	private final LinkedHashMap<String, Entry> entries;
+
+	private long totalBytes;
+
+	/** Incremented on every invalidation, to drop packs written meanwhile. */
+	private long generation;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Create a cache for a repository.
+	 *
+	 * @param db
+	 *            repository whose pack responses are cached. The cache
+	 *            registers a {@link RefsChangedListener} on it.
+	 * @param directory
+	 *            private directory to store packs in. Created if missing; any
+	 *            packs left by a previous cache are deleted.
+	 * @param maxBytes
+	 *            total size of packs kept on disk. A single response larger
+	 *            than this is not cached.
+	 * @throws IOException
+	 *             the directory could not be created or cleaned.
+	 */
+	public PackResponseCache(Repository db, File directory, long maxBytes)
+			throws IOException {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+		FileUtils.mkdirs(directory, true);
+		File[] stale = directory.listFiles();
+		if (stale != null) {
+			for (File f : stale) {
+				if (f.getName().endsWith(SUFFIX))
+					FileUtils.delete(f, FileUtils.SKIP_MISSING);
+			}
+		}
+
+		refsChanged = db.getListenerList().addRefsChangedListener(
+				new RefsChangedListener() {
+					public void onRefsChanged(RefsChangedEvent event) {
+						invalidate();
+					}
+				});
+	}
+
+	/** @return number of requests answered from the cache. */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/** @return number of cacheable requests that had to build a pack. */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/** @return number of packs currently cached. */
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+
+	/** @return total size in bytes of packs currently cached. */
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/** Drop every cached pack. */
+	public void invalidate() {
+		List<Entry> dropped;
+		synchronized (this) {
+			generation++;
+			dropped = new ArrayList<Entry>(entries.values());
+			entries.clear();
+			totalBytes = 0;
+		}
+		for (Entry e : dropped)
+			e.delete();
+	}
+
+	/**
+	 * Drop every cached pack and stop listening to the repository. The cache
+	 * must not be used afterwards.
+	 */
+	public void close() {
+		refsChanged.remove();
+		invalidate();
+	}
+
+	/**
+	 * Compute the cache key of a request.
+	 *
+	 * @param wants
+	 *            objects the client asked for.
+	 * @param haves
+	 *            objects both sides have in common.
+	 * @param depth
+	 *            requested depth, 0 for a full history.
+	 * @param options
+	 *            capabilities requested by the client; only those affecting
+	 *            the pack's content are part of the key.
+	 * @param refs
+	 *            advertised references; part of the key only if tags are
+	 *            included automatically.
+	 * @return the key.
+	 */
+	static String key(Collection<? extends AnyObjectId> wants,
+			Collection<? extends AnyObjectId> haves, int depth,
+			Collection<String> options, Map<String, Ref> refs) {
+		MessageDigest md = Constants.newMessageDigest();
+		byte[] buf = new byte[Constants.OBJECT_ID_LENGTH];
+		update(md, buf, 'w', wants);
+		update(md, buf, 'h', haves);
+		md.update(Constants.encodeASCII("depth " + depth + '\n')); //$NON-NLS-1$
+
+		boolean includeTag = false;
+		for (String opt : sorted(options)) {
+			if (opt.equals(GitProtocolConstants.OPTION_OFS_DELTA)
+					|| opt.equals(GitProtocolConstants.OPTION_THIN_PACK)) {
+				md.update(Constants.encode(opt + '\n'));
+			} else if (opt.equals(GitProtocolConstants.OPTION_INCLUDE_TAG)) {
+				md.update(Constants.encode(opt + '\n'));
+				includeTag = true;
+			}
+		}
+
+		if (includeTag && refs != null) {
+			for (String name : sorted(refs.keySet())) {
+				Ref r = refs.get(name);
+				if (r.getObjectId() == null)
+					continue;
+				md.update(Constants.encode(name + '\n'));
+				r.getObjectId().copyRawTo(buf, 0);
+				md.update(buf);
+			}
+		}
+		return ObjectId.fromRaw(md.digest()).name();
+	}
+
+	private static void update(MessageDigest md, byte[] buf, char tag,
+			Collection<? extends AnyObjectId> ids) {
+		List<ObjectId> list = new ArrayList<ObjectId>(ids.size());
+		for (AnyObjectId id : ids)
+			list.add(id.copy());
+		Collections.sort(list);
+		md.update((byte) tag);
+		for (ObjectId id : list) {
+			id.copyRawTo(buf, 0);
+			md.update(buf);
+		}
+	}
+
+	private static List<String> sorted(Collection<String> c) {
+		List<String> r = new ArrayList<String>(c);
+		Collections.sort(r);
+		return r;
+	}
+
+	/**
+	 * Copy a cached pack to the client.
+	 *
+	 * @param key
+	 *            key of the request.
+	 * <p>
+	 * The file is copied through a heap buffer. A direct channel transfer is
+	 * not possible here: {@code out} frames the data into side-band packets
+	 * or writes to a socket stream, neither of which exposes a channel.
+	 *
+	 * @param out
+	 *            stream to send the pack on.
+	 * @return true if the pack was cached and sent; false if nothing was
+	 *         written.
+	 * @throws IOException
+	 *             the pack could not be sent.
+	 */
+	boolean replay(String key, OutputStream out) throws IOException {
+		FileInputStream in;
+		synchronized (this) {
+			Entry e = entries.get(key);
+			if (e == null) {
+				misses.incrementAndGet();
+				return false;
+			}
+			try {
+				// Open while holding the lock, so eviction cannot remove
+				// the file first. Once open, deleting it is harmless.
+				in = new FileInputStream(e.file);
+			} catch (IOException notFound) {
+				remove(key);
+				misses.incrementAndGet();
+				return false;
+			}
+		}
+
+		hits.incrementAndGet();
+		try {
+			byte[] buf = new byte[SideBandOutputStream.MAX_BUF];
+			int n;
+			while ((n = in.read(buf)) > 0)
+				out.write(buf, 0, n);
+			out.flush();
+			return true;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Start recording a pack about to be written.
+	 *
+	 * @param key
+	 *            key of the request.
+	 * @return writer to tee the pack stream into.
+	 * @throws IOException
+	 *             the temporary file could not be created.
+	 */
+	Writer newWriter(String key) throws IOException {
+		long gen;
+		synchronized (this) {
+			gen = generation;
+		}
+		File tmp = File.createTempFile("pack_", ".tmp", directory); //$NON-NLS-1$ //$NON-NLS-2$
+		return new Writer(key, gen, tmp);
+	}
+
+	private synchronized void commit(Writer w, long size) throws IOException {
+		if (w.generation != generation || maxBytes < size
+				|| entries.containsKey(w.key)) {
+			FileUtils.delete(w.tmp, FileUtils.SKIP_MISSING);
+			return;
+		}
+
+		File dst = new File(directory, w.key + SUFFIX);
+		FileUtils.rename(w.tmp, dst);
+		entries.put(w.key, new Entry(dst, size));
+		totalBytes += size;
+
+		Iterator<Entry> itr = entries.values().iterator();
+		while (maxBytes < totalBytes && itr.hasNext()) {
+			Entry e = itr.next();
+			itr.remove();
+			totalBytes -= e.size;
+			e.delete();
+		}
+	}
+
+	private synchronized void remove(String key) {
+		Entry e = entries.remove(key);
+		if (e != null) {
+			totalBytes -= e.size;
+			e.delete();
+		}
+	}
+
+	private static class Entry {
+		final File file;
+
+		final long size;
+
+		Entry(File file, long size) {
+			this.file = file;
+			this.size = size;
+		}
+
+		void delete() {
+			file.delete();
+		}
+	}
+
+	/** Copies a pack stream to the client and into a new cache entry. */
+	class Writer extends OutputStream {
+		final String key;
+
+		final long generation;
+
+		final File tmp;
+
+		private OutputStream dst;
+
+		private FileOutputStream file;
+
+		private long size;
+
+		private boolean failed;
+
+		Writer(String key, long generation, File tmp) throws IOException {
+			this.key = key;
+			this.generation = generation;
+			this.tmp = tmp;
+			this.file = new FileOutputStream(tmp);
+		}
+
+		OutputStream wrap(OutputStream out) {
+			dst = out;
+			return this;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			dst.write(b);
+			if (!failed) {
+				try {
+					file.write(b);
+					size++;
+				} catch (IOException e) {
+					failed = true;
+				}
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			dst.write(b, off, len);
+			if (!failed) {
+				try {
+					file.write(b, off, len);
+					size += len;
+				} catch (IOException e) {
+					failed = true;
+				}
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			dst.flush();
+		}
+
+		/**
+		 * Add the recorded pack to the cache. Failures are not reported; the
+		 * response simply stays uncached.
+		 */
+		void commit() {
+			if (failed) {
+				abort();
+				return;
+			}
+			try {
+				file.close();
+				file = null;
+				PackResponseCache.this.commit(this, size);
+			} catch (IOException e) {
+				abort();
+			}
+		}
+
+		/** Discard the recorded pack. */
+		void abort() {
+			if (file != null) {
+				try {
+					file.close();
+				} catch (IOException e) {
+					// Ignore, the file is deleted anyway.
+				}
+				file = null;
+			}
+			tmp.delete();
+		}
+	}
+}
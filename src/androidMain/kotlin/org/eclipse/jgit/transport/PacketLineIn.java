@@ -70,6 +70,15 @@ public class PacketLineIn {
 	/** Magic return from {@link #readString()} when a flush packet is found. */
 	public static final String END = new StringBuilder(0).toString(); 	/* must not string pool */
 
+	/**
+	 * Magic return from {@link #readString()} when a delimiter packet is
+	 * found. Delimiters separate sections of a protocol v2 request or
+	 * response.
+	 *
+	 * @since 3.8
+	 */
+	public static final String DELIM = new StringBuilder(0).toString(); 	/* must not string pool */
+
 	static enum AckNackResult {
 		/** NAK */
 		NAK,
@@ -130,7 +139,7 @@ public class PacketLineIn {
 	 * use {@link #readStringRaw()} instead.
 	 *
 	 * @return the string. {@link #END} if the string was the magic flush
-	 *         packet.
+	 *         packet, {@link #DELIM} if it was the magic delimiter packet.
 	 * @throws IOException
 	 *             the stream cannot be read.
 	 */
@@ -138,6 +147,8 @@ public class PacketLineIn {
 		int len = readLength();
 		if (len == 0)
 			return END;
+		if (len == 1)
+			return DELIM;
 
 		len -= 4; // length header (4 bytes)
 		if (len == 0)
@@ -161,7 +172,7 @@ public class PacketLineIn {
 	 * Unlike {@link #readString()} a trailing LF will be retained.
 	 *
 	 * @return the string. {@link #END} if the string was the magic flush
-	 *         packet.
+	 *         packet, {@link #DELIM} if it was the magic delimiter packet.
 	 * @throws IOException
 	 *             the stream cannot be read.
 	 */
@@ -169,6 +180,8 @@ public class PacketLineIn {
 		int len = readLength();
 		if (len == 0)
 			return END;
+		if (len == 1)
+			return DELIM;
 
 		len -= 4; // length header (4 bytes)
 
@@ -186,7 +199,7 @@ public class PacketLineIn {
 		IO.readFully(in, lineBuffer, 0, 4);
 		try {
 			final int len = RawParseUtils.parseHexInt16(lineBuffer, 0);
-			if (len != 0 && len < 4)
+			if (len != 0 && len != 1 && len < 4)
 				throw new ArrayIndexOutOfBoundsException();
 			return len;
 		} catch (ArrayIndexOutOfBoundsException err) {
@@ -139,6 +139,22 @@ public class PacketLineOut {
 			flush();
 	}
 
+	/**
+	 * Write a packet delimiter marker on the stream.
+	 * <p>
+	 * Delimiters separate sections of a protocol v2 request or response.
+	 * Unlike {@link #end()} this never flushes the underlying OutputStream.
+	 *
+	 * @throws IOException
+	 *             the delimiter could not be written, the stream is corrupted
+	 *             as the delimiter may have been only partially written.
+	 * @since 3.8
+	 */
+	public void writeDelim() throws IOException {
+		formatLength(1);
+		out.write(lenbuffer, 0, 4);
+	}
+
 	/**
 	 * Flush the underlying OutputStream.
 	 * <p>
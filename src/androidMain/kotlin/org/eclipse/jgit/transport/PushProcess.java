@@ -166,6 +166,9 @@ class PushProcess {
 			} finally {
 				connection.close();
 				res.addMessages(connection.getMessages());
+				if (connection instanceof BasePackPushConnection)
+					res.setPackStatistics(((BasePackPushConnection) connection)
+							.getPackStatistics());
 			}
 			if (!transport.isDryRun())
 				updateTrackingRefs();
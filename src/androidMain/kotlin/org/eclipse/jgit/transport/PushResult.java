@@ -49,6 +49,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 
+import org.eclipse.jgit.internal.storage.pack.PackWriter;
+
 /**
  * Result of push operation to the remote repository. Holding information of
  * {@link OperationResult} and remote refs updates status.
@@ -58,6 +60,12 @@ import java.util.Map;
 public class PushResult extends OperationResult {
 	private Map<String, RemoteRefUpdate> remoteUpdates = Collections.emptyMap();
 
+	private long objectsEnumerated;
+
+	private long objectsReused;
+
+	private long objectsDeltaCompressed;
+
 	/**
 	 * Get status of remote refs updates. Together with
 	 * {@link #getAdvertisedRefs()} it provides full description/status of each
@@ -89,4 +97,40 @@ public class PushResult extends OperationResult {
 			final Map<String, RemoteRefUpdate> remoteUpdates) {
 		this.remoteUpdates = remoteUpdates;
 	}
+
+	/**
+	 * @return number of objects found to be sent, 0 if no pack was sent or
+	 *         the transport does not build packs.
+	 * @since 3.8
+	 */
+	public long getObjectsEnumerated() {
+		return objectsEnumerated;
+	}
+
+	/**
+	 * @return number of objects copied as-is from local packs, including
+	 *         reused deltas.
+	 * @since 3.8
+	 */
+	public long getObjectsReused() {
+		return objectsReused;
+	}
+
+	/**
+	 * @return number of objects sent as deltas found by a new delta search,
+	 *         rather than reused from local packs.
+	 * @since 3.8
+	 */
+	public long getObjectsDeltaCompressed() {
+		return objectsDeltaCompressed;
+	}
+
+	void setPackStatistics(PackWriter.Statistics stats) {
+		if (stats == null)
+			return;
+		objectsEnumerated = stats.getTotalObjects();
+		objectsReused = stats.getReusedObjects();
+		objectsDeltaCompressed = stats.getTotalDeltas()
+				- stats.getReusedDeltas();
+	}
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.transport;
+
+/**
+ * Statistics about a pack received by {@link BaseReceivePack}.
+ *
+ * @since 3.8
+ */
+public class ReceivedPackStatistics {
+	long connectivityTime;
+
+	long connectivityCpuTime = -1;
+
+	int connectivityThreads;
+
+	long treesChecked;
+
+	boolean fullWalk;
+
+	/**
+	 * @return wall clock time in milliseconds spent checking the connectivity
+	 *         of the received objects.
+	 */
+	public long getConnectivityCheckTime() {
+		return connectivityTime;
+	}
+
+	/**
+	 * @return CPU time in milliseconds spent checking connectivity, summed
+	 *         over all threads of the check; -1 if the JVM does not measure
+	 *         thread CPU time.
+	 */
+	public long getConnectivityCheckCpuTime() {
+		return connectivityCpuTime;
+	}
+
+	/** @return number of threads used to check the pack's trees. */
+	public int getConnectivityCheckThreads() {
+		return connectivityThreads;
+	}
+
+	/** @return number of trees of the pack parsed by the fast check. */
+	public long getTreesChecked() {
+		return treesChecked;
+	}
+
+	/**
+	 * @return true if connectivity was verified by walking all objects
+	 *         reachable from the new references, rather than only the
+	 *         received pack's objects.
+	 */
+	public boolean isFullWalk() {
+		return fullWalk;
+	}
+}
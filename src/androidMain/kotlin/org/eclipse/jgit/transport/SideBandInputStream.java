@@ -160,6 +160,10 @@ class SideBandInputStream extends InputStream {
 				eof = true;
 				return;
 			}
+			if (available < HDR_SIZE)
+				throw new PackProtocolException(MessageFormat.format(
+						JGitText.get().invalidPacketLineHeader,
+						Integer.toHexString(available)));
 
 			channel = rawIn.read() & 0xff;
 			available -= HDR_SIZE; // length header plus channel indicator
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.transport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Offers exponentially spaced ancestors, refining after acknowledgements.
+ * <p>
+ * Along each line of history the gap between offered commits grows by half
+ * after every offer, so a client far ahead of (or far behind) the remote
+ * reaches the common history in a logarithmic number of have lines. When
+ * the remote acknowledges a commit reached across a gap, the skipped
+ * commits of that gap are offered individually so the remote still learns
+ * a precise common base.
+ *
+ * @since 3.8
+ */
+public class SkippingNegotiationStrategy implements NegotiationStrategy {
+	/** Factory creating this strategy. */
+	public static final Factory FACTORY = new Factory() {
+		public NegotiationStrategy newStrategy() {
+			return new SkippingNegotiationStrategy();
+		}
+	};
+
+	private static class Entry {
+		final RevCommit commit;
+
+		/** Gap used for the current run of skipped commits. */
+		final int originalTtl;
+
+		/** Commits still to skip before the next offer. */
+		final int ttl;
+
+		/** Previous skipped commit on the same line, newest last. */
+		final Entry skipped;
+
+		Entry(RevCommit commit, int originalTtl, int ttl, Entry skipped) {
+			this.commit = commit;
+			this.originalTtl = originalTtl;
+			this.ttl = ttl;
+			this.skipped = skipped;
+		}
+	}
+
+	private final PriorityQueue<Entry> queue = new PriorityQueue<Entry>(64,
+			new Comparator<Entry>() {
+				public int compare(Entry a, Entry b) {
+					int at = a.commit.getCommitTime();
+					int bt = b.commit.getCommitTime();
+					return at > bt ? -1 : at < bt ? 1 : 0;
+				}
+			});
+
+	/** Commits skipped just before each offered commit. */
+	private final Map<RevCommit, Entry> gaps = new HashMap<RevCommit, Entry>();
+
+	private RevWalk walk;
+
+	private RevFlag common;
+
+	private RevFlag advertised;
+
+	private RevFlag seen;
+
+	/** Commits marked {@link #seen}, to clear the flag again in end(). */
+	private final List<RevCommit> seenCommits = new ArrayList<RevCommit>();
+
+	public void begin(RevWalk w, Collection<RevCommit> tips, RevFlag c,
+			RevFlag a) throws IOException {
+		walk = w;
+		common = c;
+		advertised = a;
+		seen = walk.newFlag("SKIP_SEEN"); //$NON-NLS-1$
+		for (RevCommit tip : tips)
+			push(tip, 0, 0, null);
+	}
+
+	public RevCommit next() throws IOException {
+		Entry e;
+		while ((e = queue.poll()) != null) {
+			RevCommit c = e.commit;
+			if (c.has(common)) {
+				markParentsCommon(c);
+				continue;
+			}
+
+			if (c.has(advertised)) {
+				// The remote has it, but may not know we do. Offer it once
+				// and stop there; nothing behind it needs negotiating.
+				c.add(common);
+				markParentsCommon(c);
+				return c;
+			}
+
+			boolean offer = e.ttl == 0;
+			for (RevCommit p : c.getParents()) {
+				if (offer) {
+					int gap = e.originalTtl * 3 / 2 + 1;
+					push(p, gap, gap, null);
+				} else
+					push(p, e.originalTtl, e.ttl - 1, e);
+			}
+			if (offer) {
+				if (e.skipped != null)
+					gaps.put(c, e.skipped);
+				return c;
+			}
+		}
+		return null;
+	}
+
+	public void ack(RevCommit commit) throws IOException {
+		// Offer the skipped descendants of an acknowledged commit one at a
+		// time; the newest of them the remote has is the real common base.
+		Entry gap = gaps.remove(commit);
+		for (; gap != null; gap = gap.skipped) {
+			if (!gap.commit.has(common))
+				queue.add(new Entry(gap.commit, 0, 0, null));
+		}
+	}
+
+	public void end() {
+		queue.clear();
+		gaps.clear();
+		if (seen != null) {
+			for (RevCommit c : seenCommits)
+				c.remove(seen);
+			seenCommits.clear();
+			walk.disposeFlag(seen);
+			seen = null;
+		}
+	}
+
+	private void push(RevCommit c, int originalTtl, int ttl, Entry skipped)
+			throws IOException {
+		if (c.has(seen))
+			return;
+		try {
+			walk.parseHeaders(c);
+		} catch (MissingObjectException notFound) {
+			return;
+		}
+		c.add(seen);
+		seenCommits.add(c);
+		queue.add(new Entry(c, originalTtl, ttl, skipped));
+	}
+
+	private void markParentsCommon(RevCommit c) throws IOException {
+		for (RevCommit p : c.getParents()) {
+			if (!p.has(common)) {
+				try {
+					walk.parseHeaders(p);
+				} catch (MissingObjectException notFound) {
+					continue;
+				}
+				p.add(common);
+			}
+		}
+	}
+}
@@ -71,6 +71,8 @@ public class TransferConfig {
 	private final boolean safeForMacOS;
 	private final boolean allowTipSha1InWant;
 	private final String[] hideRefs;
+	private final boolean protocolV2;
+	private final String negotiationAlgorithm;
 
 	TransferConfig(final Repository db) {
 		this(db.getConfig());
@@ -92,6 +94,9 @@ public class TransferConfig {
 		allowTipSha1InWant = rc.getBoolean(
 				"uploadpack", "allowtipsha1inwant", false); //$NON-NLS-1$ //$NON-NLS-2$
 		hideRefs = rc.getStringList("uploadpack", null, "hiderefs"); //$NON-NLS-1$ //$NON-NLS-2$
+		protocolV2 = rc.getInt("protocol", "version", 0) >= 2; //$NON-NLS-1$ //$NON-NLS-2$
+		negotiationAlgorithm = rc.getString(
+				"fetch", null, "negotiationalgorithm"); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
 	/**
@@ -125,6 +130,28 @@ public class TransferConfig {
 		return allowTipSha1InWant;
 	}
 
+	/**
+	 * @return speak protocol v2 with peers that support it? Off unless
+	 *         {@code protocol.version} is set to 2.
+	 * @since 3.8
+	 */
+	public boolean isProtocolV2() {
+		return protocolV2;
+	}
+
+	/**
+	 * @return factory for the negotiation strategy named by
+	 *         {@code fetch.negotiationAlgorithm}; {@code skipping} selects
+	 *         {@link SkippingNegotiationStrategy}, anything else
+	 *         {@link ConsecutiveNegotiationStrategy}.
+	 * @since 3.8
+	 */
+	public NegotiationStrategy.Factory getNegotiationStrategyFactory() {
+		if ("skipping".equals(negotiationAlgorithm)) //$NON-NLS-1$
+			return SkippingNegotiationStrategy.FACTORY;
+		return ConsecutiveNegotiationStrategy.FACTORY;
+	}
+
 	/**
 	 * @return {@link RefFilter} respecting configured hidden refs.
 	 * @since 3.1
@@ -691,8 +691,11 @@ public abstract class Transport {
 
 	/**
 	 * Default setting for {@link #pushThin} option.
+	 * <p>
+	 * Like C Git, thin packs are pushed by default, so new objects may be
+	 * sent as deltas against objects the remote already has.
 	 */
-	public static final boolean DEFAULT_PUSH_THIN = false;
+	public static final boolean DEFAULT_PUSH_THIN = true;
 
 	/**
 	 * Specification for fetch or push operations, to fetch or push all tags.
@@ -761,6 +764,12 @@ public abstract class Transport {
 	/** Assists with authentication the connection. */
 	private CredentialsProvider credentialsProvider;
 
+	/** Should fetch connections ask the remote to speak protocol v2? */
+	private boolean protocolV2;
+
+	/** Chooses the have lines offered while fetching. */
+	private NegotiationStrategy.Factory negotiationStrategy = ConsecutiveNegotiationStrategy.FACTORY;
+
 	/**
 	 * Create a new transport instance.
 	 *
@@ -778,6 +787,8 @@ public abstract class Transport {
 		this.uri = uri;
 		this.objectChecker = tc.newObjectChecker();
 		this.credentialsProvider = CredentialsProvider.getDefault();
+		this.protocolV2 = tc.isProtocolV2();
+		this.negotiationStrategy = tc.getNegotiationStrategyFactory();
 	}
 
 	/**
@@ -1033,6 +1044,52 @@ public abstract class Transport {
 		timeout = seconds;
 	}
 
+	/**
+	 * @return true if fetch connections ask the remote to speak protocol v2.
+	 *         Defaults to the {@code protocol.version} setting of the local
+	 *         repository, or false.
+	 * @since 3.8
+	 */
+	public boolean isProtocolV2() {
+		return protocolV2;
+	}
+
+	/**
+	 * Set whether fetch connections ask the remote to speak protocol v2.
+	 * <p>
+	 * Remotes which do not understand version 2 ignore the request and
+	 * answer with the original protocol.
+	 *
+	 * @param v2
+	 *            true to request protocol v2.
+	 * @since 3.8
+	 */
+	public void setProtocolV2(boolean v2) {
+		protocolV2 = v2;
+	}
+
+	/**
+	 * @return factory for the strategy choosing have lines during fetch.
+	 *         Defaults to the {@code fetch.negotiationAlgorithm} setting of
+	 *         the local repository.
+	 * @since 3.8
+	 */
+	public NegotiationStrategy.Factory getNegotiationStrategy() {
+		return negotiationStrategy;
+	}
+
+	/**
+	 * Set the strategy choosing have lines during fetch.
+	 *
+	 * @param factory
+	 *            creates one strategy per fetch, for example
+	 *            {@link SkippingNegotiationStrategy#FACTORY}.
+	 * @since 3.8
+	 */
+	public void setNegotiationStrategy(NegotiationStrategy.Factory factory) {
+		negotiationStrategy = factory;
+	}
+
 	/**
 	 * Get the configuration used by the pack generator to make packs.
 	 *
@@ -1284,6 +1341,30 @@ public abstract class Transport {
 	public abstract FetchConnection openFetch() throws NotSupportedException,
 			TransportException;
 
+	/**
+	 * Begins a new connection for fetching only some refs.
+	 * <p>
+	 * When the remote speaks protocol v2 only refs whose names start with
+	 * one of {@code prefixes} are listed, which is much cheaper than the
+	 * full advertisement for repositories with many refs. Other remotes, and
+	 * transports which cannot list refs selectively, still list every ref,
+	 * so callers must filter {@link FetchConnection#getRefs()} themselves.
+	 *
+	 * @param prefixes
+	 *            ref name prefixes to list, such as {@code refs/heads/};
+	 *            null or empty to list all refs.
+	 * @return a fresh connection to fetch from the remote repository.
+	 * @throws NotSupportedException
+	 *             the implementation does not support fetching.
+	 * @throws TransportException
+	 *             the remote connection could not be established.
+	 * @since 3.8
+	 */
+	public FetchConnection openFetch(Collection<String> prefixes)
+			throws NotSupportedException, TransportException {
+		return openFetch();
+	}
+
 	/**
 	 * Begins a new connection for pushing into the remote repository.
 	 *
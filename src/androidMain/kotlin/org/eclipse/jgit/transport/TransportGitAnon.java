@@ -54,6 +54,7 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Set;
@@ -117,7 +118,13 @@ class TransportGitAnon extends TcpTransport implements PackTransport {
 
 	@Override
 	public FetchConnection openFetch() throws TransportException {
-		return new TcpFetchConnection();
+		return new TcpFetchConnection(null);
+	}
+
+	@Override
+	public FetchConnection openFetch(Collection<String> prefixes)
+			throws TransportException {
+		return new TcpFetchConnection(prefixes);
 	}
 
 	@Override
@@ -167,6 +174,12 @@ class TransportGitAnon extends TcpTransport implements PackTransport {
 			cmd.append(uri.getPort());
 		}
 		cmd.append('\0');
+		if (isProtocolV2() && name.equals("git-upload-pack")) { //$NON-NLS-1$
+			// Servers that do not know extra parameters ignore them.
+			cmd.append('\0');
+			cmd.append(GitProtocolConstants.VERSION_2_REQUEST);
+			cmd.append('\0');
+		}
 		pckOut.writeString(cmd.toString());
 		pckOut.flush();
 	}
@@ -174,8 +187,9 @@ class TransportGitAnon extends TcpTransport implements PackTransport {
 	class TcpFetchConnection extends BasePackFetchConnection {
 		private Socket sock;
 
-		TcpFetchConnection() throws TransportException {
-			super(TransportGitAnon.this);
+		TcpFetchConnection(Collection<String> refPrefixes)
+				throws TransportException {
+			super(TransportGitAnon.this, refPrefixes);
 			sock = openConnection();
 			try {
 				InputStream sIn = sock.getInputStream();
@@ -51,6 +51,7 @@ import java.io.InputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.LinkedHashSet;
@@ -158,7 +159,13 @@ public class TransportGitSsh extends SshTransport implements PackTransport {
 
 	@Override
 	public FetchConnection openFetch() throws TransportException {
-		return new SshFetchConnection();
+		return new SshFetchConnection(null);
+	}
+
+	@Override
+	public FetchConnection openFetch(Collection<String> prefixes)
+			throws TransportException {
+		return new SshFetchConnection(prefixes);
 	}
 
 	@Override
@@ -256,8 +263,9 @@ public class TransportGitSsh extends SshTransport implements PackTransport {
 
 		private StreamCopyThread errorThread;
 
-		SshFetchConnection() throws TransportException {
-			super(TransportGitSsh.this);
+		SshFetchConnection(Collection<String> refPrefixes)
+				throws TransportException {
+			super(TransportGitSsh.this, refPrefixes);
 			try {
 				process = getSession().exec(commandFor(getOptionUploadPack()),
 						getTimeout());
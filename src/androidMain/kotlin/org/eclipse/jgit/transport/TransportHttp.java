@@ -45,6 +45,9 @@
 
 package org.eclipse.jgit.transport;
 
+import static org.eclipse.jgit.transport.GitProtocolConstants.HDR_GIT_PROTOCOL;
+import static org.eclipse.jgit.transport.GitProtocolConstants.VERSION_2;
+import static org.eclipse.jgit.transport.GitProtocolConstants.VERSION_2_REQUEST;
 import static org.eclipse.jgit.util.HttpSupport.ENCODING_GZIP;
 import static org.eclipse.jgit.util.HttpSupport.HDR_ACCEPT;
 import static org.eclipse.jgit.util.HttpSupport.HDR_ACCEPT_ENCODING;
@@ -59,6 +62,8 @@ import static org.eclipse.jgit.util.HttpSupport.METHOD_POST;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -250,6 +255,17 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 
 	private Map<String, String> headers;
 
+	/** True once the server answered info/refs using protocol v2. */
+	private boolean gitProtocolV2;
+
+	private int requestCount;
+
+	private long connectTime;
+
+	private long firstByteTime;
+
+	private long transferTime;
+
 	TransportHttp(final Repository local, final URIish uri)
 			throws NotSupportedException {
 		super(local, uri);
@@ -304,14 +320,20 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 	@Override
 	public FetchConnection openFetch() throws TransportException,
 			NotSupportedException {
+		return openFetch(null);
+	}
+
+	@Override
+	public FetchConnection openFetch(Collection<String> prefixes)
+			throws TransportException, NotSupportedException {
 		final String service = SVC_UPLOAD_PACK;
 		try {
 			final HttpConnection c = connect(service);
 			final InputStream in = openInputStream(c);
 			try {
 				if (isSmartHttp(c, service)) {
-					readSmartHeaders(in, service);
-					return new SmartHttpFetchConnection(in);
+					InputStream adv = readSmartHeaders(in, service);
+					return new SmartHttpFetchConnection(adv, prefixes);
 
 				} else {
 					// Assume this server doesn't support smart HTTP fetch
@@ -348,7 +370,7 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 			// the resolution by hand.
 			//
 			HttpConnection conn = httpOpen(new URL(baseUrl, Constants.HEAD));
-			int status = HttpSupport.response(conn);
+			int status = timedResponse(conn);
 			switch (status) {
 			case HttpConnection.HTTP_OK: {
 				br = toBufferedReader(openInputStream(conn));
@@ -425,7 +447,55 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 
 	@Override
 	public void close() {
-		// No explicit connections are maintained.
+		// No explicit connections are maintained. Connections whose
+		// response was read to the end are kept alive by the JVM.
+	}
+
+	/**
+	 * @return number of HTTP requests sent through this transport.
+	 * @since 3.8
+	 */
+	public int getRequestCount() {
+		return requestCount;
+	}
+
+	/**
+	 * Get the time spent opening connections.
+	 * <p>
+	 * For https this includes the TLS handshake, which the underlying
+	 * connection performs as part of connecting. Requests sent over a kept
+	 * alive connection contribute almost nothing.
+	 *
+	 * @return milliseconds spent connecting, summed over all requests.
+	 * @since 3.8
+	 */
+	public long getConnectTime() {
+		return connectTime / 1000000;
+	}
+
+	/**
+	 * Get the time spent waiting for the server to start responding.
+	 *
+	 * @return milliseconds between each request being sent and its response
+	 *         headers arriving, summed over all requests.
+	 * @since 3.8
+	 */
+	public long getTimeToFirstByte() {
+		return firstByteTime / 1000000;
+	}
+
+	/**
+	 * Get the time spent moving request and response bodies.
+	 * <p>
+	 * Only time blocked writing to or reading from the connection is
+	 * counted, not time the caller spent processing the data.
+	 *
+	 * @return milliseconds spent transferring bodies, summed over all
+	 *         requests.
+	 * @since 3.8
+	 */
+	public long getTransferTime() {
+		return transferTime / 1000000;
 	}
 
 	/**
@@ -469,10 +539,13 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 				if (useSmartHttp) {
 					String exp = "application/x-" + service + "-advertisement"; //$NON-NLS-1$ //$NON-NLS-2$
 					conn.setRequestProperty(HDR_ACCEPT, exp + ", */*"); //$NON-NLS-1$
+					if (isProtocolV2() && SVC_UPLOAD_PACK.equals(service))
+						conn.setRequestProperty(HDR_GIT_PROTOCOL,
+								VERSION_2_REQUEST);
 				} else {
 					conn.setRequestProperty(HDR_ACCEPT, "*/*"); //$NON-NLS-1$
 				}
-				final int status = HttpSupport.response(conn);
+				final int status = timedResponse(conn);
 				switch (status) {
 				case HttpConnection.HTTP_OK:
 					// Check if HttpConnection did some authentication in the
@@ -581,12 +654,38 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 
 	final InputStream openInputStream(HttpConnection conn)
 			throws IOException {
-		InputStream input = conn.getInputStream();
+		InputStream input = new TimedInputStream(conn.getInputStream());
 		if (ENCODING_GZIP.equals(conn.getHeaderField(HDR_CONTENT_ENCODING)))
 			input = new GZIPInputStream(input);
 		return input;
 	}
 
+	/** Open the connection, if not yet open, recording the time taken. */
+	private void timedConnect(HttpConnection conn) throws IOException {
+		long start = System.nanoTime();
+		try {
+			HttpSupport.connect(conn);
+		} finally {
+			connectTime += System.nanoTime() - start;
+		}
+		requestCount++;
+	}
+
+	/** Send a request without body and wait for its response headers. */
+	private int timedResponse(HttpConnection conn) throws IOException {
+		timedConnect(conn);
+		return awaitResponse(conn);
+	}
+
+	private int awaitResponse(HttpConnection conn) throws IOException {
+		long start = System.nanoTime();
+		try {
+			return HttpSupport.response(conn);
+		} finally {
+			firstByteTime += System.nanoTime() - start;
+		}
+	}
+
 	IOException wrongContentType(String expType, String actType) {
 		final String why = MessageFormat.format(JGitText.get().expectedReceivedContentType, expType, actType);
 		return new TransportException(uri, why);
@@ -598,15 +697,21 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 		return expType.equals(actType);
 	}
 
-	private void readSmartHeaders(final InputStream in, final String service)
-			throws IOException {
+	InputStream readSmartHeaders(final InputStream in,
+			final String service) throws IOException {
 		// A smart reply will have a '#' after the first 4 bytes, but
 		// a dumb reply cannot contain a '#' until after byte 41. Do a
 		// quick check to make sure its a smart reply before we parse
-		// as a pkt-line stream.
+		// as a pkt-line stream. A protocol v2 reply may instead start
+		// directly with its "version 2" capability advertisement.
 		//
 		final byte[] magic = new byte[5];
 		IO.readFully(in, magic, 0, magic.length);
+		if (magic[4] == 'v' && isProtocolV2()
+				&& SVC_UPLOAD_PACK.equals(service)) {
+			gitProtocolV2 = true;
+			return new UnionInputStream(new ByteArrayInputStream(magic), in);
+		}
 		if (magic[4] != '#') {
 			throw new TransportException(uri, MessageFormat.format(
 					JGitText.get().expectedPktLineWithService, RawParseUtils.decode(magic)));
@@ -624,6 +729,40 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 		while (pckIn.readString() != PacketLineIn.END) {
 			// for now, ignore the remaining header lines
 		}
+		if (isProtocolV2() && SVC_UPLOAD_PACK.equals(service))
+			return peekVersion2(in);
+		return in;
+	}
+
+	/**
+	 * Check if the advertisement following the service header is v2.
+	 * <p>
+	 * Servers such as GitHub keep the {@code # service=} header for v2 and
+	 * send the {@code version 2} line after it.
+	 *
+	 * @param in
+	 *            stream positioned after the service header.
+	 * @return stream positioned at the start of the advertisement.
+	 * @throws IOException
+	 *             the advertisement could not be read.
+	 */
+	private InputStream peekVersion2(InputStream in) throws IOException {
+		byte[] v2 = Constants.encode("000e" + VERSION_2 + '\n'); //$NON-NLS-1$
+		byte[] buf = new byte[v2.length];
+		int n = 4;
+		IO.readFully(in, buf, 0, n);
+		if (buf[0] == v2[0] && buf[1] == v2[1] && buf[2] == v2[2]
+				&& buf[3] == v2[3]) {
+			IO.readFully(in, buf, n, buf.length - n);
+			n = buf.length;
+			gitProtocolV2 = RawParseUtils.match(buf, 0, v2) == n;
+		}
+		return new UnionInputStream(new ByteArrayInputStream(buf, 0, n), in);
+	}
+
+	/** @return true if the server answered info/refs using protocol v2. */
+	boolean isServerProtocolV2() {
+		return gitProtocolV2;
 	}
 
 	class HttpObjectDB extends WalkRemoteObjectDatabase {
@@ -689,7 +828,7 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 			final URL base = httpObjectsUrl;
 			final URL u = new URL(base, path);
 			final HttpConnection c = httpOpen(u);
-			switch (HttpSupport.response(c)) {
+			switch (timedResponse(c)) {
 			case HttpConnection.HTTP_OK:
 				final InputStream in = openInputStream(c);
 				final int len = c.getContentLength();
@@ -763,14 +902,22 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 	class SmartHttpFetchConnection extends BasePackFetchConnection {
 		private MultiRequestService svc;
 
-		SmartHttpFetchConnection(final InputStream advertisement)
-				throws TransportException {
-			super(TransportHttp.this);
+		SmartHttpFetchConnection(final InputStream advertisement,
+				Collection<String> refPrefixes) throws TransportException {
+			super(TransportHttp.this, refPrefixes);
 			statelessRPC = true;
 
-			init(advertisement, DisabledOutputStream.INSTANCE);
+			if (gitProtocolV2) {
+				// ls-refs is sent as its own request once the capability
+				// advertisement has been consumed.
+				svc = new MultiRequestService(SVC_UPLOAD_PACK);
+				init(new UnionInputStream(advertisement,
+						svc.getInputStream()), svc.getOutputStream());
+			} else
+				init(advertisement, DisabledOutputStream.INSTANCE);
 			outNeedsEnd = false;
 			readAdvertisedRefs();
+			svc = null;
 		}
 
 		@Override
@@ -844,6 +991,8 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 			conn.setDoOutput(true);
 			conn.setRequestProperty(HDR_CONTENT_TYPE, requestType);
 			conn.setRequestProperty(HDR_ACCEPT, responseType);
+			if (gitProtocolV2 && SVC_UPLOAD_PACK.equals(serviceName))
+				conn.setRequestProperty(HDR_GIT_PROTOCOL, VERSION_2_REQUEST);
 		}
 
 		void sendRequest() throws IOException {
@@ -865,7 +1014,9 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 			if (buf != out)
 				conn.setRequestProperty(HDR_CONTENT_ENCODING, ENCODING_GZIP);
 			conn.setFixedLengthStreamingMode((int) buf.length());
-			final OutputStream httpOut = conn.getOutputStream();
+			timedConnect(conn);
+			final OutputStream httpOut = new TimedOutputStream(
+					conn.getOutputStream());
 			try {
 				buf.writeTo(httpOut, null);
 			} finally {
@@ -874,7 +1025,7 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 		}
 
 		void openResponse() throws IOException {
-			final int status = HttpSupport.response(conn);
+			final int status = awaitResponse(conn);
 			if (status != HttpConnection.HTTP_OK) {
 				throw new TransportException(uri, status + " " //$NON-NLS-1$
 						+ conn.getResponseMessage());
@@ -923,7 +1074,20 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 			protected OutputStream overflow() throws IOException {
 				openStream();
 				conn.setChunkedStreamingMode(0);
-				return conn.getOutputStream();
+
+				// Have lines compress very well, so stream them through
+				// gzip as they are produced. Pack data sent to
+				// receive-pack is already compressed; don't bother.
+				boolean gzip = SVC_UPLOAD_PACK.equals(serviceName);
+				if (gzip)
+					conn.setRequestProperty(HDR_CONTENT_ENCODING,
+							ENCODING_GZIP);
+				timedConnect(conn);
+				OutputStream httpOut = new TimedOutputStream(
+						conn.getOutputStream());
+				if (gzip)
+					httpOut = new GZIPOutputStream(httpOut, 8192);
+				return httpOut;
 			}
 		}
 	}
@@ -936,8 +1100,12 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 	 * the OutputStream is buffered until either the buffer overflows, or
 	 * reading from the InputStream occurs. If overflow occurs HTTP/1.1 and its
 	 * chunked transfer encoding is used to stream the request data to the
-	 * remote service. If the entire request fits in the memory buffer, the
-	 * older HTTP/1.0 standard and a fixed content length is used instead.
+	 * remote service, gzip compressing it on the fly for upload-pack. If the
+	 * entire request fits in the memory buffer, the older HTTP/1.0 standard
+	 * and a fixed content length is used instead.
+	 * <p>
+	 * Each response is read to its end before the next request is sent, so
+	 * the JVM can send all rounds over one kept alive connection.
 	 * <p>
 	 * It is an error to attempt to read without there being outstanding data
 	 * ready for transmission on the OutputStream.
@@ -1007,6 +1175,116 @@ public class TransportHttp extends HttpTransport implements WalkTransport,
 		}
 	}
 
+	/**
+	 * Times blocking reads of a response body.
+	 * <p>
+	 * On close any small unread remainder is drained, so the connection can
+	 * be kept alive even if the caller stopped at the end of the data it
+	 * needed (e.g. the flush packet ending a ref advertisement).
+	 */
+	private class TimedInputStream extends FilterInputStream {
+		private static final int DRAIN_LIMIT = 64 * 1024;
+
+		private boolean eof;
+
+		TimedInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			long start = System.nanoTime();
+			try {
+				int r = super.read();
+				if (r < 0)
+					eof = true;
+				return r;
+			} finally {
+				transferTime += System.nanoTime() - start;
+			}
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			long start = System.nanoTime();
+			try {
+				int n = super.read(b, off, len);
+				if (n < 0)
+					eof = true;
+				return n;
+			} finally {
+				transferTime += System.nanoTime() - start;
+			}
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long start = System.nanoTime();
+			try {
+				return super.skip(n);
+			} finally {
+				transferTime += System.nanoTime() - start;
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				if (!eof) {
+					byte[] buf = new byte[4096];
+					int total = 0;
+					while (total < DRAIN_LIMIT) {
+						int n = read(buf, 0, buf.length);
+						if (n < 0)
+							break;
+						total += n;
+					}
+				}
+			} catch (IOException err) {
+				// The connection will not be reused; nothing else to do.
+			} finally {
+				super.close();
+			}
+		}
+	}
+
+	/** Times blocking writes of a request body. */
+	private class TimedOutputStream extends FilterOutputStream {
+		TimedOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			long start = System.nanoTime();
+			try {
+				out.write(b);
+			} finally {
+				transferTime += System.nanoTime() - start;
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			long start = System.nanoTime();
+			try {
+				out.write(b, off, len);
+			} finally {
+				transferTime += System.nanoTime() - start;
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			long start = System.nanoTime();
+			try {
+				out.flush();
+			} finally {
+				transferTime += System.nanoTime() - start;
+			}
+		}
+	}
+
 	private static class DummyX509TrustManager implements X509TrustManager {
 		public X509Certificate[] getAcceptedIssuers() {
 			return null;
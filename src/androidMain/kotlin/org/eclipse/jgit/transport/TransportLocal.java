@@ -54,6 +54,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
@@ -170,10 +171,16 @@ class TransportLocal extends Transport implements PackTransport {
 
 	@Override
 	public FetchConnection openFetch() throws TransportException {
+		return openFetch(null);
+	}
+
+	@Override
+	public FetchConnection openFetch(Collection<String> prefixes)
+			throws TransportException {
 		final String up = getOptionUploadPack();
 		if ("git-upload-pack".equals(up) || "git upload-pack".equals(up)) //$NON-NLS-1$ //$NON-NLS-2$
-			return new InternalLocalFetchConnection();
-		return new ForkLocalFetchConnection();
+			return new InternalLocalFetchConnection(prefixes);
+		return new ForkLocalFetchConnection(prefixes);
 	}
 
 	@Override
@@ -217,8 +224,9 @@ class TransportLocal extends Transport implements PackTransport {
 	class InternalLocalFetchConnection extends BasePackFetchConnection {
 		private Thread worker;
 
-		InternalLocalFetchConnection() throws TransportException {
-			super(TransportLocal.this);
+		InternalLocalFetchConnection(Collection<String> refPrefixes)
+				throws TransportException {
+			super(TransportLocal.this, refPrefixes);
 
 			final Repository dst;
 			try {
@@ -255,6 +263,9 @@ class TransportLocal extends Transport implements PackTransport {
 				public void run() {
 					try {
 						final UploadPack rp = createUploadPack(dst);
+						if (isProtocolV2())
+							rp.setExtraParameters(Collections.singleton(
+									GitProtocolConstants.VERSION_2_REQUEST));
 						rp.upload(out_r, in_w, null);
 					} catch (IOException err) {
 						// Client side of the pipes should report the problem.
@@ -306,8 +317,9 @@ class TransportLocal extends Transport implements PackTransport {
 
 		private Thread errorReaderThread;
 
-		ForkLocalFetchConnection() throws TransportException {
-			super(TransportLocal.this);
+		ForkLocalFetchConnection(Collection<String> refPrefixes)
+				throws TransportException {
+			super(TransportLocal.this, refPrefixes);
 
 			final MessageWriter msg = new MessageWriter();
 			setMessageWriter(msg);
@@ -44,6 +44,8 @@
 package org.eclipse.jgit.transport;
 
 import static org.eclipse.jgit.lib.RefDatabase.ALL;
+import static org.eclipse.jgit.transport.GitProtocolConstants.COMMAND_FETCH;
+import static org.eclipse.jgit.transport.GitProtocolConstants.COMMAND_LS_REFS;
 import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_ALLOW_TIP_SHA1_IN_WANT;
 import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_INCLUDE_TAG;
 import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_MULTI_ACK;
@@ -51,10 +53,15 @@ import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_MULTI_ACK_D
 import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_NO_DONE;
 import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_NO_PROGRESS;
 import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_OFS_DELTA;
+import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_PEEL;
+import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_REF_PREFIX;
 import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_SHALLOW;
 import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_SIDE_BAND;
 import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_SIDE_BAND_64K;
+import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_SYMREFS;
 import static org.eclipse.jgit.transport.GitProtocolConstants.OPTION_THIN_PACK;
+import static org.eclipse.jgit.transport.GitProtocolConstants.VERSION_2;
+import static org.eclipse.jgit.transport.GitProtocolConstants.VERSION_2_REQUEST;
 
 import java.io.EOFException;
 import java.io.IOException;
@@ -80,6 +87,7 @@ import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefComparator;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.AsyncRevObjectQueue;
 import org.eclipse.jgit.revwalk.DepthWalk;
@@ -284,18 +292,18 @@ public class UploadPack {
 	private Set<ObjectId> advertised;
 
 	/** Marked on objects the client has asked us to give them. */
-	private final RevFlag WANT;
+	private RevFlag WANT;
 
 	/** Marked on objects both we and the client have. */
-	private final RevFlag PEER_HAS;
+	private RevFlag PEER_HAS;
 
 	/** Marked on objects in {@link #commonBase}. */
-	private final RevFlag COMMON;
+	private RevFlag COMMON;
 
 	/** Objects where we found a path from the want list to a common base. */
-	private final RevFlag SATISFIED;
+	private RevFlag SATISFIED;
 
-	private final RevFlagSet SAVE;
+	private RevFlagSet SAVE;
 
 	private RequestValidator requestValidator = new AdvertisedRequestValidator();
 
@@ -307,6 +315,11 @@ public class UploadPack {
 
 	private UploadPackLogger logger = UploadPackLogger.NULL;
 
+	private PackResponseCache packResponseCache;
+
+	/** True if the client asked to speak protocol v2. */
+	private boolean protocolV2Requested;
+
 	/**
 	 * Create a new pack upload for an open repository.
 	 *
@@ -317,7 +330,11 @@ public class UploadPack {
 		db = copyFrom;
 		walk = new RevWalk(db);
 		walk.setRetainBody(false);
+		allocateFlags();
+		setTransferConfig(null);
+	}
 
+	private void allocateFlags() {
 		WANT = walk.newFlag("WANT"); //$NON-NLS-1$
 		PEER_HAS = walk.newFlag("PEER_HAS"); //$NON-NLS-1$
 		COMMON = walk.newFlag("COMMON"); //$NON-NLS-1$
@@ -329,8 +346,6 @@ public class UploadPack {
 		SAVE.add(PEER_HAS);
 		SAVE.add(COMMON);
 		SAVE.add(SATISFIED);
-
-		setTransferConfig(null);
 	}
 
 	/** @return the repository this upload is reading from. */
@@ -414,6 +429,30 @@ public class UploadPack {
 		biDirectionalPipe = twoWay;
 	}
 
+	/**
+	 * Set the extra parameters the client sent alongside its request.
+	 * <p>
+	 * Over git:// these follow the host in the initial request line; over
+	 * HTTP they arrive in the {@code Git-Protocol} header. A client sending
+	 * {@code version=2} is answered using protocol v2 if the repository sets
+	 * {@code protocol.version} to 2.
+	 *
+	 * @param params
+	 *            parameters sent by the client; may be empty.
+	 * @since 3.8
+	 */
+	public void setExtraParameters(Collection<String> params) {
+		protocolV2Requested = params.contains(VERSION_2_REQUEST);
+	}
+
+	/**
+	 * @return true if this instance speaks protocol v2 with the client.
+	 * @since 3.8
+	 */
+	public boolean isProtocolV2() {
+		return protocolV2Requested && transferConfig.isProtocolV2();
+	}
+
 	/**
 	 * @return policy used by the service to validate client requests, or null for
 	 *         a custom request validator.
@@ -569,6 +608,30 @@ public class UploadPack {
 		this.logger = logger;
 	}
 
+	/**
+	 * @return cache of pack responses, or null if packs are always built.
+	 * @since 3.8
+	 */
+	public PackResponseCache getPackResponseCache() {
+		return packResponseCache;
+	}
+
+	/**
+	 * Set the cache used to answer identical requests without building a
+	 * new pack.
+	 * <p>
+	 * Requests from shallow clients are never cached. When a response is
+	 * replayed from the cache {@link #getPackStatistics()} returns null and
+	 * the logger is not invoked.
+	 *
+	 * @param cache
+	 *            cache for this repository; null to disable caching.
+	 * @since 3.8
+	 */
+	public void setPackResponseCache(PackResponseCache cache) {
+		this.packResponseCache = cache;
+	}
+
 	/**
 	 * Check whether the client expects a side-band stream.
 	 *
@@ -658,6 +721,11 @@ public class UploadPack {
 	}
 
 	private void service() throws IOException {
+		if (isProtocolV2()) {
+			serviceV2();
+			return;
+		}
+
 		if (biDirectionalPipe)
 			sendAdvertisedRefs(new PacketLineOutRefAdvertiser(pckOut));
 		else if (requestValidator instanceof AnyRequestValidator)
@@ -717,6 +785,199 @@ public class UploadPack {
 			sendPack();
 	}
 
+	private void serviceV2() throws IOException {
+		if (biDirectionalPipe) {
+			sendAdvertisedRefs(new PacketLineOutRefAdvertiser(pckOut));
+			while (runCommandV2()) {
+				// Keep serving until the client sends a flush or hangs up.
+			}
+		} else {
+			runCommandV2();
+		}
+	}
+
+	private boolean runCommandV2() throws IOException {
+		String line;
+		try {
+			line = pckIn.readString();
+		} catch (EOFException eof) {
+			return false;
+		}
+		if (line == PacketLineIn.END)
+			return false;
+		if (!line.startsWith("command=")) //$NON-NLS-1$
+			throw new PackProtocolException(MessageFormat.format(
+					JGitText.get().expectedGot, "command=", line)); //$NON-NLS-1$
+		String command = line.substring(8);
+
+		// Client capabilities are not needed by either command.
+		do {
+			line = pckIn.readString();
+		} while (line != PacketLineIn.DELIM && line != PacketLineIn.END);
+
+		List<String> args = new ArrayList<String>();
+		if (line == PacketLineIn.DELIM) {
+			while ((line = pckIn.readString()) != PacketLineIn.END)
+				args.add(line);
+		}
+
+		if (COMMAND_LS_REFS.equals(command))
+			lsRefs(args);
+		else if (COMMAND_FETCH.equals(command))
+			fetchV2(args);
+		else
+			throw new PackProtocolException(MessageFormat.format(
+					JGitText.get().unknownOrUnsupportedCommand, command,
+					COMMAND_LS_REFS + ", " + COMMAND_FETCH)); //$NON-NLS-1$
+		pckOut.flush();
+		return true;
+	}
+
+	/**
+	 * Forget the wants and haves of an earlier command on this connection.
+	 * <p>
+	 * Every v2 {@code fetch} carries its complete request. Disposing the walk
+	 * drops the objects parsed so far together with their flags, so the
+	 * flags are allocated again.
+	 */
+	private void resetNegotiation() {
+		wantIds.clear();
+		wantAll.clear();
+		commonBase.clear();
+		okToGiveUp = null;
+		sentReady = false;
+		oldestTime = 0;
+		walk.dispose();
+		allocateFlags();
+	}
+
+	private void lsRefs(List<String> args) throws IOException {
+		boolean symrefs = false;
+		boolean peel = false;
+		List<String> prefixes = new ArrayList<String>();
+		for (String arg : args) {
+			if (arg.equals(OPTION_SYMREFS))
+				symrefs = true;
+			else if (arg.equals(OPTION_PEEL))
+				peel = true;
+			else if (arg.startsWith(OPTION_REF_PREFIX + ' '))
+				prefixes.add(arg.substring(OPTION_REF_PREFIX.length() + 1));
+			else
+				throw new PackProtocolException(MessageFormat.format(
+						JGitText.get().unsupportedProtocolV2Argument, arg));
+		}
+
+		try {
+			advertiseRefsHook.advertiseRefs(this);
+		} catch (ServiceMayNotContinueException fail) {
+			if (fail.getMessage() != null) {
+				pckOut.writeString("ERR " + fail.getMessage() + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				fail.setOutput();
+			}
+			throw fail;
+		}
+
+		StringBuilder b = new StringBuilder();
+		for (Ref ref : RefComparator.sort(getAdvertisedOrDefaultRefs()
+				.values())) {
+			if (!prefixes.isEmpty() && !startsWithAny(ref.getName(), prefixes))
+				continue;
+			ObjectId id = ref.getObjectId();
+			if (id == null)
+				continue;
+
+			b.setLength(0);
+			b.append(id.name()).append(' ').append(ref.getName());
+			if (symrefs && ref.isSymbolic())
+				b.append(" symref-target:").append(ref.getTarget().getName()); //$NON-NLS-1$
+			if (peel) {
+				if (!ref.isPeeled())
+					ref = db.peel(ref);
+				if (ref.getPeeledObjectId() != null)
+					b.append(" peeled:").append(ref.getPeeledObjectId().name()); //$NON-NLS-1$
+			}
+			b.append('\n');
+			pckOut.writeString(b.toString());
+		}
+		pckOut.end();
+	}
+
+	private static boolean startsWithAny(String name, List<String> prefixes) {
+		for (String p : prefixes) {
+			if (name.startsWith(p))
+				return true;
+		}
+		return false;
+	}
+
+	private void fetchV2(List<String> args) throws IOException {
+		resetNegotiation();
+		List<ObjectId> peerHas = new ArrayList<ObjectId>();
+		boolean done = false;
+		options = new HashSet<String>();
+		options.add(OPTION_SIDE_BAND_64K);
+		for (String arg : args) {
+			if (arg.startsWith("want ") && arg.length() == 45) //$NON-NLS-1$
+				wantIds.add(ObjectId.fromString(arg.substring(5)));
+			else if (arg.startsWith("have ") && arg.length() == 45) //$NON-NLS-1$
+				peerHas.add(ObjectId.fromString(arg.substring(5)));
+			else if (arg.equals("done")) //$NON-NLS-1$
+				done = true;
+			else if (arg.equals(OPTION_THIN_PACK)
+					|| arg.equals(OPTION_OFS_DELTA)
+					|| arg.equals(OPTION_NO_PROGRESS)
+					|| arg.equals(OPTION_INCLUDE_TAG))
+				options.add(arg);
+			else
+				throw new PackProtocolException(MessageFormat.format(
+						JGitText.get().unsupportedProtocolV2Argument, arg));
+		}
+
+		if (requestValidator instanceof AnyRequestValidator)
+			advertised = Collections.emptySet();
+		else
+			advertised = refIdSet(getAdvertisedOrDefaultRefs().values());
+		multiAck = MultiAck.DETAILED;
+
+		try {
+			if (wantIds.isEmpty()) {
+				preUploadHook.onBeginNegotiateRound(this, wantIds, 0);
+				preUploadHook.onEndNegotiateRound(this, wantIds, 0, 0, false);
+				pckOut.end();
+				return;
+			}
+
+			// Clients restate known common commits in every request, so
+			// acknowledge each have we can find rather than only new ones.
+			List<ObjectId> haves = new ArrayList<ObjectId>(peerHas);
+			processHaveLines(peerHas, ObjectId.zeroId());
+			if (!done) {
+				pckOut.writeString("acknowledgments\n"); //$NON-NLS-1$
+				boolean acked = false;
+				for (ObjectId id : haves) {
+					RevObject obj = walk.lookupOrNull(id);
+					if (obj != null && obj.has(PEER_HAS)) {
+						pckOut.writeString("ACK " + id.name() + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+						acked = true;
+					}
+				}
+				if (!acked)
+					pckOut.writeString("NAK\n"); //$NON-NLS-1$
+				if (!sentReady) {
+					pckOut.end();
+					return;
+				}
+				pckOut.writeString("ready\n"); //$NON-NLS-1$
+				pckOut.writeDelim();
+			}
+			pckOut.writeString("packfile\n"); //$NON-NLS-1$
+		} catch (PackProtocolException err) {
+			reportErrorDuringNegotiate(err.getMessage());
+			throw err;
+		}
+		sendPack();
+	}
+
 	private static Set<ObjectId> refIdSet(Collection<Ref> refs) {
 		Set<ObjectId> ids = new HashSet<ObjectId>(refs.size());
 		for (Ref ref : refs) {
@@ -779,6 +1040,15 @@ public class UploadPack {
 	 */
 	public void sendAdvertisedRefs(final RefAdvertiser adv) throws IOException,
 			ServiceMayNotContinueException {
+		if (isProtocolV2()) {
+			// Version 2 lists refs on demand through ls-refs.
+			adv.writeOne(VERSION_2 + '\n');
+			adv.writeOne(COMMAND_LS_REFS + '\n');
+			adv.writeOne(COMMAND_FETCH + '\n');
+			adv.end();
+			return;
+		}
+
 		try {
 			advertiseRefsHook.advertiseRefs(this);
 		} catch (ServiceMayNotContinueException fail) {
@@ -987,7 +1257,8 @@ public class UploadPack {
 					pckOut.writeString("ACK " + obj.name() + " continue\n"); //$NON-NLS-1$ //$NON-NLS-2$
 					break;
 				case DETAILED:
-					pckOut.writeString("ACK " + obj.name() + " common\n"); //$NON-NLS-1$ //$NON-NLS-2$
+					if (!isProtocolV2())
+						pckOut.writeString("ACK " + obj.name() + " common\n"); //$NON-NLS-1$ //$NON-NLS-2$
 					break;
 				}
 			}
@@ -1016,7 +1287,8 @@ public class UploadPack {
 							pckOut.writeString("ACK " + id.name() + " continue\n"); //$NON-NLS-1$ //$NON-NLS-2$
 							break;
 						case DETAILED:
-							pckOut.writeString("ACK " + id.name() + " ready\n"); //$NON-NLS-1$ //$NON-NLS-2$
+							if (!isProtocolV2())
+								pckOut.writeString("ACK " + id.name() + " ready\n"); //$NON-NLS-1$ //$NON-NLS-2$
 							sentReady = true;
 							break;
 						}
@@ -1029,7 +1301,8 @@ public class UploadPack {
 		if (multiAck == MultiAck.DETAILED && !didOkToGiveUp && okToGiveUp()) {
 			ObjectId id = peerHas.get(peerHas.size() - 1);
 			sentReady = true;
-			pckOut.writeString("ACK " + id.name() + " ready\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			if (!isProtocolV2())
+				pckOut.writeString("ACK " + id.name() + " ready\n"); //$NON-NLS-1$ //$NON-NLS-2$
 			sentReady = true;
 		}
 
@@ -1347,6 +1620,23 @@ public class UploadPack {
 			throw noPack;
 		}
 
+		PackResponseCache.Writer cacheWriter = null;
+		PackResponseCache cache = packResponseCache;
+		if (cache != null && clientShallowCommits.isEmpty()) {
+			// Negotiation moves parsed wants from wantIds into wantAll.
+			Set<? extends ObjectId> wants = wantAll.isEmpty() ? wantIds
+					: wantAll;
+			String key = PackResponseCache.key(wants, commonBase, depth,
+					options, refs);
+			if (cache.replay(key, packOut)) {
+				if (sideband)
+					pckOut.end();
+				return;
+			}
+			cacheWriter = cache.newWriter(key);
+			packOut = cacheWriter.wrap(packOut);
+		}
+
 		PackConfig cfg = packConfig;
 		if (cfg == null)
 			cfg = new PackConfig(db);
@@ -1415,6 +1705,10 @@ public class UploadPack {
 			}
 
 			pw.writePack(pm, NullProgressMonitor.INSTANCE, packOut);
+			if (cacheWriter != null) {
+				cacheWriter.commit();
+				cacheWriter = null;
+			}
 
 			if (msgOut != NullOutputStream.INSTANCE) {
 				String msg = pw.getStatistics().getMessage() + '\n';
@@ -1423,6 +1717,8 @@ public class UploadPack {
 			}
 
 		} finally {
+			if (cacheWriter != null)
+				cacheWriter.abort();
 			statistics = pw.getStatistics();
 			if (statistics != null)
 				logger.onPackStatistics(statistics);
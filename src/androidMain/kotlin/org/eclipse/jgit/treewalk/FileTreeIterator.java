@@ -52,8 +52,11 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.eclipse.jgit.dircache.UntrackedCache;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.internal.storage.file.FileSnapshot;
 import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.CoreConfig;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
@@ -78,6 +81,18 @@ public class FileTreeIterator extends WorkingTreeIterator {
 	 */
 	protected final FS fs;
 
+	/** Listings of unchanged directories, null if not used. */
+	private UntrackedCache untrackedCache;
+
+	/** Path of {@link #directory} relative to the working tree. */
+	private String cachePath;
+
+	/** Cached listing of {@link #directory}, null if it was not cached. */
+	private UntrackedCache.Directory cachedDirectory;
+
+	/** True if the ignore results of {@link #cachedDirectory} are valid. */
+	private boolean ignoreCached;
+
 	/**
 	 * Create a new iterator to traverse the work tree and its children.
 	 *
@@ -126,7 +141,43 @@ public class FileTreeIterator extends WorkingTreeIterator {
 		super(p);
 		directory = root;
 		this.fs = fs;
+		if (p instanceof FileTreeIterator) {
+			FileTreeIterator ftp = (FileTreeIterator) p;
+			if (ftp.untrackedCache != null) {
+				untrackedCache = ftp.untrackedCache;
+				cachePath = ftp.getEntryPathString();
+			}
+		}
+		init(entries());
+		if (untrackedCache != null)
+			initIgnoreCache(((FileTreeIterator) p).ignoreCached);
+	}
+
+	/**
+	 * Use a cache of directory listings.
+	 * <p>
+	 * Directories whose modification time did not change since they were
+	 * cached are not listed again, and the ignore state of their entries is
+	 * reused for as long as the ignore rules are unchanged. New listings and
+	 * ignore results are added to the cache while iterating. Only files
+	 * present in a listing are examined; their attributes are still read.
+	 * <p>
+	 * This must be invoked on the root iterator of the working tree, before
+	 * it is added to a {@link TreeWalk}.
+	 *
+	 * @param cache
+	 *            the cache to use and update.
+	 * @since 3.8
+	 */
+	public void setUntrackedCache(UntrackedCache cache) {
+		untrackedCache = cache;
+		cachePath = ""; //$NON-NLS-1$
 		init(entries());
+		if (repository != null) {
+			initRootIterator(repository);
+			initIgnoreCache(cache.setExcludesKey(excludesKey()));
+		} else
+			initIgnoreCache(false);
 	}
 
 	@Override
@@ -135,16 +186,136 @@ public class FileTreeIterator extends WorkingTreeIterator {
 		return new FileTreeIterator(this, ((FileEntry) current()).getFile(), fs);
 	}
 
+	@Override
+	public boolean isEntryIgnored() throws IOException {
+		if (!ignoreCached)
+			return super.isEntryIgnored();
+		int i = ((FileEntry) current()).cacheIndex;
+		byte state = cachedDirectory.getIgnored(i);
+		if (state != UntrackedCache.IGNORE_UNKNOWN)
+			return state == UntrackedCache.IGNORED;
+		boolean ignored = super.isEntryIgnored();
+		untrackedCache.setIgnored(cachedDirectory, i, ignored);
+		return ignored;
+	}
+
 	private Entry[] entries() {
+		FileSnapshot snapshot = null;
+		if (untrackedCache != null) {
+			Entry[] r = cachedEntries();
+			if (r != null)
+				return r;
+			snapshot = FileSnapshot.save(directory);
+		}
 		final File[] all = directory.listFiles();
 		if (all == null)
 			return EOF;
 		final Entry[] r = new Entry[all.length];
 		for (int i = 0; i < r.length; i++)
 			r[i] = new FileEntry(all[i], fs);
+		if (snapshot != null && !snapshot.isModified(directory))
+			cacheEntries(snapshot.lastModified(), r);
+		return r;
+	}
+
+	private Entry[] cachedEntries() {
+		UntrackedCache.Directory d = untrackedCache.get(cachePath);
+		if (d == null || d.getLastModified() != directory.lastModified())
+			return null;
+		final Entry[] r = new Entry[d.size()];
+		for (int i = 0; i < r.length; i++) {
+			File f = new File(directory, d.getName(i));
+			int mode = d.getRawMode(i);
+			FileEntry e;
+			if (FileMode.TREE.equals(mode) || FileMode.GITLINK.equals(mode)) {
+				// A directory stays a directory as long as its parent is
+				// unchanged, but may have become a repository of its own.
+				if (new File(f, Constants.DOT_GIT).exists())
+					e = new FileEntry(f, fs, FileMode.GITLINK);
+				else
+					e = new FileEntry(f, fs, FileMode.TREE);
+			} else
+				e = new FileEntry(f, fs);
+			e.cacheIndex = i;
+			r[i] = e;
+		}
+		cachedDirectory = d;
 		return r;
 	}
 
+	private void cacheEntries(long lastModified, Entry[] r) {
+		String[] names = new String[r.length];
+		int[] modes = new int[r.length];
+		for (int i = 0; i < r.length; i++) {
+			FileEntry e = (FileEntry) r[i];
+			names[i] = e.getName();
+			modes[i] = e.getMode().getBits();
+			e.cacheIndex = i;
+		}
+		cachedDirectory = new UntrackedCache.Directory(lastModified, names,
+				modes);
+		untrackedCache.put(cachePath, cachedDirectory);
+	}
+
+	private void initIgnoreCache(boolean parentCached) {
+		if (cachedDirectory == null) {
+			ignoreCached = false;
+			return;
+		}
+		long[] stamp = ignoreStamp();
+		if (!cachedDirectory.hasIgnoreStamp(stamp))
+			untrackedCache.resetIgnored(cachePath, stamp);
+		ignoreCached = parentCached && stamp != UntrackedCache.UNKNOWN_STAMP;
+	}
+
+	private long[] ignoreStamp() {
+		File f = new File(directory, Constants.DOT_GIT_IGNORE);
+		long[] stamp = fileStamp(f);
+		return stamp != null ? stamp : UntrackedCache.UNKNOWN_STAMP;
+	}
+
+	private String excludesKey() {
+		StringBuilder key = new StringBuilder();
+		String path = repository.getConfig().get(CoreConfig.KEY)
+				.getExcludesFile();
+		if (path != null) {
+			File excludesfile;
+			if (path.startsWith("~/")) //$NON-NLS-1$
+				excludesfile = fs.resolve(fs.userHome(), path.substring(2));
+			else
+				excludesfile = fs.resolve(null, path);
+			if (!appendStamp(key, excludesfile))
+				return null;
+		}
+		File exclude = fs.resolve(repository.getDirectory(),
+				Constants.INFO_EXCLUDE);
+		if (!appendStamp(key, exclude))
+			return null;
+		return key.toString();
+	}
+
+	private static boolean appendStamp(StringBuilder key, File f) {
+		long[] stamp = fileStamp(f);
+		if (stamp == null)
+			return false;
+		key.append(f.getPath()).append(':').append(stamp[0]).append(':')
+				.append(stamp[1]).append('\n');
+		return true;
+	}
+
+	/**
+	 * @return modification time and length of a file, zeros if it is
+	 *         missing, null if it may still be modified without changing its
+	 *         modification time.
+	 */
+	private static long[] fileStamp(File f) {
+		long lastModified = f.lastModified();
+		long length = f.length();
+		if (lastModified != 0 && FileSnapshot.save(lastModified).isModified(f))
+			return null;
+		return new long[] { lastModified, length };
+	}
+
 	/**
 	 * Wrapper for a standard Java IO file
 	 */
@@ -155,6 +326,11 @@ public class FileTreeIterator extends WorkingTreeIterator {
 
 		private FS fs;
 
+		private File file;
+
+		/** Index of the entry in its cached listing, -1 if not cached. */
+		int cacheIndex = -1;
+
 		/**
 		 * Create a new file entry.
 		 *
@@ -180,6 +356,16 @@ public class FileTreeIterator extends WorkingTreeIterator {
 				mode = FileMode.REGULAR_FILE;
 		}
 
+		/**
+		 * Create an entry of known mode whose attributes are read only when
+		 * needed.
+		 */
+		FileEntry(File f, FS fs, FileMode mode) {
+			this.fs = fs;
+			this.file = fs.normalize(f);
+			this.mode = mode;
+		}
+
 		@Override
 		public FileMode getMode() {
 			return mode;
@@ -187,17 +373,19 @@ public class FileTreeIterator extends WorkingTreeIterator {
 
 		@Override
 		public String getName() {
+			if (attributes == null)
+				return file.getName();
 			return attributes.getName();
 		}
 
 		@Override
 		public long getLength() {
-			return attributes.getLength();
+			return attributes().getLength();
 		}
 
 		@Override
 		public long getLastModified() {
-			return attributes.getLastModifiedTime();
+			return attributes().getLastModifiedTime();
 		}
 
 		@Override
@@ -216,8 +404,16 @@ public class FileTreeIterator extends WorkingTreeIterator {
 		 * @return the underlying file of this entry
 		 */
 		public File getFile() {
+			if (attributes == null)
+				return file;
 			return attributes.getFile();
 		}
+
+		private FS.Attributes attributes() {
+			if (attributes == null)
+				attributes = fs.getAttributes(file);
+			return attributes;
+		}
 	}
 
 	/**
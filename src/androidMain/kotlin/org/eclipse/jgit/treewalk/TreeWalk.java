@@ -756,6 +756,20 @@ public class TreeWalk {
 		return r;
 	}
 
+	/**
+	 * Get the current entry's path buffer.
+	 * <p>
+	 * Note that the returned byte[] has to be used together with
+	 * {@link #getPathLength()} (only use bytes up to this length), and that
+	 * its content changes as the walk advances.
+	 *
+	 * @return the internal buffer holding the current path.
+	 * @since 3.8
+	 */
+	public byte[] getRawPathBuffer() {
+		return currentHead.path;
+	}
+
 	/**
 	 * @return The path length of the current entry.
 	 */
@@ -767,10 +781,10 @@ public class TreeWalk {
 	 * Test if the supplied path matches the current entry's path.
 	 * <p>
 	 * This method tests that the supplied path is exactly equal to the current
-	 * entry, or is one of its parent directories. It is faster to use this
-	 * method then to use {@link #getPathString()} to first create a String
-	 * object, then test <code>startsWith</code> or some other type of string
-	 * match function.
+	 * entry, or is one of its parent directories, or that the current entry is
+	 * a tree containing it. It is faster to use this method then to use
+	 * {@link #getPathString()} to first create a String object, then test
+	 * <code>startsWith</code> or some other type of string match function.
 	 *
 	 * @param p
 	 *            path buffer to test. Callers should ensure the path does not
@@ -803,10 +817,11 @@ public class TreeWalk {
 
 		if (ci < pLen) {
 			// Ran out of current, but we still have pattern data.
-			// If p[ci] == '/' then pattern matches this subtree,
-			// otherwise we cannot be certain so we return -1.
+			// If p[ci] == '/' and the current entry is a tree then pattern
+			// matches this subtree, otherwise we cannot be certain so we
+			// return -1.
 			//
-			return p[ci] == '/' ? 0 : -1;
+			return p[ci] == '/' && FileMode.TREE.equals(t.mode) ? 0 : -1;
 		}
 
 		// Both strings are identical.
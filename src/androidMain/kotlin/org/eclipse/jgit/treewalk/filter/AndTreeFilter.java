@@ -114,6 +114,13 @@ public abstract class AndTreeFilter extends TreeFilter {
 		return new List(subfilters);
 	}
 
+	/**
+	 * @return the filters combined by this filter, null if unknown.
+	 */
+	TreeFilter[] getSubfilters() {
+		return null;
+	}
+
 	private static class Binary extends AndTreeFilter {
 		private final TreeFilter a;
 
@@ -124,6 +131,11 @@ public abstract class AndTreeFilter extends TreeFilter {
 			b = two;
 		}
 
+		@Override
+		TreeFilter[] getSubfilters() {
+			return new TreeFilter[] { a, b };
+		}
+
 		@Override
 		public boolean include(final TreeWalk walker)
 				throws MissingObjectException, IncorrectObjectTypeException,
@@ -155,6 +167,11 @@ public abstract class AndTreeFilter extends TreeFilter {
 			subfilters = list;
 		}
 
+		@Override
+		TreeFilter[] getSubfilters() {
+			return subfilters.clone();
+		}
+
 		@Override
 		public boolean include(final TreeWalk walker)
 				throws MissingObjectException, IncorrectObjectTypeException,
@@ -0,0 +1,436 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.treewalk.filter;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.errors.StopWalkException;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+/**
+ * Tests the path of an entry against a combination of path filters at once.
+ * <p>
+ * {@link #compile(TreeFilter)} replaces the parts of a filter which only
+ * combine {@link PathFilter}s and {@link PathFilterGroup}s through
+ * {@link AndTreeFilter}, {@link OrTreeFilter} and {@link NotTreeFilter} by a
+ * single filter. Its paths are stored in a trie of path segments, and each
+ * node of the trie knows the result of the whole combination for an entry
+ * ending at the node, and for an entry below the node that is not in the trie.
+ * Testing an entry looks up each segment of its path once, no matter how many
+ * filters and paths are combined.
+ * <p>
+ * Like {@link PathFilterGroup} the filter aborts the walk once no later entry
+ * can match, but only where this cannot bypass a higher level OR or NOT.
+ * <p>
+ * This class is immutable and thread safe.
+ *
+ * @since 3.8
+ */
+public class CompiledPathFilter extends TreeFilter {
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1"); //$NON-NLS-1$
+
+	/**
+	 * Compile the path filters within a filter.
+	 *
+	 * @param filter
+	 *            the filter to compile.
+	 * @return a filter including the same entries as {@code filter}; the
+	 *         filter itself if there is nothing to compile.
+	 */
+	public static TreeFilter compile(TreeFilter filter) {
+		return compile(filter, true);
+	}
+
+	private static TreeFilter compile(TreeFilter filter, boolean canStop) {
+		if (isPathOnly(filter)) {
+			// A single path is already fast, but its group may abort the
+			// walk where it must not.
+			if (filter instanceof PathFilter || (canStop
+					&& filter instanceof PathFilterGroup.Single))
+				return filter;
+			return new CompiledPathFilter(filter, canStop);
+		}
+		if (filter instanceof AndTreeFilter) {
+			TreeFilter[] list = ((AndTreeFilter) filter).getSubfilters();
+			if (list != null)
+				return create(compileAll(list, canStop, true), true);
+		} else if (filter instanceof OrTreeFilter) {
+			TreeFilter[] list = ((OrTreeFilter) filter).getSubfilters();
+			if (list != null)
+				return create(compileAll(list, false, false), false);
+		} else if (filter instanceof NotTreeFilter) {
+			TreeFilter a = ((NotTreeFilter) filter).getNegated();
+			TreeFilter c = compile(a, false);
+			return c == a ? filter : NotTreeFilter.create(c);
+		}
+		return filter;
+	}
+
+	private static List<TreeFilter> compileAll(TreeFilter[] list,
+			boolean canStop, boolean and) {
+		List<TreeFilter> paths = new ArrayList<TreeFilter>();
+		List<TreeFilter> r = new ArrayList<TreeFilter>(list.length);
+		int pos = -1;
+		for (TreeFilter f : list) {
+			if (isPathOnly(f)) {
+				if (pos < 0) {
+					pos = r.size();
+					r.add(null);
+				}
+				paths.add(f);
+			} else
+				r.add(compile(f, canStop));
+		}
+		if (paths.size() == 1)
+			r.set(pos, compile(paths.get(0), canStop));
+		else if (paths.size() > 1) {
+			TreeFilter group = and ? AndTreeFilter.create(paths)
+					: OrTreeFilter.create(paths);
+			r.set(pos, new CompiledPathFilter(group, canStop));
+		}
+		return r;
+	}
+
+	private static TreeFilter create(List<TreeFilter> list, boolean and) {
+		if (list.size() == 1)
+			return list.get(0);
+		return and ? AndTreeFilter.create(list) : OrTreeFilter.create(list);
+	}
+
+	private static boolean isPathOnly(TreeFilter f) {
+		if (f instanceof PathFilter || f instanceof PathFilterGroup.Single
+				|| f instanceof PathFilterGroup.Group)
+			return true;
+		TreeFilter[] list = null;
+		if (f instanceof AndTreeFilter)
+			list = ((AndTreeFilter) f).getSubfilters();
+		else if (f instanceof OrTreeFilter)
+			list = ((OrTreeFilter) f).getSubfilters();
+		else if (f instanceof NotTreeFilter)
+			list = new TreeFilter[] { ((NotTreeFilter) f).getNegated() };
+		if (list == null)
+			return false;
+		for (TreeFilter s : list) {
+			if (!isPathOnly(s))
+				return false;
+		}
+		return true;
+	}
+
+	private final TreeFilter source;
+
+	private final Node root;
+
+	private final boolean recursive;
+
+	/** Path past which no entry can match; null if the walk is not aborted. */
+	private final byte[] max;
+
+	private CompiledPathFilter(TreeFilter source, boolean canStop) {
+		this.source = source;
+		Builder b = new Builder();
+		Expr expr = b.expr(source);
+		root = b.root.finish(new BitSet(), expr);
+		recursive = b.recursive;
+		if (canStop && !root.beyond && b.max != null)
+			max = PathFilterGroup.Group.adjustMax(b.max);
+		else
+			max = null;
+	}
+
+	@Override
+	public boolean include(TreeWalk walker) {
+		byte[] path = walker.getRawPathBuffer();
+		int len = walker.getPathLength();
+		Node n = root;
+		boolean r;
+		for (int start = 0;;) {
+			int end = start;
+			while (end < len && path[end] != '/')
+				end++;
+			Node c = n.child(path, start, end);
+			if (c == null) {
+				r = n.beyond;
+				break;
+			}
+			if (end == len) {
+				// Like PathFilter, only a tree can lead to a longer path.
+				r = walker.isSubtree() ? c.match : c.beyond;
+				break;
+			}
+			n = c;
+			start = end + 1;
+		}
+		if (!r && max != null && walker.isPathPrefix(max, max.length) > 0)
+			throw StopWalkException.INSTANCE;
+		return r;
+	}
+
+	@Override
+	public boolean shouldBeRecursive() {
+		return recursive;
+	}
+
+	@Override
+	public TreeFilter clone() {
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "COMPILED(" + source.toString() + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/** Node of the trie, for a path of one or more segments. */
+	private static final class Node {
+		/** Result for a tree with the path of this node. */
+		boolean match;
+
+		/**
+		 * Result for an entry below this node which is not in the trie, and
+		 * for a non-tree entry with the path of this node.
+		 */
+		boolean beyond;
+
+		private byte[][] keys;
+
+		private Node[] children;
+
+		private int mask;
+
+		Node child(byte[] path, int start, int end) {
+			if (keys == null)
+				return null;
+			int h = 0;
+			for (int i = start; i < end; i++)
+				h = 31 * h + (path[i] & 0xff);
+			int len = end - start;
+			for (int i = mix(h) & mask;; i = (i + 1) & mask) {
+				byte[] k = keys[i];
+				if (k == null)
+					return null;
+				if (k.length == len && equals(k, path, start))
+					return children[i];
+			}
+		}
+
+		private static boolean equals(byte[] k, byte[] path, int start) {
+			for (int i = 0; i < k.length; i++) {
+				if (k[i] != path[start + i])
+					return false;
+			}
+			return true;
+		}
+
+		private static int mix(int h) {
+			return h ^ (h >>> 16);
+		}
+	}
+
+	/** Node of the trie while the filter is compiled. */
+	private static final class BuildNode {
+		/** Children by segment, decoded as ISO-8859-1 to keep the bytes. */
+		final Map<String, BuildNode> children = new HashMap<String, BuildNode>();
+
+		/** Leaves having a path ending at this node. */
+		final BitSet leaves = new BitSet();
+
+		/** Leaves having a path ending at or below this node. */
+		BitSet below;
+
+		BuildNode child(String name) {
+			BuildNode c = children.get(name);
+			if (c == null) {
+				c = new BuildNode();
+				children.put(name, c);
+			}
+			return c;
+		}
+
+		Node finish(BitSet above, Expr expr) {
+			BitSet upTo = (BitSet) above.clone();
+			upTo.or(leaves);
+
+			Node n = new Node();
+			n.beyond = expr.eval(upTo);
+			below = (BitSet) leaves.clone();
+			if (!children.isEmpty()) {
+				int capacity = 2;
+				while (capacity < children.size() * 2)
+					capacity <<= 1;
+				n.keys = new byte[capacity][];
+				n.children = new Node[capacity];
+				n.mask = capacity - 1;
+				for (Map.Entry<String, BuildNode> e : children.entrySet()) {
+					String name = e.getKey();
+					BuildNode c = e.getValue();
+					int i = Node.mix(name.hashCode()) & n.mask;
+					while (n.keys[i] != null)
+						i = (i + 1) & n.mask;
+					n.keys[i] = name.getBytes(ISO_8859_1);
+					n.children[i] = c.finish(upTo, expr);
+					below.or(c.below);
+				}
+			}
+			BitSet matching = (BitSet) above.clone();
+			matching.or(below);
+			n.match = expr.eval(matching);
+			return n;
+		}
+	}
+
+	/** Collects the paths of a filter into a trie. */
+	private static final class Builder {
+		final BuildNode root = new BuildNode();
+
+		byte[] max;
+
+		boolean recursive;
+
+		private int leaves;
+
+		Expr expr(TreeFilter f) {
+			if (f instanceof PathFilter)
+				return leaf(new byte[][] { ((PathFilter) f).pathRaw });
+			if (f instanceof PathFilterGroup.Single)
+				return leaf(((PathFilterGroup.Single) f).getPaths());
+			if (f instanceof PathFilterGroup.Group)
+				return leaf(((PathFilterGroup.Group) f).getPaths());
+			if (f instanceof NotTreeFilter)
+				return new Not(expr(((NotTreeFilter) f).getNegated()));
+
+			boolean and = f instanceof AndTreeFilter;
+			TreeFilter[] list = and ? ((AndTreeFilter) f).getSubfilters()
+					: ((OrTreeFilter) f).getSubfilters();
+			List<Expr> exprs = new ArrayList<Expr>(list.length);
+			List<byte[]> paths = new ArrayList<byte[]>();
+			for (TreeFilter s : list) {
+				// Paths of an OR are matched by a single leaf.
+				if (!and && s instanceof PathFilter)
+					paths.add(((PathFilter) s).pathRaw);
+				else
+					exprs.add(expr(s));
+			}
+			if (!paths.isEmpty())
+				exprs.add(leaf(paths.toArray(new byte[paths.size()][])));
+			return new Combine(and, exprs.toArray(new Expr[exprs.size()]));
+		}
+
+		private Expr leaf(byte[][] paths) {
+			int id = leaves++;
+			for (byte[] p : paths) {
+				BuildNode n = root;
+				int start = 0;
+				for (int i = 0; i <= p.length; i++) {
+					if (i == p.length || p[i] == '/') {
+						n = n.child(new String(p, start, i - start, ISO_8859_1));
+						if (i < p.length)
+							recursive = true;
+						start = i + 1;
+					}
+				}
+				n.leaves.set(id);
+				if (max == null || PathFilterGroup.Group.compare(max, p) < 0)
+					max = p;
+			}
+			return new Leaf(id);
+		}
+	}
+
+	/** Boolean combination of the leaves, evaluated while compiling. */
+	private static abstract class Expr {
+		abstract boolean eval(BitSet leaves);
+	}
+
+	private static final class Leaf extends Expr {
+		private final int id;
+
+		Leaf(int id) {
+			this.id = id;
+		}
+
+		@Override
+		boolean eval(BitSet leaves) {
+			return leaves.get(id);
+		}
+	}
+
+	private static final class Not extends Expr {
+		private final Expr e;
+
+		Not(Expr e) {
+			this.e = e;
+		}
+
+		@Override
+		boolean eval(BitSet leaves) {
+			return !e.eval(leaves);
+		}
+	}
+
+	private static final class Combine extends Expr {
+		private final boolean and;
+
+		private final Expr[] exprs;
+
+		Combine(boolean and, Expr[] exprs) {
+			this.and = and;
+			this.exprs = exprs;
+		}
+
+		@Override
+		boolean eval(BitSet leaves) {
+			for (Expr e : exprs) {
+				if (e.eval(leaves) != and)
+					return !and;
+			}
+			return and;
+		}
+	}
+}
@@ -69,6 +69,11 @@ public class NotTreeFilter extends TreeFilter {
 		a = one;
 	}
 
+	/** @return the filter negated by this filter. */
+	TreeFilter getNegated() {
+		return a;
+	}
+
 	@Override
 	public TreeFilter negate() {
 		return a;
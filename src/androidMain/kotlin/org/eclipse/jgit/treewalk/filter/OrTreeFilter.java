@@ -112,6 +112,13 @@ public abstract class OrTreeFilter extends TreeFilter {
 		return new List(subfilters);
 	}
 
+	/**
+	 * @return the filters combined by this filter, null if unknown.
+	 */
+	TreeFilter[] getSubfilters() {
+		return null;
+	}
+
 	private static class Binary extends OrTreeFilter {
 		private final TreeFilter a;
 
@@ -122,6 +129,11 @@ public abstract class OrTreeFilter extends TreeFilter {
 			b = two;
 		}
 
+		@Override
+		TreeFilter[] getSubfilters() {
+			return new TreeFilter[] { a, b };
+		}
+
 		@Override
 		public boolean include(final TreeWalk walker)
 				throws MissingObjectException, IncorrectObjectTypeException,
@@ -153,6 +165,11 @@ public abstract class OrTreeFilter extends TreeFilter {
 			subfilters = list;
 		}
 
+		@Override
+		TreeFilter[] getSubfilters() {
+			return subfilters.clone();
+		}
+
 		@Override
 		public boolean include(final TreeWalk walker)
 				throws MissingObjectException, IncorrectObjectTypeException,
@@ -168,6 +168,10 @@ public class PathFilterGroup {
 			return path.shouldBeRecursive();
 		}
 
+		byte[][] getPaths() {
+			return new byte[][] { raw };
+		}
+
 		@Override
 		public TreeFilter clone() {
 			return this;
@@ -208,6 +212,15 @@ public class PathFilterGroup {
 				if (compare(max, pf.pathRaw) < 0)
 					max = pf.pathRaw;
 			}
+			max = adjustMax(max);
+		}
+
+		/**
+		 * @param max
+		 *            the largest path of a group.
+		 * @return path past which no entry of a walk can match the group.
+		 */
+		static byte[] adjustMax(byte[] max) {
 			// Adjust max for the git sort order. A path we compare
 			// with may end with a slash at any position (but the
 			// first, but we ignore that here since it's not relevant).
@@ -220,10 +233,10 @@ public class PathFilterGroup {
 				else
 					newMax[i] = max[i];
 			newMax[newMax.length - 1] = '/';
-			max = newMax;
+			return newMax;
 		}
 
-		private static int compare(byte[] a, byte[] b) {
+		static int compare(byte[] a, byte[] b) {
 			int i = 0;
 			while (i < a.length && i < b.length) {
 				int ba = a[i] & 0xFF;
@@ -239,7 +252,7 @@ public class PathFilterGroup {
 		@Override
 		public boolean include(final TreeWalk walker) {
 
-			byte[] rp = walker.getRawPath();
+			byte[] rp = walker.getRawPathBuffer();
 			Hasher hasher = new Hasher(rp, walker.getPathLength());
 			while (hasher.hasNext()) {
 				int hash = hasher.nextHash();
@@ -262,6 +275,10 @@ public class PathFilterGroup {
 			return !prefixes.isEmpty();
 		}
 
+		byte[][] getPaths() {
+			return fullpaths.toArray();
+		}
+
 		@Override
 		public TreeFilter clone() {
 			return this;
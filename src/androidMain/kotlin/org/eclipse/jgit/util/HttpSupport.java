@@ -167,15 +167,40 @@ public class HttpSupport {
 		try {
 			return c.getResponseCode();
 		} catch (ConnectException ce) {
-			final String host = c.getURL().getHost();
-			// The standard J2SE error message is not very useful.
-			//
-			if ("Connection timed out: connect".equals(ce.getMessage())) //$NON-NLS-1$
-				throw new ConnectException(MessageFormat.format(JGitText.get().connectionTimeOut, host));
-			throw new ConnectException(ce.getMessage() + " " + host); //$NON-NLS-1$
+			throw connectError(ce, c.getURL().getHost());
 		}
 	}
 
+	/**
+	 * Open the connection to the server without sending the request.
+	 * <p>
+	 * Roughly the same as <code>c.connect()</code> but the ConnectException
+	 * is translated to be more understandable.
+	 *
+	 * @param c
+	 *            connection to open.
+	 * @throws IOException
+	 *             communications error prevented opening the connection.
+	 * @since 3.8
+	 */
+	public static void connect(final HttpConnection c) throws IOException {
+		try {
+			c.connect();
+		} catch (ConnectException ce) {
+			throw connectError(ce, c.getURL().getHost());
+		}
+	}
+
+	private static ConnectException connectError(ConnectException ce,
+			String host) {
+		// The standard J2SE error message is not very useful.
+		//
+		if ("Connection timed out: connect".equals(ce.getMessage())) //$NON-NLS-1$
+			return new ConnectException(MessageFormat.format(
+					JGitText.get().connectionTimeOut, host));
+		return new ConnectException(ce.getMessage() + " " + host); //$NON-NLS-1$
+	}
+
 	/**
 	 * Get the HTTP response code from the request.
 	 * <p>
@@ -194,13 +219,7 @@ public class HttpSupport {
 		try {
 			return c.getResponseCode();
 		} catch (ConnectException ce) {
-			final String host = c.getURL().getHost();
-			// The standard J2SE error message is not very useful.
-			//
-			if ("Connection timed out: connect".equals(ce.getMessage())) //$NON-NLS-1$
-				throw new ConnectException(MessageFormat.format(
-						JGitText.get().connectionTimeOut, host));
-			throw new ConnectException(ce.getMessage() + " " + host); //$NON-NLS-1$
+			throw connectError(ce, c.getURL().getHost());
 		}
 	}
 
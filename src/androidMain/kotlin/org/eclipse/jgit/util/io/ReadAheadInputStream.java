@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.util.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Reads a stream ahead of its consumer on a background thread.
+ * <p>
+ * A daemon thread copies the source stream into a bounded ring buffer,
+ * which the consumer reads from. Slow network reads and CPU bound work on
+ * the data, such as parsing a pack, overlap instead of taking turns; the
+ * total time approaches the larger of the two rather than their sum.
+ * <p>
+ * Errors thrown by the source stream are rethrown to the consumer once it
+ * has read all data buffered before the error. Closing this stream stops
+ * the background thread after its current read, but does not close the
+ * source stream.
+ *
+ * @since 3.8
+ */
+public class ReadAheadInputStream extends InputStream {
+	private static final int READ_SIZE = 8192;
+
+	private final InputStream src;
+
+	private final byte[] ring;
+
+	private final Thread reader;
+
+	/** Position of the next byte the consumer will read. */
+	private int head;
+
+	/** Number of bytes buffered, starting at {@link #head}. */
+	private int count;
+
+	private boolean eof;
+
+	private IOException error;
+
+	private boolean closed;
+
+	/**
+	 * Start reading ahead of the caller.
+	 *
+	 * @param src
+	 *            stream to read from.
+	 * @param bufferSize
+	 *            maximum number of bytes read ahead of the caller.
+	 */
+	public ReadAheadInputStream(InputStream src, int bufferSize) {
+		this.src = src;
+		this.ring = new byte[Math.max(bufferSize, READ_SIZE)];
+		this.reader = new Thread(Thread.currentThread().getName()
+				+ "-ReadAhead") { //$NON-NLS-1$
+			@Override
+			public void run() {
+				fill();
+			}
+		};
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	private void fill() {
+		byte[] buf = new byte[READ_SIZE];
+		for (;;) {
+			int want;
+			synchronized (this) {
+				while (!closed && ring.length - count < buf.length) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						closed = true;
+					}
+				}
+				if (closed)
+					return;
+				want = Math.min(buf.length, ring.length - count);
+			}
+
+			int n;
+			try {
+				n = src.read(buf, 0, want);
+			} catch (IOException e) {
+				synchronized (this) {
+					error = e;
+					notifyAll();
+				}
+				return;
+			}
+
+			synchronized (this) {
+				if (n < 0) {
+					eof = true;
+					notifyAll();
+					return;
+				}
+				int tail = (head + count) % ring.length;
+				int first = Math.min(n, ring.length - tail);
+				System.arraycopy(buf, 0, ring, tail, first);
+				System.arraycopy(buf, first, ring, 0, n - first);
+				count += n;
+				notifyAll();
+			}
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		return read(b, 0, 1) == 1 ? b[0] & 0xff : -1;
+	}
+
+	@Override
+	public synchronized int read(byte[] b, int off, int len)
+			throws IOException {
+		if (len == 0)
+			return 0;
+		while (count == 0) {
+			if (error != null)
+				throw error;
+			if (eof || closed)
+				return -1;
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException();
+			}
+		}
+
+		int n = Math.min(len, count);
+		int first = Math.min(n, ring.length - head);
+		System.arraycopy(ring, head, b, off, first);
+		System.arraycopy(ring, 0, b, off + first, n - first);
+		head = (head + n) % ring.length;
+		count -= n;
+		notifyAll();
+		return n;
+	}
+
+	@Override
+	public synchronized int available() throws IOException {
+		return count;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		closed = true;
+		count = 0;
+		notifyAll();
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.jgit.lib.Constants;
+import org.junit.Test;
+
+public class TransportHttpTest {
+	private static final String ID = "1111111111111111111111111111111111111111"; //$NON-NLS-1$
+
+	@Test
+	public void testVersion2WithoutServiceHeader() throws Exception {
+		TransportHttp t = open(true);
+		InputStream in = t.readSmartHeaders(
+				stream("version 2\n", "ls-refs\n", null), //$NON-NLS-1$ //$NON-NLS-2$
+				"git-upload-pack"); //$NON-NLS-1$
+		assertTrue(t.isServerProtocolV2());
+		assertEquals("version 2", new PacketLineIn(in).readString()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testVersion2AfterServiceHeader() throws Exception {
+		// The headers GitHub sends for info/refs with Git-Protocol: version=2.
+		TransportHttp t = open(true);
+		InputStream in = t.readSmartHeaders(
+				stream("# service=git-upload-pack\n", null, "version 2\n", //$NON-NLS-1$ //$NON-NLS-2$
+						"agent=git/github-g2faa647c1e\n", "ls-refs=unborn\n", //$NON-NLS-1$ //$NON-NLS-2$
+						"fetch=shallow wait-for-done filter\n", //$NON-NLS-1$
+						"server-option\n", "object-format=sha1\n", null), //$NON-NLS-1$ //$NON-NLS-2$
+				"git-upload-pack"); //$NON-NLS-1$
+		assertTrue(t.isServerProtocolV2());
+		PacketLineIn pckIn = new PacketLineIn(in);
+		assertEquals("version 2", pckIn.readString()); //$NON-NLS-1$
+		assertEquals("agent=git/github-g2faa647c1e", pckIn.readString()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testVersion0AfterServiceHeader() throws Exception {
+		TransportHttp t = open(true);
+		InputStream in = t.readSmartHeaders(
+				stream("# service=git-upload-pack\n", null, //$NON-NLS-1$
+						ID + " HEAD\0multi_ack\n", //$NON-NLS-1$
+						ID + " refs/heads/master\n", null), //$NON-NLS-1$
+				"git-upload-pack"); //$NON-NLS-1$
+		assertFalse(t.isServerProtocolV2());
+		PacketLineIn pckIn = new PacketLineIn(in);
+		assertEquals(ID + " HEAD\0multi_ack", pckIn.readString()); //$NON-NLS-1$
+		assertEquals(ID + " refs/heads/master", pckIn.readString()); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testVersion2NotRequested() throws Exception {
+		TransportHttp t = open(false);
+		InputStream in = t.readSmartHeaders(
+				stream("# service=git-upload-pack\n", null, "version 2\n", //$NON-NLS-1$ //$NON-NLS-2$
+						null),
+				"git-upload-pack"); //$NON-NLS-1$
+		assertFalse(t.isServerProtocolV2());
+		assertEquals("version 2", new PacketLineIn(in).readString()); //$NON-NLS-1$
+	}
+
+	private static TransportHttp open(boolean v2) throws Exception {
+		TransportHttp t = (TransportHttp) Transport.open(new URIish(
+				"http://example.com/repo.git")); //$NON-NLS-1$
+		t.setProtocolV2(v2);
+		return t;
+	}
+
+	/** Encode pkt-lines; a null line is written as a flush. */
+	private static InputStream stream(String... lines) throws IOException {
+		ByteArrayOutputStream b = new ByteArrayOutputStream();
+		PacketLineOut out = new PacketLineOut(b);
+		for (String line : lines) {
+			if (line == null)
+				out.end();
+			else
+				out.writePacket(Constants.encode(line));
+		}
+		return new ByteArrayInputStream(b.toByteArray());
+	}
+}
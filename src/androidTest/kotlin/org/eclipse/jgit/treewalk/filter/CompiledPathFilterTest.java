@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2026, GH-Page-Publisher contributors
+ * and other copyright owners as documented in the project's IP log.
+ *
+ * This program and the accompanying materials are made available
+ * under the terms of the Eclipse Distribution License v1.0 which
+ * accompanies this distribution, is reproduced below, and is
+ * available at http://www.eclipse.org/org/documents/edl-v10.php
+ *
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or
+ * without modification, are permitted provided that the following
+ * conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above
+ *   copyright notice, this list of conditions and the following
+ *   disclaimer in the documentation and/or other materials provided
+ *   with the distribution.
+ *
+ * - Neither the name of the Eclipse Foundation, Inc. nor the
+ *   names of its contributors may be used to endorse or promote
+ *   products derived from this software without specific prior
+ *   written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT,
+ * STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.eclipse.jgit.treewalk.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.Test;
+
+public class CompiledPathFilterTest {
+	@Test
+	public void testFileNamedAsPrefixOfPath() throws Exception {
+		TreeFilter f = OrTreeFilter.create(PathFilter.create("a/b"), //$NON-NLS-1$
+				PathFilter.create("c/d")); //$NON-NLS-1$
+		assertSameEntries(f, false, "c"); //$NON-NLS-1$
+		assertSameEntries(f, true, "c/d"); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testNotFileNamedAsPrefixOfPath() throws Exception {
+		TreeFilter f = NotTreeFilter.create(OrTreeFilter.create(
+				PathFilter.create("a/b"), PathFilter.create("c/d"))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSameEntries(f, false, "a", "e"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSameEntries(f, true, "a", "e/f"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testFileNamedAsPath() throws Exception {
+		TreeFilter f = OrTreeFilter.create(PathFilter.create("a"), //$NON-NLS-1$
+				PathFilter.create("e/f")); //$NON-NLS-1$
+		assertSameEntries(f, false, "a", "e"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertSameEntries(f, true, "a", "e/f"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private static void assertSameEntries(TreeFilter f, boolean recursive,
+			String... expected) throws Exception {
+		TreeFilter c = CompiledPathFilter.compile(f);
+		assertNotSame(f, c);
+		assertEquals(Arrays.asList(expected), walk(f, recursive));
+		assertEquals(Arrays.asList(expected), walk(c, recursive));
+	}
+
+	private static List<String> walk(TreeFilter f, boolean recursive)
+			throws Exception {
+		DirCache dc = DirCache.newInCore();
+		DirCacheBuilder b = dc.builder();
+		for (String path : new String[] { "a", "c/d", "c/e", "e/f" }) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			DirCacheEntry e = new DirCacheEntry(path);
+			e.setFileMode(FileMode.REGULAR_FILE);
+			e.setObjectId(ObjectId.zeroId());
+			b.add(e);
+		}
+		b.finish();
+
+		TreeWalk tw = new TreeWalk((ObjectReader) null);
+		tw.addTree(new DirCacheIterator(dc));
+		tw.setFilter(f);
+		tw.setRecursive(recursive);
+		List<String> paths = new ArrayList<String>();
+		while (tw.next())
+			paths.add(tw.getPathString());
+		return paths;
+	}
+}
@@ -33,7 +33,10 @@ actual class GitRepository {
 
     actual fun resetToRemote(isHard: Boolean, localRepoPath: String) {
         val remoteMainRefPrefix = "refs/heads/"
-        val remoteMainRef = Git.open(File(localRepoPath)).lsRemote().call().run {
+        val remoteMainRef = Git.open(File(localRepoPath)).apply {
+            // Over protocol v2 the remote lists only the heads asked for
+            repository.config.setInt("protocol", null, "version", 2)
+        }.lsRemote().setHeads(true).call().run {
             find { ref ->
                 ref.name.startsWith(remoteMainRefPrefix)
             } ?: first()